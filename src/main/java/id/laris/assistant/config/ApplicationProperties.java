@@ -1,5 +1,9 @@
 package id.laris.assistant.config;
 
+import id.laris.assistant.service.CountStrategy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -10,9 +14,660 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
+
     // jhipster-needle-application-properties-property
+    private final Pagination pagination = new Pagination();
+    private final Database database = new Database();
+    private final Bulk bulk = new Bulk();
+    private final DatasetImport datasetImport = new DatasetImport();
+    private final Export export = new Export();
+    private final WriteBehind writeBehind = new WriteBehind();
+    private final RatingStats ratingStats = new RatingStats();
+    private final Partitions partitions = new Partitions();
+    private final MovieCatalog movieCatalog = new MovieCatalog();
+    private final Invalidation invalidation = new Invalidation();
+    private final LookupCoalescing lookupCoalescing = new LookupCoalescing();
 
     // jhipster-needle-application-properties-property-getter
+    public Pagination getPagination() {
+        return pagination;
+    }
+
+    public Database getDatabase() {
+        return database;
+    }
+
+    public Bulk getBulk() {
+        return bulk;
+    }
+
+    public DatasetImport getDatasetImport() {
+        return datasetImport;
+    }
+
+    public Export getExport() {
+        return export;
+    }
+
+    public WriteBehind getWriteBehind() {
+        return writeBehind;
+    }
+
+    public RatingStats getRatingStats() {
+        return ratingStats;
+    }
+
+    public Partitions getPartitions() {
+        return partitions;
+    }
+
+    public MovieCatalog getMovieCatalog() {
+        return movieCatalog;
+    }
+
+    public Invalidation getInvalidation() {
+        return invalidation;
+    }
+
+    public LookupCoalescing getLookupCoalescing() {
+        return lookupCoalescing;
+    }
 
     // jhipster-needle-application-properties-property-class
+    public static class Pagination {
+
+        /**
+         * Strategy of the {@code X-Total-Count} of the list endpoints, when the client does not choose one.
+         */
+        private CountStrategy defaultCountStrategy = CountStrategy.EXACT;
+
+        /**
+         * Age after which a cached count is recomputed exactly, to correct the drift of its maintained counter.
+         */
+        private Duration countCacheTtl = Duration.ofMinutes(5);
+
+        /**
+         * Largest number of ids of a multi-get request, such as {@code GET /api/public/movies?ids=}.
+         */
+        private int maxIdsPerRequest = 100;
+
+        public CountStrategy getDefaultCountStrategy() {
+            return defaultCountStrategy;
+        }
+
+        public void setDefaultCountStrategy(CountStrategy defaultCountStrategy) {
+            this.defaultCountStrategy = defaultCountStrategy;
+        }
+
+        public Duration getCountCacheTtl() {
+            return countCacheTtl;
+        }
+
+        public void setCountCacheTtl(Duration countCacheTtl) {
+            this.countCacheTtl = countCacheTtl;
+        }
+
+        public int getMaxIdsPerRequest() {
+            return maxIdsPerRequest;
+        }
+
+        public void setMaxIdsPerRequest(int maxIdsPerRequest) {
+            this.maxIdsPerRequest = maxIdsPerRequest;
+        }
+    }
+
+    public static class Database {
+
+        /**
+         * Maximum number of rendered SQL select templates kept by the {@code EntityManager}.
+         */
+        private int selectTemplateCacheSize = 1024;
+
+        /**
+         * Number of server-side prepared statements cached per connection by the R2DBC Postgres driver, -1 for no limit.
+         */
+        private int preparedStatementCacheQueries = 256;
+
+        /**
+         * Whether the statements, rows and database time of each HTTP request are recorded, by a proxy of the R2DBC
+         * connections.
+         */
+        private boolean requestMetrics = true;
+
+        /**
+         * Whether the database time of each HTTP request is sent in a {@code Server-Timing} response header.
+         */
+        private boolean serverTiming = false;
+
+        /**
+         * Whether the {@code @AutocommitRead} methods run in autocommit rather than in a read-only transaction.
+         */
+        private boolean autocommitReads = true;
+
+        private final Replicas replicas = new Replicas();
+
+        public int getSelectTemplateCacheSize() {
+            return selectTemplateCacheSize;
+        }
+
+        public void setSelectTemplateCacheSize(int selectTemplateCacheSize) {
+            this.selectTemplateCacheSize = selectTemplateCacheSize;
+        }
+
+        public int getPreparedStatementCacheQueries() {
+            return preparedStatementCacheQueries;
+        }
+
+        public void setPreparedStatementCacheQueries(int preparedStatementCacheQueries) {
+            this.preparedStatementCacheQueries = preparedStatementCacheQueries;
+        }
+
+        public boolean isRequestMetrics() {
+            return requestMetrics;
+        }
+
+        public void setRequestMetrics(boolean requestMetrics) {
+            this.requestMetrics = requestMetrics;
+        }
+
+        public boolean isServerTiming() {
+            return serverTiming;
+        }
+
+        public void setServerTiming(boolean serverTiming) {
+            this.serverTiming = serverTiming;
+        }
+
+        public boolean isAutocommitReads() {
+            return autocommitReads;
+        }
+
+        public void setAutocommitReads(boolean autocommitReads) {
+            this.autocommitReads = autocommitReads;
+        }
+
+        public Replicas getReplicas() {
+            return replicas;
+        }
+
+        public static class Replicas {
+
+            /**
+             * R2DBC URLs of the read replicas serving the read-only transactions, none to use the primary only. The
+             * {@code spring.r2dbc} credentials and pool size apply unless the URL sets them.
+             */
+            private List<String> urls = new ArrayList<>();
+
+            /**
+             * Replay lag above which a replica is skipped until it catches up.
+             */
+            private Duration maxLag = Duration.ofSeconds(10);
+
+            private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+            private Duration healthCheckTimeout = Duration.ofSeconds(2);
+
+            public List<String> getUrls() {
+                return urls;
+            }
+
+            public void setUrls(List<String> urls) {
+                this.urls = urls;
+            }
+
+            public Duration getMaxLag() {
+                return maxLag;
+            }
+
+            public void setMaxLag(Duration maxLag) {
+                this.maxLag = maxLag;
+            }
+
+            public Duration getHealthCheckInterval() {
+                return healthCheckInterval;
+            }
+
+            public void setHealthCheckInterval(Duration healthCheckInterval) {
+                this.healthCheckInterval = healthCheckInterval;
+            }
+
+            public Duration getHealthCheckTimeout() {
+                return healthCheckTimeout;
+            }
+
+            public void setHealthCheckTimeout(Duration healthCheckTimeout) {
+                this.healthCheckTimeout = healthCheckTimeout;
+            }
+        }
+    }
+
+    public static class Bulk {
+
+        /**
+         * Number of entities inserted per statement batch, and per transaction, by the bulk endpoints.
+         */
+        private int chunkSize = 500;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    public static class DatasetImport {
+
+        /**
+         * Location of the {@code movies.csv}, {@code users.csv}, {@code ratings.csv} and {@code tags.csv} files, as a
+         * Spring resource location such as {@code file:/data/ml-25m/} or {@code classpath:config/liquibase/fake-data/}.
+         */
+        private String location = "classpath:config/liquibase/fake-data/";
+
+        /**
+         * Whether to import the datasets once the application is started.
+         */
+        private boolean onStartup = false;
+
+        /**
+         * Whether to empty the tables before importing them.
+         */
+        private boolean truncate = false;
+
+        /**
+         * Whether to drop the secondary indexes before the import, and rebuild them after.
+         */
+        private boolean rebuildIndexes = false;
+
+        /**
+         * Size of the chunks the files are read and sent to the database with.
+         */
+        private int bufferSize = 64 * 1024;
+
+        /**
+         * Interval between two progress log lines of an import.
+         */
+        private Duration progressInterval = Duration.ofSeconds(10);
+
+        public String getLocation() {
+            return location;
+        }
+
+        public void setLocation(String location) {
+            this.location = location;
+        }
+
+        public boolean isOnStartup() {
+            return onStartup;
+        }
+
+        public void setOnStartup(boolean onStartup) {
+            this.onStartup = onStartup;
+        }
+
+        public boolean isTruncate() {
+            return truncate;
+        }
+
+        public void setTruncate(boolean truncate) {
+            this.truncate = truncate;
+        }
+
+        public boolean isRebuildIndexes() {
+            return rebuildIndexes;
+        }
+
+        public void setRebuildIndexes(boolean rebuildIndexes) {
+            this.rebuildIndexes = rebuildIndexes;
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public Duration getProgressInterval() {
+            return progressInterval;
+        }
+
+        public void setProgressInterval(Duration progressInterval) {
+            this.progressInterval = progressInterval;
+        }
+    }
+
+    public static class Export {
+
+        /**
+         * Number of rows fetched from the database cursor at a time by the streaming exports.
+         */
+        private int fetchSize = 1000;
+
+        public int getFetchSize() {
+            return fetchSize;
+        }
+
+        public void setFetchSize(int fetchSize) {
+            this.fetchSize = fetchSize;
+        }
+    }
+
+    public static class WriteBehind {
+
+        /**
+         * Whether the rating upserts are queued and written by batches, unless the client asks for a synchronous write.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of queued ratings beyond which the new ones are refused with {@code 429 (Too Many Requests)}.
+         */
+        private int capacity = 10000;
+
+        /**
+         * Maximum number of ratings per upsert statement, at most 16383 since each one takes 4 bind parameters.
+         */
+        private int batchSize = 500;
+
+        /**
+         * Maximum time a queued rating waits for its batch to fill.
+         */
+        private Duration flushInterval = Duration.ofMillis(100);
+
+        /**
+         * Maximum time the shutdown waits for the queued ratings to be written.
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public Duration getShutdownTimeout() {
+            return shutdownTimeout;
+        }
+
+        public void setShutdownTimeout(Duration shutdownTimeout) {
+            this.shutdownTimeout = shutdownTimeout;
+        }
+    }
+
+    public static class RatingStats {
+
+        /**
+         * Whether the per movie rating aggregates are periodically recomputed from the ratings, to correct any drift.
+         */
+        private boolean reconcileEnabled = true;
+
+        /**
+         * Time between the end of a reconciliation and the start of the next one.
+         */
+        private Duration reconcileInterval = Duration.ofHours(1);
+
+        /**
+         * Number of movies whose aggregates are recomputed per statement and per transaction.
+         */
+        private int reconcileBatchSize = 1000;
+
+        public boolean isReconcileEnabled() {
+            return reconcileEnabled;
+        }
+
+        public void setReconcileEnabled(boolean reconcileEnabled) {
+            this.reconcileEnabled = reconcileEnabled;
+        }
+
+        public Duration getReconcileInterval() {
+            return reconcileInterval;
+        }
+
+        public void setReconcileInterval(Duration reconcileInterval) {
+            this.reconcileInterval = reconcileInterval;
+        }
+
+        public int getReconcileBatchSize() {
+            return reconcileBatchSize;
+        }
+
+        public void setReconcileBatchSize(int reconcileBatchSize) {
+            this.reconcileBatchSize = reconcileBatchSize;
+        }
+    }
+
+    public static class Partitions {
+
+        /**
+         * Number of months after the current one whose partitions are created in advance.
+         */
+        private int premadeMonths = 3;
+
+        /**
+         * Number of months before the current one whose partitions stay attached, the older ones being detached. 0 keeps
+         * all the partitions.
+         */
+        private int retentionMonths = 0;
+
+        /**
+         * Whether the detached partitions are dropped, instead of being kept as standalone tables for archiving.
+         */
+        private boolean dropDetached = false;
+
+        /**
+         * Time between the end of a maintenance of the partitions and the start of the next one.
+         */
+        private Duration maintenanceInterval = Duration.ofHours(6);
+
+        public int getPremadeMonths() {
+            return premadeMonths;
+        }
+
+        public void setPremadeMonths(int premadeMonths) {
+            this.premadeMonths = premadeMonths;
+        }
+
+        public int getRetentionMonths() {
+            return retentionMonths;
+        }
+
+        public void setRetentionMonths(int retentionMonths) {
+            this.retentionMonths = retentionMonths;
+        }
+
+        public boolean isDropDetached() {
+            return dropDetached;
+        }
+
+        public void setDropDetached(boolean dropDetached) {
+            this.dropDetached = dropDetached;
+        }
+
+        public Duration getMaintenanceInterval() {
+            return maintenanceInterval;
+        }
+
+        public void setMaintenanceInterval(Duration maintenanceInterval) {
+            this.maintenanceInterval = maintenanceInterval;
+        }
+    }
+
+    public static class MovieCatalog {
+
+        /**
+         * Whether the movies are held in memory, serving the lookups by id and the pages sorted by id.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Number of movies above which the catalog is not held, about 100 bytes of heap each.
+         */
+        private int maxSize = 50_000;
+
+        /**
+         * Time between the end of a reload of the catalog and the start of the next one, to see the writes made without
+         * the movie service.
+         */
+        private Duration refreshInterval = Duration.ofHours(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getRefreshInterval() {
+            return refreshInterval;
+        }
+
+        public void setRefreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+    }
+
+    public static class Invalidation {
+
+        /**
+         * Whether the changes notified by the triggers of the entity tables refresh the local copies of the entities.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Time without change after which the changes received are coalesced and applied.
+         */
+        private Duration debounce = Duration.ofMillis(100);
+
+        /**
+         * Longest time the changes received wait to be applied, during a continuous flow of changes.
+         */
+        private Duration maxDelay = Duration.ofSeconds(1);
+
+        /**
+         * First delay before a reconnection to the notification channel, doubled at each failed attempt.
+         */
+        private Duration reconnectBackoff = Duration.ofSeconds(1);
+
+        private Duration maxReconnectBackoff = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getDebounce() {
+            return debounce;
+        }
+
+        public void setDebounce(Duration debounce) {
+            this.debounce = debounce;
+        }
+
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        public void setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+        }
+
+        public Duration getReconnectBackoff() {
+            return reconnectBackoff;
+        }
+
+        public void setReconnectBackoff(Duration reconnectBackoff) {
+            this.reconnectBackoff = reconnectBackoff;
+        }
+
+        public Duration getMaxReconnectBackoff() {
+            return maxReconnectBackoff;
+        }
+
+        public void setMaxReconnectBackoff(Duration maxReconnectBackoff) {
+            this.maxReconnectBackoff = maxReconnectBackoff;
+        }
+    }
+
+    public static class LookupCoalescing {
+
+        /**
+         * Whether the concurrent lookups of the same entity by id share one query.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Time during which the ids looked up are collected to be fetched by one query, zero to fetch each id alone.
+         */
+        private Duration batchWindow = Duration.ZERO;
+
+        /**
+         * Largest number of ids fetched by one query, a full batch being fetched before the end of its window.
+         */
+        private int maxBatchSize = 100;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getBatchWindow() {
+            return batchWindow;
+        }
+
+        public void setBatchWindow(Duration batchWindow) {
+            this.batchWindow = batchWindow;
+        }
+
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package id.laris.assistant.config;
+
+import id.laris.assistant.service.AutocommitRead;
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.support.DelegatingTransactionDefinition;
+import reactor.core.publisher.Mono;
+
+/**
+ * Transaction manager running the {@link AutocommitRead} methods without a transaction of their own: their
+ * {@code REQUIRED} propagation becomes {@code SUPPORTS}, so their statement runs in autocommit on a pooled connection,
+ * held for the scope of the method only, and a method called within a transaction still joins it. The scope stays
+ * read-only, which the {@link ReadReplicaRoutingConnectionFactory} routes to the replicas as a read-only transaction.
+ * <p>
+ * The other transactions are left to the delegate.
+ */
+public class AutocommitReadTransactionManager implements ReactiveTransactionManager {
+
+    private final ReactiveTransactionManager delegate;
+
+    public AutocommitReadTransactionManager(ReactiveTransactionManager delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Mono<ReactiveTransaction> getReactiveTransaction(TransactionDefinition definition) {
+        return delegate.getReactiveTransaction(isAutocommitRead(definition) ? new AutocommitReadDefinition(definition) : definition);
+    }
+
+    @Override
+    public Mono<Void> commit(ReactiveTransaction transaction) {
+        return delegate.commit(transaction);
+    }
+
+    @Override
+    public Mono<Void> rollback(ReactiveTransaction transaction) {
+        return delegate.rollback(transaction);
+    }
+
+    static boolean isAutocommitRead(TransactionDefinition definition) {
+        return (
+            definition instanceof TransactionAttribute attribute &&
+            attribute.isReadOnly() &&
+            attribute.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRED &&
+            attribute.getLabels().contains(AutocommitRead.LABEL)
+        );
+    }
+
+    private static final class AutocommitReadDefinition extends DelegatingTransactionDefinition {
+
+        private AutocommitReadDefinition(TransactionDefinition definition) {
+            super(definition);
+        }
+
+        @Override
+        public int getPropagationBehavior() {
+            return TransactionDefinition.PROPAGATION_SUPPORTS;
+        }
+    }
+}
@@ -1,6 +1,15 @@
 package id.laris.assistant.config;
 
+import id.laris.assistant.domain.HalfStarRating;
+import id.laris.assistant.repository.ChangeNotifications;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactoryProvider;
+import io.r2dbc.proxy.ProxyConnectionFactory;
+import io.r2dbc.spi.ConnectionFactories;
 import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
@@ -9,6 +18,12 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.r2dbc.ConnectionFactoryOptionsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryDecorator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.convert.converter.Converter;
@@ -22,6 +37,7 @@ import org.springframework.data.r2dbc.query.UpdateMapper;
 import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
 import org.springframework.data.relational.core.dialect.RenderContextFactory;
 import org.springframework.data.relational.core.sql.render.SqlRenderer;
+import org.springframework.transaction.ReactiveTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 @Configuration
@@ -41,9 +57,135 @@ public class DatabaseConfiguration {
         converters.add(DurationReadConverter.INSTANCE);
         converters.add(ZonedDateTimeReadConverter.INSTANCE);
         converters.add(ZonedDateTimeWriteConverter.INSTANCE);
+        converters.add(HalfStarRatingWriteConverter.INSTANCE);
+        converters.add(HalfStarRatingReadConverter.INSTANCE);
         return R2dbcCustomConversions.of(dialect, converters);
     }
 
+    // The EntityManager renders one SQL string per query shape, with bind parameters, so the statements are worth
+    // preparing once per connection and reusing
+    @Bean
+    public ConnectionFactoryOptionsBuilderCustomizer preparedStatementCacheCustomizer(ApplicationProperties applicationProperties) {
+        return builder ->
+            builder.option(
+                PostgresqlConnectionFactoryProvider.PREPARED_STATEMENT_CACHE_QUERIES,
+                applicationProperties.getDatabase().getPreparedStatementCacheQueries()
+            );
+    }
+
+    // Proxies the connections of the pool configured by spring.r2dbc, to record the statements of each HTTP request
+    @Bean
+    @ConditionalOnProperty(prefix = "application.database", name = "request-metrics", havingValue = "true", matchIfMissing = true)
+    public ConnectionFactoryDecorator requestDatabaseMetricsDecorator() {
+        return DatabaseConfiguration::instrumented;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "application.database", name = "request-metrics", havingValue = "true", matchIfMissing = true)
+    public RequestDatabaseMetricsFilter requestDatabaseMetricsFilter(MeterRegistry meterRegistry, ApplicationProperties applicationProperties) {
+        return new RequestDatabaseMetricsFilter(meterRegistry, applicationProperties.getDatabase().isServerTiming());
+    }
+
+    // Wraps the pool configured by spring.r2dbc, so that the read-only transactions are served by the replicas
+    @Bean
+    public static BeanPostProcessor readReplicaRoutingPostProcessor(
+        ObjectProvider<ApplicationProperties> applicationProperties,
+        ObjectProvider<R2dbcProperties> r2dbcProperties,
+        ObjectProvider<ConnectionFactoryOptionsBuilderCustomizer> customizers
+    ) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof ConnectionFactory primary) || bean instanceof ReadReplicaRoutingConnectionFactory) {
+                    return bean;
+                }
+                ApplicationProperties.Database.Replicas replicas = applicationProperties.getObject().getDatabase().getReplicas();
+                if (replicas.getUrls().isEmpty()) {
+                    return bean;
+                }
+                List<ConnectionFactoryOptionsBuilderCustomizer> optionsCustomizers = customizers.orderedStream().toList();
+                ReadReplicaRoutingConnectionFactory routing = new ReadReplicaRoutingConnectionFactory(
+                    primary,
+                    replicas
+                        .getUrls()
+                        .stream()
+                        .map(url ->
+                            replicaConnectionFactory(
+                                url,
+                                r2dbcProperties.getObject(),
+                                optionsCustomizers,
+                                applicationProperties.getObject().getDatabase().isRequestMetrics()
+                            )
+                        )
+                        .toList(),
+                    replicas.getMaxLag(),
+                    replicas.getHealthCheckInterval(),
+                    replicas.getHealthCheckTimeout()
+                );
+                routing.start();
+                return routing;
+            }
+        };
+    }
+
+    // The LISTEN of the entity changes holds its connection for the life of the application, and its session state must
+    // not leak to the other uses of a connection, so the notifications have a connection of their own, outside of the pool
+    @Bean
+    public ChangeNotifications changeNotifications(
+        R2dbcProperties r2dbcProperties,
+        ObjectProvider<ConnectionFactoryOptionsBuilderCustomizer> customizers
+    ) {
+        return new ChangeNotifications(
+            unpooledConnectionFactory(r2dbcProperties.getUrl(), r2dbcProperties, customizers.orderedStream().toList())
+        );
+    }
+
+    private static ConnectionFactory replicaConnectionFactory(
+        String url,
+        R2dbcProperties properties,
+        List<ConnectionFactoryOptionsBuilderCustomizer> customizers,
+        boolean requestMetrics
+    ) {
+        ConnectionFactory connectionFactory = unpooledConnectionFactory(url, properties, customizers);
+        R2dbcProperties.Pool pool = properties.getPool();
+        return new ConnectionPool(
+            ConnectionPoolConfiguration.builder(requestMetrics ? instrumented(connectionFactory) : connectionFactory)
+                .initialSize(pool.getInitialSize())
+                .maxSize(pool.getMaxSize())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .build()
+        );
+    }
+
+    private static ConnectionFactory unpooledConnectionFactory(
+        String url,
+        R2dbcProperties properties,
+        List<ConnectionFactoryOptionsBuilderCustomizer> customizers
+    ) {
+        ConnectionFactoryOptions parsed = ConnectionFactoryOptions.parse(url);
+        ConnectionFactoryOptions.Builder options = parsed.mutate();
+        if (!parsed.hasOption(ConnectionFactoryOptions.USER) && properties.getUsername() != null) {
+            options.option(ConnectionFactoryOptions.USER, properties.getUsername());
+        }
+        if (!parsed.hasOption(ConnectionFactoryOptions.PASSWORD) && properties.getPassword() != null) {
+            options.option(ConnectionFactoryOptions.PASSWORD, properties.getPassword());
+        }
+        customizers.forEach(customizer -> customizer.customize(options));
+        return ConnectionFactories.get(options.build());
+    }
+
+    private static ConnectionFactory instrumented(ConnectionFactory connectionFactory) {
+        return ProxyConnectionFactory.builder(connectionFactory).listener(new RequestDatabaseMetricsListener()).build();
+    }
+
+    @Bean
+    public ReactiveTransactionManager transactionManager(ConnectionFactory connectionFactory, ApplicationProperties applicationProperties) {
+        ReactiveTransactionManager transactionManager = new ReadOnlyRoutingTransactionManager(connectionFactory);
+        return applicationProperties.getDatabase().isAutocommitReads()
+            ? new AutocommitReadTransactionManager(transactionManager)
+            : transactionManager;
+    }
+
     @Bean
     public R2dbcDialect dialect(ConnectionFactory connectionFactory) {
         return DialectResolver.getDialect(connectionFactory);
@@ -129,4 +271,24 @@ public class DatabaseConfiguration {
             return source != null ? Duration.ofMillis(source) : null;
         }
     }
+
+    @WritingConverter
+    public enum HalfStarRatingWriteConverter implements Converter<HalfStarRating, Short> {
+        INSTANCE;
+
+        @Override
+        public Short convert(HalfStarRating source) {
+            return source.getHalfStars();
+        }
+    }
+
+    @ReadingConverter
+    public enum HalfStarRatingReadConverter implements Converter<Short, HalfStarRating> {
+        INSTANCE;
+
+        @Override
+        public HalfStarRating convert(Short source) {
+            return HalfStarRating.ofHalfStars(source);
+        }
+    }
 }
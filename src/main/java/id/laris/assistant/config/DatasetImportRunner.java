@@ -0,0 +1,38 @@
+package id.laris.assistant.config;
+
+import id.laris.assistant.service.DatasetImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Imports the MovieLens datasets once the application is started, when run with
+ * {@code --application.dataset-import.on-startup=true}.
+ * <p>
+ * The tables must exist: with the asynchronous Liquibase of the {@code dev} profile, run the import once the schema has
+ * been created, or through the {@code /api/admin/dataset-imports} endpoint.
+ */
+@Component
+@ConditionalOnProperty(prefix = "application.dataset-import", name = "on-startup", havingValue = "true")
+public class DatasetImportRunner implements ApplicationRunner {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DatasetImportRunner.class);
+
+    private final DatasetImportService datasetImportService;
+
+    private final ApplicationProperties.DatasetImport properties;
+
+    public DatasetImportRunner(DatasetImportService datasetImportService, ApplicationProperties applicationProperties) {
+        this.datasetImportService = datasetImportService;
+        this.properties = applicationProperties.getDatasetImport();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        LOG.info("Importing the datasets on startup");
+        datasetImportService.importAll(properties.isTruncate(), properties.isRebuildIndexes()).then().block();
+    }
+}
@@ -0,0 +1,28 @@
+package id.laris.assistant.config;
+
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+/**
+ * Transaction manager telling the {@link ReadReplicaRoutingConnectionFactory} whether the transaction it opens a
+ * connection for is read-only.
+ * <p>
+ * Only the connection of a new transaction is routed: a read-only method joining a read-write transaction keeps using
+ * the connection of the primary.
+ */
+public class ReadOnlyRoutingTransactionManager extends R2dbcTransactionManager {
+
+    public ReadOnlyRoutingTransactionManager(ConnectionFactory connectionFactory) {
+        super(connectionFactory);
+    }
+
+    @Override
+    protected Mono<Void> doBegin(TransactionSynchronizationManager synchronizationManager, Object transaction, TransactionDefinition definition) {
+        return super
+            .doBegin(synchronizationManager, transaction, definition)
+            .contextWrite(context -> context.put(ReadReplicaRoutingConnectionFactory.READ_ONLY_CONTEXT_KEY, definition.isReadOnly()));
+    }
+}
@@ -0,0 +1,195 @@
+package id.laris.assistant.config;
+
+import io.r2dbc.spi.Closeable;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Connection factory sending the read-only transactions to a pool of read replicas, and everything else to the primary.
+ * <p>
+ * The read-only flag of the transaction is put in the subscriber context by {@link ReadOnlyRoutingTransactionManager}
+ * when the transaction begins, since the transaction synchronization only holds it once the connection is obtained. An
+ * autocommit read has no transaction to begin, its read-only synchronization is set before it asks for a connection.
+ * <p>
+ * The replicas are picked round-robin among the available ones. Every {@code health-check-interval}, each replica is
+ * asked for its replay lag, and a replica that does not answer, or lags more than {@code max-lag} behind the primary, is
+ * skipped until it catches up. A replica that refuses a connection is skipped until its next successful check, and the
+ * transaction falls back to the primary, as it does when no replica is available.
+ */
+public class ReadReplicaRoutingConnectionFactory implements ConnectionFactory, Disposable {
+
+    public static final String READ_ONLY_CONTEXT_KEY = ReadReplicaRoutingConnectionFactory.class.getName() + ".READ_ONLY";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReadReplicaRoutingConnectionFactory.class);
+
+    // zero when the replica has replayed all the WAL it received, so that an idle primary does not look like a lag
+    private static final String LAG_QUERY =
+        "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0" +
+        " ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END::float8";
+
+    private final ConnectionFactory primary;
+
+    private final List<Replica> replicas;
+
+    private final Duration maxLag;
+
+    private final Duration healthCheckInterval;
+
+    private final Duration healthCheckTimeout;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile Disposable healthChecks;
+
+    public ReadReplicaRoutingConnectionFactory(
+        ConnectionFactory primary,
+        List<ConnectionFactory> replicas,
+        Duration maxLag,
+        Duration healthCheckInterval,
+        Duration healthCheckTimeout
+    ) {
+        this.primary = primary;
+        this.replicas = IntStream.range(0, replicas.size()).mapToObj(index -> new Replica(index, replicas.get(index))).toList();
+        this.maxLag = maxLag;
+        this.healthCheckInterval = healthCheckInterval;
+        this.healthCheckTimeout = healthCheckTimeout;
+    }
+
+    /**
+     * Starts the periodic health checks of the replicas.
+     */
+    public void start() {
+        healthChecks = Flux.interval(Duration.ZERO, healthCheckInterval)
+            .onBackpressureDrop()
+            .concatMap(tick -> Flux.range(0, replicas.size()).flatMap(this::checkHealth))
+            .subscribe();
+    }
+
+    @Override
+    public Mono<Connection> create() {
+        return isReadOnly().flatMap(readOnly -> {
+            if (!readOnly) {
+                return Mono.from(primary.create());
+            }
+            Replica replica = select();
+            if (replica == null) {
+                LOG.debug("No read replica available, using the primary");
+                return Mono.from(primary.create());
+            }
+            return Mono.<Connection>from(replica.connectionFactory.create()).onErrorResume(e -> {
+                LOG.warn("Read replica {} refused a connection, using the primary: {}", replica.index, e.getMessage());
+                replica.available = false;
+                return Mono.from(primary.create());
+            });
+        });
+    }
+
+    /**
+     * @return whether the connection is opened for a read-only transaction, or for the read-only scope of an autocommit
+     * read, which has no transaction to begin.
+     */
+    private static Mono<Boolean> isReadOnly() {
+        return Mono.deferContextual(context -> {
+            Boolean readOnly = context.getOrDefault(READ_ONLY_CONTEXT_KEY, null);
+            if (readOnly != null) {
+                return Mono.just(readOnly);
+            }
+            return TransactionSynchronizationManager.forCurrentTransaction()
+                .map(synchronization -> synchronization.isCurrentTransactionReadOnly() && !synchronization.isActualTransactionActive())
+                .onErrorReturn(NoTransactionException.class, Boolean.FALSE);
+        });
+    }
+
+    private Replica select() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.available) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private Mono<Void> checkHealth(int index) {
+        Replica replica = replicas.get(index);
+        return Mono.usingWhen(
+            replica.connectionFactory.create(),
+            connection ->
+                Mono.from(connection.createStatement(LAG_QUERY).execute()).flatMap(result ->
+                    Mono.from(result.map(row -> row.get(0, Double.class)))
+                ),
+            Connection::close,
+            (connection, error) -> connection.close(),
+            Connection::close
+        )
+            .timeout(healthCheckTimeout)
+            .doOnNext(seconds -> updateHealth(index, true, Duration.ofMillis((long) (seconds * 1000))))
+            .doOnError(e -> {
+                if (replica.available) {
+                    LOG.warn("Read replica {} failed its health check: {}", index, e.getMessage());
+                }
+                updateHealth(index, false, null);
+            })
+            .onErrorResume(e -> Mono.empty())
+            .then();
+    }
+
+    void updateHealth(int index, boolean reachable, Duration lag) {
+        Replica replica = replicas.get(index);
+        boolean available = reachable && lag.compareTo(maxLag) <= 0;
+        if (available != replica.available) {
+            LOG.info("Read replica {} is now {}{}", index, available ? "available" : "unavailable", lag != null ? ", lag " + lag : "");
+        }
+        replica.available = available;
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return primary.getMetadata();
+    }
+
+    @Override
+    public void dispose() {
+        if (healthChecks != null) {
+            healthChecks.dispose();
+        }
+        replicas.forEach(replica -> close(replica.connectionFactory));
+        close(primary);
+    }
+
+    private static void close(ConnectionFactory connectionFactory) {
+        if (connectionFactory instanceof Disposable disposable) {
+            disposable.dispose();
+        } else if (connectionFactory instanceof Closeable closeable) {
+            Mono.from(closeable.close()).subscribe();
+        }
+    }
+
+    private static final class Replica {
+
+        private final int index;
+
+        private final ConnectionFactory connectionFactory;
+
+        private volatile boolean available = true;
+
+        private Replica(int index, ConnectionFactory connectionFactory) {
+            this.index = index;
+            this.connectionFactory = connectionFactory;
+        }
+    }
+}
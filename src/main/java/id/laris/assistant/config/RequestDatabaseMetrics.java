@@ -0,0 +1,49 @@
+package id.laris.assistant.config;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The database round trips of one HTTP request, carried by the Reactor context of the request and updated by the
+ * {@link RequestDatabaseMetricsListener} as its statements complete, whichever thread completes them.
+ */
+public final class RequestDatabaseMetrics {
+
+    /**
+     * The key of the metrics in the Reactor context of the request.
+     */
+    public static final Class<RequestDatabaseMetrics> CONTEXT_KEY = RequestDatabaseMetrics.class;
+
+    private final LongAdder statements = new LongAdder();
+
+    private final LongAdder rows = new LongAdder();
+
+    private final LongAdder databaseNanos = new LongAdder();
+
+    /**
+     * Records a round trip: a query, or a transaction command such as {@code BEGIN} or {@code COMMIT}.
+     *
+     * @param duration the time from the execution of the statement to the consumption of its result.
+     * @param fetchedRows the number of rows read from its result.
+     */
+    public void recordStatement(Duration duration, long fetchedRows) {
+        statements.increment();
+        rows.add(fetchedRows);
+        databaseNanos.add(duration.toNanos());
+    }
+
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    /**
+     * @return the cumulated time of the statements, which exceeds the elapsed time when statements run concurrently.
+     */
+    public long getDatabaseNanos() {
+        return databaseNanos.sum();
+    }
+}
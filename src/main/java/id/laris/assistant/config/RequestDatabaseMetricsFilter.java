@@ -0,0 +1,122 @@
+package id.laris.assistant.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.springframework.core.Ordered;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Mono;
+
+/**
+ * Records the database round trips of each HTTP request by route: the number of statements, the rows they fetched, the
+ * time spent in the database and the rest of the time of the request, spent on the event loop or waiting for it.
+ * <p>
+ * With {@code application.database.server-timing}, the response also carries them in a {@code Server-Timing} header,
+ * such as {@code db;dur=12.5;desc="3 statements, 20 rows", app;dur=2.1}, as of the response commit.
+ */
+public class RequestDatabaseMetricsFilter implements WebFilter, Ordered {
+
+    public static final String STATEMENTS_METER_NAME = "http.server.requests.db.statements";
+    public static final String STATEMENTS_METER_DESCRIPTION = "Number of database round trips of an HTTP request, transaction commands included";
+    public static final String ROWS_METER_NAME = "http.server.requests.db.rows";
+    public static final String ROWS_METER_DESCRIPTION = "Number of rows fetched from the database by an HTTP request";
+    public static final String DATABASE_TIME_METER_NAME = "http.server.requests.db.time";
+    public static final String DATABASE_TIME_METER_DESCRIPTION = "Cumulated time of the database statements of an HTTP request";
+    public static final String APPLICATION_TIME_METER_NAME = "http.server.requests.app.time";
+    public static final String APPLICATION_TIME_METER_DESCRIPTION = "Time of an HTTP request outside of its database statements";
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    private final MeterRegistry meterRegistry;
+
+    private final boolean serverTiming;
+
+    public RequestDatabaseMetricsFilter(MeterRegistry meterRegistry, boolean serverTiming) {
+        this.meterRegistry = meterRegistry;
+        this.serverTiming = serverTiming;
+    }
+
+    /**
+     * Runs outside of the other filters, so their statements are recorded too.
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        RequestDatabaseMetrics metrics = new RequestDatabaseMetrics();
+        long start = System.nanoTime();
+        if (serverTiming) {
+            exchange
+                .getResponse()
+                .beforeCommit(() ->
+                    Mono.fromRunnable(() ->
+                        exchange.getResponse().getHeaders().add(SERVER_TIMING_HEADER, serverTiming(metrics, System.nanoTime() - start))
+                    )
+                );
+        }
+        return chain
+            .filter(exchange)
+            .contextWrite(context -> context.put(RequestDatabaseMetrics.CONTEXT_KEY, metrics))
+            .doFinally(signal -> record(exchange, metrics, System.nanoTime() - start));
+    }
+
+    private void record(ServerWebExchange exchange, RequestDatabaseMetrics metrics, long elapsedNanos) {
+        Tags tags = Tags.of("method", exchange.getRequest().getMethod().name(), "uri", uri(exchange));
+        DistributionSummary.builder(STATEMENTS_METER_NAME)
+            .description(STATEMENTS_METER_DESCRIPTION)
+            .tags(tags)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(metrics.getStatements());
+        DistributionSummary.builder(ROWS_METER_NAME)
+            .description(ROWS_METER_DESCRIPTION)
+            .tags(tags)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(metrics.getRows());
+        Timer.builder(DATABASE_TIME_METER_NAME)
+            .description(DATABASE_TIME_METER_DESCRIPTION)
+            .tags(tags)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(metrics.getDatabaseNanos(), TimeUnit.NANOSECONDS);
+        Timer.builder(APPLICATION_TIME_METER_NAME)
+            .description(APPLICATION_TIME_METER_DESCRIPTION)
+            .tags(tags)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(Math.max(0, elapsedNanos - metrics.getDatabaseNanos()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the route pattern of the request, so that the tags do not depend on the ids in the path.
+     */
+    private static String uri(ServerWebExchange exchange) {
+        Object pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern instanceof PathPattern pathPattern ? pathPattern.getPatternString() : UNKNOWN_URI;
+    }
+
+    static String serverTiming(RequestDatabaseMetrics metrics, long elapsedNanos) {
+        long databaseNanos = metrics.getDatabaseNanos();
+        return String.format(
+            Locale.ROOT,
+            "db;dur=%.1f;desc=\"%d statements, %d rows\", app;dur=%.1f",
+            databaseNanos / 1e6,
+            metrics.getStatements(),
+            metrics.getRows(),
+            Math.max(0, elapsedNanos - databaseNanos) / 1e6
+        );
+    }
+}
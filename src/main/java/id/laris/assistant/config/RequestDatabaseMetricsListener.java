@@ -0,0 +1,44 @@
+package id.laris.assistant.config;
+
+import io.r2dbc.proxy.core.MethodExecutionInfo;
+import io.r2dbc.proxy.core.QueryExecutionInfo;
+import io.r2dbc.proxy.core.ValueStore;
+import io.r2dbc.proxy.listener.ProxyExecutionListener;
+import io.r2dbc.spi.Connection;
+import java.util.Set;
+import reactor.util.context.ContextView;
+
+/**
+ * Listener of the R2DBC proxy adding each statement to the {@link RequestDatabaseMetrics} of the HTTP request it runs
+ * for. The proxy stores the Reactor context of the subscriber of a statement in its value store, so the statements run
+ * outside of a request, such as the write-behind flushes and the scheduled jobs, are not recorded.
+ */
+public class RequestDatabaseMetricsListener implements ProxyExecutionListener {
+
+    // the transaction commands are round trips too, such as the BEGIN and COMMIT of a read in a transaction
+    private static final Set<String> TRANSACTION_METHODS = Set.of("beginTransaction", "commitTransaction", "rollbackTransaction");
+
+    @Override
+    public void afterQuery(QueryExecutionInfo execution) {
+        RequestDatabaseMetrics metrics = current(execution.getValueStore());
+        if (metrics != null) {
+            metrics.recordStatement(execution.getExecuteDuration(), execution.getCurrentResultCount());
+        }
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionInfo execution) {
+        if (!(execution.getTarget() instanceof Connection) || !TRANSACTION_METHODS.contains(execution.getMethod().getName())) {
+            return;
+        }
+        RequestDatabaseMetrics metrics = current(execution.getValueStore());
+        if (metrics != null) {
+            metrics.recordStatement(execution.getExecuteDuration(), 0);
+        }
+    }
+
+    private static RequestDatabaseMetrics current(ValueStore valueStore) {
+        ContextView context = valueStore.get(ContextView.class, ContextView.class);
+        return context != null ? context.getOrDefault(RequestDatabaseMetrics.CONTEXT_KEY, null) : null;
+    }
+}
@@ -0,0 +1,127 @@
+package id.laris.assistant.domain;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * A genre of the {@code genres} dictionary table, whose bit in the {@code genre_mask} of the movies is its ordinal.
+ * <p>
+ * The constants follow the rows of the dictionary: a new genre is appended, with the next bit, by a migration which
+ * also recomputes the masks. The mask is an {@code integer}, so the dictionary holds 31 genres at most. The genres of a
+ * movie outside the dictionary are kept in its {@code genres} list, but are not part of its mask.
+ * <p>
+ * A genre name matches the dictionary once its surrounding spaces are trimmed, in any case, as with the
+ * {@code movie_genre_mask} function computing the masks of the imported movies.
+ */
+public enum Genre {
+    ACTION("Action"),
+    ADVENTURE("Adventure"),
+    ANIMATION("Animation"),
+    CHILDREN("Children"),
+    COMEDY("Comedy"),
+    CRIME("Crime"),
+    DOCUMENTARY("Documentary"),
+    DRAMA("Drama"),
+    FANTASY("Fantasy"),
+    FILM_NOIR("Film-Noir"),
+    HORROR("Horror"),
+    IMAX("IMAX"),
+    MUSICAL("Musical"),
+    MYSTERY("Mystery"),
+    ROMANCE("Romance"),
+    SCI_FI("Sci-Fi"),
+    THRILLER("Thriller"),
+    WAR("War"),
+    WESTERN("Western");
+
+    /**
+     * The separator of the genres in the {@code genres} column.
+     */
+    public static final String SEPARATOR = "|";
+
+    /**
+     * The {@code genres} of the movies without genre, as the MovieLens dataset lists them.
+     */
+    public static final String NONE_LISTED = "(no genres listed)";
+
+    private static final Pattern SEPARATOR_PATTERN = Pattern.compile(Pattern.quote(SEPARATOR));
+
+    // the spaces which the trim of Postgres removes, unlike String.trim() also removing the control characters
+    private static final Pattern SURROUNDING_SPACES = Pattern.compile("^ +| +$");
+
+    private static final Map<String, Genre> BY_NAME = Arrays.stream(values()).collect(
+        Collectors.toUnmodifiableMap(genre -> normalize(genre.name), Function.identity())
+    );
+
+    private final String name;
+
+    Genre(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the name of the genre, as the dictionary and the {@code genres} column hold it.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the bit of the genre in the {@code genre_mask} column.
+     */
+    public int getBit() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * @param name the name of a genre, in any case, with or without surrounding spaces.
+     * @return the genre, or an empty result if the dictionary does not hold it.
+     */
+    public static Optional<Genre> fromName(String name) {
+        return Optional.ofNullable(BY_NAME.get(normalize(name)));
+    }
+
+    private static String normalize(String name) {
+        return SURROUNDING_SPACES.matcher(name).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param genres the {@code |} separated genres of a movie, or {@code null}.
+     * @return the mask of the genres of the dictionary, or {@code null} if the genres are {@code null}.
+     */
+    public static Integer maskOf(String genres) {
+        if (genres == null) {
+            return null;
+        }
+        int mask = 0;
+        for (String name : parse(genres)) {
+            mask |= fromName(name).map(Genre::getBit).orElse(0);
+        }
+        return mask;
+    }
+
+    /**
+     * @param genres the {@code |} separated genres of a movie.
+     * @return the genres, without the blank ones, empty for {@link #NONE_LISTED}.
+     */
+    public static List<String> parse(String genres) {
+        if (NONE_LISTED.equals(genres)) {
+            return List.of();
+        }
+        return SEPARATOR_PATTERN.splitAsStream(genres).filter(name -> !name.isBlank()).toList();
+    }
+
+    /**
+     * @param genres the genres of a movie.
+     * @return the {@code |} separated genres, {@link #NONE_LISTED} if there is none.
+     */
+    public static String format(List<String> genres) {
+        return genres.isEmpty() ? NONE_LISTED : String.join(SEPARATOR, genres);
+    }
+}
@@ -0,0 +1,130 @@
+package id.laris.assistant.domain;
+
+import java.io.Serializable;
+
+/**
+ * A rating on the half-star scale, stored as its number of half stars in a {@code smallint} column: 1 for 0.5 up to
+ * 10 for 5.0.
+ * <p>
+ * The ten ratings of the scale are shared instances, so the entities of the ratings do not hold a boxed value each.
+ */
+public final class HalfStarRating implements Serializable, Comparable<HalfStarRating> {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int MIN_HALF_STARS = 1;
+
+    public static final int MAX_HALF_STARS = 10;
+
+    private static final HalfStarRating[] SCALE = new HalfStarRating[MAX_HALF_STARS + 1];
+
+    static {
+        for (int halfStars = MIN_HALF_STARS; halfStars <= MAX_HALF_STARS; halfStars++) {
+            SCALE[halfStars] = new HalfStarRating((short) halfStars);
+        }
+    }
+
+    private final short halfStars;
+
+    private final Double stars;
+
+    private HalfStarRating(short halfStars) {
+        this.halfStars = halfStars;
+        this.stars = halfStars / 2.0;
+    }
+
+    /**
+     * @param halfStars the number of half stars.
+     * @return the rating, out of the scale ones being left to the database check constraint.
+     */
+    public static HalfStarRating ofHalfStars(short halfStars) {
+        return halfStars >= MIN_HALF_STARS && halfStars <= MAX_HALF_STARS ? SCALE[halfStars] : new HalfStarRating(halfStars);
+    }
+
+    /**
+     * @param stars the rating in stars.
+     * @return the rating.
+     * @throws IllegalArgumentException if the rating is not a multiple of 0.5.
+     */
+    public static HalfStarRating of(double stars) {
+        if (!isHalfStars(stars)) {
+            throw new IllegalArgumentException("A rating must be a multiple of 0.5, got " + stars);
+        }
+        return ofHalfStars((short) (stars * 2));
+    }
+
+    /**
+     * Parses a rating in stars, for the conversion of the keyset cursor values.
+     *
+     * @param stars the rating in stars.
+     * @return the rating.
+     * @throws IllegalArgumentException if the rating is not a number multiple of 0.5.
+     */
+    public static HalfStarRating valueOf(String stars) {
+        return of(Double.parseDouble(stars.trim()));
+    }
+
+    /**
+     * @param stars the rating in stars.
+     * @return whether the rating is a multiple of 0.5 which a {@code smallint} of half stars can hold.
+     */
+    public static boolean isHalfStars(double stars) {
+        double halfStars = stars * 2;
+        return halfStars == Math.rint(halfStars) && halfStars >= Short.MIN_VALUE && halfStars <= Short.MAX_VALUE;
+    }
+
+    /**
+     * @param halfStars the number of half stars, or {@code null}.
+     * @return the rating in stars, or {@code null}.
+     */
+    public static Double toStars(Short halfStars) {
+        return halfStars != null ? ofHalfStars(halfStars).getStars() : null;
+    }
+
+    /**
+     * @param stars the rating in stars, or {@code null}.
+     * @return the number of half stars, or {@code null}.
+     * @throws IllegalArgumentException if the rating is not a multiple of 0.5.
+     */
+    public static Short toHalfStars(Double stars) {
+        return stars != null ? of(stars).getHalfStars() : null;
+    }
+
+    /**
+     * @return the number of half stars, the stored value.
+     */
+    public short getHalfStars() {
+        return halfStars;
+    }
+
+    /**
+     * @return the rating in stars, as exposed by the API.
+     */
+    public Double getStars() {
+        return stars;
+    }
+
+    private Object readResolve() {
+        return ofHalfStars(halfStars);
+    }
+
+    @Override
+    public int compareTo(HalfStarRating other) {
+        return Short.compare(halfStars, other.halfStars);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof HalfStarRating other && halfStars == other.halfStars);
+    }
+
+    @Override
+    public int hashCode() {
+        return Short.hashCode(halfStars);
+    }
+
+    @Override
+    public String toString() {
+        return stars.toString();
+    }
+}
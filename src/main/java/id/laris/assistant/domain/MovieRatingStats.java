@@ -0,0 +1,157 @@
+package id.laris.assistant.domain;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * The aggregates of the ratings of a Movies, maintained by the database triggers of the ratings table.
+ */
+@Table("movie_rating_stats")
+public class MovieRatingStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int HISTOGRAM_BUCKETS = 10;
+
+    @Id
+    @Column("movie_id")
+    private Long movieId;
+
+    @Column("rating_count")
+    private Long ratingCount;
+
+    @Column("rating_sum")
+    private Double ratingSum;
+
+    @Column("rating_sum_squares")
+    private Double ratingSumSquares;
+
+    /**
+     * The number of ratings in each of the half-star buckets 0.5 to 5.0.
+     */
+    @Column("histogram")
+    private Long[] histogram;
+
+    @Column("last_rated_at")
+    private Long lastRatedAt;
+
+    /**
+     * @param movieId the id of a movie never rated.
+     * @return the aggregates of no rating.
+     */
+    public static MovieRatingStats none(Long movieId) {
+        Long[] histogram = new Long[HISTOGRAM_BUCKETS];
+        Arrays.fill(histogram, 0L);
+        return new MovieRatingStats().movieId(movieId).ratingCount(0L).ratingSum(0.0).ratingSumSquares(0.0).histogram(histogram);
+    }
+
+    public Long getMovieId() {
+        return this.movieId;
+    }
+
+    public MovieRatingStats movieId(Long movieId) {
+        this.setMovieId(movieId);
+        return this;
+    }
+
+    public void setMovieId(Long movieId) {
+        this.movieId = movieId;
+    }
+
+    public Long getRatingCount() {
+        return this.ratingCount;
+    }
+
+    public MovieRatingStats ratingCount(Long ratingCount) {
+        this.setRatingCount(ratingCount);
+        return this;
+    }
+
+    public void setRatingCount(Long ratingCount) {
+        this.ratingCount = ratingCount;
+    }
+
+    public Double getRatingSum() {
+        return this.ratingSum;
+    }
+
+    public MovieRatingStats ratingSum(Double ratingSum) {
+        this.setRatingSum(ratingSum);
+        return this;
+    }
+
+    public void setRatingSum(Double ratingSum) {
+        this.ratingSum = ratingSum;
+    }
+
+    public Double getRatingSumSquares() {
+        return this.ratingSumSquares;
+    }
+
+    public MovieRatingStats ratingSumSquares(Double ratingSumSquares) {
+        this.setRatingSumSquares(ratingSumSquares);
+        return this;
+    }
+
+    public void setRatingSumSquares(Double ratingSumSquares) {
+        this.ratingSumSquares = ratingSumSquares;
+    }
+
+    public Long[] getHistogram() {
+        return this.histogram;
+    }
+
+    public MovieRatingStats histogram(Long[] histogram) {
+        this.setHistogram(histogram);
+        return this;
+    }
+
+    public void setHistogram(Long[] histogram) {
+        this.histogram = histogram;
+    }
+
+    public Long getLastRatedAt() {
+        return this.lastRatedAt;
+    }
+
+    public MovieRatingStats lastRatedAt(Long lastRatedAt) {
+        this.setLastRatedAt(lastRatedAt);
+        return this;
+    }
+
+    public void setLastRatedAt(Long lastRatedAt) {
+        this.lastRatedAt = lastRatedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MovieRatingStats)) {
+            return false;
+        }
+        return getMovieId() != null && getMovieId().equals(((MovieRatingStats) o).getMovieId());
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "MovieRatingStats{" +
+            "movieId=" + getMovieId() +
+            ", ratingCount=" + getRatingCount() +
+            ", ratingSum=" + getRatingSum() +
+            ", ratingSumSquares=" + getRatingSumSquares() +
+            ", histogram=" + Arrays.toString(getHistogram()) +
+            ", lastRatedAt=" + getLastRatedAt() +
+            "}";
+    }
+}
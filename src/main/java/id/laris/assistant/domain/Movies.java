@@ -28,6 +28,12 @@ public class Movies implements Serializable {
     @Column("genres")
     private String genres;
 
+    /**
+     * The bits of the {@link Genre}s of the movie, derived from its genres by the writes of the service.
+     */
+    @Column("genre_mask")
+    private Integer genreMask;
+
     // jhipster-needle-entity-add-field - JHipster will add fields here
 
     public Long getId() {
@@ -69,6 +75,19 @@ public class Movies implements Serializable {
         this.genres = genres;
     }
 
+    public Integer getGenreMask() {
+        return this.genreMask;
+    }
+
+    public Movies genreMask(Integer genreMask) {
+        this.setGenreMask(genreMask);
+        return this;
+    }
+
+    public void setGenreMask(Integer genreMask) {
+        this.genreMask = genreMask;
+    }
+
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here
 
     @Override
@@ -95,6 +114,7 @@ public class Movies implements Serializable {
             "id=" + getId() +
             ", title='" + getTitle() + "'" +
             ", genres='" + getGenres() + "'" +
+            ", genreMask=" + getGenreMask() +
             "}";
     }
 }
@@ -20,9 +20,12 @@ public class Ratings implements Serializable {
     @Column("id")
     private Long id;
 
+    /**
+     * The rating, stored in half stars and exposed in stars.
+     */
     @NotNull(message = "must not be null")
     @Column("rating")
-    private Double rating;
+    private HalfStarRating rating;
 
     @NotNull(message = "must not be null")
     @Column("timestamp")
@@ -56,7 +59,7 @@ public class Ratings implements Serializable {
     }
 
     public Double getRating() {
-        return this.rating;
+        return this.rating != null ? this.rating.getStars() : null;
     }
 
     public Ratings rating(Double rating) {
@@ -65,7 +68,7 @@ public class Ratings implements Serializable {
     }
 
     public void setRating(Double rating) {
-        this.rating = rating;
+        this.rating = rating != null ? HalfStarRating.of(rating) : null;
     }
 
     public Long getTimestamp() {
@@ -0,0 +1,85 @@
+package id.laris.assistant.repository;
+
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import java.util.regex.Pattern;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Receives the Postgres notifications of a channel, sent with {@code NOTIFY} or {@code pg_notify}, such as the ones of the
+ * {@code entity_changes_notify} triggers.
+ * <p>
+ * A subscription holds a connection for its whole life, the notifications being delivered to the sessions which ran the
+ * {@code LISTEN}, so the connections are opened by a connection factory outside of the pool. The connection is released
+ * with an {@code UNLISTEN} whatever ends the subscription. The notifications sent while no session listens are lost.
+ */
+public class ChangeNotifications {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final ConnectionFactory connectionFactory;
+
+    public ChangeNotifications(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Listens to a channel.
+     *
+     * @param channel the channel name.
+     * @param onListening called once the session listens, from when no notification is missed.
+     * @return the payloads of the notifications of the channel, in the order of the commits which sent them. The Flux
+     * completes or fails when the connection is lost, and releases it when cancelled.
+     */
+    public Flux<String> listen(String channel, Runnable onListening) {
+        Assert.isTrue(IDENTIFIER.matcher(channel).matches(), () -> "Invalid channel name: " + channel);
+        return Flux.usingWhen(
+            connectionFactory.create(),
+            connection -> {
+                PostgresqlConnection postgresqlConnection = unwrap(connection);
+                // subscribed before the LISTEN, the notifications of the connection being dropped when nobody subscribes
+                return Flux.merge(
+                    postgresqlConnection.getNotifications(),
+                    postgresqlConnection
+                        .createStatement("LISTEN " + channel)
+                        .execute()
+                        .flatMap(result -> result.getRowsUpdated())
+                        .then(Mono.fromRunnable(onListening))
+                        .then(Mono.<Notification>empty())
+                )
+                    .filter(notification -> channel.equals(notification.getName()))
+                    .mapNotNull(Notification::getParameter);
+            },
+            connection -> release(connection, channel),
+            (connection, error) -> release(connection, channel),
+            connection -> release(connection, channel)
+        );
+    }
+
+    /**
+     * Stops listening to the channel, and closes the connection. The {@code UNLISTEN} fails on a lost connection, which
+     * is closed all the same.
+     */
+    private static Mono<Void> release(Connection connection, String channel) {
+        return Flux.from(connection.createStatement("UNLISTEN " + channel).execute())
+            .flatMap(result -> result.getRowsUpdated())
+            .onErrorResume(e -> Mono.empty())
+            .then(Mono.from(connection.close()));
+    }
+
+    private static PostgresqlConnection unwrap(Connection connection) {
+        Object unwrapped = connection;
+        while (!(unwrapped instanceof PostgresqlConnection) && unwrapped instanceof Wrapped<?> wrapped) {
+            unwrapped = wrapped.unwrap();
+        }
+        if (!(unwrapped instanceof PostgresqlConnection postgresqlConnection)) {
+            throw new IllegalStateException("LISTEN requires a Postgres connection, got " + connection.getClass().getName());
+        }
+        return postgresqlConnection;
+    }
+}
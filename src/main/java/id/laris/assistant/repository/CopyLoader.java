@@ -0,0 +1,144 @@
+package id.laris.assistant.repository;
+
+import io.netty.buffer.ByteBuf;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Loads tables with the Postgres {@code COPY FROM STDIN} protocol, and runs the maintenance statements around a bulk
+ * load: truncation, secondary index drop and rebuild, id sequence reset and statistics refresh.
+ */
+@Component
+public class CopyLoader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CopyLoader.class);
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final ConnectionFactory connectionFactory;
+
+    private final DatabaseClient db;
+
+    public CopyLoader(ConnectionFactory connectionFactory, DatabaseClient db) {
+        this.connectionFactory = connectionFactory;
+        this.db = db;
+    }
+
+    /**
+     * Streams CSV data into a table. The data is sent as it is read, so the memory used does not depend on its size.
+     *
+     * @param table the table name.
+     * @param columns the table columns, in the order of the CSV fields.
+     * @param csv the CSV data, without header line.
+     * @return the number of copied rows.
+     */
+    public Mono<Long> copyIn(String table, List<String> columns, Publisher<ByteBuf> csv) {
+        String sql = "COPY " + identifier(table) + " (" + String.join(", ", columns.stream().map(CopyLoader::identifier).toList()) + ")" +
+            " FROM STDIN WITH (FORMAT csv)";
+        return Mono.usingWhen(
+            connectionFactory.create(),
+            connection -> unwrap(connection).copyIn(sql, csv),
+            Connection::close,
+            (connection, error) -> connection.close(),
+            Connection::close
+        );
+    }
+
+    /**
+     * Empties the given tables, and the tables derived from them, such as {@code movie_rating_stats}.
+     *
+     * @param tables the table names, referencing tables included.
+     * @return a Mono to signal the truncation.
+     */
+    public Mono<Void> truncate(List<String> tables) {
+        String names = String.join(", ", tables.stream().map(CopyLoader::identifier).toList());
+        return db.sql("TRUNCATE TABLE " + names + " CASCADE").then();
+    }
+
+    /**
+     * Drops the secondary indexes of a table, the ones which neither back a constraint nor are unique: the unique
+     * indexes keep checking the copied rows, and serving the {@code ON CONFLICT} clauses of the upserts.
+     *
+     * @param table the table name.
+     * @return the definitions of the dropped indexes, to recreate them with {@link #createIndexes(List)}.
+     */
+    public Mono<List<String>> dropIndexes(String table) {
+        return db
+            .sql(
+                "SELECT i.indexname, i.indexdef FROM pg_indexes i WHERE i.schemaname = current_schema() AND i.tablename = :table" +
+                " AND i.indexdef NOT LIKE 'CREATE UNIQUE INDEX %'" +
+                " AND NOT EXISTS (SELECT 1 FROM pg_constraint c WHERE c.conname = i.indexname)"
+            )
+            .bind("table", identifier(table))
+            // the definition of the index of a partitioned table only creates it ON ONLY the table, without its partitions
+            .map(row -> new String[] { row.get("indexname", String.class), row.get("indexdef", String.class).replace(" ON ONLY ", " ON ") })
+            .all()
+            .concatMap(index -> {
+                LOG.debug("Dropping index {} of {}", index[0], table);
+                return db.sql("DROP INDEX \"" + index[0].replace("\"", "\"\"") + "\"").then().thenReturn(index[1]);
+            })
+            .collectList();
+    }
+
+    /**
+     * Recreates indexes dropped by {@link #dropIndexes(String)}.
+     *
+     * @param definitions the index definitions.
+     * @return a Mono to signal the creation.
+     */
+    public Mono<Void> createIndexes(List<String> definitions) {
+        return Flux.fromIterable(definitions).concatMap(definition -> db.sql(definition).then()).then();
+    }
+
+    /**
+     * Moves the id sequence of a table past its greatest id, once rows with explicit ids have been copied.
+     *
+     * @param table the table name.
+     * @return a Mono to signal the reset.
+     */
+    public Mono<Void> resetIdSequence(String table) {
+        String name = identifier(table);
+        return db
+            .sql("SELECT setval(pg_get_serial_sequence(:table, 'id'), (SELECT COALESCE(MAX(id), 0) + 1 FROM " + name + "), false)")
+            .bind("table", name)
+            .then();
+    }
+
+    /**
+     * Refreshes the planner statistics of a table, which the estimated counts are read from.
+     *
+     * @param table the table name.
+     * @return a Mono to signal the refresh.
+     */
+    public Mono<Void> analyze(String table) {
+        return db.sql("ANALYZE " + identifier(table)).then();
+    }
+
+    private static String identifier(String name) {
+        Assert.isTrue(IDENTIFIER.matcher(name).matches(), () -> "Invalid identifier: " + name);
+        return name;
+    }
+
+    private static PostgresqlConnection unwrap(Connection connection) {
+        Object unwrapped = connection;
+        while (!(unwrapped instanceof PostgresqlConnection) && unwrapped instanceof Wrapped<?> wrapped) {
+            unwrapped = wrapped.unwrap();
+        }
+        if (!(unwrapped instanceof PostgresqlConnection postgresqlConnection)) {
+            throw new IllegalStateException("COPY requires a Postgres connection, got " + connection.getClass().getName());
+        }
+        return postgresqlConnection;
+    }
+}
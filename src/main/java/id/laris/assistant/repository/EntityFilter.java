@@ -0,0 +1,291 @@
+package id.laris.assistant.repository;
+
+import id.laris.assistant.domain.Genre;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.data.relational.core.sql.Column;
+import org.springframework.data.relational.core.sql.Condition;
+import org.springframework.data.relational.core.sql.Conditions;
+import org.springframework.data.relational.core.sql.Expression;
+import org.springframework.data.relational.core.sql.IdentifierProcessing;
+import org.springframework.data.relational.core.sql.Table;
+import org.springframework.util.MultiValueMap;
+
+/**
+ * Filter of a list endpoint, parsed from {@code property.operator=value} request parameters such as
+ * {@code rating.greaterThan=3.5}, {@code timestamp.between=964982703,964983000}, {@code genres.contains=Comedy,Drama},
+ * {@code genres.in=Horror,Thriller} or {@code title.startsWith=Toy}.
+ * <p>
+ * The filter is checked against the allow-list of the entity, which only holds indexed columns, but for the genre
+ * masks whose scan is accepted (see {@link FilterableColumn}), and is compiled to a where clause with bind parameters.
+ * The statement shape only depends on the filtered properties and operators, so the rendered select is cached like the
+ * unfiltered one.
+ */
+public final class EntityFilter {
+
+    public static final EntityFilter NONE = new EntityFilter(List.of());
+
+    private static final String PARAMETER_PREFIX = "filter";
+
+    private final List<Predicate> predicates;
+
+    private EntityFilter(List<Predicate> predicates) {
+        this.predicates = predicates;
+    }
+
+    /**
+     * Parses the filter parameters among the request parameters: the ones whose name holds a dot.
+     *
+     * @param parameters the request parameters.
+     * @param allowList the filterable columns of the entity.
+     * @return the filter, {@link #NONE} if there is no filter parameter.
+     * @throws IllegalArgumentException if a parameter is not in the allow-list, has invalid values, or would not be
+     * served by an index.
+     */
+    public static EntityFilter parse(MultiValueMap<String, String> parameters, List<FilterableColumn> allowList) {
+        Map<String, FilterableColumn> columns = allowList.stream().collect(Collectors.toMap(FilterableColumn::getProperty, Function.identity()));
+        List<Predicate> predicates = new ArrayList<>();
+        for (Map.Entry<String, List<String>> parameter : parameters.entrySet()) {
+            int dot = parameter.getKey().indexOf('.');
+            if (dot < 0) {
+                continue;
+            }
+            String property = parameter.getKey().substring(0, dot);
+            FilterableColumn column = columns.get(property);
+            if (column == null) {
+                throw new IllegalArgumentException("Filtering on " + property + " is not supported");
+            }
+            FilterOperator operator = FilterOperator.fromParameterName(parameter.getKey().substring(dot + 1));
+            if (!column.getOperators().contains(operator)) {
+                throw new IllegalArgumentException("Filtering on " + property + " does not support " + operator.getParameterName());
+            }
+            predicates.add(new Predicate(column, operator, parseValues(column, operator, parameter.getValue())));
+        }
+        if (predicates.isEmpty()) {
+            return NONE;
+        }
+        checkIndexed(predicates);
+        predicates.sort(Comparator.comparing((Predicate predicate) -> predicate.column().getProperty()).thenComparing(Predicate::operator));
+        return new EntityFilter(List.copyOf(predicates));
+    }
+
+    private static List<Object> parseValues(FilterableColumn column, FilterOperator operator, List<String> rawValues) {
+        List<Object> values = rawValues
+            .stream()
+            .flatMap(raw -> operator.getArity() == 1 ? Stream.of(raw) : Arrays.stream(raw.split(",")))
+            .map(String::trim)
+            .filter(raw -> !raw.isEmpty())
+            .map(raw -> parseValue(column, raw))
+            .toList();
+        if (values.isEmpty() || (operator.getArity() > 0 && values.size() != operator.getArity())) {
+            throw new IllegalArgumentException(
+                "Filtering on " + column.getProperty() + " with " + operator.getParameterName() + " takes " + describeArity(operator)
+            );
+        }
+        return switch (column.getKind()) {
+            case HALF_STARS -> toHalfStars(column, operator, values);
+            case GENRE_MASK -> List.of(toGenreMask(column, values));
+            default -> values;
+        };
+    }
+
+    /**
+     * Maps the genre names of a genre filter to the mask of their bits, which the predicate compares bitwise.
+     */
+    private static int toGenreMask(FilterableColumn column, List<Object> values) {
+        int mask = 0;
+        for (Object value : values) {
+            Genre genre = Genre.fromName(value.toString()).orElseThrow(() ->
+                new IllegalArgumentException("Filtering on " + column.getProperty() + " takes known genres, got " + value)
+            );
+            mask |= genre.getBit();
+        }
+        return mask;
+    }
+
+    /**
+     * Maps the bounds in stars of a rating filter to the half stars the column holds, rounded so that the comparison of
+     * the integers selects the same ratings: {@code rating > 3.7} becomes {@code rating > 7} and {@code rating >= 3.7}
+     * becomes {@code rating >= 8}. The bound keeps the column type, so the comparison is served by the index.
+     */
+    private static List<Object> toHalfStars(FilterableColumn column, FilterOperator operator, List<Object> values) {
+        List<Object> halfStars = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            double bound = (Double) values.get(i) * 2;
+            if (!Double.isFinite(bound)) {
+                throw new IllegalArgumentException("Filtering on " + column.getProperty() + " takes finite values");
+            }
+            double rounded =
+                switch (operator) {
+                    case GREATER_THAN_OR_EQUAL, LESS_THAN -> Math.ceil(bound);
+                    case BETWEEN -> i == 0 ? Math.ceil(bound) : Math.floor(bound);
+                    case EQUALS -> {
+                        if (bound != Math.rint(bound)) {
+                            throw new IllegalArgumentException("Filtering on " + column.getProperty() + " with equals takes a multiple of 0.5");
+                        }
+                        yield bound;
+                    }
+                    default -> Math.floor(bound);
+                };
+            halfStars.add((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, rounded)));
+        }
+        return halfStars;
+    }
+
+    private static Object parseValue(FilterableColumn column, String raw) {
+        if (column.getType() == Long.class) {
+            return Long.valueOf(raw);
+        }
+        if (column.getType() == Double.class) {
+            return Double.valueOf(raw);
+        }
+        return raw;
+    }
+
+    private static String describeArity(FilterOperator operator) {
+        return operator.getArity() < 0 ? "one or more values" : operator.getArity() == 1 ? "one value" : operator.getArity() + " values";
+    }
+
+    private static void checkIndexed(List<Predicate> predicates) {
+        List<String> equalities = predicates
+            .stream()
+            .filter(predicate -> predicate.operator() == FilterOperator.EQUALS || predicate.operator() == FilterOperator.IN)
+            .map(predicate -> predicate.column().getProperty())
+            .toList();
+        for (Predicate predicate : predicates) {
+            var requiresAnyOf = predicate.column().getRequiresAnyOf();
+            if (!requiresAnyOf.isEmpty() && requiresAnyOf.stream().noneMatch(equalities::contains)) {
+                throw new IllegalArgumentException(
+                    "Filtering on " + predicate.column().getProperty() + " requires an equals or in filter on one of " + requiresAnyOf
+                );
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return predicates.isEmpty();
+    }
+
+    /**
+     * Creates the where clause of the filter along with another condition of the query, such as the seek predicate of a
+     * keyset page.
+     * @param table the filtered table.
+     * @param condition the other condition, or {@code null}.
+     * @param parameters the map to add the bind parameter values to.
+     * @return the conjunction of the conditions, or {@code null} if there is none.
+     */
+    public Condition toCondition(Table table, Condition condition, Map<String, Object> parameters) {
+        Condition filter = toCondition(table, parameters);
+        if (filter == null) {
+            return condition;
+        }
+        return condition == null ? filter : condition.and(filter);
+    }
+
+    /**
+     * Creates the where clause of the filter.
+     * @param table the filtered table.
+     * @param parameters the map to add the bind parameter values to.
+     * @return the condition, or {@code null} if the filter is empty.
+     */
+    public Condition toCondition(Table table, Map<String, Object> parameters) {
+        Condition condition = null;
+        for (int i = 0; i < predicates.size(); i++) {
+            Condition predicate = toCondition(table, predicates.get(i), PARAMETER_PREFIX + i, parameters);
+            condition = condition == null ? predicate : condition.and(predicate);
+        }
+        return condition;
+    }
+
+    private static Condition toCondition(Table table, Predicate predicate, String parameter, Map<String, Object> parameters) {
+        Column column = table.column(predicate.column().getColumn());
+        List<Object> values = predicate.values();
+        Expression value = Conditions.just(":" + parameter);
+        if (predicate.column().getKind() == FilterableColumn.Kind.GENRE_MASK) {
+            // all the genres of the mask for contains, any of them for in
+            parameters.put(parameter, values.get(0));
+            String reference = table.getReferenceName().toSql(IdentifierProcessing.NONE) + "." + predicate.column().getColumn();
+            String masked = "(" + reference + " & :" + parameter + ")";
+            return Conditions.just(predicate.operator() == FilterOperator.CONTAINS ? masked + " = :" + parameter : masked + " <> 0");
+        }
+        switch (predicate.operator()) {
+            case IN:
+                parameters.put(parameter, values);
+                return Conditions.in(column, value);
+            case BETWEEN:
+                parameters.put(parameter + "From", values.get(0));
+                parameters.put(parameter + "To", values.get(1));
+                return Conditions.between(column, Conditions.just(":" + parameter + "From"), Conditions.just(":" + parameter + "To"));
+            case CONTAINS:
+                parameters.put(parameter, "%" + escapeLike(values.get(0).toString()) + "%");
+                return Conditions.like(column, value);
+            case STARTS_WITH:
+                parameters.put(parameter, escapeLike(values.get(0).toString()) + "%");
+                return Conditions.like(column, value);
+            case GREATER_THAN:
+                parameters.put(parameter, values.get(0));
+                return Conditions.isGreater(column, value);
+            case GREATER_THAN_OR_EQUAL:
+                parameters.put(parameter, values.get(0));
+                return Conditions.isGreaterOrEqualTo(column, value);
+            case LESS_THAN:
+                parameters.put(parameter, values.get(0));
+                return Conditions.isLess(column, value);
+            case LESS_THAN_OR_EQUAL:
+                parameters.put(parameter, values.get(0));
+                return Conditions.isLessOrEqualTo(column, value);
+            default:
+                parameters.put(parameter, values.get(0));
+                return Conditions.isEqual(column, value);
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * @return the key of the statement shape in the select template cache.
+     */
+    public String shape() {
+        return predicates
+            .stream()
+            .map(predicate -> predicate.column().getProperty() + "." + predicate.operator().getParameterName())
+            .collect(Collectors.joining(","));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EntityFilter)) {
+            return false;
+        }
+        return predicates.equals(((EntityFilter) o).predicates);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(predicates);
+    }
+
+    @Override
+    public String toString() {
+        return "EntityFilter{" + predicates.stream().map(Predicate::toString).collect(Collectors.joining(", ")) + "}";
+    }
+
+    private record Predicate(FilterableColumn column, FilterOperator operator, List<Object> values) {
+        @Override
+        public String toString() {
+            return column.getProperty() + "." + operator.getParameterName() + "=" + values;
+        }
+    }
+}
@@ -1,25 +1,43 @@
 package id.laris.assistant.repository;
 
+import id.laris.assistant.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.data.r2dbc.core.StatementMapper;
 import org.springframework.data.r2dbc.query.UpdateMapper;
 import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
 import org.springframework.data.relational.core.query.Criteria;
 import org.springframework.data.relational.core.sql.Column;
 import org.springframework.data.relational.core.sql.Condition;
+import org.springframework.data.relational.core.sql.Conditions;
 import org.springframework.data.relational.core.sql.OrderByField;
 import org.springframework.data.relational.core.sql.Select;
 import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoin;
 import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoinCondition;
 import org.springframework.data.relational.core.sql.SelectBuilder.SelectOrdered;
+import org.springframework.data.relational.core.sql.SelectBuilder.SelectWhere;
 import org.springframework.data.relational.core.sql.Table;
 import org.springframework.data.relational.core.sql.render.SqlRenderer;
+import org.springframework.data.util.TypeInformation;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
 import org.springframework.r2dbc.core.Parameter;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
@@ -35,6 +53,24 @@ public class EntityManager {
 
     public static final String ENTITY_ALIAS = "e";
     public static final String ALIAS_PREFIX = "e_";
+    public static final String KEYSET_VALUE_PARAMETER = "keysetValue";
+    public static final String KEYSET_ID_PARAMETER = "keysetId";
+    public static final String ID_PARAMETER = "id";
+    public static final String IDS_PARAMETER = "ids";
+    public static final String LIMIT_PARAMETER = "limit";
+    public static final String OFFSET_PARAMETER = "offset";
+    public static final String INSERTED_COLUMN = "inserted";
+
+    public static final String SELECT_CACHE_METER_NAME = "repository.select-template.cache";
+    public static final String SELECT_CACHE_METER_DESCRIPTION = "Indicates the lookups of the rendered SQL select templates.";
+    public static final String SELECT_CACHE_METER_RESULT_DIMENSION = "result";
+
+    // -1 when the table, or every partition of a partitioned table, has never been analyzed
+    private static final String ESTIMATE_COUNT_QUERY =
+        "SELECT (CASE WHEN c.relkind <> 'p' THEN c.reltuples ELSE" +
+        " (SELECT COALESCE(CASE WHEN bool_and(p.reltuples < 0) THEN -1 ELSE sum(GREATEST(p.reltuples, 0)) END, -1)" +
+        " FROM pg_inherits i JOIN pg_class p ON p.oid = i.inhrelid WHERE i.inhparent = c.oid) END)::bigint AS estimate" +
+        " FROM pg_class c WHERE c.oid = to_regclass(:table)";
 
     public static class LinkTable {
 
@@ -57,13 +93,85 @@ public class EntityManager {
     private final R2dbcEntityTemplate r2dbcEntityTemplate;
     private final StatementMapper statementMapper;
 
-    public EntityManager(SqlRenderer sqlRenderer, UpdateMapper updateMapper, R2dbcEntityTemplate r2dbcEntityTemplate) {
+    private final Map<SelectTemplateKey, String> selectTemplates = new ConcurrentHashMap<>();
+    private final int selectTemplateCacheSize;
+    private final Counter selectTemplateHits;
+    private final Counter selectTemplateMisses;
+
+    public EntityManager(
+        SqlRenderer sqlRenderer,
+        UpdateMapper updateMapper,
+        R2dbcEntityTemplate r2dbcEntityTemplate,
+        ApplicationProperties applicationProperties,
+        MeterRegistry registry
+    ) {
         this.sqlRenderer = sqlRenderer;
         this.updateMapper = updateMapper;
         this.r2dbcEntityTemplate = r2dbcEntityTemplate;
         this.statementMapper = r2dbcEntityTemplate.getDataAccessStrategy().getStatementMapper();
+        this.selectTemplateCacheSize = applicationProperties.getDatabase().getSelectTemplateCacheSize();
+        this.selectTemplateHits = selectTemplateCounterBuilder("hit").register(registry);
+        this.selectTemplateMisses = selectTemplateCounterBuilder("miss").register(registry);
+        Gauge.builder(SELECT_CACHE_METER_NAME + ".size", selectTemplates, Map::size)
+            .description("Indicates the number of cached SQL select templates.")
+            .register(registry);
+    }
+
+    private static Counter.Builder selectTemplateCounterBuilder(String result) {
+        return Counter.builder(SELECT_CACHE_METER_NAME)
+            .description(SELECT_CACHE_METER_DESCRIPTION)
+            .tag(SELECT_CACHE_METER_RESULT_DIMENSION, result);
     }
 
+    /**
+     * Creates an SQL select statement for the given query shape. The statement is rendered on the first use of the
+     * shape only, and then served from a cache, so neither the {@link Select} nor its columns are rebuilt per request.
+     * <p>
+     * The page is not inlined: the statement ends with {@code LIMIT :limit OFFSET :offset}, bound by
+     * {@link #bindParameters(GenericExecuteSpec, Pageable, Map)}. Every page of a shape thus shares one SQL string,
+     * and with it the prepared statement cached by the driver. The where clause must also take its values from bind
+     * parameters, since it is part of the shape.
+     * @param entityType the entity type which holds the table name.
+     * @param shape the name of the joins and where clause of the query, or null to skip the cache, if the where clause has inlined values.
+     * @param selectFrom supplier of a representation of a select statement, only called to render the statement.
+     * @param pageable page parameter, or null, if everything needs to be returned.
+     * @param where condition or null. The condition to apply as where clause.
+     * @return sql select statement
+     */
+    public String createSelect(
+        Class<?> entityType,
+        String shape,
+        Supplier<? extends SelectWhere> selectFrom,
+        Pageable pageable,
+        Condition where
+    ) {
+        boolean paged = pageable != null && pageable.isPaged();
+        Sort sort = pageable != null ? pageable.getSort() : Sort.unsorted();
+        if (shape == null) {
+            return renderSelect(entityType, selectFrom.get(), paged, sort, where);
+        }
+        SelectTemplateKey key = new SelectTemplateKey(entityType, shape, sort, paged);
+        String select = selectTemplates.get(key);
+        if (select != null) {
+            selectTemplateHits.increment();
+            return select;
+        }
+        selectTemplateMisses.increment();
+        select = renderSelect(entityType, selectFrom.get(), paged, sort, where);
+        if (selectTemplates.size() < selectTemplateCacheSize) {
+            selectTemplates.putIfAbsent(key, select);
+        }
+        return select;
+    }
+
+    private String renderSelect(Class<?> entityType, SelectWhere selectFrom, boolean paged, Sort sort, Condition where) {
+        SelectOrdered select = where != null ? selectFrom.where(where) : selectFrom;
+        String sql = createSelectImpl(select, entityType, sort);
+        return paged ? sql + " LIMIT :" + LIMIT_PARAMETER + " OFFSET :" + OFFSET_PARAMETER : sql;
+    }
+
+    private record SelectTemplateKey(Class<?> entityType, String shape, Sort sort, boolean paged) {}
+
     /**
      * Creates an SQL select statement from the given fragment and pagination parameters.
      * @param selectFrom a representation of a select statement.
@@ -137,6 +245,85 @@ public class EntityManager {
         return sqlRenderer.render(select);
     }
 
+    /**
+     * Creates the seek predicate of a keyset paginated query, which selects the rows following the given cursor.
+     * The predicate is a row value comparison on {@code (sort_key, id)}, so it can be resolved by a composite index
+     * range scan, and the cursor values are registered as named bind parameters.
+     * @param entityType the entity type which holds the table name.
+     * @param keysetPageable page parameter, as returned by {@link KeysetCursor#keysetPageable(Pageable, KeysetCursor)}.
+     * @param after the cursor of the last seen row, or null for the first page.
+     * @param parameters the bind parameters of the query, the cursor values are added to it.
+     * @return the condition, or null for the first page.
+     */
+    public Condition createKeysetCondition(Class<?> entityType, Pageable keysetPageable, KeysetCursor after, Map<String, Object> parameters) {
+        if (after == null) {
+            return null;
+        }
+        List<Sort.Order> orders = keysetPageable.getSort().toList();
+        String operator = orders.get(orders.size() - 1).isAscending() ? " > " : " < ";
+        parameters.put(KEYSET_ID_PARAMETER, after.getId());
+        if (orders.size() == 1) {
+            return Conditions.just(ENTITY_ALIAS + ".id" + operator + ":" + KEYSET_ID_PARAMETER);
+        }
+        RelationalPersistentEntity<?> entity = getPersistentEntity(entityType);
+        RelationalPersistentProperty property = entity != null ? entity.getPersistentProperty(orders.get(0).getProperty()) : null;
+        if (property == null) {
+            throw new IllegalArgumentException("Unknown sort property: " + orders.get(0).getProperty());
+        }
+        R2dbcConverter converter = r2dbcEntityTemplate.getConverter();
+        Object value = converter.getConversionService().convert(after.getValue(), property.getActualType());
+        // the custom write conversions apply, such as the ratings stored in half stars
+        parameters.put(KEYSET_VALUE_PARAMETER, converter.writeValue(value, TypeInformation.OBJECT));
+        String column = ENTITY_ALIAS + "." + property.getColumnName().getReference();
+        return Conditions.just(
+            "(" + column + ", " + ENTITY_ALIAS + ".id)" + operator + "(:" + KEYSET_VALUE_PARAMETER + ", :" + KEYSET_ID_PARAMETER + ")"
+        );
+    }
+
+    /**
+     * Binds the given named parameters to the statement.
+     * @param spec the statement to bind.
+     * @param parameters the parameter values by name.
+     * @return the bound statement.
+     */
+    public static GenericExecuteSpec bindParameters(GenericExecuteSpec spec, Map<String, ?> parameters) {
+        for (Map.Entry<String, ?> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec;
+    }
+
+    /**
+     * Binds the given named parameters, and the page of a select created by
+     * {@link #createSelect(Class, String, Supplier, Pageable, Condition)}, to the statement.
+     * @param spec the statement to bind.
+     * @param pageable page parameter, or null, if everything needs to be returned.
+     * @param parameters the parameter values by name.
+     * @return the bound statement.
+     */
+    public static GenericExecuteSpec bindParameters(GenericExecuteSpec spec, Pageable pageable, Map<String, ?> parameters) {
+        spec = bindParameters(spec, parameters);
+        if (pageable != null && pageable.isPaged()) {
+            spec = spec.bind(LIMIT_PARAMETER, pageable.getPageSize()).bind(OFFSET_PARAMETER, pageable.getOffset());
+        }
+        return spec;
+    }
+
+    /**
+     * Orders the rows of a lookup by ids in the order of the ids, the rows being returned by the database in no
+     * particular order.
+     * @param <T> the type of the entities.
+     * @param ids the ids looked up.
+     * @param idOf the id of an entity.
+     * @param rows the rows found.
+     * @return the entities found, in the order of their first id, the missing ids being skipped.
+     */
+    public static <T> Flux<T> inOrderOf(Collection<Long> ids, Function<T, Long> idOf, Flux<T> rows) {
+        return rows
+            .collectMap(idOf)
+            .flatMapIterable(found -> ids.stream().distinct().map(found::get).filter(Objects::nonNull).toList());
+    }
+
     /**
      * Delete all the entity with the given type, and return the number of deletions.
      * @param entityType the entity type which holds the table name.
@@ -156,6 +343,26 @@ public class EntityManager {
         return r2dbcEntityTemplate.getDatabaseClient().sql(statementMapper.getMappedObject(delete)).fetch().rowsUpdated();
     }
 
+    /**
+     * Returns the row count of the entity table estimated by the Postgres planner statistics, which costs a catalog
+     * lookup instead of a table scan. The estimate is as fresh as the last {@code ANALYZE} of the table. The estimate of
+     * a partitioned table, whose own statistics autovacuum never refreshes, is the sum of the ones of its partitions, the
+     * partitions never analyzed counting for none.
+     * @param entityType the entity type which holds the table name.
+     * @return the estimated number of rows, or an empty result if the table, or none of its partitions, has been analyzed.
+     */
+    public Mono<Long> estimateCount(Class<?> entityType) {
+        RelationalPersistentEntity<?> entity = getPersistentEntity(entityType);
+        Assert.notNull(entity, "entityType is not a persistent entity");
+        return r2dbcEntityTemplate
+            .getDatabaseClient()
+            .sql(ESTIMATE_COUNT_QUERY)
+            .bind("table", entity.getTableName().getReference())
+            .map(row -> row.get("estimate", Long.class))
+            .one()
+            .filter(estimate -> estimate >= 0);
+    }
+
     /**
      * Inserts the given entity into the database - and sets the id, if it's an autoincrement field.
      * @param <S> the type of the persisted entity.
@@ -166,6 +373,192 @@ public class EntityManager {
         return r2dbcEntityTemplate.insert(entity);
     }
 
+    /**
+     * Inserts the given rows with a single statement, executed with one binding set per row, so the whole batch costs
+     * one round trip instead of one per row.
+     * @param tableName the name of the table to insert into.
+     * @param columns the name of the inserted columns.
+     * @param columnTypes the type of the inserted columns, to bind the null values.
+     * @param rows the values of the rows, in the order of the columns.
+     * @return the generated ids, in the order of the rows.
+     */
+    public Flux<Long> insertBatch(String tableName, List<String> columns, List<Class<?>> columnTypes, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return Flux.empty();
+        }
+        String values = IntStream.rangeClosed(1, columns.size()).mapToObj(index -> "$" + index).collect(Collectors.joining(", "));
+        String sql = "INSERT INTO " + tableName + " (" + String.join(", ", columns) + ") VALUES (" + values + ")";
+        return r2dbcEntityTemplate
+            .getDatabaseClient()
+            .inConnectionMany(connection -> {
+                Statement statement = connection.createStatement(sql).returnGeneratedValues("id");
+                for (int i = 0; i < rows.size(); i++) {
+                    if (i > 0) {
+                        statement.add();
+                    }
+                    bindRow(statement, 0, columnTypes, rows.get(i));
+                }
+                return Flux.from(statement.execute()).concatMap(result -> result.map((row, metadata) -> row.get("id", Long.class)));
+            });
+    }
+
+    /**
+     * Updates the row of the given id with a single statement, which returns the updated row: a missing row gives an
+     * empty result, so the update needs no existence check and no reload.
+     * @param tableName the name of the table to update.
+     * @param id the id of the updated row.
+     * @param columns the name of the updated columns.
+     * @param columnTypes the type of the updated columns, to bind the null values.
+     * @param values the new values, in the order of the columns.
+     * @param partial whether a null value keeps the current value of its column, instead of setting it to null.
+     * @return the statement, whose result holds the id and the updated columns, aliased with the {@link #ALIAS_PREFIX}.
+     */
+    public GenericExecuteSpec updateReturning(
+        String tableName,
+        Object id,
+        List<String> columns,
+        List<Class<?>> columnTypes,
+        Object[] values,
+        boolean partial
+    ) {
+        String assignments = columns
+            .stream()
+            .map(column -> column + " = " + (partial ? "COALESCE(:" + column + ", " + column + ")" : ":" + column))
+            .collect(Collectors.joining(", "));
+        String returning = Stream.concat(Stream.of("id"), columns.stream())
+            .map(column -> column + " AS " + ALIAS_PREFIX + column)
+            .collect(Collectors.joining(", "));
+        String sql = "UPDATE " + tableName + " SET " + assignments + " WHERE id = :" + ID_PARAMETER + " RETURNING " + returning;
+        GenericExecuteSpec spec = r2dbcEntityTemplate.getDatabaseClient().sql(sql).bind(ID_PARAMETER, id);
+        for (int column = 0; column < columns.size(); column++) {
+            spec = spec.bind(columns.get(column), Parameter.fromOrEmpty(values[column], columnTypes.get(column)));
+        }
+        return spec;
+    }
+
+    /**
+     * Inserts a row, or updates the row which has the same values in the conflict columns, with a single statement which
+     * returns the row and whether it was inserted.
+     * @param tableName the name of the table to insert into.
+     * @param conflictColumns the columns of the unique index the upsert is keyed on, which must be part of the columns.
+     * @param columns the name of the inserted columns, the ones outside of the conflict columns being updated on conflict.
+     * @param columnTypes the type of the inserted columns, to bind the null values.
+     * @param values the values, in the order of the columns.
+     * @return the statement, whose result holds the id and the columns, aliased with the {@link #ALIAS_PREFIX}, and the
+     * {@link #INSERTED_COLUMN} flag.
+     */
+    public GenericExecuteSpec upsertReturning(
+        String tableName,
+        List<String> conflictColumns,
+        List<String> columns,
+        List<Class<?>> columnTypes,
+        Object[] values
+    ) {
+        String parameters = columns.stream().map(column -> ":" + column).collect(Collectors.joining(", "));
+        String assignments = columns
+            .stream()
+            .filter(column -> !conflictColumns.contains(column))
+            .map(column -> column + " = EXCLUDED." + column)
+            .collect(Collectors.joining(", "));
+        String returning = Stream.concat(Stream.of("id"), columns.stream())
+            .map(column -> column + " AS " + ALIAS_PREFIX + column)
+            .collect(Collectors.joining(", "));
+        // the system column xmax is 0 in a freshly inserted row version, and set in the one written by DO UPDATE
+        String sql =
+            "INSERT INTO " +
+            tableName +
+            " (" +
+            String.join(", ", columns) +
+            ") VALUES (" +
+            parameters +
+            ") ON CONFLICT (" +
+            String.join(", ", conflictColumns) +
+            ") DO UPDATE SET " +
+            assignments +
+            " RETURNING " +
+            returning +
+            ", (xmax = 0) AS " +
+            INSERTED_COLUMN;
+        GenericExecuteSpec spec = r2dbcEntityTemplate.getDatabaseClient().sql(sql);
+        for (int column = 0; column < columns.size(); column++) {
+            spec = spec.bind(columns.get(column), Parameter.fromOrEmpty(values[column], columnTypes.get(column)));
+        }
+        return spec;
+    }
+
+    /**
+     * Upserts the given rows with a single multi-row {@code INSERT ... ON CONFLICT DO UPDATE} statement. The rows must
+     * have distinct values in the conflict columns, since a statement cannot update the same row twice, and at most
+     * 65535 bind parameters in total.
+     * @param tableName the name of the table to insert into.
+     * @param conflictColumns the columns of the unique index the upsert is keyed on, which must be part of the columns.
+     * @param columns the name of the inserted columns, the ones outside of the conflict columns being updated on conflict.
+     * @param columnTypes the type of the inserted columns, to bind the null values.
+     * @param rows the values of the rows, in the order of the columns.
+     * @param updateCondition the condition an existing row must meet to be updated, which may refer to the new values as
+     * {@code EXCLUDED}, or {@code null} to always update it.
+     * @return whether each written row was inserted, a row skipped by the update condition emitting nothing.
+     */
+    public Flux<Boolean> upsertBatch(
+        String tableName,
+        List<String> conflictColumns,
+        List<String> columns,
+        List<Class<?>> columnTypes,
+        List<Object[]> rows,
+        String updateCondition
+    ) {
+        if (rows.isEmpty()) {
+            return Flux.empty();
+        }
+        String values = IntStream.range(0, rows.size())
+            .mapToObj(row ->
+                IntStream.rangeClosed(1, columns.size())
+                    .mapToObj(column -> "$" + (row * columns.size() + column))
+                    .collect(Collectors.joining(", ", "(", ")"))
+            )
+            .collect(Collectors.joining(", "));
+        String assignments = columns
+            .stream()
+            .filter(column -> !conflictColumns.contains(column))
+            .map(column -> column + " = EXCLUDED." + column)
+            .collect(Collectors.joining(", "));
+        String sql =
+            "INSERT INTO " +
+            tableName +
+            " (" +
+            String.join(", ", columns) +
+            ") VALUES " +
+            values +
+            " ON CONFLICT (" +
+            String.join(", ", conflictColumns) +
+            ") DO UPDATE SET " +
+            assignments +
+            (updateCondition != null ? " WHERE " + updateCondition : "") +
+            " RETURNING (xmax = 0) AS " +
+            INSERTED_COLUMN;
+        return r2dbcEntityTemplate
+            .getDatabaseClient()
+            .inConnectionMany(connection -> {
+                Statement statement = connection.createStatement(sql);
+                for (int row = 0; row < rows.size(); row++) {
+                    bindRow(statement, row * columns.size(), columnTypes, rows.get(row));
+                }
+                return Flux.from(statement.execute()).concatMap(result ->
+                    result.map((row, metadata) -> row.get(INSERTED_COLUMN, Boolean.class))
+                );
+            });
+    }
+
+    private static void bindRow(Statement statement, int offset, List<Class<?>> columnTypes, Object[] values) {
+        for (int column = 0; column < values.length; column++) {
+            if (values[column] == null) {
+                statement.bindNull(offset + column, columnTypes.get(column));
+            } else {
+                statement.bind(offset + column, values[column]);
+            }
+        }
+    }
+
     /**
      * Updates the table, which links the entity with the referred entities.
      * @param table describes the link table, it contains a table name, the column name for the id, and for the referred entity id.
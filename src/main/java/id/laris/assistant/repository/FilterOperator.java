@@ -0,0 +1,49 @@
+package id.laris.assistant.repository;
+
+import java.util.Arrays;
+
+/**
+ * The operators of the {@code property.operator=value} filter request parameters.
+ */
+public enum FilterOperator {
+    EQUALS("equals", 1),
+    IN("in", -1),
+    GREATER_THAN("greaterThan", 1),
+    GREATER_THAN_OR_EQUAL("greaterThanOrEqual", 1),
+    LESS_THAN("lessThan", 1),
+    LESS_THAN_OR_EQUAL("lessThanOrEqual", 1),
+    BETWEEN("between", 2),
+    CONTAINS("contains", -1),
+    STARTS_WITH("startsWith", 1);
+
+    private final String parameterName;
+    private final int arity;
+
+    FilterOperator(String parameterName, int arity) {
+        this.parameterName = parameterName;
+        this.arity = arity;
+    }
+
+    /**
+     * @param parameterName the operator part of a request parameter name.
+     * @return the operator.
+     * @throws IllegalArgumentException if the operator is unknown.
+     */
+    public static FilterOperator fromParameterName(String parameterName) {
+        return Arrays.stream(values())
+            .filter(operator -> operator.parameterName.equals(parameterName))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown filter operator: " + parameterName));
+    }
+
+    public String getParameterName() {
+        return parameterName;
+    }
+
+    /**
+     * @return the number of values the operator takes, -1 for one or more.
+     */
+    public int getArity() {
+        return arity;
+    }
+}
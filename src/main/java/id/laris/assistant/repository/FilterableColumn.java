@@ -0,0 +1,118 @@
+package id.laris.assistant.repository;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A column which the list endpoints may filter on, with the operators its indexes can serve.
+ * <p>
+ * A leading column starts an index, so a filter on it alone is served by an index scan. The other columns follow an
+ * equality column in a composite index, and are only accepted along with an {@code equals} or {@code in} filter on
+ * one of those. A {@link Kind#GENRE_MASK} column is the exception: no index serves its bitwise matches, which scan the
+ * narrow masks of the movies.
+ */
+public final class FilterableColumn {
+
+    /**
+     * How the values of a column are compared.
+     */
+    public enum Kind {
+        /**
+         * A plain scalar column.
+         */
+        SCALAR,
+        /**
+         * The bits of the {@link id.laris.assistant.domain.Genre}s of a movie, filtered with genre names: {@code contains}
+         * matches the rows holding all the given genres, {@code in} the rows holding any of them.
+         */
+        GENRE_MASK,
+        /**
+         * A rating stored in half stars, filtered with bounds given in stars.
+         */
+        HALF_STARS,
+    }
+
+    private final String property;
+    private final String column;
+    private final Class<?> type;
+    private final Kind kind;
+    private final Set<FilterOperator> operators;
+    private final Set<String> requiresAnyOf;
+
+    private FilterableColumn(
+        String property,
+        String column,
+        Class<?> type,
+        Kind kind,
+        Set<FilterOperator> operators,
+        Set<String> requiresAnyOf
+    ) {
+        this.property = property;
+        this.column = column;
+        this.type = type;
+        this.kind = kind;
+        this.operators = operators;
+        this.requiresAnyOf = requiresAnyOf;
+    }
+
+    /**
+     * @return a leading column, filtered with {@code equals} and {@code in}.
+     */
+    public static FilterableColumn key(String property, String column) {
+        return new FilterableColumn(property, column, Long.class, Kind.SCALAR, EnumSet.of(FilterOperator.EQUALS, FilterOperator.IN), Set.of());
+    }
+
+    /**
+     * @return a leading column, filtered with the given operators.
+     */
+    public static FilterableColumn leading(String property, String column, Class<?> type, Kind kind, Set<FilterOperator> operators) {
+        return new FilterableColumn(property, column, type, kind, operators, Set.of());
+    }
+
+    /**
+     * @return a column ranged with the comparison operators, which starts an index if {@code requiresAnyOf} is empty.
+     */
+    public static FilterableColumn range(String property, String column, Class<?> type, Set<String> requiresAnyOf) {
+        Set<FilterOperator> operators = EnumSet.complementOf(
+            EnumSet.of(FilterOperator.IN, FilterOperator.CONTAINS, FilterOperator.STARTS_WITH)
+        );
+        return new FilterableColumn(property, column, type, Kind.SCALAR, operators, requiresAnyOf);
+    }
+
+    /**
+     * @return a rating column stored in half stars, ranged with the comparison operators like {@link #range}.
+     */
+    public static FilterableColumn halfStarRange(String property, String column, Set<String> requiresAnyOf) {
+        Set<FilterOperator> operators = EnumSet.complementOf(
+            EnumSet.of(FilterOperator.IN, FilterOperator.CONTAINS, FilterOperator.STARTS_WITH)
+        );
+        return new FilterableColumn(property, column, Double.class, Kind.HALF_STARS, operators, requiresAnyOf);
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Set<FilterOperator> getOperators() {
+        return operators;
+    }
+
+    /**
+     * @return the properties one of which must be filtered by equality along with this column, empty for a leading column.
+     */
+    public Set<String> getRequiresAnyOf() {
+        return requiresAnyOf;
+    }
+}
@@ -0,0 +1,104 @@
+package id.laris.assistant.repository;
+
+import java.util.Map;
+import org.springframework.data.relational.core.sql.Condition;
+import org.springframework.data.relational.core.sql.Conditions;
+import org.springframework.data.relational.core.sql.Table;
+
+/**
+ * Optional bounds of a per user or per movie history: a time range on the {@code timestamp} column and a minimum on the
+ * {@code rating} column, given in stars and compared to the stored half stars.
+ * <p>
+ * The bounds are rendered as bind parameters, and the statement shape only depends on which bounds are set, so the
+ * rendered statement is cached and the query is served by the {@code (user_id, timestamp)} and
+ * {@code (movie_id, rating)} indexes. The time range compares the raw {@code timestamp} column, so on the tags
+ * partitioned by month Postgres only scans the partitions it overlaps.
+ */
+public final class HistoryFilter {
+
+    public static final HistoryFilter NONE = new HistoryFilter(null, null, null);
+
+    private static final String OWNER_PARAMETER = "owner";
+    private static final String FROM_PARAMETER = "from";
+    private static final String TO_PARAMETER = "to";
+    private static final String MIN_RATING_PARAMETER = "minRating";
+
+    private final Long from;
+    private final Long to;
+    private final Double minRating;
+
+    private HistoryFilter(Long from, Long to, Double minRating) {
+        this.from = from;
+        this.to = to;
+        this.minRating = minRating;
+    }
+
+    /**
+     * @param from the inclusive lower bound of the timestamp, or {@code null}.
+     * @param to the exclusive upper bound of the timestamp, or {@code null}.
+     * @param minRating the inclusive lower bound of the rating, or {@code null}.
+     * @return the filter.
+     * @throws IllegalArgumentException if the time range is empty, or the minimum rating is not finite.
+     */
+    public static HistoryFilter of(Long from, Long to, Double minRating) {
+        if (from != null && to != null && from >= to) {
+            throw new IllegalArgumentException("The time range is empty");
+        }
+        if (minRating != null && !Double.isFinite(minRating)) {
+            throw new IllegalArgumentException("The minimum rating must be a finite number");
+        }
+        return new HistoryFilter(from, to, minRating);
+    }
+
+    /**
+     * Creates the where clause selecting the history of one user or one movie.
+     * @param table the history table.
+     * @param ownerColumn the foreign key column, {@code user_id} or {@code movie_id}.
+     * @param ownerId the id of the user or movie.
+     * @param parameters the map to add the bind parameter values to.
+     * @return the condition.
+     */
+    public Condition toCondition(Table table, String ownerColumn, Long ownerId, Map<String, Object> parameters) {
+        parameters.put(OWNER_PARAMETER, ownerId);
+        Condition condition = Conditions.isEqual(table.column(ownerColumn), Conditions.just(":" + OWNER_PARAMETER));
+        if (from != null) {
+            parameters.put(FROM_PARAMETER, from);
+            condition = condition.and(Conditions.isGreaterOrEqualTo(table.column("timestamp"), Conditions.just(":" + FROM_PARAMETER)));
+        }
+        if (to != null) {
+            parameters.put(TO_PARAMETER, to);
+            condition = condition.and(Conditions.isLess(table.column("timestamp"), Conditions.just(":" + TO_PARAMETER)));
+        }
+        if (minRating != null) {
+            // the ratings are stored in half stars, rating >= 3.7 selects the same rows as rating >= 8
+            parameters.put(MIN_RATING_PARAMETER, (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.ceil(minRating * 2))));
+            condition = condition.and(Conditions.isGreaterOrEqualTo(table.column("rating"), Conditions.just(":" + MIN_RATING_PARAMETER)));
+        }
+        return condition;
+    }
+
+    /**
+     * @param ownerColumn the foreign key column.
+     * @return the key of the statement shape in the select template cache.
+     */
+    public String shape(String ownerColumn) {
+        return "history:" + ownerColumn + (from != null ? ",from" : "") + (to != null ? ",to" : "") + (minRating != null ? ",minRating" : "");
+    }
+
+    public Long getFrom() {
+        return from;
+    }
+
+    public Long getTo() {
+        return to;
+    }
+
+    public Double getMinRating() {
+        return minRating;
+    }
+
+    @Override
+    public String toString() {
+        return "HistoryFilter{" + "from=" + from + ", to=" + to + ", minRating=" + minRating + "}";
+    }
+}
@@ -0,0 +1,170 @@
+package id.laris.assistant.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.Assert;
+
+/**
+ * Position of the last seen row of a keyset (seek) paginated query.
+ * <p>
+ * The cursor holds the sort property, its value and the id of the last row, and is exchanged with the clients as an
+ * opaque, url safe token. The next page is then selected with a {@code WHERE (sort_key, id) > (?, ?)} predicate instead
+ * of an {@code OFFSET}, so every page costs the same whatever its depth.
+ */
+public final class KeysetCursor {
+
+    public static final String ID_PROPERTY = "id";
+
+    private static final String SEPARATOR = "|";
+
+    private final String property;
+    private final String value;
+    private final Long id;
+
+    private KeysetCursor(String property, String value, Long id) {
+        this.property = property;
+        this.value = value;
+        this.id = id;
+    }
+
+    /**
+     * Creates the cursor pointing to the given row.
+     * @param property the sort property, {@code id} when the rows are only sorted by id.
+     * @param value the value of the sort property in the row.
+     * @param id the id of the row.
+     * @return the cursor.
+     */
+    public static KeysetCursor of(String property, Object value, Long id) {
+        Assert.hasText(property, "property is empty");
+        Assert.notNull(value, "value is null");
+        Assert.notNull(id, "id is null");
+        return new KeysetCursor(property, value.toString(), id);
+    }
+
+    /**
+     * Decodes a token created by {@link #encode()}.
+     * @param token the opaque token sent by the client.
+     * @return the cursor, or {@code null} if the token is empty, which designates the first page.
+     * @throws IllegalArgumentException if the token is malformed.
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        String[] parts = decoded.split("\\" + SEPARATOR, 3);
+        if (parts.length != 3 || parts[0].isEmpty()) {
+            throw new IllegalArgumentException("Malformed keyset cursor");
+        }
+        try {
+            return new KeysetCursor(parts[0], parts[2], Long.valueOf(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed keyset cursor", e);
+        }
+    }
+
+    /**
+     * Encodes the cursor into an opaque, url safe token.
+     * @return the token.
+     */
+    public String encode() {
+        String raw = property + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Turns the requested page into the shape of a keyset query: the offset is dropped, and the id is appended to the
+     * sort as tie-breaker, so the order is total and the last row of a page designates the start of the next one.
+     * @param pageable the requested page, only the size and the sort are used.
+     * @param after the cursor of the last seen row, or {@code null} for the first page.
+     * @return the page request to run the keyset query with.
+     * @throws IllegalArgumentException if the sort cannot be paginated with a keyset, or if it does not match the cursor.
+     */
+    public static Pageable keysetPageable(Pageable pageable, KeysetCursor after) {
+        if (pageable == null || pageable.isUnpaged()) {
+            throw new IllegalArgumentException("Keyset pagination requires a page size");
+        }
+        Sort sort = pageable.getSort();
+        List<Sort.Order> orders = sort.filter(order -> !ID_PROPERTY.equals(order.getProperty())).toList();
+        if (orders.size() > 1) {
+            throw new IllegalArgumentException("Keyset pagination supports a single sort property besides the id");
+        }
+        Sort.Order idOrder = sort.getOrderFor(ID_PROPERTY);
+        Sort.Direction direction;
+        if (orders.isEmpty()) {
+            direction = idOrder != null ? idOrder.getDirection() : Sort.Direction.ASC;
+        } else {
+            Sort.Order order = orders.get(0);
+            if (order.getProperty().contains(".")) {
+                throw new IllegalArgumentException("Keyset pagination cannot sort on a joined property");
+            }
+            if (idOrder != null && idOrder.getDirection() != order.getDirection()) {
+                throw new IllegalArgumentException("Keyset pagination requires the same direction for all the sort properties");
+            }
+            direction = order.getDirection();
+        }
+        String property = orders.isEmpty() ? ID_PROPERTY : orders.get(0).getProperty();
+        if (after != null && !after.getProperty().equals(property)) {
+            throw new IllegalArgumentException("The keyset cursor does not match the requested sort");
+        }
+        return PageRequest.of(0, pageable.getPageSize(), Sort.by(orders).and(Sort.by(direction, ID_PROPERTY)));
+    }
+
+    /**
+     * The same as {@link #keysetPageable(Pageable, KeysetCursor)}, restricted to the sort properties the next cursor can
+     * be read from.
+     * @param pageable the requested page, only the size and the sort are used.
+     * @param after the cursor of the last seen row, or {@code null} for the first page.
+     * @param sortProperties the properties exposed by the DTOs, with a scalar value which is never {@code null}.
+     * @return the page request to run the keyset query with.
+     * @throws IllegalArgumentException if the sort cannot be paginated with a keyset, or if it does not match the cursor.
+     */
+    public static Pageable keysetPageable(Pageable pageable, KeysetCursor after, Set<String> sortProperties) {
+        Pageable keysetPageable = keysetPageable(pageable, after);
+        String property = keysetPageable.getSort().iterator().next().getProperty();
+        if (!sortProperties.contains(property)) {
+            throw new IllegalArgumentException("Keyset pagination cannot sort on " + property);
+        }
+        return keysetPageable;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof KeysetCursor)) {
+            return false;
+        }
+        KeysetCursor that = (KeysetCursor) o;
+        return property.equals(that.property) && value.equals(that.value) && id.equals(that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(property, value, id);
+    }
+
+    @Override
+    public String toString() {
+        return "KeysetCursor{" + "property='" + property + "'" + ", value='" + value + "'" + ", id=" + id + "}";
+    }
+}
@@ -0,0 +1,20 @@
+package id.laris.assistant.repository;
+
+import id.laris.assistant.domain.MovieRatingStats;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Spring Data R2DBC repository for the MovieRatingStats entity, which is only written by the database triggers of the
+ * ratings table and by the reconciliation.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface MovieRatingStatsRepository extends ReactiveCrudRepository<MovieRatingStats, Long>, MovieRatingStatsRepositoryInternal {}
+
+interface MovieRatingStatsRepositoryInternal {
+    Mono<Long> findChunkEnd(Long after, int size);
+
+    Mono<Long> reconcileChunk(Long after, Long upTo);
+}
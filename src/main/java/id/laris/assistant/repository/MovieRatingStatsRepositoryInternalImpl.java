@@ -0,0 +1,73 @@
+package id.laris.assistant.repository;
+
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Spring Data R2DBC custom repository implementation for the MovieRatingStats entity.
+ * <p>
+ * The aggregates are recomputed from the ratings by chunks of movies, in id order, so a reconciliation never aggregates
+ * the whole ratings table in one statement.
+ */
+class MovieRatingStatsRepositoryInternalImpl implements MovieRatingStatsRepositoryInternal {
+
+    private static final String CHUNK_END_QUERY =
+        "SELECT max(id) AS chunk_end FROM (SELECT id FROM movies WHERE id > :after ORDER BY id LIMIT :size) chunk HAVING count(*) > 0";
+
+    // locks the existing aggregates first, so the triggers of the ratings written meanwhile apply their deltas either
+    // before the recomputation, which then sees their ratings, or after it
+    private static final String LOCK_QUERY =
+        "SELECT movie_id FROM movie_rating_stats WHERE movie_id > :after AND movie_id <= :upTo ORDER BY movie_id FOR UPDATE";
+
+    // the ratings are stored in half stars, the aggregates are in stars
+    private static final String RECONCILE_QUERY =
+        "INSERT INTO movie_rating_stats AS s (movie_id, rating_count, rating_sum, rating_sum_squares, histogram, last_rated_at)" +
+        " SELECT m.id, COALESCE(sum(b.n), 0), COALESCE(sum(b.total), 0), COALESCE(sum(b.squares), 0)," +
+        " movie_rating_histogram_sum(movie_rating_histogram(b.bucket, b.n)), max(b.last_rated_at)" +
+        " FROM movies m LEFT JOIN (" +
+        "SELECT movie_id, movie_rating_bucket(rating) AS bucket, count(*) AS n, sum(rating) AS total," +
+        " sum(rating * rating) AS squares, max(timestamp) AS last_rated_at" +
+        " FROM (SELECT movie_id, rating::double precision / 2 AS rating, timestamp FROM ratings" +
+        " WHERE movie_id > :after AND movie_id <= :upTo) r GROUP BY movie_id, bucket" +
+        ") b ON b.movie_id = m.id" +
+        " WHERE m.id > :after AND m.id <= :upTo GROUP BY m.id ORDER BY m.id" +
+        " ON CONFLICT (movie_id) DO UPDATE SET rating_count = EXCLUDED.rating_count, rating_sum = EXCLUDED.rating_sum," +
+        " rating_sum_squares = EXCLUDED.rating_sum_squares, histogram = EXCLUDED.histogram, last_rated_at = EXCLUDED.last_rated_at" +
+        " WHERE (s.rating_count, s.rating_sum, s.rating_sum_squares, s.histogram, s.last_rated_at)" +
+        " IS DISTINCT FROM (EXCLUDED.rating_count, EXCLUDED.rating_sum, EXCLUDED.rating_sum_squares, EXCLUDED.histogram, EXCLUDED.last_rated_at)";
+
+    private final DatabaseClient db;
+
+    public MovieRatingStatsRepositoryInternalImpl(R2dbcEntityTemplate template) {
+        this.db = template.getDatabaseClient();
+    }
+
+    /**
+     * Returns the greatest movie id of the next chunk, or empty after the last movie.
+     */
+    @Override
+    public Mono<Long> findChunkEnd(Long after, int size) {
+        return db
+            .sql(CHUNK_END_QUERY)
+            .bind("after", after)
+            .bind("size", size)
+            .map(row -> row.get("chunk_end", Long.class))
+            .one();
+    }
+
+    /**
+     * Recomputes the aggregates of the movies of ids in {@code (after, upTo]}, to run in a transaction.
+     * @return the number of aggregates which had drifted, and were corrected or created.
+     */
+    @Override
+    public Mono<Long> reconcileChunk(Long after, Long upTo) {
+        return db
+            .sql(LOCK_QUERY)
+            .bind("after", after)
+            .bind("upTo", upTo)
+            .map(row -> row.get(0))
+            .all()
+            .then(db.sql(RECONCILE_QUERY).bind("after", after).bind("upTo", upTo).fetch().rowsUpdated());
+    }
+}
@@ -1,7 +1,10 @@
 package id.laris.assistant.repository;
 
 import id.laris.assistant.domain.Movies;
+import java.util.Collection;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
@@ -15,6 +18,16 @@ import reactor.core.publisher.Mono;
 public interface MovieRepository extends ReactiveCrudRepository<Movies, Long>, MovieRepositoryInternal {
     Flux<Movies> findAllBy(Pageable pageable);
 
+    /**
+     * Deletes the entity with the given id.
+     *
+     * @param id the id of the entity.
+     * @return the number of deleted rows, 0 if there was no such entity.
+     */
+    @Modifying
+    @Query("DELETE FROM movies WHERE id = :id")
+    Mono<Long> removeById(Long id);
+
     @Override
     <S extends Movies> Mono<S> save(S entity);
 
@@ -33,9 +46,21 @@ interface MovieRepositoryInternal {
 
     Flux<Movies> findAllBy(Pageable pageable);
 
+    Flux<Movies> findAllAfter(KeysetCursor after, Pageable pageable, EntityFilter filter);
+
     Flux<Movies> findAll();
 
     Mono<Movies> findById(Long id);
-    // this is not supported at the moment because of https://github.com/jhipster/generator-jhipster/issues/18269
-    // Flux<Movies> findAllBy(Pageable pageable, Criteria criteria);
+
+    Flux<Movies> findAllByIds(Collection<Long> ids);
+
+    Flux<Movies> findAllBy(Pageable pageable, EntityFilter filter);
+
+    Mono<Long> countBy(EntityFilter filter);
+
+    Mono<Movies> update(Movies entity);
+
+    Mono<Movies> partialUpdate(Movies entity);
+
+    Mono<Long> updateGenreMasks();
 }
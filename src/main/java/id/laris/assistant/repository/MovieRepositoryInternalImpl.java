@@ -2,9 +2,10 @@ package id.laris.assistant.repository;
 
 import id.laris.assistant.domain.Movies;
 import id.laris.assistant.repository.rowmapper.MovieRowMapper;
-import io.r2dbc.spi.Row;
-import io.r2dbc.spi.RowMetadata;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.convert.R2dbcConverter;
 import org.springframework.data.r2dbc.core.R2dbcEntityOperations;
@@ -14,8 +15,9 @@ import org.springframework.data.relational.core.sql.Comparison;
 import org.springframework.data.relational.core.sql.Condition;
 import org.springframework.data.relational.core.sql.Conditions;
 import org.springframework.data.relational.core.sql.Expression;
+import org.springframework.data.relational.core.sql.Expressions;
+import org.springframework.data.relational.core.sql.Functions;
 import org.springframework.data.relational.core.sql.Select;
-import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoin;
 import org.springframework.data.relational.core.sql.Table;
 import org.springframework.data.relational.repository.support.MappingRelationalEntityInformation;
 import org.springframework.r2dbc.core.DatabaseClient;
@@ -37,6 +39,9 @@ class MovieRepositoryInternalImpl extends SimpleR2dbcRepository<Movies, Long> im
 
     private static final Table entityTable = Table.aliased("movies", EntityManager.ENTITY_ALIAS);
 
+    private static final List<String> valueColumns = List.of("title", "genres", "genre_mask");
+    private static final List<Class<?>> valueColumnTypes = List.of(String.class, String.class, Integer.class);
+
     public MovieRepositoryInternalImpl(
         R2dbcEntityTemplate template,
         EntityManager entityManager,
@@ -60,12 +65,62 @@ class MovieRepositoryInternalImpl extends SimpleR2dbcRepository<Movies, Long> im
         return createQuery(pageable, null).all();
     }
 
+    @Override
+    public Flux<Movies> findAllAfter(KeysetCursor after, Pageable pageable, EntityFilter filter) {
+        Pageable keysetPageable = KeysetCursor.keysetPageable(pageable, after);
+        Map<String, Object> parameters = new HashMap<>();
+        Condition keysetCondition = entityManager.createKeysetCondition(Movies.class, keysetPageable, after, parameters);
+        Condition whereClause = filter.toCondition(entityTable, keysetCondition, parameters);
+        String shape = after != null ? "keyset" : "all";
+        return createQuery(filter.isEmpty() ? shape : shape + ",filter:" + filter.shape(), keysetPageable, whereClause, parameters).all();
+    }
+
+    @Override
+    public Flux<Movies> findAllBy(Pageable pageable, EntityFilter filter) {
+        if (filter.isEmpty()) {
+            return findAllBy(pageable);
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        Condition whereClause = filter.toCondition(entityTable, parameters);
+        return createQuery("filter:" + filter.shape(), pageable, whereClause, parameters).all();
+    }
+
+    @Override
+    public Mono<Long> countBy(EntityFilter filter) {
+        Map<String, Object> parameters = new HashMap<>();
+        Condition whereClause = filter.toCondition(entityTable, parameters);
+        return countWhere("filter:" + filter.shape(), whereClause, parameters);
+    }
+
+    private Mono<Long> countWhere(String shape, Condition whereClause, Map<String, ?> parameters) {
+        String select = entityManager.createSelect(
+            Movies.class,
+            "count:" + shape,
+            () -> Select.builder().select(Functions.count(Expressions.asterisk())).from(entityTable),
+            null,
+            whereClause
+        );
+        return EntityManager.bindParameters(db.sql(select), parameters).map(row -> row.get(0, Long.class)).one();
+    }
+
     RowsFetchSpec<Movies> createQuery(Pageable pageable, Condition whereClause) {
-        List<Expression> columns = MovieSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS);
-        SelectFromAndJoin selectFrom = Select.builder().select(columns).from(entityTable);
+        // a where clause given here may inline its values, so its statement is not cached
+        return createQuery(whereClause == null ? "all" : null, pageable, whereClause, Map.of());
+    }
+
+    RowsFetchSpec<Movies> createQuery(String shape, Pageable pageable, Condition whereClause, Map<String, ?> parameters) {
         // we do not support Criteria here for now as of https://github.com/jhipster/generator-jhipster/issues/18269
-        String select = entityManager.createSelect(selectFrom, Movies.class, pageable, whereClause);
-        return db.sql(select).map(this::process);
+        String select = entityManager.createSelect(
+            Movies.class,
+            shape,
+            () -> {
+                List<Expression> columns = MovieSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS);
+                return Select.builder().select(columns).from(entityTable);
+            },
+            pageable,
+            whereClause
+        );
+        return EntityManager.bindParameters(db.sql(select), pageable, parameters).map(moviesMapper.reader("e"));
     }
 
     @Override
@@ -75,13 +130,42 @@ class MovieRepositoryInternalImpl extends SimpleR2dbcRepository<Movies, Long> im
 
     @Override
     public Mono<Movies> findById(Long id) {
-        Comparison whereClause = Conditions.isEqual(entityTable.column("id"), Conditions.just(id.toString()));
-        return createQuery(null, whereClause).one();
+        Comparison whereClause = Conditions.isEqual(entityTable.column("id"), Conditions.just(":" + EntityManager.ID_PARAMETER));
+        return createQuery("id", null, whereClause, Map.of(EntityManager.ID_PARAMETER, id)).one();
+    }
+
+    @Override
+    public Flux<Movies> findAllByIds(Collection<Long> ids) {
+        // one array parameter, so that every number of ids shares the statement
+        Comparison whereClause = Conditions.isEqual(entityTable.column("id"), Conditions.just("ANY(:" + EntityManager.IDS_PARAMETER + ")"));
+        Flux<Movies> rows = createQuery("ids", null, whereClause, Map.of(EntityManager.IDS_PARAMETER, ids.toArray(Long[]::new))).all();
+        return EntityManager.inOrderOf(ids, Movies::getId, rows);
+    }
+
+    @Override
+    public Mono<Movies> update(Movies entity) {
+        return entityManager
+            .updateReturning("movies", entity.getId(), valueColumns, valueColumnTypes, values(entity), false)
+            .map(moviesMapper.reader("e"))
+            .one();
+    }
+
+    @Override
+    public Mono<Movies> partialUpdate(Movies entity) {
+        return entityManager
+            .updateReturning("movies", entity.getId(), valueColumns, valueColumnTypes, values(entity), true)
+            .map(moviesMapper.reader("e"))
+            .one();
+    }
+
+    @Override
+    public Mono<Long> updateGenreMasks() {
+        // for the rows written without the service, such as the copied ones
+        return db.sql("UPDATE movies SET genre_mask = movie_genre_mask(genres)").fetch().rowsUpdated();
     }
 
-    private Movies process(Row row, RowMetadata metadata) {
-        Movies entity = moviesMapper.apply(row, "e");
-        return entity;
+    private static Object[] values(Movies entity) {
+        return new Object[] { entity.getTitle(), entity.getGenres(), entity.getGenreMask() };
     }
 
     @Override
@@ -1,18 +1,49 @@
 package id.laris.assistant.repository;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import org.springframework.data.relational.core.sql.Column;
 import org.springframework.data.relational.core.sql.Expression;
 import org.springframework.data.relational.core.sql.Table;
 
 public class MovieSqlHelper {
 
+    /**
+     * The filterable columns: the id, the title prefix served by its {@code text_pattern_ops} index, and the genres,
+     * compared bitwise with the genre mask, whose scan reads one narrow integer per movie.
+     */
+    public static final List<FilterableColumn> FILTERABLE_COLUMNS = List.of(
+        FilterableColumn.key("id", "id"),
+        FilterableColumn.leading(
+            "title",
+            "title",
+            String.class,
+            FilterableColumn.Kind.SCALAR,
+            EnumSet.of(FilterOperator.EQUALS, FilterOperator.STARTS_WITH)
+        ),
+        FilterableColumn.leading(
+            "genres",
+            "genre_mask",
+            String.class,
+            FilterableColumn.Kind.GENRE_MASK,
+            EnumSet.of(FilterOperator.CONTAINS, FilterOperator.IN)
+        )
+    );
+
+    /**
+     * The keyset sortable properties, whose next cursor is read from the last DTO of a page: the id and the title. The
+     * genres are a list in the DTO, which does not read back as the value of their column.
+     */
+    public static final Set<String> KEYSET_SORT_PROPERTIES = Set.of("id", "title");
+
     public static List<Expression> getColumns(Table table, String columnPrefix) {
         List<Expression> columns = new ArrayList<>();
         columns.add(Column.aliased("id", table, columnPrefix + "_id"));
         columns.add(Column.aliased("title", table, columnPrefix + "_title"));
         columns.add(Column.aliased("genres", table, columnPrefix + "_genres"));
+        columns.add(Column.aliased("genre_mask", table, columnPrefix + "_genre_mask"));
 
         return columns;
     }
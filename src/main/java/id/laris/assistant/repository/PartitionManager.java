@@ -0,0 +1,120 @@
+package id.laris.assistant.repository;
+
+import java.time.LocalDate;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Manages the partitions of the tables partitioned by range of their epoch second {@code timestamp}: the creation of
+ * the monthly partitions, and the detachment of the old ones for retention.
+ */
+@Component
+public class PartitionManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionManager.class);
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    // the exclusive upper bound, parsed from a partition bound such as FOR VALUES FROM ('1733011200') TO ('1735689600')
+    private static final String PARTITIONS_QUERY =
+        "SELECT c.relname AS name, i.inhdetachpending AS detach_pending," +
+        " substring(pg_get_expr(c.relpartbound, c.oid) FROM 'TO \\(''?(-?[0-9]+)''?\\)')::bigint AS upper_bound" +
+        " FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid" +
+        " WHERE i.inhparent = to_regclass(:table) ORDER BY upper_bound";
+
+    private final DatabaseClient db;
+
+    public PartitionManager(DatabaseClient db) {
+        this.db = db;
+    }
+
+    /**
+     * A partition, with the exclusive upper bound of its timestamps.
+     *
+     * @param name the partition table name.
+     * @param upperBound the exclusive upper bound of the timestamps, in epoch seconds, {@code null} for the default partition.
+     * @param detachPending whether a concurrent detachment of the partition was interrupted.
+     */
+    public record TimePartition(String name, Long upperBound, boolean detachPending) {}
+
+    /**
+     * Creates the partition of a calendar month, in UTC, unless it exists. The rows of the month held by the default
+     * partition of the table are moved to it.
+     *
+     * @param table the partitioned table name.
+     * @param month a day of the month.
+     * @return whether the partition was created.
+     */
+    public Mono<Boolean> createMonthlyPartition(String table, LocalDate month) {
+        return db
+            .sql("SELECT create_monthly_partition(:table, :month) AS created")
+            .bind("table", identifier(table))
+            .bind("month", month)
+            .map(row -> row.get("created", Boolean.class))
+            .one();
+    }
+
+    /**
+     * @param table the partitioned table name.
+     * @return the partitions of the table, by upper bound.
+     */
+    public Flux<TimePartition> findPartitions(String table) {
+        return db
+            .sql(PARTITIONS_QUERY)
+            .bind("table", identifier(table))
+            .map(row ->
+                new TimePartition(
+                    row.get("name", String.class),
+                    row.get("upper_bound", Long.class),
+                    Boolean.TRUE.equals(row.get("detach_pending", Boolean.class))
+                )
+            )
+            .all();
+    }
+
+    /**
+     * Detaches a partition from its table, which keeps its rows as a standalone table. The detachment is concurrent, so
+     * it does not block the queries of the table, and must not run in a transaction. Postgres refuses a concurrent
+     * detachment from a table with a default partition, whose detachments take a brief exclusive lock on the table.
+     *
+     * @param table the partitioned table name.
+     * @param partition the partition.
+     * @return a Mono to signal the detachment.
+     */
+    public Mono<Void> detachPartition(String table, TimePartition partition) {
+        return hasDefaultPartition(table).flatMap(hasDefault -> {
+            String mode = partition.detachPending() ? " FINALIZE" : hasDefault ? "" : " CONCURRENTLY";
+            LOG.debug("Detaching partition {} of {}{}", partition.name(), table, mode);
+            return db.sql("ALTER TABLE " + identifier(table) + " DETACH PARTITION " + identifier(partition.name()) + mode).then();
+        });
+    }
+
+    private Mono<Boolean> hasDefaultPartition(String table) {
+        return db
+            .sql("SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(:table) AND partdefid <> 0) AS found")
+            .bind("table", identifier(table))
+            .map(row -> row.get("found", Boolean.class))
+            .one();
+    }
+
+    /**
+     * Drops a detached partition.
+     *
+     * @param partition the partition.
+     * @return a Mono to signal the drop.
+     */
+    public Mono<Void> dropDetachedPartition(TimePartition partition) {
+        return db.sql("DROP TABLE " + identifier(partition.name())).then();
+    }
+
+    private static String identifier(String name) {
+        Assert.isTrue(IDENTIFIER.matcher(name).matches(), () -> "Invalid identifier: " + name);
+        return name;
+    }
+}
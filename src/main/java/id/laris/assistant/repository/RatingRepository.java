@@ -1,7 +1,10 @@
 package id.laris.assistant.repository;
 
 import id.laris.assistant.domain.Ratings;
+import java.util.Collection;
+import java.util.List;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
@@ -16,6 +19,16 @@ import reactor.core.publisher.Mono;
 public interface RatingRepository extends ReactiveCrudRepository<Ratings, Long>, RatingRepositoryInternal {
     Flux<Ratings> findAllBy(Pageable pageable);
 
+    /**
+     * Deletes the entity with the given id.
+     *
+     * @param id the id of the entity.
+     * @return the number of deleted rows, 0 if there was no such entity.
+     */
+    @Modifying
+    @Query("DELETE FROM ratings WHERE id = :id")
+    Mono<Long> removeById(Long id);
+
     @Query("SELECT * FROM ratings entity WHERE entity.user_id = :id")
     Flux<Ratings> findByUsers(Long id);
 
@@ -46,9 +59,41 @@ interface RatingRepositoryInternal {
 
     Flux<Ratings> findAllBy(Pageable pageable);
 
+    Flux<Ratings> findAllWithEagerRelationships(Pageable pageable);
+
+    Flux<Ratings> findAllWithEagerRelationships(Pageable pageable, EntityFilter filter);
+
+    Flux<Ratings> findAllAfter(KeysetCursor after, Pageable pageable, EntityFilter filter);
+
     Flux<Ratings> findAll();
 
     Mono<Ratings> findById(Long id);
-    // this is not supported at the moment because of https://github.com/jhipster/generator-jhipster/issues/18269
-    // Flux<Ratings> findAllBy(Pageable pageable, Criteria criteria);
+
+    Flux<Ratings> findAllByIds(Collection<Long> ids);
+
+    Mono<Ratings> findOneWithEagerRelationships(Long id);
+
+    Flux<Long> insertAll(List<Ratings> entities);
+
+    Flux<Ratings> streamAll(int fetchSize);
+
+    Flux<Ratings> findAllByUser(Long userId, HistoryFilter filter, Pageable pageable);
+
+    Mono<Long> countByUser(Long userId, HistoryFilter filter);
+
+    Flux<Ratings> findAllByMovie(Long movieId, HistoryFilter filter, Pageable pageable);
+
+    Mono<Long> countByMovie(Long movieId, HistoryFilter filter);
+
+    Flux<Ratings> findAllBy(Pageable pageable, EntityFilter filter);
+
+    Mono<Long> countBy(EntityFilter filter);
+
+    Mono<Ratings> update(Ratings entity);
+
+    Mono<Ratings> partialUpdate(Ratings entity);
+
+    Mono<Upserted<Ratings>> upsertByUserAndMovie(Ratings entity);
+
+    Flux<Boolean> upsertAllByUserAndMovie(List<Ratings> entities);
 }
@@ -2,12 +2,31 @@ package id.laris.assistant.repository;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import org.springframework.data.relational.core.sql.Column;
 import org.springframework.data.relational.core.sql.Expression;
 import org.springframework.data.relational.core.sql.Table;
 
 public class RatingSqlHelper {
 
+    /**
+     * The filterable columns: the keys, the timestamp which has its own index, and the rating which follows the movie id
+     * in the {@code (movie_id, rating)} index, and is stored in half stars.
+     */
+    public static final List<FilterableColumn> FILTERABLE_COLUMNS = List.of(
+        FilterableColumn.key("id", "id"),
+        FilterableColumn.key("userId", "user_id"),
+        FilterableColumn.key("movieId", "movie_id"),
+        FilterableColumn.range("timestamp", "timestamp", Long.class, Set.of()),
+        FilterableColumn.halfStarRange("rating", "rating", Set.of("movieId"))
+    );
+
+    /**
+     * The keyset sortable properties, whose next cursor is read from the last DTO of a page: the id, the rating and the
+     * timestamp, the user and movie ids being only exposed by the nested DTOs.
+     */
+    public static final Set<String> KEYSET_SORT_PROPERTIES = Set.of("id", "rating", "timestamp");
+
     public static List<Expression> getColumns(Table table, String columnPrefix) {
         List<Expression> columns = new ArrayList<>();
         columns.add(Column.aliased("id", table, columnPrefix + "_id"));
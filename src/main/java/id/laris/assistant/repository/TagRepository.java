@@ -1,7 +1,10 @@
 package id.laris.assistant.repository;
 
 import id.laris.assistant.domain.Tags;
+import java.util.Collection;
+import java.util.List;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
@@ -16,6 +19,16 @@ import reactor.core.publisher.Mono;
 public interface TagRepository extends ReactiveCrudRepository<Tags, Long>, TagRepositoryInternal {
     Flux<Tags> findAllBy(Pageable pageable);
 
+    /**
+     * Deletes the entity with the given id.
+     *
+     * @param id the id of the entity.
+     * @return the number of deleted rows, 0 if there was no such entity.
+     */
+    @Modifying
+    @Query("DELETE FROM tags WHERE id = :id")
+    Mono<Long> removeById(Long id);
+
     @Query("SELECT * FROM tags entity WHERE entity.user_id = :id")
     Flux<Tags> findByUsers(Long id);
 
@@ -46,9 +59,37 @@ interface TagRepositoryInternal {
 
     Flux<Tags> findAllBy(Pageable pageable);
 
+    Flux<Tags> findAllWithEagerRelationships(Pageable pageable);
+
+    Flux<Tags> findAllWithEagerRelationships(Pageable pageable, EntityFilter filter);
+
+    Flux<Tags> findAllAfter(KeysetCursor after, Pageable pageable, EntityFilter filter);
+
     Flux<Tags> findAll();
 
     Mono<Tags> findById(Long id);
-    // this is not supported at the moment because of https://github.com/jhipster/generator-jhipster/issues/18269
-    // Flux<Tags> findAllBy(Pageable pageable, Criteria criteria);
+
+    Flux<Tags> findAllByIds(Collection<Long> ids);
+
+    Mono<Tags> findOneWithEagerRelationships(Long id);
+
+    Flux<Long> insertAll(List<Tags> entities);
+
+    Flux<Tags> streamAll(int fetchSize);
+
+    Flux<Tags> findAllByUser(Long userId, HistoryFilter filter, Pageable pageable);
+
+    Mono<Long> countByUser(Long userId, HistoryFilter filter);
+
+    Flux<Tags> findAllByMovie(Long movieId, HistoryFilter filter, Pageable pageable);
+
+    Mono<Long> countByMovie(Long movieId, HistoryFilter filter);
+
+    Flux<Tags> findAllBy(Pageable pageable, EntityFilter filter);
+
+    Mono<Long> countBy(EntityFilter filter);
+
+    Mono<Tags> update(Tags entity);
+
+    Mono<Tags> partialUpdate(Tags entity);
 }
@@ -1,13 +1,20 @@
 package id.laris.assistant.repository;
 
+import id.laris.assistant.domain.Movies;
 import id.laris.assistant.domain.Tags;
+import id.laris.assistant.domain.Users;
 import id.laris.assistant.repository.rowmapper.MovieRowMapper;
 import id.laris.assistant.repository.rowmapper.TagRowMapper;
 import id.laris.assistant.repository.rowmapper.UserRowMapper;
 import io.r2dbc.spi.Row;
 import io.r2dbc.spi.RowMetadata;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.r2dbc.convert.R2dbcConverter;
 import org.springframework.data.r2dbc.core.R2dbcEntityOperations;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
@@ -17,8 +24,9 @@ import org.springframework.data.relational.core.sql.Comparison;
 import org.springframework.data.relational.core.sql.Condition;
 import org.springframework.data.relational.core.sql.Conditions;
 import org.springframework.data.relational.core.sql.Expression;
+import org.springframework.data.relational.core.sql.Expressions;
+import org.springframework.data.relational.core.sql.Functions;
 import org.springframework.data.relational.core.sql.Select;
-import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoinCondition;
 import org.springframework.data.relational.core.sql.Table;
 import org.springframework.data.relational.repository.support.MappingRelationalEntityInformation;
 import org.springframework.r2dbc.core.DatabaseClient;
@@ -44,6 +52,9 @@ class TagRepositoryInternalImpl extends SimpleR2dbcRepository<Tags, Long> implem
     private static final Table usersTable = Table.aliased("users", "users");
     private static final Table moviesTable = Table.aliased("movies", "movies");
 
+    private static final List<String> valueColumns = List.of("tag", "timestamp", "user_id", "movie_id");
+    private static final List<Class<?>> valueColumnTypes = List.of(String.class, Long.class, Long.class, Long.class);
+
     public TagRepositoryInternalImpl(
         R2dbcEntityTemplate template,
         EntityManager entityManager,
@@ -68,25 +79,162 @@ class TagRepositoryInternalImpl extends SimpleR2dbcRepository<Tags, Long> implem
 
     @Override
     public Flux<Tags> findAllBy(Pageable pageable) {
+        if (sortsOnRelationship(pageable)) {
+            return findAllWithEagerRelationships(pageable);
+        }
         return createQuery(pageable, null).all();
     }
 
+    @Override
+    public Flux<Tags> findAllWithEagerRelationships(Pageable pageable) {
+        return createQueryWithEagerRelationships("all", pageable, null, Map.of()).all();
+    }
+
+    @Override
+    public Flux<Tags> findAllWithEagerRelationships(Pageable pageable, EntityFilter filter) {
+        if (filter.isEmpty()) {
+            return findAllWithEagerRelationships(pageable);
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        Condition whereClause = filter.toCondition(entityTable, parameters);
+        return createQueryWithEagerRelationships("filter:" + filter.shape(), pageable, whereClause, parameters).all();
+    }
+
+    @Override
+    public Flux<Tags> findAllAfter(KeysetCursor after, Pageable pageable, EntityFilter filter) {
+        Pageable keysetPageable = KeysetCursor.keysetPageable(pageable, after);
+        Map<String, Object> parameters = new HashMap<>();
+        Condition keysetCondition = entityManager.createKeysetCondition(Tags.class, keysetPageable, after, parameters);
+        Condition whereClause = filter.toCondition(entityTable, keysetCondition, parameters);
+        String shape = after != null ? "keyset" : "all";
+        return createQuery(filter.isEmpty() ? shape : shape + ",filter:" + filter.shape(), keysetPageable, whereClause, parameters).all();
+    }
+
+    /**
+     * Selects all the tags by id, fetching the rows from a cursor by batches of the given size as the subscriber requests
+     * them, instead of buffering the whole result.
+     */
+    @Override
+    public Flux<Tags> streamAll(int fetchSize) {
+        String select = entityManager.createSelect(
+            Tags.class,
+            "export",
+            () -> Select.builder().select(TagSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS)).from(entityTable),
+            Pageable.unpaged(Sort.by(KeysetCursor.ID_PROPERTY)),
+            null
+        );
+        return db.sql(select).filter(statement -> statement.fetchSize(fetchSize)).map(tagsMapper.reader("e")).all();
+    }
+
+    @Override
+    public Flux<Tags> findAllByUser(Long userId, HistoryFilter filter, Pageable pageable) {
+        return findHistory("user_id", userId, filter, pageable);
+    }
+
+    @Override
+    public Mono<Long> countByUser(Long userId, HistoryFilter filter) {
+        return countHistory("user_id", userId, filter);
+    }
+
+    @Override
+    public Flux<Tags> findAllByMovie(Long movieId, HistoryFilter filter, Pageable pageable) {
+        return findHistory("movie_id", movieId, filter, pageable);
+    }
+
+    @Override
+    public Mono<Long> countByMovie(Long movieId, HistoryFilter filter) {
+        return countHistory("movie_id", movieId, filter);
+    }
+
+    private Flux<Tags> findHistory(String ownerColumn, Long ownerId, HistoryFilter filter, Pageable pageable) {
+        Map<String, Object> parameters = new HashMap<>();
+        Condition whereClause = filter.toCondition(entityTable, ownerColumn, ownerId, parameters);
+        return createQuery(filter.shape(ownerColumn), pageable, whereClause, parameters).all();
+    }
+
+    private Mono<Long> countHistory(String ownerColumn, Long ownerId, HistoryFilter filter) {
+        Map<String, Object> parameters = new HashMap<>();
+        Condition whereClause = filter.toCondition(entityTable, ownerColumn, ownerId, parameters);
+        return countWhere(filter.shape(ownerColumn), whereClause, parameters);
+    }
+
+    @Override
+    public Flux<Tags> findAllBy(Pageable pageable, EntityFilter filter) {
+        if (filter.isEmpty()) {
+            return findAllBy(pageable);
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        Condition whereClause = filter.toCondition(entityTable, parameters);
+        return createQuery("filter:" + filter.shape(), pageable, whereClause, parameters).all();
+    }
+
+    @Override
+    public Mono<Long> countBy(EntityFilter filter) {
+        Map<String, Object> parameters = new HashMap<>();
+        Condition whereClause = filter.toCondition(entityTable, parameters);
+        return countWhere("filter:" + filter.shape(), whereClause, parameters);
+    }
+
+    private Mono<Long> countWhere(String shape, Condition whereClause, Map<String, ?> parameters) {
+        String select = entityManager.createSelect(
+            Tags.class,
+            "count:" + shape,
+            () -> Select.builder().select(Functions.count(Expressions.asterisk())).from(entityTable),
+            null,
+            whereClause
+        );
+        return EntityManager.bindParameters(db.sql(select), parameters).map(row -> row.get(0, Long.class)).one();
+    }
+
     RowsFetchSpec<Tags> createQuery(Pageable pageable, Condition whereClause) {
-        List<Expression> columns = TagSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS);
-        columns.addAll(UserSqlHelper.getColumns(usersTable, "users"));
-        columns.addAll(MovieSqlHelper.getColumns(moviesTable, "movies"));
-        SelectFromAndJoinCondition selectFrom = Select.builder()
-            .select(columns)
-            .from(entityTable)
-            .leftOuterJoin(usersTable)
-            .on(Column.create("user_id", entityTable))
-            .equals(Column.create("id", usersTable))
-            .leftOuterJoin(moviesTable)
-            .on(Column.create("movie_id", entityTable))
-            .equals(Column.create("id", moviesTable));
+        // a where clause given here may inline its values, so its statement is not cached
+        return createQuery(whereClause == null ? "all" : null, pageable, whereClause, Map.of());
+    }
+
+    /**
+     * Selects the tags columns only: the users and movies are referenced by their foreign key ids, which is all the
+     * default DTO mapping needs.
+     */
+    RowsFetchSpec<Tags> createQuery(String shape, Pageable pageable, Condition whereClause, Map<String, ?> parameters) {
         // we do not support Criteria here for now as of https://github.com/jhipster/generator-jhipster/issues/18269
-        String select = entityManager.createSelect(selectFrom, Tags.class, pageable, whereClause);
-        return db.sql(select).map(this::process);
+        String select = entityManager.createSelect(
+            Tags.class,
+            shape,
+            () -> {
+                List<Expression> columns = TagSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS);
+                return Select.builder().select(columns).from(entityTable);
+            },
+            pageable,
+            whereClause
+        );
+        return EntityManager.bindParameters(db.sql(select), pageable, parameters).map(tagsMapper.reader("e"));
+    }
+
+    /**
+     * Selects the tags joined with their users and movies, for the callers which need the expanded relations.
+     */
+    RowsFetchSpec<Tags> createQueryWithEagerRelationships(String shape, Pageable pageable, Condition whereClause, Map<String, ?> parameters) {
+        String select = entityManager.createSelect(
+            Tags.class,
+            shape != null ? "users,movies:" + shape : null,
+            () -> {
+                List<Expression> columns = TagSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS);
+                columns.addAll(UserSqlHelper.getColumns(usersTable, "users"));
+                columns.addAll(MovieSqlHelper.getColumns(moviesTable, "movies"));
+                return Select.builder()
+                    .select(columns)
+                    .from(entityTable)
+                    .leftOuterJoin(usersTable)
+                    .on(Column.create("user_id", entityTable))
+                    .equals(Column.create("id", usersTable))
+                    .leftOuterJoin(moviesTable)
+                    .on(Column.create("movie_id", entityTable))
+                    .equals(Column.create("id", moviesTable));
+            },
+            pageable,
+            whereClause
+        );
+        return EntityManager.bindParameters(db.sql(select), pageable, parameters).map(processWithEagerRelationships());
     }
 
     @Override
@@ -96,15 +244,63 @@ class TagRepositoryInternalImpl extends SimpleR2dbcRepository<Tags, Long> implem
 
     @Override
     public Mono<Tags> findById(Long id) {
-        Comparison whereClause = Conditions.isEqual(entityTable.column("id"), Conditions.just(id.toString()));
-        return createQuery(null, whereClause).one();
+        Comparison whereClause = Conditions.isEqual(entityTable.column("id"), Conditions.just(":" + EntityManager.ID_PARAMETER));
+        return createQuery("id", null, whereClause, Map.of(EntityManager.ID_PARAMETER, id)).one();
+    }
+
+    @Override
+    public Flux<Tags> findAllByIds(Collection<Long> ids) {
+        // one array parameter, so that every number of ids shares the statement
+        Comparison whereClause = Conditions.isEqual(entityTable.column("id"), Conditions.just("ANY(:" + EntityManager.IDS_PARAMETER + ")"));
+        return createQuery("ids", null, whereClause, Map.of(EntityManager.IDS_PARAMETER, ids.toArray(Long[]::new))).all();
+    }
+
+    @Override
+    public Mono<Tags> findOneWithEagerRelationships(Long id) {
+        Comparison whereClause = Conditions.isEqual(entityTable.column("id"), Conditions.just(":" + EntityManager.ID_PARAMETER));
+        return createQueryWithEagerRelationships("id", null, whereClause, Map.of(EntityManager.ID_PARAMETER, id)).one();
+    }
+
+    @Override
+    public Flux<Long> insertAll(List<Tags> entities) {
+        List<Object[]> rows = entities.stream().map(TagRepositoryInternalImpl::values).toList();
+        return entityManager.insertBatch("tags", valueColumns, valueColumnTypes, rows);
+    }
+
+    private static boolean sortsOnRelationship(Pageable pageable) {
+        return pageable != null && pageable.getSort().stream().anyMatch(order -> order.getProperty().contains("."));
+    }
+
+    private BiFunction<Row, RowMetadata, Tags> processWithEagerRelationships() {
+        BiFunction<Row, RowMetadata, Tags> entities = tagsMapper.reader("e");
+        BiFunction<Row, RowMetadata, Users> users = usersMapper.reader("users");
+        BiFunction<Row, RowMetadata, Movies> movies = moviesMapper.reader("movies");
+        return (row, metadata) -> {
+            Tags entity = entities.apply(row, metadata);
+            entity.setUsers(users.apply(row, metadata));
+            entity.setMovies(movies.apply(row, metadata));
+            return entity;
+        };
+    }
+
+    @Override
+    public Mono<Tags> update(Tags entity) {
+        return entityManager
+            .updateReturning("tags", entity.getId(), valueColumns, valueColumnTypes, values(entity), false)
+            .map(tagsMapper.reader("e"))
+            .one();
+    }
+
+    @Override
+    public Mono<Tags> partialUpdate(Tags entity) {
+        return entityManager
+            .updateReturning("tags", entity.getId(), valueColumns, valueColumnTypes, values(entity), true)
+            .map(tagsMapper.reader("e"))
+            .one();
     }
 
-    private Tags process(Row row, RowMetadata metadata) {
-        Tags entity = tagsMapper.apply(row, "e");
-        entity.setUsers(usersMapper.apply(row, "users"));
-        entity.setMovies(moviesMapper.apply(row, "movies"));
-        return entity;
+    private static Object[] values(Tags entity) {
+        return new Object[] { entity.getTag(), entity.getTimestamp(), entity.getUserId(), entity.getMovieId() };
     }
 
     @Override
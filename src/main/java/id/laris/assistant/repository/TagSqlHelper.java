@@ -2,12 +2,29 @@ package id.laris.assistant.repository;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import org.springframework.data.relational.core.sql.Column;
 import org.springframework.data.relational.core.sql.Expression;
 import org.springframework.data.relational.core.sql.Table;
 
 public class TagSqlHelper {
 
+    /**
+     * The filterable columns: the keys, and the timestamp which follows the user id or the movie id in their indexes.
+     */
+    public static final List<FilterableColumn> FILTERABLE_COLUMNS = List.of(
+        FilterableColumn.key("id", "id"),
+        FilterableColumn.key("userId", "user_id"),
+        FilterableColumn.key("movieId", "movie_id"),
+        FilterableColumn.range("timestamp", "timestamp", Long.class, Set.of("userId", "movieId"))
+    );
+
+    /**
+     * The keyset sortable properties, whose next cursor is read from the last DTO of a page: the id, the tag and the
+     * timestamp, the nullable user and movie ids being only exposed by the nested DTOs.
+     */
+    public static final Set<String> KEYSET_SORT_PROPERTIES = Set.of("id", "tag", "timestamp");
+
     public static List<Expression> getColumns(Table table, String columnPrefix) {
         List<Expression> columns = new ArrayList<>();
         columns.add(Column.aliased("id", table, columnPrefix + "_id"));
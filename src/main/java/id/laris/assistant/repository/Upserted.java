@@ -0,0 +1,39 @@
+package id.laris.assistant.repository;
+
+import java.util.function.Function;
+
+/**
+ * The row written by an upsert, and whether it was inserted or an existing row was updated, for the callers which maintain
+ * counts or caches incrementally.
+ * @param <E> the type of the row.
+ */
+public final class Upserted<E> {
+
+    private final E entity;
+    private final boolean inserted;
+
+    public Upserted(E entity, boolean inserted) {
+        this.entity = entity;
+        this.inserted = inserted;
+    }
+
+    public E getEntity() {
+        return entity;
+    }
+
+    /**
+     * @return {@code true} if the row was inserted, {@code false} if an existing row was updated.
+     */
+    public boolean isInserted() {
+        return inserted;
+    }
+
+    public <R> Upserted<R> map(Function<? super E, ? extends R> mapper) {
+        return new Upserted<>(mapper.apply(entity), inserted);
+    }
+
+    @Override
+    public String toString() {
+        return "Upserted{" + "entity=" + entity + ", inserted=" + inserted + "}";
+    }
+}
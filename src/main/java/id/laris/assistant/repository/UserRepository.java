@@ -1,7 +1,10 @@
 package id.laris.assistant.repository;
 
 import id.laris.assistant.domain.Users;
+import java.util.Collection;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
@@ -15,6 +18,16 @@ import reactor.core.publisher.Mono;
 public interface UserRepository extends ReactiveCrudRepository<Users, Long>, UserRepositoryInternal {
     Flux<Users> findAllBy(Pageable pageable);
 
+    /**
+     * Deletes the entity with the given id.
+     *
+     * @param id the id of the entity.
+     * @return the number of deleted rows, 0 if there was no such entity.
+     */
+    @Modifying
+    @Query("DELETE FROM users WHERE id = :id")
+    Mono<Long> removeById(Long id);
+
     @Override
     <S extends Users> Mono<S> save(S entity);
 
@@ -33,9 +46,19 @@ interface UserRepositoryInternal {
 
     Flux<Users> findAllBy(Pageable pageable);
 
+    Flux<Users> findAllAfter(KeysetCursor after, Pageable pageable, EntityFilter filter);
+
     Flux<Users> findAll();
 
     Mono<Users> findById(Long id);
-    // this is not supported at the moment because of https://github.com/jhipster/generator-jhipster/issues/18269
-    // Flux<Users> findAllBy(Pageable pageable, Criteria criteria);
+
+    Flux<Users> findAllByIds(Collection<Long> ids);
+
+    Flux<Users> findAllBy(Pageable pageable, EntityFilter filter);
+
+    Mono<Long> countBy(EntityFilter filter);
+
+    Mono<Users> update(Users entity);
+
+    Mono<Users> partialUpdate(Users entity);
 }
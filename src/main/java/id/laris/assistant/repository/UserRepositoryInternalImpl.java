@@ -2,9 +2,10 @@ package id.laris.assistant.repository;
 
 import id.laris.assistant.domain.Users;
 import id.laris.assistant.repository.rowmapper.UserRowMapper;
-import io.r2dbc.spi.Row;
-import io.r2dbc.spi.RowMetadata;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.convert.R2dbcConverter;
 import org.springframework.data.r2dbc.core.R2dbcEntityOperations;
@@ -14,8 +15,9 @@ import org.springframework.data.relational.core.sql.Comparison;
 import org.springframework.data.relational.core.sql.Condition;
 import org.springframework.data.relational.core.sql.Conditions;
 import org.springframework.data.relational.core.sql.Expression;
+import org.springframework.data.relational.core.sql.Expressions;
+import org.springframework.data.relational.core.sql.Functions;
 import org.springframework.data.relational.core.sql.Select;
-import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoin;
 import org.springframework.data.relational.core.sql.Table;
 import org.springframework.data.relational.repository.support.MappingRelationalEntityInformation;
 import org.springframework.r2dbc.core.DatabaseClient;
@@ -37,6 +39,9 @@ class UserRepositoryInternalImpl extends SimpleR2dbcRepository<Users, Long> impl
 
     private static final Table entityTable = Table.aliased("users", EntityManager.ENTITY_ALIAS);
 
+    private static final List<String> valueColumns = List.of("first_name", "last_name");
+    private static final List<Class<?>> valueColumnTypes = List.of(String.class, String.class);
+
     public UserRepositoryInternalImpl(
         R2dbcEntityTemplate template,
         EntityManager entityManager,
@@ -60,12 +65,62 @@ class UserRepositoryInternalImpl extends SimpleR2dbcRepository<Users, Long> impl
         return createQuery(pageable, null).all();
     }
 
+    @Override
+    public Flux<Users> findAllAfter(KeysetCursor after, Pageable pageable, EntityFilter filter) {
+        Pageable keysetPageable = KeysetCursor.keysetPageable(pageable, after);
+        Map<String, Object> parameters = new HashMap<>();
+        Condition keysetCondition = entityManager.createKeysetCondition(Users.class, keysetPageable, after, parameters);
+        Condition whereClause = filter.toCondition(entityTable, keysetCondition, parameters);
+        String shape = after != null ? "keyset" : "all";
+        return createQuery(filter.isEmpty() ? shape : shape + ",filter:" + filter.shape(), keysetPageable, whereClause, parameters).all();
+    }
+
+    @Override
+    public Flux<Users> findAllBy(Pageable pageable, EntityFilter filter) {
+        if (filter.isEmpty()) {
+            return findAllBy(pageable);
+        }
+        Map<String, Object> parameters = new HashMap<>();
+        Condition whereClause = filter.toCondition(entityTable, parameters);
+        return createQuery("filter:" + filter.shape(), pageable, whereClause, parameters).all();
+    }
+
+    @Override
+    public Mono<Long> countBy(EntityFilter filter) {
+        Map<String, Object> parameters = new HashMap<>();
+        Condition whereClause = filter.toCondition(entityTable, parameters);
+        return countWhere("filter:" + filter.shape(), whereClause, parameters);
+    }
+
+    private Mono<Long> countWhere(String shape, Condition whereClause, Map<String, ?> parameters) {
+        String select = entityManager.createSelect(
+            Users.class,
+            "count:" + shape,
+            () -> Select.builder().select(Functions.count(Expressions.asterisk())).from(entityTable),
+            null,
+            whereClause
+        );
+        return EntityManager.bindParameters(db.sql(select), parameters).map(row -> row.get(0, Long.class)).one();
+    }
+
     RowsFetchSpec<Users> createQuery(Pageable pageable, Condition whereClause) {
-        List<Expression> columns = UserSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS);
-        SelectFromAndJoin selectFrom = Select.builder().select(columns).from(entityTable);
+        // a where clause given here may inline its values, so its statement is not cached
+        return createQuery(whereClause == null ? "all" : null, pageable, whereClause, Map.of());
+    }
+
+    RowsFetchSpec<Users> createQuery(String shape, Pageable pageable, Condition whereClause, Map<String, ?> parameters) {
         // we do not support Criteria here for now as of https://github.com/jhipster/generator-jhipster/issues/18269
-        String select = entityManager.createSelect(selectFrom, Users.class, pageable, whereClause);
-        return db.sql(select).map(this::process);
+        String select = entityManager.createSelect(
+            Users.class,
+            shape,
+            () -> {
+                List<Expression> columns = UserSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS);
+                return Select.builder().select(columns).from(entityTable);
+            },
+            pageable,
+            whereClause
+        );
+        return EntityManager.bindParameters(db.sql(select), pageable, parameters).map(usersMapper.reader("e"));
     }
 
     @Override
@@ -75,13 +130,36 @@ class UserRepositoryInternalImpl extends SimpleR2dbcRepository<Users, Long> impl
 
     @Override
     public Mono<Users> findById(Long id) {
-        Comparison whereClause = Conditions.isEqual(entityTable.column("id"), Conditions.just(id.toString()));
-        return createQuery(null, whereClause).one();
+        Comparison whereClause = Conditions.isEqual(entityTable.column("id"), Conditions.just(":" + EntityManager.ID_PARAMETER));
+        return createQuery("id", null, whereClause, Map.of(EntityManager.ID_PARAMETER, id)).one();
+    }
+
+    @Override
+    public Flux<Users> findAllByIds(Collection<Long> ids) {
+        // one array parameter, so that every number of ids shares the statement
+        Comparison whereClause = Conditions.isEqual(entityTable.column("id"), Conditions.just("ANY(:" + EntityManager.IDS_PARAMETER + ")"));
+        Flux<Users> rows = createQuery("ids", null, whereClause, Map.of(EntityManager.IDS_PARAMETER, ids.toArray(Long[]::new))).all();
+        return EntityManager.inOrderOf(ids, Users::getId, rows);
+    }
+
+    @Override
+    public Mono<Users> update(Users entity) {
+        return entityManager
+            .updateReturning("users", entity.getId(), valueColumns, valueColumnTypes, values(entity), false)
+            .map(usersMapper.reader("e"))
+            .one();
+    }
+
+    @Override
+    public Mono<Users> partialUpdate(Users entity) {
+        return entityManager
+            .updateReturning("users", entity.getId(), valueColumns, valueColumnTypes, values(entity), true)
+            .map(usersMapper.reader("e"))
+            .one();
     }
 
-    private Users process(Row row, RowMetadata metadata) {
-        Users entity = usersMapper.apply(row, "e");
-        return entity;
+    private static Object[] values(Users entity) {
+        return new Object[] { entity.getFirstName(), entity.getLastName() };
     }
 
     @Override
@@ -2,12 +2,23 @@ package id.laris.assistant.repository;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import org.springframework.data.relational.core.sql.Column;
 import org.springframework.data.relational.core.sql.Expression;
 import org.springframework.data.relational.core.sql.Table;
 
 public class UserSqlHelper {
 
+    /**
+     * The filterable columns: only the id is indexed.
+     */
+    public static final List<FilterableColumn> FILTERABLE_COLUMNS = List.of(FilterableColumn.key("id", "id"));
+
+    /**
+     * The keyset sortable properties, whose next cursor is read from the last DTO of a page: the id and the names.
+     */
+    public static final Set<String> KEYSET_SORT_PROPERTIES = Set.of("id", "firstName", "lastName");
+
     public static List<Expression> getColumns(Table table, String columnPrefix) {
         List<Expression> columns = new ArrayList<>();
         columns.add(Column.aliased("id", table, columnPrefix + "_id"));
@@ -1,6 +1,13 @@
 package id.laris.assistant.repository.rowmapper;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.ColumnMetadata;
 import io.r2dbc.spi.Row;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.data.r2dbc.convert.R2dbcConverter;
 import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
@@ -11,16 +18,29 @@ import tech.jhipster.service.ColumnConverterReactive;
 
 /**
  * This service provides helper function dealing with the low level {@link Row} and Spring's {@link R2dbcCustomConversions}, so type conversions can be applied.
+ * <p>
+ * Whether the driver decodes a column to the target type itself, or the value has to be converted, is learned on the
+ * first non null value of each (column, database type, target type) and remembered, so that the driver is not made to
+ * throw for every row of a column that needs a conversion.
  */
 @Component
 public class ColumnConverter implements ColumnConverterReactive {
 
+    public static final String FALLBACK_METER_NAME = "repository.column.conversion.fallback";
+    public static final String FALLBACK_METER_DESCRIPTION = "Number of column values the driver could not decode to the target type, converted instead";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ColumnConverter.class);
+
     private final ConversionService conversionService;
     private final R2dbcCustomConversions conversions;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<ConversionKey, Conversion<?>> plans = new ConcurrentHashMap<>();
 
-    public ColumnConverter(R2dbcCustomConversions conversions, R2dbcConverter r2dbcConverter) {
+    public ColumnConverter(R2dbcCustomConversions conversions, R2dbcConverter r2dbcConverter, MeterRegistry meterRegistry) {
         this.conversionService = r2dbcConverter.getConversionService();
         this.conversions = conversions;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
@@ -57,12 +77,120 @@ public class ColumnConverter implements ColumnConverterReactive {
      * @return the value which can be constructed from the input.
      */
     public <T> T fromRow(Row row, String columnName, Class<T> target) {
-        try {
-            // try, directly the driver
-            return row.get(columnName, target);
-        } catch (Exception e) {
-            Object obj = row.get(columnName);
-            return convert(obj, target);
+        ColumnMetadata column = row.getMetadata().getColumnMetadata(columnName);
+        return conversion(columnName, column.getType().getName(), target).read(row, columnName);
+    }
+
+    /**
+     * Convert a value from the {@link Row} to a type - throws an exception, if it's impossible.
+     * @param row which contains the column values.
+     * @param target class.
+     * @param index the position of the column which to convert.
+     * @param <T> the parameter for the intended type.
+     * @return the value which can be constructed from the input.
+     */
+    public <T> T fromRow(Row row, int index, Class<T> target) {
+        ColumnMetadata column = row.getMetadata().getColumnMetadata(index);
+        return conversion(column.getName(), column.getType().getName(), target).read(row, index);
+    }
+
+    /**
+     * Returns the conversion of the values of a column, for the callers which resolve the columns once per result.
+     * @param columnName the name of the column.
+     * @param databaseType the name of the database type of the column.
+     * @param target class.
+     * @param <T> the parameter for the intended type.
+     * @return the conversion, shared by all the results with this column.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Conversion<T> conversion(String columnName, String databaseType, Class<T> target) {
+        return (Conversion<T>) plans.computeIfAbsent(new ConversionKey(columnName, databaseType, target), Conversion::new);
+    }
+
+    private enum Strategy {
+        DRIVER,
+        CONVERSION_SERVICE,
+    }
+
+    private record ConversionKey(String columnName, String databaseType, Class<?> target) {}
+
+    /**
+     * The way to read the values of one column as one type, which is learned on the first non null value.
+     * @param <T> the target type.
+     */
+    public final class Conversion<T> {
+
+        private final ConversionKey key;
+
+        private volatile Strategy strategy;
+
+        private volatile Counter fallbacks;
+
+        private Conversion(ConversionKey key) {
+            this.key = key;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Class<T> target() {
+            return (Class<T>) key.target();
+        }
+
+        public T read(Row row, int index) {
+            Strategy current = strategy;
+            if (current == Strategy.DRIVER) {
+                return row.get(index, target());
+            }
+            if (current == Strategy.CONVERSION_SERVICE) {
+                fallbacks.increment();
+                return convert(row.get(index), target());
+            }
+            try {
+                return learn(row.get(index, target()));
+            } catch (RuntimeException e) {
+                return fallBack(e, convert(row.get(index), target()));
+            }
+        }
+
+        public T read(Row row, String columnName) {
+            Strategy current = strategy;
+            if (current == Strategy.DRIVER) {
+                return row.get(columnName, target());
+            }
+            if (current == Strategy.CONVERSION_SERVICE) {
+                fallbacks.increment();
+                return convert(row.get(columnName), target());
+            }
+            try {
+                return learn(row.get(columnName, target()));
+            } catch (RuntimeException e) {
+                return fallBack(e, convert(row.get(columnName), target()));
+            }
+        }
+
+        private T learn(T value) {
+            // a null value is returned before the driver looks for a decoder, so it tells nothing
+            if (value != null) {
+                strategy = Strategy.DRIVER;
+            }
+            return value;
+        }
+
+        private T fallBack(RuntimeException e, T value) {
+            LOG.debug(
+                "The driver cannot read the {} column {} as {}, converting its values: {}",
+                key.databaseType(),
+                key.columnName(),
+                key.target().getSimpleName(),
+                e.getMessage()
+            );
+            fallbacks = Counter.builder(FALLBACK_METER_NAME)
+                .description(FALLBACK_METER_DESCRIPTION)
+                .tag("database.type", key.databaseType())
+                .tag("target.type", key.target().getSimpleName())
+                .register(meterRegistry);
+            fallbacks.increment();
+            strategy = Strategy.CONVERSION_SERVICE;
+            return value;
         }
     }
 }
@@ -0,0 +1,148 @@
+package id.laris.assistant.repository.rowmapper;
+
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Base of the entity row mappers, which map the columns named {@code <prefix>_<column>} of a {@link Row} to the
+ * fields of an entity.
+ * <p>
+ * {@link #reader(String)} resolves the positions of the columns once per result shape, and then reads each row by
+ * index, instead of building and looking up every column name of every row like {@link #apply(Row, String)}. The
+ * {@link ColumnConverter.Conversion} of each column is resolved along with its position.
+ *
+ * @param <E> the entity type.
+ */
+public abstract class IndexedRowMapper<E> implements BiFunction<Row, String, E> {
+
+    protected final ColumnConverter converter;
+
+    private final Supplier<E> factory;
+
+    private final List<Field<E, ?>> fields;
+
+    private final Map<Shape, Extractor<E>[]> extractors = new ConcurrentHashMap<>();
+
+    protected IndexedRowMapper(ColumnConverter converter, Supplier<E> factory, List<Field<E, ?>> fields) {
+        this.converter = converter;
+        this.factory = factory;
+        this.fields = fields;
+    }
+
+    protected static <E, T> Field<E, T> field(String column, Class<T> type, BiConsumer<E, T> setter) {
+        return new Field<>(column, type, setter);
+    }
+
+    /**
+     * Take a {@link Row} and a column prefix, and extract all the fields.
+     * @return the entity stored in the database.
+     */
+    @Override
+    public E apply(Row row, String prefix) {
+        E entity = factory.get();
+        for (Field<E, ?> field : fields) {
+            field.set(entity, converter.fromRow(row, prefix + "_" + field.column(), field.type()));
+        }
+        return entity;
+    }
+
+    /**
+     * Creates the mapper of the rows of one query, which reads the columns of the given prefix by index.
+     * @param prefix the column prefix.
+     * @return the mapper, to create for each query as it remembers the shape of the last result.
+     */
+    public BiFunction<Row, RowMetadata, E> reader(String prefix) {
+        return new Reader(prefix);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Extractor<E>[] extractors(Shape shape) {
+        Extractor<E>[] resolved = new Extractor[fields.size()];
+        for (int i = 0; i < resolved.length; i++) {
+            resolved[i] = extractor(fields.get(i), shape);
+        }
+        return resolved;
+    }
+
+    private <T> Extractor<E> extractor(Field<E, T> field, Shape shape) {
+        int index = shape.indexOf(field.column());
+        ColumnConverter.Conversion<T> conversion = converter.conversion(shape.columns().get(index), shape.types().get(index), field.type());
+        BiConsumer<E, T> setter = field.setter();
+        return (row, entity) -> setter.accept(entity, conversion.read(row, index));
+    }
+
+    protected record Field<E, T>(String column, Class<T> type, BiConsumer<E, T> setter) {
+        @SuppressWarnings("unchecked")
+        private void set(E entity, Object value) {
+            setter.accept(entity, (T) value);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Extractor<E> {
+        void extract(Row row, E entity);
+    }
+
+    /**
+     * The columns of a result with their database types, and the prefix of the mapped ones.
+     */
+    private record Shape(String prefix, List<String> columns, List<String> types) {
+        private static Shape of(String prefix, RowMetadata metadata) {
+            List<? extends ColumnMetadata> columns = metadata.getColumnMetadatas();
+            return new Shape(
+                prefix,
+                columns.stream().map(ColumnMetadata::getName).toList(),
+                columns.stream().map(column -> column.getType().getName()).toList()
+            );
+        }
+
+        private int indexOf(String column) {
+            String name = prefix + "_" + column;
+            for (int i = 0; i < columns.size(); i++) {
+                // the driver looks the column names up ignoring the case too
+                if (columns.get(i).equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("Column " + name + " is not in the result columns " + columns);
+        }
+    }
+
+    private final class Reader implements BiFunction<Row, RowMetadata, E> {
+
+        private final String prefix;
+
+        private volatile Resolved<E> last;
+
+        private Reader(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public E apply(Row row, RowMetadata metadata) {
+            Resolved<E> resolved = last;
+            if (resolved == null || resolved.metadata() != metadata) {
+                // all the rows of a result share its metadata
+                resolved = new Resolved<>(
+                    metadata,
+                    extractors.computeIfAbsent(Shape.of(prefix, metadata), IndexedRowMapper.this::extractors)
+                );
+                last = resolved;
+            }
+            E entity = factory.get();
+            for (Extractor<E> extractor : resolved.extractors()) {
+                extractor.extract(row, entity);
+            }
+            return entity;
+        }
+    }
+
+    private record Resolved<E>(RowMetadata metadata, Extractor<E>[] extractors) {}
+}
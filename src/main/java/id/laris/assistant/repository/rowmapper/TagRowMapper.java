@@ -2,33 +2,26 @@ package id.laris.assistant.repository.rowmapper;
 
 import id.laris.assistant.domain.Tags;
 import io.r2dbc.spi.Row;
-import java.util.function.BiFunction;
+import java.util.List;
 import org.springframework.stereotype.Service;
 
 /**
  * Converter between {@link Row} to {@link Tags}, with proper type conversions.
  */
 @Service
-public class TagRowMapper implements BiFunction<Row, String, Tags> {
-
-    private final ColumnConverter converter;
+public class TagRowMapper extends IndexedRowMapper<Tags> {
 
     public TagRowMapper(ColumnConverter converter) {
-        this.converter = converter;
-    }
-
-    /**
-     * Take a {@link Row} and a column prefix, and extract all the fields.
-     * @return the {@link Tags} stored in the database.
-     */
-    @Override
-    public Tags apply(Row row, String prefix) {
-        Tags entity = new Tags();
-        entity.setId(converter.fromRow(row, prefix + "_id", Long.class));
-        entity.setTag(converter.fromRow(row, prefix + "_tag", String.class));
-        entity.setTimestamp(converter.fromRow(row, prefix + "_timestamp", Long.class));
-        entity.setUserId(converter.fromRow(row, prefix + "_user_id", Long.class));
-        entity.setMovieId(converter.fromRow(row, prefix + "_movie_id", Long.class));
-        return entity;
+        super(
+            converter,
+            Tags::new,
+            List.of(
+                field("id", Long.class, Tags::setId),
+                field("tag", String.class, Tags::setTag),
+                field("timestamp", Long.class, Tags::setTimestamp),
+                field("user_id", Long.class, Tags::setUserId),
+                field("movie_id", Long.class, Tags::setMovieId)
+            )
+        );
     }
 }
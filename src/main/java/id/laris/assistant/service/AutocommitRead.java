@@ -0,0 +1,26 @@
+package id.laris.assistant.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The annotated read-only method runs a single statement, which sees a consistent snapshot on its own: unless
+ * {@code application.database.autocommit-reads} is disabled, it runs in autocommit on a pooled connection, without the
+ * {@code BEGIN} and {@code COMMIT} round trips of a transaction, and joins the transaction of its caller if any.
+ * <p>
+ * The reads running several statements which must see the same snapshot keep {@code @Transactional(readOnly = true)}.
+ */
+@Documented
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+@Transactional(readOnly = true, label = AutocommitRead.LABEL)
+public @interface AutocommitRead {
+    /**
+     * The label of the transaction attribute of the annotated methods.
+     */
+    String LABEL = "autocommit-read";
+}
@@ -0,0 +1,180 @@
+package id.laris.assistant.service;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.service.dto.BulkChunkResultDTO;
+import id.laris.assistant.service.dto.BulkItemErrorDTO;
+import io.r2dbc.postgresql.api.PostgresqlException;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service ingesting a stream of new entities in chunks.
+ * <p>
+ * The items are validated as they are read, then inserted by chunks of {@code application.bulk.chunk-size}, each chunk
+ * with one batched statement in its own transaction. When a chunk is refused by the database, its items are retried one
+ * by one, so a single bad item is reported without losing the rest of its chunk, nor aborting the following chunks.
+ */
+@Service
+public class BulkIngestionService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkIngestionService.class);
+
+    private static final String ID_PROPERTY = "id";
+
+    private static final String USER_FOREIGN_KEY_SUFFIX = "__user_id";
+
+    private static final String MOVIE_FOREIGN_KEY_SUFFIX = "__movie_id";
+
+    private static final String UNIQUE_INDEX_PREFIX = "ux_";
+
+    private final Validator validator;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final ApplicationProperties.Bulk properties;
+
+    public BulkIngestionService(
+        Validator validator,
+        TransactionalOperator transactionalOperator,
+        ApplicationProperties applicationProperties
+    ) {
+        this.validator = validator;
+        this.transactionalOperator = transactionalOperator;
+        this.properties = applicationProperties.getBulk();
+    }
+
+    /**
+     * Validates and inserts the given items.
+     *
+     * @param dtos the items to insert, without ids.
+     * @param idOf the id accessor of the items.
+     * @param toEntity the mapping of a valid item to its entity.
+     * @param insertAll the batched insert of the entities, emitting the generated ids in order.
+     * @param <D> the DTO type.
+     * @param <E> the entity type.
+     * @return the result of each chunk, in order.
+     */
+    public <D, E> Flux<BulkChunkResultDTO> ingest(
+        Flux<D> dtos,
+        Function<D, Long> idOf,
+        Function<D, E> toEntity,
+        Function<List<E>, Flux<Long>> insertAll
+    ) {
+        return dtos
+            .index()
+            .map(indexed -> validate(indexed.getT1(), indexed.getT2(), idOf))
+            .buffer(properties.getChunkSize())
+            .index()
+            .concatMap(chunk -> insertChunk(chunk.getT1(), chunk.getT2(), toEntity, insertAll));
+    }
+
+    private <D> BulkItem<D> validate(long index, D dto, Function<D, Long> idOf) {
+        if (idOf.apply(dto) != null) {
+            return new BulkItem<>(index, dto, "A new entity cannot already have an ID");
+        }
+        // the DTOs require the id for the updates, a new item is checked on its other properties only
+        String error = validator
+            .validate(dto)
+            .stream()
+            .filter(violation -> !ID_PROPERTY.equals(violation.getPropertyPath().toString()))
+            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.joining(", "));
+        return new BulkItem<>(index, dto, error.isEmpty() ? null : error);
+    }
+
+    private <D, E> Mono<BulkChunkResultDTO> insertChunk(
+        long chunk,
+        List<BulkItem<D>> items,
+        Function<D, E> toEntity,
+        Function<List<E>, Flux<Long>> insertAll
+    ) {
+        List<BulkItemErrorDTO> errors = new ArrayList<>();
+        List<BulkItem<D>> valid = new ArrayList<>();
+        for (BulkItem<D> item : items) {
+            if (item.error() != null) {
+                errors.add(new BulkItemErrorDTO(item.index(), item.error()));
+            } else {
+                valid.add(item);
+            }
+        }
+        if (valid.isEmpty()) {
+            return Mono.just(new BulkChunkResultDTO(chunk, List.of(), errors));
+        }
+        List<E> entities = valid.stream().map(item -> toEntity.apply(item.dto())).toList();
+        return transactionalOperator
+            .transactional(insertAll.apply(entities))
+            .collectList()
+            .map(ids -> new BulkChunkResultDTO(chunk, ids, errors))
+            .onErrorResume(e -> {
+                LOG.debug("Chunk {} refused, retrying its items one by one : {}", chunk, e.getMessage());
+                return insertOneByOne(chunk, valid, errors, toEntity, insertAll);
+            });
+    }
+
+    private <D, E> Mono<BulkChunkResultDTO> insertOneByOne(
+        long chunk,
+        List<BulkItem<D>> valid,
+        List<BulkItemErrorDTO> errors,
+        Function<D, E> toEntity,
+        Function<List<E>, Flux<Long>> insertAll
+    ) {
+        List<Long> ids = new ArrayList<>();
+        return Flux.fromIterable(valid)
+            .concatMap(item ->
+                transactionalOperator
+                    .transactional(insertAll.apply(List.of(toEntity.apply(item.dto()))))
+                    .doOnNext(ids::add)
+                    .then()
+                    .onErrorResume(e -> {
+                        errors.add(new BulkItemErrorDTO(item.index(), toItemError(e)));
+                        return Mono.empty();
+                    })
+            )
+            .then(
+                Mono.fromSupplier(() -> {
+                    errors.sort(Comparator.comparingLong(BulkItemErrorDTO::getIndex));
+                    return new BulkChunkResultDTO(chunk, ids, errors);
+                })
+            );
+    }
+
+    /**
+     * Maps the refusal of an item to a stable message, without the details of the database error.
+     */
+    private static String toItemError(Throwable e) {
+        String constraint = constraintName(e);
+        if (constraint != null && constraint.endsWith(USER_FOREIGN_KEY_SUFFIX)) {
+            return "The users is not found";
+        }
+        if (constraint != null && constraint.endsWith(MOVIE_FOREIGN_KEY_SUFFIX)) {
+            return "The movies is not found";
+        }
+        if (constraint != null && constraint.startsWith(UNIQUE_INDEX_PREFIX)) {
+            return "The entity already exists";
+        }
+        LOG.debug("Item refused by the constraint {}", constraint, e);
+        return "The entity is not valid";
+    }
+
+    private static String constraintName(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PostgresqlException postgresqlException) {
+                return postgresqlException.getErrorDetails().getConstraintName().orElse(null);
+            }
+        }
+        return null;
+    }
+
+    private record BulkItem<D>(long index, D dto, String error) {}
+}
@@ -0,0 +1,37 @@
+package id.laris.assistant.service;
+
+import java.util.Locale;
+
+/**
+ * How the total count of a paginated list is computed.
+ */
+public enum CountStrategy {
+    /**
+     * {@code SELECT COUNT(*)} on every request.
+     */
+    EXACT,
+
+    /**
+     * A per-table counter maintained by the service write paths, and periodically recomputed exactly.
+     */
+    CACHED,
+
+    /**
+     * The row estimate of the Postgres planner statistics, as refreshed by {@code ANALYZE}.
+     */
+    ESTIMATED;
+
+    /**
+     * Parses a request parameter value, ignoring the case.
+     *
+     * @param value the parameter value, or {@code null}.
+     * @return the strategy, or {@code null} if no value is given.
+     * @throws IllegalArgumentException if the value is not a known strategy.
+     */
+    public static CountStrategy fromValue(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+}
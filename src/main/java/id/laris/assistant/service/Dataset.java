@@ -0,0 +1,95 @@
+package id.laris.assistant.service;
+
+import id.laris.assistant.domain.HalfStarRating;
+import id.laris.assistant.domain.Movies;
+import id.laris.assistant.domain.Ratings;
+import id.laris.assistant.domain.Tags;
+import id.laris.assistant.domain.Users;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * The MovieLens CSV datasets, in the order they must be imported to satisfy the foreign keys.
+ * <p>
+ * The header line of a file names its columns: the table column names are accepted, as well as the camel case names of
+ * the original MovieLens files such as {@code userId} and {@code movieId}. The fields of the columns stored differently from
+ * the files, such as the ratings stored in half stars, are encoded on the fly.
+ */
+public enum Dataset {
+    MOVIES("movies.csv", "movies", Movies.class, Map.of("movieid", "id"), Map.of()),
+    USERS("users.csv", "users", Users.class, Map.of("userid", "id", "firstname", "first_name", "lastname", "last_name"), Map.of()),
+    RATINGS(
+        "ratings.csv",
+        "ratings",
+        Ratings.class,
+        Map.of("userid", "user_id", "movieid", "movie_id"),
+        Map.of("rating", stars -> String.valueOf(HalfStarRating.of(Double.parseDouble(stars.trim())).getHalfStars()))
+    ),
+    TAGS("tags.csv", "tags", Tags.class, Map.of("userid", "user_id", "movieid", "movie_id"), Map.of());
+
+    private final String fileName;
+    private final String table;
+    private final Class<?> entityType;
+    private final Map<String, String> columnAliases;
+    private final Map<String, UnaryOperator<String>> columnEncoders;
+
+    Dataset(
+        String fileName,
+        String table,
+        Class<?> entityType,
+        Map<String, String> columnAliases,
+        Map<String, UnaryOperator<String>> columnEncoders
+    ) {
+        this.fileName = fileName;
+        this.table = table;
+        this.entityType = entityType;
+        this.columnAliases = columnAliases;
+        this.columnEncoders = columnEncoders;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public Class<?> getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * Maps the fields of a header line to the table columns.
+     *
+     * @param header the names of the CSV fields.
+     * @return the table columns, in the order of the fields.
+     */
+    public List<String> toColumns(List<String> header) {
+        return header
+            .stream()
+            .map(field -> field.trim().toLowerCase(Locale.ROOT))
+            .map(field -> columnAliases.getOrDefault(field, field))
+            .toList();
+    }
+
+    /**
+     * Returns the encoders of the fields whose column stores another representation than the file.
+     *
+     * @param columns the table columns, in the order of the fields.
+     * @return the encoders by field index, empty if the fields are copied as they are.
+     */
+    public Map<Integer, UnaryOperator<String>> fieldEncoders(List<String> columns) {
+        Map<Integer, UnaryOperator<String>> encoders = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            UnaryOperator<String> encoder = columnEncoders.get(columns.get(i));
+            if (encoder != null) {
+                encoders.put(i, encoder);
+            }
+        }
+        return encoders;
+    }
+}
@@ -0,0 +1,369 @@
+package id.laris.assistant.service;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.repository.CopyLoader;
+import id.laris.assistant.repository.MovieRepository;
+import id.laris.assistant.service.dto.DatasetImportResultDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Service importing the MovieLens CSV datasets with the Postgres {@code COPY} protocol.
+ * <p>
+ * The files are read from {@code application.dataset-import.location} by chunks of
+ * {@code application.dataset-import.buffer-size}, and each chunk is read only when the database connection asks for it,
+ * so the memory used does not depend on the size of the files. A missing file is skipped.
+ */
+@Service
+public class DatasetImportService {
+
+    public static final String ROWS_METER_NAME = "dataset.import.rows";
+    public static final String ROWS_METER_DESCRIPTION = "Number of rows imported by COPY";
+    public static final String BYTES_METER_NAME = "dataset.import.bytes";
+    public static final String BYTES_METER_DESCRIPTION = "Number of CSV bytes sent to COPY";
+    public static final String DURATION_METER_NAME = "dataset.import.duration";
+    public static final String DURATION_METER_DESCRIPTION = "Duration of the import of a dataset file";
+    public static final String METER_TABLE_DIMENSION = "table";
+
+    private static final Logger LOG = LoggerFactory.getLogger(DatasetImportService.class);
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private final CopyLoader copyLoader;
+
+    private final ResourceLoader resourceLoader;
+
+    private final TotalCountService totalCountService;
+
+    private final MovieCatalogCache movieCatalogCache;
+
+    private final MovieRepository movieRepository;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ApplicationProperties.DatasetImport properties;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public DatasetImportService(
+        CopyLoader copyLoader,
+        ResourceLoader resourceLoader,
+        TotalCountService totalCountService,
+        MovieCatalogCache movieCatalogCache,
+        MovieRepository movieRepository,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        this.copyLoader = copyLoader;
+        this.resourceLoader = resourceLoader;
+        this.totalCountService = totalCountService;
+        this.movieCatalogCache = movieCatalogCache;
+        this.movieRepository = movieRepository;
+        this.meterRegistry = meterRegistry;
+        this.properties = applicationProperties.getDatasetImport();
+    }
+
+    /**
+     * Imports the dataset files found at the configured location, one after the other.
+     *
+     * @param truncate whether to empty the tables first, the ids of the files would conflict with the existing rows.
+     * @param rebuildIndexes whether to drop the secondary indexes of each table during its import.
+     * @return the result of each imported file.
+     * @throws IllegalStateException if an import is already running.
+     */
+    public Flux<DatasetImportResultDTO> importAll(boolean truncate, boolean rebuildIndexes) {
+        return Flux.defer(() -> {
+            if (!running.compareAndSet(false, true)) {
+                return Flux.error(new IllegalStateException("A dataset import is already running"));
+            }
+            List<Dataset> datasets = Arrays.stream(Dataset.values()).filter(dataset -> resource(dataset).exists()).toList();
+            LOG.info("Importing the datasets {} from {}", datasets, properties.getLocation());
+            List<String> tables = Arrays.stream(Dataset.values()).map(Dataset::getTable).toList();
+            Mono<Void> truncation = truncate ? copyLoader.truncate(tables).then(movieCatalogCache.reload()) : Mono.empty();
+            return truncation
+                .thenMany(Flux.fromIterable(datasets).concatMap(dataset -> importDataset(dataset, rebuildIndexes)))
+                .doFinally(signal -> running.set(false));
+        });
+    }
+
+    private Mono<DatasetImportResultDTO> importDataset(Dataset dataset, boolean rebuildIndexes) {
+        Mono<List<String>> droppedIndexes = rebuildIndexes ? copyLoader.dropIndexes(dataset.getTable()) : Mono.just(List.of());
+        // the dropped indexes are recreated whether the copy succeeds, fails or is cancelled
+        Mono<CopyResult> loaded = Mono.usingWhen(
+            droppedIndexes,
+            indexes ->
+                copy(dataset).flatMap(result ->
+                    // the copied movies bypass the service computing their genre mask
+                    (dataset == Dataset.MOVIES ? movieRepository.updateGenreMasks() : Mono.<Long>empty()).thenReturn(result)
+                ),
+            copyLoader::createIndexes,
+            (indexes, error) -> restoreIndexes(dataset, indexes),
+            indexes -> restoreIndexes(dataset, indexes)
+        );
+        return loaded.flatMap(result -> {
+            Mono<Void> sequence = result.columns().contains("id") ? copyLoader.resetIdSequence(dataset.getTable()) : Mono.empty();
+            return sequence
+                .then(copyLoader.analyze(dataset.getTable()))
+                .then(Mono.fromRunnable(() -> totalCountService.evict(dataset.getEntityType())))
+                // the copied movies bypass the write-through of the catalog
+                .then(dataset == Dataset.MOVIES ? movieCatalogCache.reload() : Mono.empty())
+                .thenReturn(result.dto());
+        });
+    }
+
+    /**
+     * Recreates the indexes dropped for an import which did not complete, the error of the import being the one reported.
+     */
+    private Mono<Void> restoreIndexes(Dataset dataset, List<String> indexes) {
+        return copyLoader
+            .createIndexes(indexes)
+            .onErrorResume(e -> {
+                LOG.error("Could not recreate the indexes of {} after a failed import: {}", dataset.getTable(), indexes, e);
+                return Mono.empty();
+            });
+    }
+
+    private Mono<CopyResult> copy(Dataset dataset) {
+        Resource resource = resource(dataset);
+        Counter rows = counter(Counter.builder(ROWS_METER_NAME).description(ROWS_METER_DESCRIPTION), dataset);
+        Counter bytes = counter(Counter.builder(BYTES_METER_NAME).description(BYTES_METER_DESCRIPTION).baseUnit("bytes"), dataset);
+        Timer timer = Timer.builder(DURATION_METER_NAME)
+            .description(DURATION_METER_DESCRIPTION)
+            .tag(METER_TABLE_DIMENSION, dataset.getTable())
+            .register(meterRegistry);
+        return Mono.using(
+            () -> new CsvSource(resource.getInputStream()),
+            source -> {
+                List<String> columns = dataset.toColumns(source.header());
+                Progress progress = new Progress(dataset, contentLength(resource));
+                long start = System.nanoTime();
+                Flux<ByteBuf> chunks = source.chunks(properties.getBufferSize()).doOnNext(chunk -> {
+                    bytes.increment(chunk.readableBytes());
+                    progress.read(chunk.readableBytes());
+                });
+                Map<Integer, UnaryOperator<String>> encoders = dataset.fieldEncoders(columns);
+                if (!encoders.isEmpty()) {
+                    CsvFieldEncoder encoder = new CsvFieldEncoder(encoders);
+                    chunks = chunks.map(encoder::encode).concatWith(Mono.fromSupplier(encoder::flush)).filter(ByteBuf::isReadable);
+                }
+                return copyLoader
+                    .copyIn(dataset.getTable(), columns, chunks)
+                    .map(copied -> {
+                        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+                        rows.increment(copied);
+                        timer.record(duration);
+                        DatasetImportResultDTO result = new DatasetImportResultDTO(dataset.getTable(), copied, progress.total(), duration);
+                        LOG.info("Imported {} : {} rows in {} ms, {} rows/s", dataset.getTable(), copied, duration.toMillis(), result.getRowsPerSecond());
+                        return new CopyResult(columns, result);
+                    });
+            },
+            CsvSource::close
+        ).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Counter counter(Counter.Builder builder, Dataset dataset) {
+        return builder.tag(METER_TABLE_DIMENSION, dataset.getTable()).register(meterRegistry);
+    }
+
+    private Resource resource(Dataset dataset) {
+        String location = properties.getLocation().endsWith("/") ? properties.getLocation() : properties.getLocation() + "/";
+        return resourceLoader.getResource(location + dataset.getFileName());
+    }
+
+    private static long contentLength(Resource resource) {
+        try {
+            return resource.contentLength();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private record CopyResult(List<String> columns, DatasetImportResultDTO dto) {}
+
+    /**
+     * Logs the progress of an import, at most once per {@code application.dataset-import.progress-interval}.
+     */
+    private final class Progress {
+
+        private final Dataset dataset;
+        private final long length;
+        private final long start = System.nanoTime();
+        private final AtomicLong read = new AtomicLong();
+        private final AtomicLong lastLog = new AtomicLong(start);
+
+        private Progress(Dataset dataset, long length) {
+            this.dataset = dataset;
+            this.length = length;
+        }
+
+        private void read(long count) {
+            long total = read.addAndGet(count);
+            long now = System.nanoTime();
+            long last = lastLog.get();
+            if (now - last >= properties.getProgressInterval().toNanos() && lastLog.compareAndSet(last, now)) {
+                double seconds = Math.max(1, now - start) / 1e9;
+                String percent = length > 0 ? String.valueOf(total * 100 / length) : "?";
+                LOG.info(
+                    "Importing {} : {} MB read ({}%), {} MB/s",
+                    dataset.getTable(),
+                    total / MEGABYTE,
+                    percent,
+                    String.format("%.1f", total / seconds / MEGABYTE)
+                );
+            }
+        }
+
+        private long total() {
+            return read.get();
+        }
+    }
+
+    /**
+     * A CSV file, whose header line is read eagerly and whose records are streamed as raw chunks.
+     */
+    private static final class CsvSource {
+
+        private final InputStream input;
+        private final List<String> header;
+
+        private CsvSource(InputStream input) throws IOException {
+            this.input = input;
+            this.header = readHeader(input);
+        }
+
+        private static List<String> readHeader(InputStream input) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = input.read()) != -1 && b != '\n') {
+                line.write(b);
+            }
+            String header = line.toString(StandardCharsets.UTF_8).replace("\uFEFF", "").replace("\r", "");
+            if (header.isBlank()) {
+                throw new IOException("The dataset file has no header line");
+            }
+            return Arrays.asList(header.split(","));
+        }
+
+        private List<String> header() {
+            return header;
+        }
+
+        private Flux<ByteBuf> chunks(int bufferSize) {
+            return Flux.<ByteBuf>generate(sink -> {
+                try {
+                    byte[] buffer = new byte[bufferSize];
+                    int count = input.readNBytes(buffer, 0, bufferSize);
+                    if (count == 0) {
+                        sink.complete();
+                    } else {
+                        sink.next(Unpooled.wrappedBuffer(buffer, 0, count));
+                    }
+                } catch (IOException e) {
+                    sink.error(e);
+                }
+            }).subscribeOn(Schedulers.boundedElastic());
+        }
+
+        private void close() {
+            try {
+                input.close();
+            } catch (IOException e) {
+                LOG.warn("Could not close a dataset file", e);
+            }
+        }
+    }
+
+    /**
+     * Encodes some fields of the records of a CSV file as its chunks are streamed. A record cut by the end of a chunk is
+     * held until the next chunk completes it. The fields are split on the commas, which is enough for the encoded
+     * datasets, whose fields are not quoted.
+     */
+    private static final class CsvFieldEncoder {
+
+        private final Map<Integer, UnaryOperator<String>> encoders;
+
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+        private CsvFieldEncoder(Map<Integer, UnaryOperator<String>> encoders) {
+            this.encoders = encoders;
+        }
+
+        private ByteBuf encode(ByteBuf chunk) {
+            byte[] bytes = ByteBufUtil.getBytes(chunk);
+            chunk.release();
+            // a line feed byte is never part of a multi-byte UTF-8 character
+            int end = bytes.length - 1;
+            while (end >= 0 && bytes[end] != '\n') {
+                end--;
+            }
+            if (end < 0) {
+                pending.writeBytes(bytes);
+                return Unpooled.EMPTY_BUFFER;
+            }
+            pending.write(bytes, 0, end + 1);
+            String records = pending.toString(StandardCharsets.UTF_8);
+            pending.reset();
+            pending.write(bytes, end + 1, bytes.length - end - 1);
+            return encodeRecords(records);
+        }
+
+        private ByteBuf flush() {
+            String records = pending.toString(StandardCharsets.UTF_8);
+            pending.reset();
+            return encodeRecords(records);
+        }
+
+        private ByteBuf encodeRecords(String records) {
+            StringBuilder encoded = new StringBuilder(records.length());
+            int start = 0;
+            while (start < records.length()) {
+                int end = records.indexOf('\n', start);
+                encoded.append(encodeRecord(records.substring(start, end < 0 ? records.length() : end)));
+                if (end < 0) {
+                    break;
+                }
+                encoded.append('\n');
+                start = end + 1;
+            }
+            return Unpooled.wrappedBuffer(encoded.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        private String encodeRecord(String record) {
+            boolean carriageReturn = record.endsWith("\r");
+            String content = carriageReturn ? record.substring(0, record.length() - 1) : record;
+            if (content.isBlank()) {
+                return record;
+            }
+            String[] fields = content.split(",", -1);
+            encoders.forEach((index, encoder) -> {
+                if (index < fields.length) {
+                    fields[index] = encoder.apply(fields[index]);
+                }
+            });
+            return String.join(",", fields) + (carriageReturn ? "\r" : "");
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package id.laris.assistant.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A write to a row of an entity table, or to all its rows, as notified on the {@code entity_changes} channel.
+ *
+ * @param table the table of the entity, such as {@code movies}.
+ * @param operation the kind of write.
+ * @param id the id of the written row, or {@code null} when any row may have changed.
+ */
+public record EntityChange(String table, Operation operation, Long id) {
+    public enum Operation {
+        INSERT,
+        UPDATE,
+        DELETE,
+        TRUNCATE;
+
+        static Operation of(String code) {
+            for (Operation operation : values()) {
+                if (operation.name().startsWith(code)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation: " + code);
+        }
+    }
+
+    /**
+     * @return a change of all the rows of the table, such as the one of a missed notification.
+     */
+    public static EntityChange all(String table) {
+        return new EntityChange(table, Operation.UPDATE, null);
+    }
+
+    public boolean isAll() {
+        return id == null;
+    }
+
+    /**
+     * Parses the payload of a notification of the {@code entity_changes_notify} triggers, such as {@code movies:U:1,2}
+     * or {@code movies:T:*}.
+     *
+     * @param payload the payload.
+     * @return the changes of the payload, one per id.
+     * @throws IllegalArgumentException if the payload is malformed.
+     */
+    public static List<EntityChange> parse(String payload) {
+        String[] parts = payload.split(":", 3);
+        if (parts.length != 3 || parts[0].isEmpty() || parts[1].length() != 1) {
+            throw new IllegalArgumentException("Malformed entity change: " + payload);
+        }
+        Operation operation = Operation.of(parts[1]);
+        if ("*".equals(parts[2])) {
+            return List.of(new EntityChange(parts[0], operation, null));
+        }
+        List<EntityChange> changes = new ArrayList<>();
+        try {
+            for (String id : parts[2].split(",")) {
+                changes.add(new EntityChange(parts[0], operation, Long.valueOf(id)));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed entity change: " + payload, e);
+        }
+        return changes;
+    }
+
+    /**
+     * Coalesces changes: the changes of a row keep the last one, and a change of all the rows of a table replaces the
+     * changes of its rows.
+     *
+     * @param changes the changes, in the order they were received.
+     * @return the coalesced changes.
+     */
+    public static List<EntityChange> coalesce(Collection<EntityChange> changes) {
+        Set<String> tablesChangedAll = changes.stream().filter(EntityChange::isAll).map(EntityChange::table).collect(Collectors.toSet());
+        Map<String, EntityChange> coalesced = new LinkedHashMap<>();
+        for (EntityChange change : changes) {
+            if (change.isAll() || !tablesChangedAll.contains(change.table())) {
+                String key = change.table() + ":" + (change.isAll() ? "*" : change.id());
+                coalesced.remove(key);
+                coalesced.put(key, change);
+            }
+        }
+        return List.copyOf(coalesced.values());
+    }
+}
@@ -0,0 +1,18 @@
+package id.laris.assistant.service;
+
+import java.util.List;
+import reactor.core.publisher.Mono;
+
+/**
+ * Holder of a local copy of entities, such as a cache, notified by the {@link InvalidationBus} of the writes made by any
+ * node to the entity tables.
+ */
+public interface EntityChangeSubscriber {
+    /**
+     * Refreshes the local copy of the changed entities.
+     *
+     * @param changes the coalesced changes, of all the entity tables.
+     * @return a Mono completing once the copy is refreshed, the next changes waiting for it.
+     */
+    Mono<Void> onEntityChanges(List<EntityChange> changes);
+}
@@ -0,0 +1,163 @@
+package id.laris.assistant.service;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.repository.ChangeNotifications;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+/**
+ * Service keeping the local copies of the entities of each node coherent with the writes of all the nodes.
+ * <p>
+ * The triggers of the entity tables notify the ids of the written rows on the {@code entity_changes} channel when their
+ * transaction commits, whichever node or path wrote them. The bus listens to the channel on a dedicated connection,
+ * opened outside of the pool by the {@link ChangeNotifications}, waits until no change arrived for
+ * {@code application.invalidation.debounce}, or at most {@code application.invalidation.max-delay}, coalesces the changes
+ * received meanwhile, and hands them to the {@link EntityChangeSubscriber} beans, one batch at a time.
+ * <p>
+ * The notifications sent while the connection is lost are missed, so after a reconnection all the rows of the tables are
+ * handed to the subscribers as changed.
+ */
+@Service
+public class InvalidationBus implements SmartLifecycle {
+
+    public static final String CHANNEL = "entity_changes";
+
+    public static final String RECEIVED_METER_NAME = "entity.changes.received";
+    public static final String RECEIVED_METER_DESCRIPTION = "Number of entity changes notified by the database";
+    public static final String DISPATCHED_METER_NAME = "entity.changes.dispatched";
+    public static final String DISPATCHED_METER_DESCRIPTION = "Number of entity changes handed to the subscribers, once coalesced";
+    public static final String RECONNECTS_METER_NAME = "entity.changes.reconnects";
+    public static final String RECONNECTS_METER_DESCRIPTION = "Number of connections to the notification channel lost and retried";
+
+    /**
+     * The tables whose triggers notify their changes.
+     */
+    static final List<String> TABLES = List.of("movies", "users");
+
+    private static final Logger LOG = LoggerFactory.getLogger(InvalidationBus.class);
+
+    private final ChangeNotifications changeNotifications;
+
+    private final ObjectProvider<EntityChangeSubscriber> subscribers;
+
+    private final ApplicationProperties.Invalidation properties;
+
+    private final Counter received;
+
+    private final Counter dispatched;
+
+    private final Counter reconnects;
+
+    private volatile Disposable listener;
+
+    public InvalidationBus(
+        ChangeNotifications changeNotifications,
+        ObjectProvider<EntityChangeSubscriber> subscribers,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        this.changeNotifications = changeNotifications;
+        this.subscribers = subscribers;
+        this.properties = applicationProperties.getInvalidation();
+        this.received = Counter.builder(RECEIVED_METER_NAME).description(RECEIVED_METER_DESCRIPTION).register(meterRegistry);
+        this.dispatched = Counter.builder(DISPATCHED_METER_NAME).description(DISPATCHED_METER_DESCRIPTION).register(meterRegistry);
+        this.reconnects = Counter.builder(RECONNECTS_METER_NAME).description(RECONNECTS_METER_DESCRIPTION).register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        listener = changes().transform(this::debounce).map(EntityChange::coalesce).concatMap(this::dispatch).subscribe();
+    }
+
+    @Override
+    public void stop() {
+        Disposable current = listener;
+        listener = null;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return listener != null;
+    }
+
+    /**
+     * @return the changes notified on the channel, reconnecting to it until the bus stops.
+     */
+    Flux<EntityChange> changes() {
+        Sinks.Many<EntityChange> resyncs = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicBoolean listened = new AtomicBoolean();
+        Flux<EntityChange> notified = Flux.defer(() ->
+            changeNotifications
+                .listen(CHANNEL, () -> {
+                    if (listened.getAndSet(true)) {
+                        TABLES.forEach(table -> resyncs.tryEmitNext(EntityChange.all(table)));
+                    }
+                })
+                .flatMapIterable(this::parse)
+        )
+            .concatWith(Mono.error(() -> new IllegalStateException("The notification connection was closed")))
+            .retryWhen(
+                Retry.backoff(Long.MAX_VALUE, properties.getReconnectBackoff())
+                    .maxBackoff(properties.getMaxReconnectBackoff())
+                    .doBeforeRetry(signal -> {
+                        reconnects.increment();
+                        LOG.warn("Lost the {} notification channel, reconnecting: {}", CHANNEL, signal.failure().getMessage());
+                    })
+            );
+        return Flux.merge(resyncs.asFlux(), notified).doOnNext(change -> received.increment());
+    }
+
+    private List<EntityChange> parse(String payload) {
+        try {
+            return EntityChange.parse(payload);
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Ignored a notification of the {} channel: {}", CHANNEL, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Buffers the changes until none arrived for the debounce duration, or the max delay elapsed.
+     */
+    Flux<List<EntityChange>> debounce(Flux<EntityChange> changes) {
+        Duration quiet = properties.getDebounce();
+        Duration maxDelay = properties.getMaxDelay();
+        return changes
+            .publish(shared -> shared.buffer(Flux.merge(shared.switchMap(change -> Mono.delay(quiet)), Flux.interval(maxDelay))))
+            .filter(batch -> !batch.isEmpty());
+    }
+
+    private Mono<Void> dispatch(List<EntityChange> changes) {
+        LOG.debug("Dispatching the entity changes {}", changes);
+        dispatched.increment(changes.size());
+        return Flux.fromStream(subscribers::orderedStream)
+            .concatMap(subscriber ->
+                subscriber
+                    .onEntityChanges(changes)
+                    .onErrorResume(e -> {
+                        LOG.warn("{} failed to apply the entity changes: {}", subscriber.getClass().getSimpleName(), e.getMessage());
+                        return Mono.empty();
+                    })
+            )
+            .then();
+    }
+}
@@ -0,0 +1,252 @@
+package id.laris.assistant.service;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.config.RequestDatabaseMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.interceptor.DefaultTransactionAttribute;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Service coalescing the concurrent lookups of an entity by id, so that a burst of lookups of the same row costs one
+ * query.
+ * <p>
+ * A lookup of an id already being fetched waits for the pending query instead of running its own, and gets its result.
+ * With an {@code application.lookup-coalescing.batch-window}, the distinct ids looked up during the window are also
+ * fetched together, by one {@code id = ANY(:ids)} query of at most {@code max-batch-size} ids.
+ * <p>
+ * The shared queries run in an autocommit read of their own rather than in the transaction of their first caller, so
+ * a lookup made within a transaction is not coalesced: it may have to read the uncommitted writes of its transaction.
+ * The lookups of the {@link AutocommitRead} methods only run outside of a transaction with
+ * {@code application.database.autocommit-reads}, without which they are never coalesced. A shared query is counted in
+ * the database metrics of the request of its first caller.
+ * <p>
+ * The coalescing ratio of an entity is its {@code entity.lookups.requests} count divided by its
+ * {@code entity.lookups.queries} count, which the {@code entity.lookups.coalescing.ratio} gauge publishes.
+ */
+@Service
+public class LookupCoalescer {
+
+    public static final String REQUESTS_METER_NAME = "entity.lookups.requests";
+    public static final String REQUESTS_METER_DESCRIPTION = "Number of lookups of an entity by id";
+    public static final String QUERIES_METER_NAME = "entity.lookups.queries";
+    public static final String QUERIES_METER_DESCRIPTION = "Number of queries run for the lookups of an entity by id";
+    public static final String RATIO_METER_NAME = "entity.lookups.coalescing.ratio";
+    public static final String RATIO_METER_DESCRIPTION = "Number of lookups of an entity by id per query run";
+    public static final String ENTITY_DIMENSION = "entity";
+
+    private static final Logger LOG = LoggerFactory.getLogger(LookupCoalescer.class);
+
+    private static final Sinks.EmitFailureHandler CONCURRENT_EMISSIONS = Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1));
+
+    private final TransactionalOperator autocommitRead;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ApplicationProperties.LookupCoalescing properties;
+
+    public LookupCoalescer(
+        ReactiveTransactionManager transactionManager,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        DefaultTransactionAttribute definition = new DefaultTransactionAttribute();
+        definition.setReadOnly(true);
+        definition.setLabels(List.of(AutocommitRead.LABEL));
+        this.autocommitRead = TransactionalOperator.create(transactionManager, definition);
+        this.meterRegistry = meterRegistry;
+        this.properties = applicationProperties.getLookupCoalescing();
+        if (properties.isEnabled() && !applicationProperties.getDatabase().isAutocommitReads()) {
+            LOG.warn(
+                "The lookups are not coalesced without application.database.autocommit-reads, as they run in a transaction of their own"
+            );
+        }
+    }
+
+    /**
+     * Creates the coalesced lookups of an entity.
+     *
+     * @param entityType the type of the entity, which names its meters.
+     * @param findById the query of one entity by id.
+     * @param findAllByIds the query of the entities of several ids, used with a batch window.
+     * @param idOf the id of an entity.
+     * @param <T> the type of the entity.
+     * @return the lookups, meant to be held by the service of the entity.
+     */
+    public <T> Lookup<T> create(
+        Class<T> entityType,
+        Function<Long, Mono<T>> findById,
+        Function<Collection<Long>, Flux<T>> findAllByIds,
+        Function<T, Long> idOf
+    ) {
+        return new Lookup<>(entityType.getSimpleName(), findById, findAllByIds, idOf);
+    }
+
+    /**
+     * The coalesced lookups of an entity.
+     *
+     * @param <T> the type of the entity.
+     */
+    public final class Lookup<T> {
+
+        private final Function<Long, Mono<T>> findById;
+
+        private final Function<Collection<Long>, Flux<T>> findAllByIds;
+
+        private final Function<T, Long> idOf;
+
+        private final Map<Long, Mono<T>> inFlight = new ConcurrentHashMap<>();
+
+        private final Map<Long, Batched<T>> batched = new ConcurrentHashMap<>();
+
+        private final Sinks.Many<Long> batchedIds = Sinks.many().unicast().onBackpressureBuffer();
+
+        private final Counter requests;
+
+        private final Counter queries;
+
+        private Lookup(
+            String entity,
+            Function<Long, Mono<T>> findById,
+            Function<Collection<Long>, Flux<T>> findAllByIds,
+            Function<T, Long> idOf
+        ) {
+            this.findById = findById;
+            this.findAllByIds = findAllByIds;
+            this.idOf = idOf;
+            this.requests = Counter.builder(REQUESTS_METER_NAME)
+                .description(REQUESTS_METER_DESCRIPTION)
+                .tag(ENTITY_DIMENSION, entity)
+                .register(meterRegistry);
+            this.queries = Counter.builder(QUERIES_METER_NAME)
+                .description(QUERIES_METER_DESCRIPTION)
+                .tag(ENTITY_DIMENSION, entity)
+                .register(meterRegistry);
+            Gauge.builder(RATIO_METER_NAME, this, Lookup::coalescingRatio)
+                .description(RATIO_METER_DESCRIPTION)
+                .tag(ENTITY_DIMENSION, entity)
+                .strongReference(true)
+                .register(meterRegistry);
+            if (!properties.getBatchWindow().isZero()) {
+                batchedIds
+                    .asFlux()
+                    .bufferTimeout(properties.getMaxBatchSize(), properties.getBatchWindow())
+                    .flatMap(this::fetch)
+                    .subscribe();
+            }
+        }
+
+        /**
+         * Looks an entity up by id, sharing the query of the concurrent lookups of the same id.
+         *
+         * @param id the id of the entity.
+         * @return the entity, or an empty result if there is none.
+         */
+        public Mono<T> find(Long id) {
+            return Mono.deferContextual(context ->
+                TransactionSynchronizationManager.forCurrentTransaction()
+                    .map(TransactionSynchronizationManager::isActualTransactionActive)
+                    .onErrorReturn(NoTransactionException.class, false)
+                    .flatMap(inTransaction -> {
+                        requests.increment();
+                        if (inTransaction || !properties.isEnabled()) {
+                            queries.increment();
+                            return findById.apply(id);
+                        }
+                        return inFlight.computeIfAbsent(id, key -> flight(key, context));
+                    })
+            );
+        }
+
+        private Mono<T> flight(Long id, ContextView caller) {
+            AtomicReference<Mono<T>> flight = new AtomicReference<>();
+            Mono<T> query = properties.getBatchWindow().isZero()
+                ? Mono.defer(() -> {
+                    queries.increment();
+                    return findById.apply(id).as(autocommitRead::transactional);
+                })
+                : Mono.deferContextual(context -> {
+                    Sinks.One<T> result = Sinks.one();
+                    batched.put(id, new Batched<>(result, context));
+                    batchedIds.emitNext(id, CONCURRENT_EMISSIONS);
+                    return result.asMono();
+                });
+            // the query belongs to none of its callers, whose cancellation or transaction would end it for all, but its
+            // statements are recorded by the request of the first caller
+            Context shared = caller
+                .getOrEmpty(RequestDatabaseMetrics.CONTEXT_KEY)
+                .map(metrics -> Context.of(RequestDatabaseMetrics.CONTEXT_KEY, metrics))
+                .orElseGet(Context::empty);
+            flight.set(query.contextWrite(context -> shared).doFinally(signal -> inFlight.remove(id, flight.get())).cache());
+            return flight.get();
+        }
+
+        private Mono<Void> fetch(List<Long> ids) {
+            queries.increment();
+            // the statements of the batch are recorded by the request of its first lookup
+            ContextView context = ids
+                .stream()
+                .map(batched::get)
+                .filter(Objects::nonNull)
+                .map(Batched::context)
+                .findFirst()
+                .orElseGet(Context::empty);
+            return findAllByIds
+                .apply(ids)
+                .as(autocommitRead::transactional)
+                .collectMap(idOf)
+                .doOnNext(found ->
+                    ids.forEach(id -> {
+                        Batched<T> lookup = batched.remove(id);
+                        T entity = found.get(id);
+                        if (lookup != null && entity != null) {
+                            lookup.result().tryEmitValue(entity);
+                        } else if (lookup != null) {
+                            lookup.result().tryEmitEmpty();
+                        }
+                    })
+                )
+                .onErrorResume(e -> {
+                    ids.forEach(id -> {
+                        Batched<T> lookup = batched.remove(id);
+                        if (lookup != null) {
+                            lookup.result().tryEmitError(e);
+                        }
+                    });
+                    return Mono.empty();
+                })
+                .then()
+                .contextWrite(context);
+        }
+
+        private double coalescingRatio() {
+            double queryCount = queries.count();
+            return queryCount == 0 ? 1 : requests.count() / queryCount;
+        }
+    }
+
+    /**
+     * A lookup waiting for its batch, with the context of its shared query.
+     */
+    private record Batched<T>(Sinks.One<T> result, ContextView context) {}
+}
@@ -0,0 +1,391 @@
+package id.laris.assistant.service;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.domain.Genre;
+import id.laris.assistant.domain.Movies;
+import id.laris.assistant.repository.KeysetCursor;
+import id.laris.assistant.repository.MovieRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-memory copy of the movies catalog, serving the movie lookups by id and the pages sorted by id without a query.
+ * <p>
+ * The catalog is held in an immutable snapshot of arrays sorted by id, a few MB at most as the number of movies is capped
+ * by {@code application.movie-catalog.max-size}. It is loaded at startup and every
+ * {@code application.movie-catalog.refresh-interval}, and the committed writes of the {@link MovieService} replace it with
+ * an updated copy, so readers never lock. The writes of the other nodes, or bypassing the service, are refetched once
+ * notified by the {@link InvalidationBus}, or seen at the next reload; until then, an id missing from the catalog is still
+ * looked up in the database.
+ */
+@Service
+public class MovieCatalogCache implements EntityChangeSubscriber {
+
+    public static final String REQUESTS_METER_NAME = "movies.catalog.requests";
+    public static final String REQUESTS_METER_DESCRIPTION = "Number of movie lookups and pages served by the catalog (hit) or by the database (miss)";
+    public static final String RELOAD_METER_NAME = "movies.catalog.reload";
+    public static final String RELOAD_METER_DESCRIPTION = "Duration of a reload of the movie catalog from the database";
+    public static final String SIZE_METER_NAME = "movies.catalog.size";
+    public static final String SIZE_METER_DESCRIPTION = "Number of movies held by the catalog";
+
+    private static final Logger LOG = LoggerFactory.getLogger(MovieCatalogCache.class);
+
+    private static final String TABLE = "movies";
+
+    private final MovieRepository movieRepository;
+
+    private final ApplicationProperties.MovieCatalog properties;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Timer reloads;
+
+    private final Object writeLock = new Object();
+
+    /**
+     * The writes to replay on the snapshots being loaded, which may not see them.
+     */
+    private final List<List<UnaryOperator<Snapshot>>> pendingWrites = new ArrayList<>();
+
+    /**
+     * The current catalog, {@code null} until it is loaded, or when there are too many movies to hold.
+     */
+    private volatile Snapshot snapshot;
+
+    public MovieCatalogCache(MovieRepository movieRepository, MeterRegistry meterRegistry, ApplicationProperties applicationProperties) {
+        this.movieRepository = movieRepository;
+        this.properties = applicationProperties.getMovieCatalog();
+        this.hits = Counter.builder(REQUESTS_METER_NAME).description(REQUESTS_METER_DESCRIPTION).tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder(REQUESTS_METER_NAME).description(REQUESTS_METER_DESCRIPTION).tag("result", "miss").register(meterRegistry);
+        this.reloads = Timer.builder(RELOAD_METER_NAME).description(RELOAD_METER_DESCRIPTION).register(meterRegistry);
+        Gauge.builder(SIZE_METER_NAME, this, MovieCatalogCache::size).description(SIZE_METER_DESCRIPTION).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${application.movie-catalog.refresh-interval:PT1H}")
+    public Mono<Void> scheduledReload() {
+        if (!properties.isEnabled()) {
+            return Mono.empty();
+        }
+        return reload().onErrorResume(e -> {
+            LOG.error("The movie catalog could not be reloaded", e);
+            return Mono.empty();
+        });
+    }
+
+    /**
+     * Replaces the catalog by the movies of the database. The writes made through the cache while it loads are kept.
+     *
+     * @return a Mono completing once the new catalog is in use.
+     */
+    public Mono<Void> reload() {
+        if (!properties.isEnabled()) {
+            return Mono.empty();
+        }
+        return Mono.defer(() -> {
+            List<UnaryOperator<Snapshot>> writes = new ArrayList<>();
+            synchronized (writeLock) {
+                pendingWrites.add(writes);
+            }
+            Timer.Sample sample = Timer.start();
+            int maxSize = properties.getMaxSize();
+            return movieRepository
+                .findAll()
+                .take(maxSize + 1L)
+                .collectList()
+                .doOnNext(movies -> {
+                    Snapshot loaded = movies.size() > maxSize ? null : Snapshot.of(movies);
+                    synchronized (writeLock) {
+                        for (UnaryOperator<Snapshot> write : writes) {
+                            loaded = loaded != null ? write.apply(loaded) : null;
+                        }
+                        snapshot = loaded;
+                    }
+                    if (loaded == null) {
+                        LOG.warn("More than {} movies, the movie catalog is disabled until the next reload", maxSize);
+                    } else {
+                        LOG.debug("Reloaded the movie catalog : {} movies", loaded.size());
+                    }
+                })
+                .doFinally(signal -> {
+                    sample.stop(reloads);
+                    synchronized (writeLock) {
+                        pendingWrites.remove(writes);
+                    }
+                })
+                .then();
+        });
+    }
+
+    /**
+     * Refetches the changed movies, or reloads the catalog when any movie may have changed.
+     */
+    @Override
+    public Mono<Void> onEntityChanges(List<EntityChange> changes) {
+        List<EntityChange> movieChanges = changes.stream().filter(change -> TABLE.equals(change.table())).toList();
+        if (!properties.isEnabled() || movieChanges.isEmpty()) {
+            return Mono.empty();
+        }
+        if (movieChanges.stream().anyMatch(EntityChange::isAll)) {
+            return reload();
+        }
+        List<Long> ids = movieChanges.stream().map(EntityChange::id).toList();
+        return movieRepository
+            .findAllByIds(ids)
+            .collectMap(Movies::getId)
+            .doOnNext(found ->
+                ids.forEach(id -> {
+                    Movies movie = found.get(id);
+                    if (movie != null) {
+                        put(movie);
+                    } else {
+                        remove(id);
+                    }
+                })
+            )
+            .then();
+    }
+
+    /**
+     * Records a created or updated movie.
+     *
+     * @param movie the movie as persisted.
+     */
+    public void put(Movies movie) {
+        write(catalog -> catalog.size() < properties.getMaxSize() || catalog.indexOf(movie.getId()) >= 0 ? catalog.with(movie) : null);
+    }
+
+    /**
+     * Records a deleted movie.
+     *
+     * @param id the id of the movie.
+     */
+    public void remove(Long id) {
+        write(catalog -> catalog.without(id));
+    }
+
+    private void write(UnaryOperator<Snapshot> write) {
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (current != null) {
+                snapshot = write.apply(current);
+            }
+            pendingWrites.forEach(writes -> writes.add(write));
+        }
+    }
+
+    /**
+     * @param id the id of the movie.
+     * @return the movie, or {@code null} if it is not in the catalog and must be looked up in the database.
+     */
+    public Movies get(Long id) {
+        Snapshot current = snapshot;
+        int index = current != null ? current.indexOf(id) : -1;
+        if (index < 0) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return current.get(index);
+    }
+
+    /**
+     * @param pageable the pagination information.
+     * @return the requested page, or {@code null} if the catalog is not loaded or the page is not sorted by id only.
+     */
+    public List<Movies> findPage(Pageable pageable) {
+        Snapshot current = snapshot;
+        Sort.Direction direction = idDirection(pageable.getSort());
+        if (current == null || direction == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+        int size = pageable.isPaged() ? pageable.getPageSize() : current.size();
+        if (offset >= current.size()) {
+            return List.of();
+        }
+        return current.slice((int) offset, size, direction);
+    }
+
+    /**
+     * @param after the cursor of the last seen movie, or {@code null} for the first page.
+     * @param pageable the keyset pagination information.
+     * @return the requested page, or {@code null} if the catalog is not loaded or the page is not sorted by id only.
+     */
+    public List<Movies> findPageAfter(KeysetCursor after, Pageable pageable) {
+        Snapshot current = snapshot;
+        Sort.Direction direction = idDirection(pageable.getSort());
+        if (current == null || direction == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        int start = direction.isAscending() ? 0 : current.size() - 1;
+        if (after != null) {
+            int index = current.indexOf(after.getId());
+            int insertion = index >= 0 ? index : -(index + 1);
+            start = direction.isAscending() ? (index >= 0 ? index + 1 : insertion) : insertion - 1;
+        }
+        return current.slice(direction.isAscending() ? start : current.size() - 1 - start, pageable.getPageSize(), direction);
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current != null ? current.size() : 0;
+    }
+
+    /**
+     * @return the direction of a sort by id only, ascending when unsorted, or {@code null} for any other sort.
+     */
+    private static Sort.Direction idDirection(Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        if (orders.isEmpty()) {
+            return Sort.Direction.ASC;
+        }
+        if (orders.size() > 1 || !KeysetCursor.ID_PROPERTY.equals(orders.get(0).getProperty())) {
+            return null;
+        }
+        return orders.get(0).getDirection();
+    }
+
+    /**
+     * The movies in four arrays sorted by id. The genres are shared by the movies having the same ones.
+     */
+    static final class Snapshot {
+
+        private final long[] ids;
+
+        private final String[] titles;
+
+        private final String[] genres;
+
+        private final int[] genreMasks;
+
+        private Snapshot(long[] ids, String[] titles, String[] genres, int[] genreMasks) {
+            this.ids = ids;
+            this.titles = titles;
+            this.genres = genres;
+            this.genreMasks = genreMasks;
+        }
+
+        /**
+         * @return the mask of a movie, computed from its genres when the movie does not hold it.
+         */
+        private static int genreMaskOf(Movies movie) {
+            Integer mask = movie.getGenreMask() != null ? movie.getGenreMask() : Genre.maskOf(movie.getGenres());
+            return mask != null ? mask : 0;
+        }
+
+        static Snapshot of(List<Movies> movies) {
+            List<Movies> sorted = new ArrayList<>(movies);
+            sorted.sort(Comparator.comparing(Movies::getId));
+            Map<String, String> sharedGenres = new HashMap<>();
+            long[] ids = new long[sorted.size()];
+            String[] titles = new String[sorted.size()];
+            String[] genres = new String[sorted.size()];
+            int[] genreMasks = new int[sorted.size()];
+            for (int i = 0; i < ids.length; i++) {
+                Movies movie = sorted.get(i);
+                ids[i] = movie.getId();
+                titles[i] = movie.getTitle();
+                genres[i] = sharedGenres.computeIfAbsent(movie.getGenres(), g -> g);
+                genreMasks[i] = genreMaskOf(movie);
+            }
+            return new Snapshot(ids, titles, genres, genreMasks);
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        int indexOf(long id) {
+            return Arrays.binarySearch(ids, id);
+        }
+
+        Movies get(int index) {
+            return new Movies().id(ids[index]).title(titles[index]).genres(genres[index]).genreMask(genreMasks[index]);
+        }
+
+        /**
+         * @param from the index of the first movie, counted from the end for a descending slice.
+         */
+        List<Movies> slice(int from, int size, Sort.Direction direction) {
+            int count = Math.max(0, Math.min(size, ids.length - from));
+            List<Movies> movies = new ArrayList<>(count);
+            for (int i = from; i < from + count; i++) {
+                movies.add(get(direction.isAscending() ? i : ids.length - 1 - i));
+            }
+            return movies;
+        }
+
+        Snapshot with(Movies movie) {
+            int index = indexOf(movie.getId());
+            if (index >= 0) {
+                String[] updatedTitles = titles.clone();
+                String[] updatedGenres = genres.clone();
+                int[] updatedGenreMasks = genreMasks.clone();
+                updatedTitles[index] = movie.getTitle();
+                updatedGenres[index] = movie.getGenres();
+                updatedGenreMasks[index] = genreMaskOf(movie);
+                return new Snapshot(ids, updatedTitles, updatedGenres, updatedGenreMasks);
+            }
+            int insertion = -(index + 1);
+            long[] insertedIds = new long[ids.length + 1];
+            String[] insertedTitles = new String[ids.length + 1];
+            String[] insertedGenres = new String[ids.length + 1];
+            int[] insertedGenreMasks = new int[ids.length + 1];
+            System.arraycopy(ids, 0, insertedIds, 0, insertion);
+            System.arraycopy(titles, 0, insertedTitles, 0, insertion);
+            System.arraycopy(genres, 0, insertedGenres, 0, insertion);
+            System.arraycopy(genreMasks, 0, insertedGenreMasks, 0, insertion);
+            insertedIds[insertion] = movie.getId();
+            insertedTitles[insertion] = movie.getTitle();
+            insertedGenres[insertion] = movie.getGenres();
+            insertedGenreMasks[insertion] = genreMaskOf(movie);
+            System.arraycopy(ids, insertion, insertedIds, insertion + 1, ids.length - insertion);
+            System.arraycopy(titles, insertion, insertedTitles, insertion + 1, ids.length - insertion);
+            System.arraycopy(genres, insertion, insertedGenres, insertion + 1, ids.length - insertion);
+            System.arraycopy(genreMasks, insertion, insertedGenreMasks, insertion + 1, ids.length - insertion);
+            return new Snapshot(insertedIds, insertedTitles, insertedGenres, insertedGenreMasks);
+        }
+
+        Snapshot without(long id) {
+            int index = indexOf(id);
+            if (index < 0) {
+                return this;
+            }
+            long[] remainingIds = new long[ids.length - 1];
+            String[] remainingTitles = new String[ids.length - 1];
+            String[] remainingGenres = new String[ids.length - 1];
+            int[] remainingGenreMasks = new int[ids.length - 1];
+            System.arraycopy(ids, 0, remainingIds, 0, index);
+            System.arraycopy(titles, 0, remainingTitles, 0, index);
+            System.arraycopy(genres, 0, remainingGenres, 0, index);
+            System.arraycopy(genreMasks, 0, remainingGenreMasks, 0, index);
+            System.arraycopy(ids, index + 1, remainingIds, index, ids.length - index - 1);
+            System.arraycopy(titles, index + 1, remainingTitles, index, ids.length - index - 1);
+            System.arraycopy(genres, index + 1, remainingGenres, index, ids.length - index - 1);
+            System.arraycopy(genreMasks, index + 1, remainingGenreMasks, index, ids.length - index - 1);
+            return new Snapshot(remainingIds, remainingTitles, remainingGenres, remainingGenreMasks);
+        }
+    }
+}
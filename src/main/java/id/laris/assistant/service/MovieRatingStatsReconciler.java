@@ -0,0 +1,93 @@
+package id.laris.assistant.service;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.repository.MovieRatingStatsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service recomputing the per movie rating aggregates from the ratings.
+ * <p>
+ * The aggregates are maintained by the triggers of the ratings table, so the reconciliation only corrects a drift, such
+ * as the one of a rating written with the triggers disabled. The movies are reconciled by chunks of
+ * {@code application.rating-stats.reconcile-batch-size}, each one in its own transaction.
+ */
+@Service
+public class MovieRatingStatsReconciler {
+
+    public static final String RECONCILED_METER_NAME = "ratings.stats.reconciled";
+    public static final String RECONCILED_METER_DESCRIPTION = "Number of movie rating aggregates corrected by the reconciliation";
+    public static final String RECONCILE_METER_NAME = "ratings.stats.reconcile";
+    public static final String RECONCILE_METER_DESCRIPTION = "Duration of a reconciliation of the movie rating aggregates";
+
+    private static final Logger LOG = LoggerFactory.getLogger(MovieRatingStatsReconciler.class);
+
+    private final MovieRatingStatsRepository movieRatingStatsRepository;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final ApplicationProperties.RatingStats properties;
+
+    private final Counter reconciled;
+
+    private final Timer reconciles;
+
+    public MovieRatingStatsReconciler(
+        MovieRatingStatsRepository movieRatingStatsRepository,
+        TransactionalOperator transactionalOperator,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        this.movieRatingStatsRepository = movieRatingStatsRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.properties = applicationProperties.getRatingStats();
+        this.reconciled = Counter.builder(RECONCILED_METER_NAME).description(RECONCILED_METER_DESCRIPTION).register(meterRegistry);
+        this.reconciles = Timer.builder(RECONCILE_METER_NAME).description(RECONCILE_METER_DESCRIPTION).register(meterRegistry);
+    }
+
+    @Scheduled(
+        fixedDelayString = "${application.rating-stats.reconcile-interval:PT1H}",
+        initialDelayString = "${application.rating-stats.reconcile-interval:PT1H}"
+    )
+    public Mono<Void> scheduledReconcile() {
+        if (!properties.isReconcileEnabled()) {
+            return Mono.empty();
+        }
+        return reconcile()
+            .doOnNext(count -> LOG.info("Reconciled the movie rating aggregates, {} had drifted", count))
+            .onErrorResume(e -> {
+                LOG.error("The movie rating aggregates could not be reconciled", e);
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    /**
+     * Recomputes the aggregates of all the movies.
+     *
+     * @return the number of aggregates which had drifted.
+     */
+    public Mono<Long> reconcile() {
+        Timer.Sample sample = Timer.start();
+        return reconcileFrom(0L, 0L).doFinally(signal -> sample.stop(reconciles));
+    }
+
+    private Mono<Long> reconcileFrom(Long after, long count) {
+        return movieRatingStatsRepository
+            .findChunkEnd(after, properties.getReconcileBatchSize())
+            .flatMap(upTo ->
+                transactionalOperator
+                    .transactional(movieRatingStatsRepository.reconcileChunk(after, upTo))
+                    .doOnNext(corrected -> reconciled.increment(corrected))
+                    .flatMap(corrected -> reconcileFrom(upTo, count + corrected))
+            )
+            .defaultIfEmpty(count);
+    }
+}
@@ -1,7 +1,11 @@
 package id.laris.assistant.service;
 
 import id.laris.assistant.domain.Movies;
+import id.laris.assistant.repository.EntityFilter;
+import id.laris.assistant.repository.KeysetCursor;
 import id.laris.assistant.service.dto.MovieDTO;
+import id.laris.assistant.service.dto.MovieRatingStatsDTO;
+import java.util.List;
 import org.springframework.data.domain.Pageable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -22,7 +26,7 @@ public interface MovieService {
      * Updates a movies.
      *
      * @param movieDTO the entity to update.
-     * @return the persisted entity.
+     * @return the persisted entity, or empty if there is no movies with its id.
      */
     Mono<MovieDTO> update(MovieDTO movieDTO);
 
@@ -30,7 +34,7 @@ public interface MovieService {
      * Partially updates a movies.
      *
      * @param movieDTO the entity to update partially.
-     * @return the persisted entity.
+     * @return the persisted entity, or empty if there is no movies with its id.
      */
     Mono<MovieDTO> partialUpdate(MovieDTO movieDTO);
 
@@ -43,11 +47,41 @@ public interface MovieService {
     Flux<MovieDTO> findAll(Pageable pageable);
 
     /**
-     * Returns the number of movies available.
-     * @return the number of entities in the database.
+     * Get the movies matching the filter following the given cursor, in keyset pagination order.
+     *
+     * @param filter the filter, possibly empty.
+     * @param after the cursor of the last seen entity, or {@code null} for the first page.
+     * @param pageable the pagination information, the page number is ignored.
+     * @return the list of entities.
+     */
+    Flux<MovieDTO> findAllAfter(EntityFilter filter, KeysetCursor after, Pageable pageable);
+
+    /**
+     * Returns the number of movies available, computed with the given strategy.
      *
+     * @param strategy the count strategy, or {@code null} for the configured default.
+     * @return the number of entities, and how stale it may be.
+     */
+    Mono<TotalCount> countAll(CountStrategy strategy);
+
+    /**
+     * Get the movies matching the filter.
+     *
+     * @param filter the filter, compiled to the where clause of the query.
+     * @param pageable the pagination information.
+     * @return the list of entities.
      */
-    Mono<Long> countAll();
+    Flux<MovieDTO> findAll(EntityFilter filter, Pageable pageable);
+
+    /**
+     * Returns the number of movies matching the filter: computed with the given strategy without filter, and exactly
+     * otherwise.
+     *
+     * @param filter the filter.
+     * @param strategy the count strategy of the unfiltered count, or {@code null} for the configured default.
+     * @return the number of entities, and how stale it may be.
+     */
+    Mono<TotalCount> countAll(EntityFilter filter, CountStrategy strategy);
 
     /**
      * Get the "id" movies.
@@ -57,6 +91,22 @@ public interface MovieService {
      */
     Mono<MovieDTO> findOne(Long id);
 
+    /**
+     * Get the movies of the given ids, with one query at most.
+     *
+     * @param ids the ids of the entities.
+     * @return the entities, in the order of their first id, the missing ids being skipped.
+     */
+    Flux<MovieDTO> findAllByIds(List<Long> ids);
+
+    /**
+     * Get the rating aggregates of the "id" movies.
+     *
+     * @param id the id of the movie.
+     * @return the aggregates, empty for an unknown movie.
+     */
+    Mono<MovieRatingStatsDTO> findRatingStats(Long id);
+
     /**
      * Delete the "id" movies.
      *
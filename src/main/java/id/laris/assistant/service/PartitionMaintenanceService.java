@@ -0,0 +1,125 @@
+package id.laris.assistant.service;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.repository.PartitionManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service maintaining the monthly partitions of the tables partitioned by timestamp.
+ * <p>
+ * The partitions of the current month and of the {@code application.partitions.premade-months} next ones are created
+ * ahead of the rows. The rows past them are held by the default partition, and moved to the partition of their month
+ * when it is created. The partitions whose timestamps all precede the {@code application.partitions.retention-months}
+ * last months are detached, which is cheap whatever their size, and dropped if
+ * {@code application.partitions.drop-detached} is set. The months are calendar months in UTC.
+ */
+@Service
+public class PartitionMaintenanceService {
+
+    public static final String CREATED_METER_NAME = "partitions.created";
+    public static final String CREATED_METER_DESCRIPTION = "Number of monthly partitions created ahead of their rows";
+    public static final String DETACHED_METER_NAME = "partitions.detached";
+    public static final String DETACHED_METER_DESCRIPTION = "Number of partitions detached for retention";
+
+    /**
+     * The tables partitioned by month of their timestamp.
+     */
+    static final List<String> PARTITIONED_TABLES = List.of("tags");
+
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionMaintenanceService.class);
+
+    private final PartitionManager partitionManager;
+
+    private final ApplicationProperties.Partitions properties;
+
+    private final Counter created;
+
+    private final Counter detached;
+
+    public PartitionMaintenanceService(
+        PartitionManager partitionManager,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        this.partitionManager = partitionManager;
+        this.properties = applicationProperties.getPartitions();
+        this.created = Counter.builder(CREATED_METER_NAME).description(CREATED_METER_DESCRIPTION).register(meterRegistry);
+        this.detached = Counter.builder(DETACHED_METER_NAME).description(DETACHED_METER_DESCRIPTION).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${application.partitions.maintenance-interval:PT6H}")
+    public Mono<Void> scheduledMaintain() {
+        return maintain(YearMonth.now(ZoneOffset.UTC)).onErrorResume(e -> {
+            LOG.error("The partitions could not be maintained", e);
+            return Mono.empty();
+        });
+    }
+
+    /**
+     * Creates the missing partitions, and detaches the expired ones.
+     *
+     * @param current the current month.
+     * @return a Mono to signal the maintenance.
+     */
+    Mono<Void> maintain(YearMonth current) {
+        return maintain(PARTITIONED_TABLES, current);
+    }
+
+    /**
+     * Creates the missing partitions of the given tables, and detaches their expired ones.
+     *
+     * @param tables the tables partitioned by month of their timestamp.
+     * @param current the current month.
+     * @return a Mono to signal the maintenance.
+     */
+    Mono<Void> maintain(List<String> tables, YearMonth current) {
+        return Flux.fromIterable(tables)
+            .concatMap(table -> createPartitions(table, current).then(detachPartitions(table, current)))
+            .then();
+    }
+
+    private Mono<Void> createPartitions(String table, YearMonth current) {
+        return Flux.range(0, properties.getPremadeMonths() + 1)
+            .map(current::plusMonths)
+            .concatMap(month ->
+                partitionManager
+                    .createMonthlyPartition(table, month.atDay(1))
+                    .filter(Boolean::booleanValue)
+                    .doOnNext(partition -> {
+                        LOG.info("Created the partition of {} for {}", table, month);
+                        created.increment();
+                    })
+            )
+            .then();
+    }
+
+    private Mono<Void> detachPartitions(String table, YearMonth current) {
+        if (properties.getRetentionMonths() <= 0) {
+            return Mono.empty();
+        }
+        long retainedFrom = current.minusMonths(properties.getRetentionMonths()).atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        return partitionManager
+            .findPartitions(table)
+            .filter(partition -> partition.upperBound() != null && partition.upperBound() <= retainedFrom)
+            .concatMap(partition ->
+                partitionManager
+                    .detachPartition(table, partition)
+                    .then(properties.isDropDetached() ? partitionManager.dropDetachedPartition(partition) : Mono.empty())
+                    .doOnSuccess(done -> {
+                        LOG.info("Detached the partition {} of {}, dropped: {}", partition.name(), table, properties.isDropDetached());
+                        detached.increment();
+                    })
+            )
+            .then();
+    }
+}
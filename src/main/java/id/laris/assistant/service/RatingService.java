@@ -1,7 +1,14 @@
 package id.laris.assistant.service;
 
 import id.laris.assistant.domain.Ratings;
+import id.laris.assistant.repository.EntityFilter;
+import id.laris.assistant.repository.HistoryFilter;
+import id.laris.assistant.repository.KeysetCursor;
+import id.laris.assistant.repository.Upserted;
+import id.laris.assistant.service.dto.BulkChunkResultDTO;
 import id.laris.assistant.service.dto.RatingDTO;
+import id.laris.assistant.service.dto.RatingExportDTO;
+import id.laris.assistant.service.dto.RatingValueDTO;
 import org.springframework.data.domain.Pageable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -22,7 +29,7 @@ public interface RatingService {
      * Updates a ratings.
      *
      * @param ratingDTO the entity to update.
-     * @return the persisted entity.
+     * @return the persisted entity, or empty if there is no ratings with its id.
      */
     Mono<RatingDTO> update(RatingDTO ratingDTO);
 
@@ -30,10 +37,43 @@ public interface RatingService {
      * Partially updates a ratings.
      *
      * @param ratingDTO the entity to update partially.
-     * @return the persisted entity.
+     * @return the persisted entity, or empty if there is no ratings with its id.
      */
     Mono<RatingDTO> partialUpdate(RatingDTO ratingDTO);
 
+    /**
+     * Saves the rating a user gives a movie, replacing the one they already gave it, if any.
+     *
+     * @param userId the id of the user.
+     * @param movieId the id of the movie.
+     * @param ratingValueDTO the rating, and its timestamp which defaults to now.
+     * @return the persisted entity, and whether it was inserted or an existing one was updated.
+     */
+    Mono<Upserted<RatingDTO>> rate(Long userId, Long movieId, RatingValueDTO ratingValueDTO);
+
+    /**
+     * Queues the rating a user gives a movie, to be saved with the next write-behind batch.
+     *
+     * @param userId the id of the user.
+     * @param movieId the id of the movie.
+     * @param ratingValueDTO the rating, and its timestamp which defaults to now.
+     * @return {@code true} if the rating was queued, {@code false} if the queue is full.
+     */
+    boolean rateLater(Long userId, Long movieId, RatingValueDTO ratingValueDTO);
+
+    /**
+     * @return whether the ratings can be queued with {@link #rateLater}.
+     */
+    boolean isWriteBehindEnabled();
+
+    /**
+     * Save new ratings in bulk, chunk by chunk.
+     *
+     * @param ratingDTOs the entities to save, without ids.
+     * @return the result of each chunk, with the ids of the persisted entities and the errors of the rejected ones.
+     */
+    Flux<BulkChunkResultDTO> saveAll(Flux<RatingDTO> ratingDTOs);
+
     /**
      * Get all the ratings.
      *
@@ -43,11 +83,95 @@ public interface RatingService {
     Flux<RatingDTO> findAll(Pageable pageable);
 
     /**
-     * Returns the number of ratings available.
-     * @return the number of entities in the database.
+     * Get all the ratings matching the filter with their users and movies expanded.
+     *
+     * @param filter the filter, possibly empty.
+     * @param pageable the pagination information.
+     * @return the list of entities.
+     */
+    Flux<RatingDTO> findAllWithEagerRelationships(EntityFilter filter, Pageable pageable);
+
+    /**
+     * Get the ratings matching the filter following the given cursor, in keyset pagination order.
+     *
+     * @param filter the filter, possibly empty.
+     * @param after the cursor of the last seen entity, or {@code null} for the first page.
+     * @param pageable the pagination information, the page number is ignored.
+     * @return the list of entities.
+     */
+    Flux<RatingDTO> findAllAfter(EntityFilter filter, KeysetCursor after, Pageable pageable);
+
+    /**
+     * Returns the number of ratings available, computed with the given strategy.
+     *
+     * @param strategy the count strategy, or {@code null} for the configured default.
+     * @return the number of entities, and how stale it may be.
+     */
+    Mono<TotalCount> countAll(CountStrategy strategy);
+
+    /**
+     * Get the ratings matching the filter.
+     *
+     * @param filter the filter, compiled to the where clause of the query.
+     * @param pageable the pagination information.
+     * @return the list of entities.
+     */
+    Flux<RatingDTO> findAll(EntityFilter filter, Pageable pageable);
+
+    /**
+     * Returns the number of ratings matching the filter: computed with the given strategy without filter, and exactly
+     * otherwise.
+     *
+     * @param filter the filter.
+     * @param strategy the count strategy of the unfiltered count, or {@code null} for the configured default.
+     * @return the number of entities, and how stale it may be.
+     */
+    Mono<TotalCount> countAll(EntityFilter filter, CountStrategy strategy);
+
+    /**
+     * Get the ratings of a user, within the bounds of the filter.
+     *
+     * @param userId the id of the user.
+     * @param filter the time range and rating bounds.
+     * @param pageable the pagination information.
+     * @return the list of entities.
+     */
+    Flux<RatingDTO> findAllByUser(Long userId, HistoryFilter filter, Pageable pageable);
+
+    /**
+     * Returns the number of ratings of a user, within the bounds of the filter.
+     *
+     * @param userId the id of the user.
+     * @param filter the time range and rating bounds.
+     * @return the number of entities.
+     */
+    Mono<Long> countByUser(Long userId, HistoryFilter filter);
+
+    /**
+     * Get the ratings of a movie, within the bounds of the filter.
      *
+     * @param movieId the id of the movie.
+     * @param filter the time range and rating bounds.
+     * @param pageable the pagination information.
+     * @return the list of entities.
      */
-    Mono<Long> countAll();
+    Flux<RatingDTO> findAllByMovie(Long movieId, HistoryFilter filter, Pageable pageable);
+
+    /**
+     * Returns the number of ratings of a movie, within the bounds of the filter.
+     *
+     * @param movieId the id of the movie.
+     * @param filter the time range and rating bounds.
+     * @return the number of entities.
+     */
+    Mono<Long> countByMovie(Long movieId, HistoryFilter filter);
+
+    /**
+     * Stream all the ratings as flat export rows, ordered by id.
+     *
+     * @return the ratings, read from the database as the subscriber requests them.
+     */
+    Flux<RatingExportDTO> exportAll();
 
     /**
      * Get the "id" ratings.
@@ -57,6 +181,14 @@ public interface RatingService {
      */
     Mono<RatingDTO> findOne(Long id);
 
+    /**
+     * Get the "id" ratings with its users and movies expanded.
+     *
+     * @param id the id of the entity.
+     * @return the entity.
+     */
+    Mono<RatingDTO> findOneWithEagerRelationships(Long id);
+
     /**
      * Delete the "id" ratings.
      *
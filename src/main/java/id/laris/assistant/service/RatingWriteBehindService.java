@@ -0,0 +1,214 @@
+package id.laris.assistant.service;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.domain.Ratings;
+import id.laris.assistant.repository.RatingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Service buffering the rating upserts in a bounded queue, written by multi-row upserts instead of one statement, and one
+ * pooled connection, per rating.
+ * <p>
+ * A batch is written once {@code application.write-behind.batch-size} ratings are queued, or every
+ * {@code application.write-behind.flush-interval}. The ratings of a batch are coalesced by (user, movie), keeping the most
+ * recent one. When the database refuses a batch, its ratings are retried one by one, so a rating of an unknown user or
+ * movie does not lose the rest of its batch.
+ * <p>
+ * The queue is drained when the application stops, after the web server has finished the requests in flight.
+ */
+@Service
+public class RatingWriteBehindService implements SmartLifecycle {
+
+    public static final String QUEUE_METER_NAME = "ratings.write-behind.queue.size";
+    public static final String QUEUE_METER_DESCRIPTION = "Number of ratings waiting to be written";
+    public static final String REJECTED_METER_NAME = "ratings.write-behind.rejected";
+    public static final String REJECTED_METER_DESCRIPTION = "Number of ratings refused because the queue was full";
+    public static final String FAILED_METER_NAME = "ratings.write-behind.failed";
+    public static final String FAILED_METER_DESCRIPTION = "Number of queued ratings the database refused";
+    public static final String FLUSH_METER_NAME = "ratings.write-behind.flush";
+    public static final String FLUSH_METER_DESCRIPTION = "Duration of the write of a batch of queued ratings";
+
+    private static final Logger LOG = LoggerFactory.getLogger(RatingWriteBehindService.class);
+
+    private final RatingRepository ratingRepository;
+
+    private final TotalCountService totalCountService;
+
+    private final ApplicationProperties.WriteBehind properties;
+
+    private final BlockingQueue<Ratings> queue;
+
+    private final Counter rejected;
+
+    private final Counter failed;
+
+    private final Timer flushes;
+
+    private final Sinks.Many<Long> wakeUps = Sinks.many().multicast().directBestEffort();
+
+    private final Sinks.Empty<Void> stopRequest = Sinks.empty();
+
+    private final Sinks.Empty<Void> drained = Sinks.empty();
+
+    private volatile Disposable flusher;
+
+    private volatile boolean running;
+
+    public RatingWriteBehindService(
+        RatingRepository ratingRepository,
+        TotalCountService totalCountService,
+        MeterRegistry meterRegistry,
+        ApplicationProperties applicationProperties
+    ) {
+        this.ratingRepository = ratingRepository;
+        this.totalCountService = totalCountService;
+        this.properties = applicationProperties.getWriteBehind();
+        this.queue = new ArrayBlockingQueue<>(properties.getCapacity());
+        Gauge.builder(QUEUE_METER_NAME, queue, BlockingQueue::size).description(QUEUE_METER_DESCRIPTION).register(meterRegistry);
+        this.rejected = Counter.builder(REJECTED_METER_NAME).description(REJECTED_METER_DESCRIPTION).register(meterRegistry);
+        this.failed = Counter.builder(FAILED_METER_NAME).description(FAILED_METER_DESCRIPTION).register(meterRegistry);
+        this.flushes = Timer.builder(FLUSH_METER_NAME).description(FLUSH_METER_DESCRIPTION).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Queues a rating, to be upserted with the next batch.
+     *
+     * @param ratings the rating, with its user and movie ids.
+     * @return {@code true} if the rating was queued, {@code false} if the queue is full or the application is stopping.
+     */
+    public boolean offer(Ratings ratings) {
+        if (!isRunning() || !queue.offer(ratings)) {
+            rejected.increment();
+            return false;
+        }
+        if (queue.size() >= properties.getBatchSize()) {
+            // a failed emission means another thread is waking the flusher up already
+            wakeUps.tryEmitNext(0L);
+        }
+        return true;
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        flusher = Flux.merge(Flux.interval(properties.getFlushInterval()), wakeUps.asFlux())
+            .takeUntilOther(stopRequest.asMono())
+            .onBackpressureDrop()
+            .concatMap(tick -> flush(), 1)
+            // the ratings queued while the last ticks were written
+            .then(Mono.defer(this::flush))
+            .doFinally(signal -> drained.tryEmitEmpty())
+            .subscribe();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        stopRequest.tryEmitEmpty();
+        Duration timeout = properties.getShutdownTimeout();
+        try {
+            drained.asMono().block(timeout);
+        } catch (IllegalStateException e) {
+            LOG.error("The queued ratings were not written within {}, {} are lost", timeout, queue.size());
+            flusher.dispose();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops after the web server, so the ratings queued by the requests it completes on shutdown are written.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    /**
+     * Writes the queued ratings by batches, until the queue is empty.
+     */
+    Mono<Void> flush() {
+        return Mono.defer(() -> {
+            List<Ratings> batch = new ArrayList<>(properties.getBatchSize());
+            queue.drainTo(batch, properties.getBatchSize());
+            return batch.isEmpty() ? Mono.<Void>empty() : write(latestByUserAndMovie(batch));
+        })
+            .repeat(() -> !queue.isEmpty())
+            .then();
+    }
+
+    private Mono<Void> write(List<Ratings> batch) {
+        Timer.Sample sample = Timer.start();
+        return ratingRepository
+            .upsertAllByUserAndMovie(batch)
+            .collectList()
+            .onErrorResume(DataIntegrityViolationException.class, e -> {
+                LOG.warn("A batch of {} ratings was refused, retrying them one by one: {}", batch.size(), e.getMessage());
+                return Flux.fromIterable(batch).concatMap(this::writeOne).collectList();
+            })
+            .doOnNext(inserted -> totalCountService.increment(Ratings.class, inserted.stream().filter(Boolean::booleanValue).count()))
+            .onErrorResume(e -> {
+                LOG.error("A batch of {} ratings could not be written", batch.size(), e);
+                failed.increment(batch.size());
+                return Mono.empty();
+            })
+            .doFinally(signal -> sample.stop(flushes))
+            .then();
+    }
+
+    private Mono<Boolean> writeOne(Ratings ratings) {
+        return ratingRepository
+            .upsertAllByUserAndMovie(List.of(ratings))
+            .next()
+            .onErrorResume(DataIntegrityViolationException.class, e -> {
+                LOG.warn("The rating of Movies : {} by Users : {} was refused: {}", ratings.getMovieId(), ratings.getUserId(), e.getMessage());
+                failed.increment();
+                return Mono.empty();
+            });
+    }
+
+    private static List<Ratings> latestByUserAndMovie(List<Ratings> batch) {
+        // a statement cannot update the same row twice
+        Map<UserMovie, Ratings> latest = new LinkedHashMap<>();
+        for (Ratings ratings : batch) {
+            latest.merge(new UserMovie(ratings.getUserId(), ratings.getMovieId()), ratings, (queued, next) ->
+                next.getTimestamp() >= queued.getTimestamp() ? next : queued
+            );
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    private record UserMovie(Long userId, Long movieId) {}
+}
@@ -1,7 +1,12 @@
 package id.laris.assistant.service;
 
 import id.laris.assistant.domain.Tags;
+import id.laris.assistant.repository.EntityFilter;
+import id.laris.assistant.repository.HistoryFilter;
+import id.laris.assistant.repository.KeysetCursor;
+import id.laris.assistant.service.dto.BulkChunkResultDTO;
 import id.laris.assistant.service.dto.TagDTO;
+import id.laris.assistant.service.dto.TagExportDTO;
 import org.springframework.data.domain.Pageable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -22,7 +27,7 @@ public interface TagService {
      * Updates a tags.
      *
      * @param tagDTO the entity to update.
-     * @return the persisted entity.
+     * @return the persisted entity, or empty if there is no tags with its id.
      */
     Mono<TagDTO> update(TagDTO tagDTO);
 
@@ -30,10 +35,18 @@ public interface TagService {
      * Partially updates a tags.
      *
      * @param tagDTO the entity to update partially.
-     * @return the persisted entity.
+     * @return the persisted entity, or empty if there is no tags with its id.
      */
     Mono<TagDTO> partialUpdate(TagDTO tagDTO);
 
+    /**
+     * Save new tags in bulk, chunk by chunk.
+     *
+     * @param tagDTOs the entities to save, without ids.
+     * @return the result of each chunk, with the ids of the persisted entities and the errors of the rejected ones.
+     */
+    Flux<BulkChunkResultDTO> saveAll(Flux<TagDTO> tagDTOs);
+
     /**
      * Get all the tags.
      *
@@ -43,11 +56,95 @@ public interface TagService {
     Flux<TagDTO> findAll(Pageable pageable);
 
     /**
-     * Returns the number of tags available.
-     * @return the number of entities in the database.
+     * Get all the tags matching the filter with their users and movies expanded.
      *
+     * @param filter the filter, possibly empty.
+     * @param pageable the pagination information.
+     * @return the list of entities.
      */
-    Mono<Long> countAll();
+    Flux<TagDTO> findAllWithEagerRelationships(EntityFilter filter, Pageable pageable);
+
+    /**
+     * Get the tags matching the filter following the given cursor, in keyset pagination order.
+     *
+     * @param filter the filter, possibly empty.
+     * @param after the cursor of the last seen entity, or {@code null} for the first page.
+     * @param pageable the pagination information, the page number is ignored.
+     * @return the list of entities.
+     */
+    Flux<TagDTO> findAllAfter(EntityFilter filter, KeysetCursor after, Pageable pageable);
+
+    /**
+     * Returns the number of tags available, computed with the given strategy.
+     *
+     * @param strategy the count strategy, or {@code null} for the configured default.
+     * @return the number of entities, and how stale it may be.
+     */
+    Mono<TotalCount> countAll(CountStrategy strategy);
+
+    /**
+     * Get the tags matching the filter.
+     *
+     * @param filter the filter, compiled to the where clause of the query.
+     * @param pageable the pagination information.
+     * @return the list of entities.
+     */
+    Flux<TagDTO> findAll(EntityFilter filter, Pageable pageable);
+
+    /**
+     * Returns the number of tags matching the filter: computed with the given strategy without filter, and exactly
+     * otherwise.
+     *
+     * @param filter the filter.
+     * @param strategy the count strategy of the unfiltered count, or {@code null} for the configured default.
+     * @return the number of entities, and how stale it may be.
+     */
+    Mono<TotalCount> countAll(EntityFilter filter, CountStrategy strategy);
+
+    /**
+     * Get the tags of a user, within the bounds of the filter.
+     *
+     * @param userId the id of the user.
+     * @param filter the time range and rating bounds.
+     * @param pageable the pagination information.
+     * @return the list of entities.
+     */
+    Flux<TagDTO> findAllByUser(Long userId, HistoryFilter filter, Pageable pageable);
+
+    /**
+     * Returns the number of tags of a user, within the bounds of the filter.
+     *
+     * @param userId the id of the user.
+     * @param filter the time range and rating bounds.
+     * @return the number of entities.
+     */
+    Mono<Long> countByUser(Long userId, HistoryFilter filter);
+
+    /**
+     * Get the tags of a movie, within the bounds of the filter.
+     *
+     * @param movieId the id of the movie.
+     * @param filter the time range and rating bounds.
+     * @param pageable the pagination information.
+     * @return the list of entities.
+     */
+    Flux<TagDTO> findAllByMovie(Long movieId, HistoryFilter filter, Pageable pageable);
+
+    /**
+     * Returns the number of tags of a movie, within the bounds of the filter.
+     *
+     * @param movieId the id of the movie.
+     * @param filter the time range and rating bounds.
+     * @return the number of entities.
+     */
+    Mono<Long> countByMovie(Long movieId, HistoryFilter filter);
+
+    /**
+     * Stream all the tags as flat export rows, ordered by id.
+     *
+     * @return the tags, read from the database as the subscriber requests them.
+     */
+    Flux<TagExportDTO> exportAll();
 
     /**
      * Get the "id" tags.
@@ -57,6 +154,14 @@ public interface TagService {
      */
     Mono<TagDTO> findOne(Long id);
 
+    /**
+     * Get the "id" tags with its users and movies expanded.
+     *
+     * @param id the id of the entity.
+     * @return the entity.
+     */
+    Mono<TagDTO> findOneWithEagerRelationships(Long id);
+
     /**
      * Delete the "id" tags.
      *
@@ -0,0 +1,43 @@
+package id.laris.assistant.service;
+
+import java.time.Duration;
+
+/**
+ * The total count of a paginated list, with the strategy it was computed with and how stale it may be.
+ */
+public final class TotalCount {
+
+    private final long count;
+    private final CountStrategy strategy;
+    private final Duration age;
+
+    public TotalCount(long count, CountStrategy strategy, Duration age) {
+        this.count = count;
+        this.strategy = strategy;
+        this.age = age;
+    }
+
+    public static TotalCount exact(long count) {
+        return new TotalCount(count, CountStrategy.EXACT, Duration.ZERO);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public CountStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return the time elapsed since the count was last computed exactly, or {@code null} if unknown.
+     */
+    public Duration getAge() {
+        return age;
+    }
+
+    @Override
+    public String toString() {
+        return "TotalCount{" + "count=" + count + ", strategy=" + strategy + ", age=" + age + "}";
+    }
+}
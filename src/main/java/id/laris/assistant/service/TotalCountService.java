@@ -0,0 +1,151 @@
+package id.laris.assistant.service;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.repository.EntityManager;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.relational.core.mapping.Table;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service computing the total counts of the paginated lists with a {@link CountStrategy}.
+ * <p>
+ * The cached strategy keeps one counter per entity, seeded by an exact count, adjusted by the service {@code save} and
+ * {@code delete} paths, and recomputed once older than {@code application.pagination.count-cache-ttl} to correct the
+ * drift of the writes it does not see. The counts of the tables whose rows were inserted or deleted by any node, as
+ * notified by the {@link InvalidationBus}, are dropped.
+ */
+@Service
+public class TotalCountService implements EntityChangeSubscriber {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TotalCountService.class);
+
+    private final EntityManager entityManager;
+
+    private final ApplicationProperties.Pagination properties;
+
+    private final Map<Class<?>, CachedCount> cachedCounts = new ConcurrentHashMap<>();
+
+    public TotalCountService(EntityManager entityManager, ApplicationProperties applicationProperties) {
+        this.entityManager = entityManager;
+        this.properties = applicationProperties.getPagination();
+    }
+
+    /**
+     * Counts the entities of the given type.
+     *
+     * @param entityType the entity type.
+     * @param strategy the strategy, or {@code null} for the configured default.
+     * @param exactCount the exact count query of the entity.
+     * @return the total count.
+     */
+    public Mono<TotalCount> count(Class<?> entityType, CountStrategy strategy, Supplier<Mono<Long>> exactCount) {
+        CountStrategy resolved = strategy != null ? strategy : properties.getDefaultCountStrategy();
+        switch (resolved) {
+            case CACHED:
+                return cachedCount(entityType, exactCount);
+            case ESTIMATED:
+                return entityManager
+                    .estimateCount(entityType)
+                    .map(estimate -> new TotalCount(estimate, CountStrategy.ESTIMATED, null))
+                    .switchIfEmpty(Mono.defer(() -> exactCount.get().map(TotalCount::exact)));
+            default:
+                return exactCount.get().map(TotalCount::exact);
+        }
+    }
+
+    /**
+     * Records the creation of an entity in its cached count.
+     *
+     * @param entityType the entity type.
+     */
+    public void increment(Class<?> entityType) {
+        increment(entityType, 1);
+    }
+
+    /**
+     * Records the creation of several entities in their cached count.
+     *
+     * @param entityType the entity type.
+     * @param created the number of created entities.
+     */
+    public void increment(Class<?> entityType, long created) {
+        CachedCount cachedCount = cachedCounts.get(entityType);
+        if (cachedCount != null) {
+            cachedCount.value.addAndGet(created);
+        }
+    }
+
+    /**
+     * Records the deletion of an entity in its cached count.
+     *
+     * @param entityType the entity type.
+     */
+    public void decrement(Class<?> entityType) {
+        CachedCount cachedCount = cachedCounts.get(entityType);
+        if (cachedCount != null) {
+            cachedCount.value.updateAndGet(value -> Math.max(0, value - 1));
+        }
+    }
+
+    /**
+     * Drops the cached count of the given entity type, so the next request recomputes it exactly.
+     *
+     * @param entityType the entity type.
+     */
+    public void evict(Class<?> entityType) {
+        cachedCounts.remove(entityType);
+    }
+
+    @Override
+    public Mono<Void> onEntityChanges(List<EntityChange> changes) {
+        Set<String> tables = changes
+            .stream()
+            .filter(change -> change.isAll() || change.operation() != EntityChange.Operation.UPDATE)
+            .map(EntityChange::table)
+            .collect(Collectors.toSet());
+        cachedCounts.keySet().removeIf(entityType -> tables.contains(table(entityType)));
+        return Mono.empty();
+    }
+
+    private static String table(Class<?> entityType) {
+        Table table = entityType.getAnnotation(Table.class);
+        return table != null ? table.value() : null;
+    }
+
+    private Mono<TotalCount> cachedCount(Class<?> entityType, Supplier<Mono<Long>> exactCount) {
+        Instant now = Instant.now();
+        CachedCount cachedCount = cachedCounts.get(entityType);
+        if (cachedCount != null && cachedCount.syncedAt.plus(properties.getCountCacheTtl()).isAfter(now)) {
+            return Mono.just(new TotalCount(cachedCount.value.get(), CountStrategy.CACHED, Duration.between(cachedCount.syncedAt, now)));
+        }
+        return exactCount
+            .get()
+            .doOnNext(count -> {
+                LOG.debug("Refreshed the cached count of {} : {}", entityType.getSimpleName(), count);
+                cachedCounts.put(entityType, new CachedCount(count, now));
+            })
+            .map(count -> new TotalCount(count, CountStrategy.CACHED, Duration.ZERO));
+    }
+
+    private static final class CachedCount {
+
+        private final AtomicLong value;
+        private final Instant syncedAt;
+
+        private CachedCount(long value, Instant syncedAt) {
+            this.value = new AtomicLong(value);
+            this.syncedAt = syncedAt;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package id.laris.assistant.service;
 
 import id.laris.assistant.domain.Users;
+import id.laris.assistant.repository.EntityFilter;
+import id.laris.assistant.repository.KeysetCursor;
 import id.laris.assistant.service.dto.UserDTO;
 import org.springframework.data.domain.Pageable;
 import reactor.core.publisher.Flux;
@@ -22,7 +24,7 @@ public interface UserService {
      * Updates a users.
      *
      * @param userDTO the entity to update.
-     * @return the persisted entity.
+     * @return the persisted entity, or empty if there is no users with its id.
      */
     Mono<UserDTO> update(UserDTO userDTO);
 
@@ -30,7 +32,7 @@ public interface UserService {
      * Partially updates a users.
      *
      * @param userDTO the entity to update partially.
-     * @return the persisted entity.
+     * @return the persisted entity, or empty if there is no users with its id.
      */
     Mono<UserDTO> partialUpdate(UserDTO userDTO);
 
@@ -43,11 +45,41 @@ public interface UserService {
     Flux<UserDTO> findAll(Pageable pageable);
 
     /**
-     * Returns the number of users available.
-     * @return the number of entities in the database.
+     * Get the users matching the filter following the given cursor, in keyset pagination order.
+     *
+     * @param filter the filter, possibly empty.
+     * @param after the cursor of the last seen entity, or {@code null} for the first page.
+     * @param pageable the pagination information, the page number is ignored.
+     * @return the list of entities.
+     */
+    Flux<UserDTO> findAllAfter(EntityFilter filter, KeysetCursor after, Pageable pageable);
+
+    /**
+     * Returns the number of users available, computed with the given strategy.
+     *
+     * @param strategy the count strategy, or {@code null} for the configured default.
+     * @return the number of entities, and how stale it may be.
+     */
+    Mono<TotalCount> countAll(CountStrategy strategy);
+
+    /**
+     * Get the users matching the filter.
+     *
+     * @param filter the filter, compiled to the where clause of the query.
+     * @param pageable the pagination information.
+     * @return the list of entities.
+     */
+    Flux<UserDTO> findAll(EntityFilter filter, Pageable pageable);
+
+    /**
+     * Returns the number of users matching the filter: computed with the given strategy without filter, and exactly
+     * otherwise.
      *
+     * @param filter the filter.
+     * @param strategy the count strategy of the unfiltered count, or {@code null} for the configured default.
+     * @return the number of entities, and how stale it may be.
      */
-    Mono<Long> countAll();
+    Mono<TotalCount> countAll(EntityFilter filter, CountStrategy strategy);
 
     /**
      * Get the "id" users.
@@ -0,0 +1,58 @@
+package id.laris.assistant.service.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A DTO for the outcome of one chunk of a bulk ingestion.
+ */
+public class BulkChunkResultDTO implements Serializable {
+
+    private final long chunk;
+
+    private final List<Long> ids;
+
+    private final List<BulkItemErrorDTO> errors;
+
+    public BulkChunkResultDTO(long chunk, List<Long> ids, List<BulkItemErrorDTO> errors) {
+        this.chunk = chunk;
+        this.ids = List.copyOf(ids);
+        this.errors = List.copyOf(errors);
+    }
+
+    /**
+     * @return the zero-based position of the chunk in the request body.
+     */
+    public long getChunk() {
+        return chunk;
+    }
+
+    public int getInserted() {
+        return ids.size();
+    }
+
+    public int getFailed() {
+        return errors.size();
+    }
+
+    /**
+     * @return the ids of the inserted items, in the order of the request body.
+     */
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public List<BulkItemErrorDTO> getErrors() {
+        return errors;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "BulkChunkResultDTO{" +
+            "chunk=" + getChunk() +
+            ", inserted=" + getInserted() +
+            ", failed=" + getFailed() +
+            "}";
+    }
+}
@@ -0,0 +1,38 @@
+package id.laris.assistant.service.dto;
+
+import java.io.Serializable;
+
+/**
+ * A DTO for an item rejected by a bulk ingestion.
+ */
+public class BulkItemErrorDTO implements Serializable {
+
+    private final long index;
+
+    private final String message;
+
+    public BulkItemErrorDTO(long index, String message) {
+        this.index = index;
+        this.message = message;
+    }
+
+    /**
+     * @return the zero-based position of the item in the request body.
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "BulkItemErrorDTO{" +
+            "index=" + getIndex() +
+            ", message='" + getMessage() + "'" +
+            "}";
+    }
+}
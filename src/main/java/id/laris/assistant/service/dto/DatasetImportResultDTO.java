@@ -0,0 +1,57 @@
+package id.laris.assistant.service.dto;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+/**
+ * A DTO for the outcome of the import of one dataset file.
+ */
+public class DatasetImportResultDTO implements Serializable {
+
+    private final String table;
+
+    private final long rows;
+
+    private final long bytes;
+
+    private final Duration duration;
+
+    public DatasetImportResultDTO(String table, long rows, long bytes, Duration duration) {
+        this.table = table;
+        this.rows = rows;
+        this.bytes = bytes;
+        this.duration = duration;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public long getRowsPerSecond() {
+        long millis = Math.max(1, duration.toMillis());
+        return rows * 1000 / millis;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "DatasetImportResultDTO{" +
+            "table='" + getTable() + "'" +
+            ", rows=" + getRows() +
+            ", bytes=" + getBytes() +
+            ", duration=" + getDuration() +
+            "}";
+    }
+}
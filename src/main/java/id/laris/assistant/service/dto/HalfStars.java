@@ -0,0 +1,25 @@
+package id.laris.assistant.service.dto;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotated rating must be a multiple of 0.5, the ratings being stored in half stars. The range of the scale is
+ * checked by the database. A {@code null} rating is valid.
+ */
+@Documented
+@Constraint(validatedBy = HalfStarsValidator.class)
+@Target({ ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface HalfStars {
+    String message() default "must be a multiple of 0.5";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
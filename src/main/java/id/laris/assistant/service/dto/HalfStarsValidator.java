@@ -0,0 +1,16 @@
+package id.laris.assistant.service.dto;
+
+import id.laris.assistant.domain.HalfStarRating;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+/**
+ * Validator of the {@link HalfStars} constraint.
+ */
+public class HalfStarsValidator implements ConstraintValidator<HalfStars, Double> {
+
+    @Override
+    public boolean isValid(Double value, ConstraintValidatorContext context) {
+        return value == null || HalfStarRating.isHalfStars(value);
+    }
+}
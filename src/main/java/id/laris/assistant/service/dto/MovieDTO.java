@@ -3,6 +3,7 @@ package id.laris.assistant.service.dto;
 import id.laris.assistant.domain.Movies;
 import jakarta.validation.constraints.*;
 import java.io.Serializable;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -17,8 +18,11 @@ public class MovieDTO implements Serializable {
     @NotNull(message = "must not be null")
     private String title;
 
+    /**
+     * The genres of the movie, empty for the movies listed without genre.
+     */
     @NotNull(message = "must not be null")
-    private String genres;
+    private List<@NotBlank @Pattern(regexp = "[^|]+") String> genres;
 
     public Long getId() {
         return id;
@@ -36,11 +40,11 @@ public class MovieDTO implements Serializable {
         this.title = title;
     }
 
-    public String getGenres() {
+    public List<String> getGenres() {
         return genres;
     }
 
-    public void setGenres(String genres) {
+    public void setGenres(List<String> genres) {
         this.genres = genres;
     }
 
@@ -71,7 +75,7 @@ public class MovieDTO implements Serializable {
         return "MoviesDTO{" +
             "id=" + getId() +
             ", title='" + getTitle() + "'" +
-            ", genres='" + getGenres() + "'" +
+            ", genres=" + getGenres() +
             "}";
     }
 }
@@ -0,0 +1,112 @@
+package id.laris.assistant.service.dto;
+
+import id.laris.assistant.domain.MovieRatingStats;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A DTO for the {@link MovieRatingStats} entity, with the average and standard deviation derived from the aggregates.
+ */
+public class MovieRatingStatsDTO implements Serializable {
+
+    private Long movieId;
+
+    private Long count;
+
+    private Double sum;
+
+    private Double sumOfSquares;
+
+    private List<Long> histogram;
+
+    private Long lastRatedAt;
+
+    public Long getMovieId() {
+        return movieId;
+    }
+
+    public void setMovieId(Long movieId) {
+        this.movieId = movieId;
+    }
+
+    public Long getCount() {
+        return count;
+    }
+
+    public void setCount(Long count) {
+        this.count = count;
+    }
+
+    public Double getSum() {
+        return sum;
+    }
+
+    public void setSum(Double sum) {
+        this.sum = sum;
+    }
+
+    public Double getSumOfSquares() {
+        return sumOfSquares;
+    }
+
+    public void setSumOfSquares(Double sumOfSquares) {
+        this.sumOfSquares = sumOfSquares;
+    }
+
+    /**
+     * @return the number of ratings in each of the half-star buckets, from 0.5 to 5.0.
+     */
+    public List<Long> getHistogram() {
+        return histogram;
+    }
+
+    public void setHistogram(List<Long> histogram) {
+        this.histogram = histogram;
+    }
+
+    /**
+     * @return the time of the most recent rating in seconds since the epoch, or {@code null} for a movie never rated.
+     */
+    public Long getLastRatedAt() {
+        return lastRatedAt;
+    }
+
+    public void setLastRatedAt(Long lastRatedAt) {
+        this.lastRatedAt = lastRatedAt;
+    }
+
+    /**
+     * @return the average rating, or {@code null} for a movie never rated.
+     */
+    public Double getAverage() {
+        if (count == null || count == 0 || sum == null) {
+            return null;
+        }
+        return sum / count;
+    }
+
+    /**
+     * @return the population standard deviation of the ratings, or {@code null} for a movie never rated.
+     */
+    public Double getStandardDeviation() {
+        Double average = getAverage();
+        if (average == null || sumOfSquares == null) {
+            return null;
+        }
+        // the rounding of the sums can make a null variance slightly negative
+        return Math.sqrt(Math.max(0, sumOfSquares / count - average * average));
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "MovieRatingStatsDTO{" +
+            "movieId=" + getMovieId() +
+            ", count=" + getCount() +
+            ", sum=" + getSum() +
+            ", sumOfSquares=" + getSumOfSquares() +
+            ", histogram=" + getHistogram() +
+            ", lastRatedAt=" + getLastRatedAt() +
+            "}";
+    }
+}
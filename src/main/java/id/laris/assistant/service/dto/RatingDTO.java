@@ -15,6 +15,7 @@ public class RatingDTO implements Serializable {
     private Long id;
 
     @NotNull(message = "must not be null")
+    @HalfStars
     private Double rating;
 
     @NotNull(message = "must not be null")
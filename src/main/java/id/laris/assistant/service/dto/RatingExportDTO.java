@@ -0,0 +1,72 @@
+package id.laris.assistant.service.dto;
+
+import id.laris.assistant.domain.Ratings;
+import java.io.Serializable;
+
+/**
+ * A flat DTO for the export of the {@link Ratings} entity: the users and movies are only referenced by their ids.
+ */
+public class RatingExportDTO implements Serializable {
+
+    private Long id;
+
+    private Double rating;
+
+    private Long timestamp;
+
+    private Long userId;
+
+    private Long movieId;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Double getRating() {
+        return rating;
+    }
+
+    public void setRating(Double rating) {
+        this.rating = rating;
+    }
+
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getMovieId() {
+        return movieId;
+    }
+
+    public void setMovieId(Long movieId) {
+        this.movieId = movieId;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "RatingExportDTO{" +
+            "id=" + getId() +
+            ", rating=" + getRating() +
+            ", timestamp=" + getTimestamp() +
+            ", userId=" + getUserId() +
+            ", movieId=" + getMovieId() +
+            "}";
+    }
+}
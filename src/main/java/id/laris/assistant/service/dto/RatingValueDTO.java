@@ -0,0 +1,44 @@
+package id.laris.assistant.service.dto;
+
+import jakarta.validation.constraints.*;
+import java.io.Serializable;
+
+/**
+ * A DTO for the rating a user gives a movie, the user and the movie being given by the request path.
+ */
+public class RatingValueDTO implements Serializable {
+
+    @NotNull(message = "must not be null")
+    @HalfStars
+    private Double rating;
+
+    private Long timestamp;
+
+    public Double getRating() {
+        return rating;
+    }
+
+    public void setRating(Double rating) {
+        this.rating = rating;
+    }
+
+    /**
+     * @return the time of the rating in seconds since the epoch, or {@code null} for the time it is saved.
+     */
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "RatingValueDTO{" +
+            "rating=" + getRating() +
+            ", timestamp=" + getTimestamp() +
+            "}";
+    }
+}
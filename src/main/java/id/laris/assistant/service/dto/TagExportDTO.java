@@ -0,0 +1,72 @@
+package id.laris.assistant.service.dto;
+
+import id.laris.assistant.domain.Tags;
+import java.io.Serializable;
+
+/**
+ * A flat DTO for the export of the {@link Tags} entity: the users and movies are only referenced by their ids.
+ */
+public class TagExportDTO implements Serializable {
+
+    private Long id;
+
+    private String tag;
+
+    private Long timestamp;
+
+    private Long userId;
+
+    private Long movieId;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getMovieId() {
+        return movieId;
+    }
+
+    public void setMovieId(Long movieId) {
+        this.movieId = movieId;
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "TagExportDTO{" +
+            "id=" + getId() +
+            ", tag='" + getTag() + "'" +
+            ", timestamp=" + getTimestamp() +
+            ", userId=" + getUserId() +
+            ", movieId=" + getMovieId() +
+            "}";
+    }
+}
@@ -1,14 +1,34 @@
 package id.laris.assistant.service.impl;
 
+import id.laris.assistant.domain.Genre;
+import id.laris.assistant.domain.MovieRatingStats;
 import id.laris.assistant.domain.Movies;
+import id.laris.assistant.repository.EntityFilter;
+import id.laris.assistant.repository.EntityManager;
+import id.laris.assistant.repository.KeysetCursor;
+import id.laris.assistant.repository.MovieRatingStatsRepository;
 import id.laris.assistant.repository.MovieRepository;
+import id.laris.assistant.service.AfterCommit;
+import id.laris.assistant.service.AutocommitRead;
+import id.laris.assistant.service.CountStrategy;
+import id.laris.assistant.service.LookupCoalescer;
+import id.laris.assistant.service.MovieCatalogCache;
 import id.laris.assistant.service.MovieService;
+import id.laris.assistant.service.TotalCount;
+import id.laris.assistant.service.TotalCountService;
 import id.laris.assistant.service.dto.MovieDTO;
+import id.laris.assistant.service.dto.MovieRatingStatsDTO;
 import id.laris.assistant.service.mapper.MovieMapper;
+import id.laris.assistant.service.mapper.MovieRatingStatsMapper;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -26,59 +46,185 @@ public class MovieServiceImpl implements MovieService {
 
     private final MovieMapper movieMapper;
 
-    public MovieServiceImpl(MovieRepository movieRepository, MovieMapper movieMapper) {
+    private final TotalCountService totalCountService;
+
+    private final MovieRatingStatsRepository movieRatingStatsRepository;
+
+    private final MovieRatingStatsMapper movieRatingStatsMapper;
+
+    private final MovieCatalogCache movieCatalogCache;
+
+    private final LookupCoalescer.Lookup<Movies> lookup;
+
+    public MovieServiceImpl(
+        MovieRepository movieRepository,
+        MovieMapper movieMapper,
+        TotalCountService totalCountService,
+        MovieRatingStatsRepository movieRatingStatsRepository,
+        MovieRatingStatsMapper movieRatingStatsMapper,
+        MovieCatalogCache movieCatalogCache,
+        LookupCoalescer lookupCoalescer
+    ) {
         this.movieRepository = movieRepository;
         this.movieMapper = movieMapper;
+        this.totalCountService = totalCountService;
+        this.movieRatingStatsRepository = movieRatingStatsRepository;
+        this.movieRatingStatsMapper = movieRatingStatsMapper;
+        this.movieCatalogCache = movieCatalogCache;
+        this.lookup = lookupCoalescer.create(Movies.class, movieRepository::findById, movieRepository::findAllByIds, Movies::getId);
     }
 
     @Override
     public Mono<MovieDTO> save(MovieDTO movieDTO) {
         LOG.debug("Request to save Movies : {}", movieDTO);
-        return movieRepository.save(movieMapper.toEntity(movieDTO)).map(movieMapper::toDto);
+        return movieRepository
+            .save(toEntity(movieDTO))
+            // the catalog and the count only see the movie once its insertion is committed
+            .flatMap(saved ->
+                AfterCommit.run(() -> {
+                    movieCatalogCache.put(saved);
+                    totalCountService.increment(Movies.class);
+                }).thenReturn(saved)
+            )
+            .map(movieMapper::toDto);
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Mono<MovieDTO> update(MovieDTO movieDTO) {
         LOG.debug("Request to update Movies : {}", movieDTO);
-        return movieRepository.save(movieMapper.toEntity(movieDTO)).map(movieMapper::toDto);
+        // a single UPDATE ... RETURNING statement, atomic without a transaction of its own
+        return movieRepository.update(toEntity(movieDTO)).flatMap(this::putAfterCommit).map(movieMapper::toDto);
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Mono<MovieDTO> partialUpdate(MovieDTO movieDTO) {
         LOG.debug("Request to partially update Movies : {}", movieDTO);
+        // the null fields keep their column value, as with the partialUpdate of the mapper
+        return movieRepository.partialUpdate(toEntity(movieDTO)).flatMap(this::putAfterCommit).map(movieMapper::toDto);
+    }
 
-        return movieRepository
-            .findById(movieDTO.getId())
-            .map(existingMovies -> {
-                movieMapper.partialUpdate(existingMovies, movieDTO);
+    /**
+     * Records the updated movie in the catalog once the update is committed, right away outside of a transaction.
+     */
+    private Mono<Movies> putAfterCommit(Movies movie) {
+        return AfterCommit.run(() -> movieCatalogCache.put(movie)).thenReturn(movie);
+    }
 
-                return existingMovies;
-            })
-            .flatMap(movieRepository::save)
-            .map(movieMapper::toDto);
+    /**
+     * Maps the DTO into the entity with the mask of its genres, {@code null} when a partial update leaves them as they are.
+     */
+    private Movies toEntity(MovieDTO movieDTO) {
+        Movies movies = movieMapper.toEntity(movieDTO);
+        return movies.genreMask(Genre.maskOf(movies.getGenres()));
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @AutocommitRead
     public Flux<MovieDTO> findAll(Pageable pageable) {
         LOG.debug("Request to get all Movies");
+        List<Movies> cached = movieCatalogCache.findPage(pageable);
+        if (cached != null) {
+            return Flux.fromIterable(cached).map(movieMapper::toDto);
+        }
         return movieRepository.findAllBy(pageable).map(movieMapper::toDto);
     }
 
-    public Mono<Long> countAll() {
-        return movieRepository.count();
+    @Override
+    @AutocommitRead
+    public Flux<MovieDTO> findAllAfter(EntityFilter filter, KeysetCursor after, Pageable pageable) {
+        LOG.debug("Request to get Movies after : {} by filter : {}", after, filter);
+        List<Movies> cached = filter.isEmpty() ? movieCatalogCache.findPageAfter(after, pageable) : null;
+        if (cached != null) {
+            return Flux.fromIterable(cached).map(movieMapper::toDto);
+        }
+        return movieRepository.findAllAfter(after, pageable, filter).map(movieMapper::toDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Mono<TotalCount> countAll(CountStrategy strategy) {
+        return totalCountService.count(Movies.class, strategy, movieRepository::count);
+    }
+
+    @Override
+    @AutocommitRead
+    public Flux<MovieDTO> findAll(EntityFilter filter, Pageable pageable) {
+        LOG.debug("Request to get all Movies by filter : {}", filter);
+        if (filter.isEmpty()) {
+            return findAll(pageable);
+        }
+        return movieRepository.findAllBy(pageable, filter).map(movieMapper::toDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Mono<TotalCount> countAll(EntityFilter filter, CountStrategy strategy) {
+        if (filter.isEmpty()) {
+            return countAll(strategy);
+        }
+        // the cached and estimated counts are per table, a filtered count is always exact
+        return movieRepository.countBy(filter).map(TotalCount::exact);
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @AutocommitRead
     public Mono<MovieDTO> findOne(Long id) {
         LOG.debug("Request to get Movies : {}", id);
-        return movieRepository.findById(id).map(movieMapper::toDto);
+        Movies cached = movieCatalogCache.get(id);
+        if (cached != null) {
+            return Mono.just(movieMapper.toDto(cached));
+        }
+        return lookup.find(id).map(movieMapper::toDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Flux<MovieDTO> findAllByIds(List<Long> ids) {
+        LOG.debug("Request to get Movies : {}", ids);
+        Map<Long, Movies> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            Movies cached = movieCatalogCache.get(id);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        Flux<Movies> fetched = missing.isEmpty() ? Flux.empty() : movieRepository.findAllByIds(missing);
+        return EntityManager.inOrderOf(ids, Movies::getId, Flux.concat(Flux.fromIterable(found.values()), fetched)).map(movieMapper::toDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Mono<MovieRatingStatsDTO> findRatingStats(Long id) {
+        LOG.debug("Request to get the rating stats of Movies : {}", id);
+        // one primary key lookup, the aggregates being maintained by the triggers of the ratings table; the movies
+        // never rated since their creation or the last truncation of the ratings have no row yet
+        return movieRatingStatsRepository
+            .findById(id)
+            .switchIfEmpty(
+                Mono.defer(() -> movieCatalogCache.get(id) != null ? Mono.just(true) : movieRepository.existsById(id))
+                    .filter(Boolean::booleanValue)
+                    .map(exists -> MovieRatingStats.none(id))
+            )
+            .map(movieRatingStatsMapper::toDto);
     }
 
     @Override
     public Mono<Void> delete(Long id) {
         LOG.debug("Request to delete Movies : {}", id);
-        return movieRepository.deleteById(id);
+        // only a deleted row is removed from the catalog and uncounted, once its deletion is committed
+        return movieRepository
+            .removeById(id)
+            .filter(deleted -> deleted > 0)
+            .flatMap(deleted ->
+                AfterCommit.run(() -> {
+                    movieCatalogCache.remove(id);
+                    totalCountService.decrement(Movies.class);
+                })
+            );
     }
 }
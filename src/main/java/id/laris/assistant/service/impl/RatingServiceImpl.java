@@ -1,14 +1,32 @@
 package id.laris.assistant.service.impl;
 
+import id.laris.assistant.config.ApplicationProperties;
 import id.laris.assistant.domain.Ratings;
+import id.laris.assistant.repository.EntityFilter;
+import id.laris.assistant.repository.HistoryFilter;
+import id.laris.assistant.repository.KeysetCursor;
 import id.laris.assistant.repository.RatingRepository;
+import id.laris.assistant.repository.Upserted;
+import id.laris.assistant.service.AfterCommit;
+import id.laris.assistant.service.AutocommitRead;
+import id.laris.assistant.service.BulkIngestionService;
+import id.laris.assistant.service.CountStrategy;
+import id.laris.assistant.service.LookupCoalescer;
 import id.laris.assistant.service.RatingService;
+import id.laris.assistant.service.RatingWriteBehindService;
+import id.laris.assistant.service.TotalCount;
+import id.laris.assistant.service.TotalCountService;
+import id.laris.assistant.service.dto.BulkChunkResultDTO;
 import id.laris.assistant.service.dto.RatingDTO;
+import id.laris.assistant.service.dto.RatingExportDTO;
+import id.laris.assistant.service.dto.RatingValueDTO;
 import id.laris.assistant.service.mapper.RatingMapper;
+import java.time.Instant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -26,59 +44,202 @@ public class RatingServiceImpl implements RatingService {
 
     private final RatingMapper ratingMapper;
 
-    public RatingServiceImpl(RatingRepository ratingRepository, RatingMapper ratingMapper) {
+    private final TotalCountService totalCountService;
+
+    private final BulkIngestionService bulkIngestionService;
+
+    private final RatingWriteBehindService ratingWriteBehindService;
+
+    private final ApplicationProperties.Export exportProperties;
+
+    private final LookupCoalescer.Lookup<Ratings> lookup;
+
+    public RatingServiceImpl(
+        RatingRepository ratingRepository,
+        RatingMapper ratingMapper,
+        TotalCountService totalCountService,
+        BulkIngestionService bulkIngestionService,
+        RatingWriteBehindService ratingWriteBehindService,
+        LookupCoalescer lookupCoalescer,
+        ApplicationProperties applicationProperties
+    ) {
         this.ratingRepository = ratingRepository;
         this.ratingMapper = ratingMapper;
+        this.totalCountService = totalCountService;
+        this.bulkIngestionService = bulkIngestionService;
+        this.ratingWriteBehindService = ratingWriteBehindService;
+        this.exportProperties = applicationProperties.getExport();
+        this.lookup = lookupCoalescer.create(Ratings.class, ratingRepository::findById, ratingRepository::findAllByIds, Ratings::getId);
     }
 
     @Override
     public Mono<RatingDTO> save(RatingDTO ratingDTO) {
         LOG.debug("Request to save Ratings : {}", ratingDTO);
-        return ratingRepository.save(ratingMapper.toEntity(ratingDTO)).map(ratingMapper::toDto);
+        return ratingRepository
+            .save(ratingMapper.toEntity(ratingDTO))
+            .flatMap(saved -> AfterCommit.run(() -> totalCountService.increment(Ratings.class)).thenReturn(saved))
+            .map(ratingMapper::toDto);
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Flux<BulkChunkResultDTO> saveAll(Flux<RatingDTO> ratingDTOs) {
+        LOG.debug("Request to save Ratings in bulk");
+        // each chunk runs in its own transaction, so a refused chunk does not roll back the previous ones
+        return bulkIngestionService
+            .ingest(ratingDTOs, RatingDTO::getId, ratingMapper::toEntity, ratingRepository::insertAll)
+            .doOnNext(result -> totalCountService.increment(Ratings.class, result.getInserted()));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Mono<RatingDTO> update(RatingDTO ratingDTO) {
         LOG.debug("Request to update Ratings : {}", ratingDTO);
-        return ratingRepository.save(ratingMapper.toEntity(ratingDTO)).map(ratingMapper::toDto);
+        // a single UPDATE ... RETURNING statement, atomic without a transaction of its own
+        return ratingRepository.update(ratingMapper.toEntity(ratingDTO)).map(ratingMapper::toDto);
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Mono<RatingDTO> partialUpdate(RatingDTO ratingDTO) {
         LOG.debug("Request to partially update Ratings : {}", ratingDTO);
+        // the null fields keep their column value, as with the partialUpdate of the mapper
+        return ratingRepository.partialUpdate(ratingMapper.toEntity(ratingDTO)).map(ratingMapper::toDto);
+    }
 
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Mono<Upserted<RatingDTO>> rate(Long userId, Long movieId, RatingValueDTO ratingValueDTO) {
+        LOG.debug("Request to rate Movies : {} by Users : {}, {}", movieId, userId, ratingValueDTO);
+        // a single INSERT ... ON CONFLICT DO UPDATE statement, so a re-rate overwrites the rating instead of adding one
         return ratingRepository
-            .findById(ratingDTO.getId())
-            .map(existingRatings -> {
-                ratingMapper.partialUpdate(existingRatings, ratingDTO);
-
-                return existingRatings;
+            .upsertByUserAndMovie(toEntity(userId, movieId, ratingValueDTO))
+            .flatMap(upserted -> {
+                Mono<Void> counted = upserted.isInserted() ? AfterCommit.run(() -> totalCountService.increment(Ratings.class)) : Mono.empty();
+                return counted.thenReturn(upserted);
             })
-            .flatMap(ratingRepository::save)
-            .map(ratingMapper::toDto);
+            .map(upserted -> upserted.map(ratingMapper::toDto));
     }
 
     @Override
-    @Transactional(readOnly = true)
+    public boolean rateLater(Long userId, Long movieId, RatingValueDTO ratingValueDTO) {
+        LOG.debug("Request to queue the rating of Movies : {} by Users : {}, {}", movieId, userId, ratingValueDTO);
+        return ratingWriteBehindService.offer(toEntity(userId, movieId, ratingValueDTO));
+    }
+
+    @Override
+    public boolean isWriteBehindEnabled() {
+        return ratingWriteBehindService.isEnabled();
+    }
+
+    private static Ratings toEntity(Long userId, Long movieId, RatingValueDTO ratingValueDTO) {
+        Ratings ratings = new Ratings()
+            .rating(ratingValueDTO.getRating())
+            .timestamp(ratingValueDTO.getTimestamp() != null ? ratingValueDTO.getTimestamp() : Instant.now().getEpochSecond());
+        ratings.setUserId(userId);
+        ratings.setMovieId(movieId);
+        return ratings;
+    }
+
+    @Override
+    @AutocommitRead
     public Flux<RatingDTO> findAll(Pageable pageable) {
         LOG.debug("Request to get all Ratings");
         return ratingRepository.findAllBy(pageable).map(ratingMapper::toDto);
     }
 
-    public Mono<Long> countAll() {
-        return ratingRepository.count();
+    @Override
+    @AutocommitRead
+    public Flux<RatingDTO> findAllWithEagerRelationships(EntityFilter filter, Pageable pageable) {
+        LOG.debug("Request to get all Ratings with eager relationships");
+        return ratingRepository.findAllWithEagerRelationships(pageable, filter).map(ratingMapper::toDtoWithEagerRelationships);
     }
 
     @Override
+    @AutocommitRead
+    public Flux<RatingDTO> findAllAfter(EntityFilter filter, KeysetCursor after, Pageable pageable) {
+        LOG.debug("Request to get Ratings after : {}", after);
+        return ratingRepository.findAllAfter(after, pageable, filter).map(ratingMapper::toDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Flux<RatingDTO> findAllByUser(Long userId, HistoryFilter filter, Pageable pageable) {
+        LOG.debug("Request to get the Ratings of Users : {}, {}", userId, filter);
+        return ratingRepository.findAllByUser(userId, filter, pageable).map(ratingMapper::toDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Mono<Long> countByUser(Long userId, HistoryFilter filter) {
+        return ratingRepository.countByUser(userId, filter);
+    }
+
+    @Override
+    @AutocommitRead
+    public Flux<RatingDTO> findAllByMovie(Long movieId, HistoryFilter filter, Pageable pageable) {
+        LOG.debug("Request to get the Ratings of Movies : {}, {}", movieId, filter);
+        return ratingRepository.findAllByMovie(movieId, filter, pageable).map(ratingMapper::toDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Mono<Long> countByMovie(Long movieId, HistoryFilter filter) {
+        return ratingRepository.countByMovie(movieId, filter);
+    }
+
+    @Override
+    // the cursor of the export only lives within a transaction
     @Transactional(readOnly = true)
+    public Flux<RatingExportDTO> exportAll() {
+        LOG.debug("Request to export all Ratings");
+        return ratingRepository.streamAll(exportProperties.getFetchSize()).map(ratingMapper::toExportDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Mono<TotalCount> countAll(CountStrategy strategy) {
+        return totalCountService.count(Ratings.class, strategy, ratingRepository::count);
+    }
+
+    @Override
+    @AutocommitRead
+    public Flux<RatingDTO> findAll(EntityFilter filter, Pageable pageable) {
+        LOG.debug("Request to get all Ratings by filter : {}", filter);
+        return ratingRepository.findAllBy(pageable, filter).map(ratingMapper::toDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Mono<TotalCount> countAll(EntityFilter filter, CountStrategy strategy) {
+        if (filter.isEmpty()) {
+            return countAll(strategy);
+        }
+        // the cached and estimated counts are per table, a filtered count is always exact
+        return ratingRepository.countBy(filter).map(TotalCount::exact);
+    }
+
+    @Override
+    @AutocommitRead
     public Mono<RatingDTO> findOne(Long id) {
         LOG.debug("Request to get Ratings : {}", id);
-        return ratingRepository.findById(id).map(ratingMapper::toDto);
+        return lookup.find(id).map(ratingMapper::toDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Mono<RatingDTO> findOneWithEagerRelationships(Long id) {
+        LOG.debug("Request to get Ratings with eager relationships : {}", id);
+        return ratingRepository.findOneWithEagerRelationships(id).map(ratingMapper::toDtoWithEagerRelationships);
     }
 
     @Override
     public Mono<Void> delete(Long id) {
         LOG.debug("Request to delete Ratings : {}", id);
-        return ratingRepository.deleteById(id);
+        // only a deleted row is uncounted, once its deletion is committed
+        return ratingRepository
+            .removeById(id)
+            .filter(deleted -> deleted > 0)
+            .flatMap(deleted -> AfterCommit.run(() -> totalCountService.decrement(Ratings.class)));
     }
 }
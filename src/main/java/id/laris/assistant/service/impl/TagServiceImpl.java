@@ -1,14 +1,28 @@
 package id.laris.assistant.service.impl;
 
+import id.laris.assistant.config.ApplicationProperties;
 import id.laris.assistant.domain.Tags;
+import id.laris.assistant.repository.EntityFilter;
+import id.laris.assistant.repository.HistoryFilter;
+import id.laris.assistant.repository.KeysetCursor;
 import id.laris.assistant.repository.TagRepository;
+import id.laris.assistant.service.AfterCommit;
+import id.laris.assistant.service.AutocommitRead;
+import id.laris.assistant.service.BulkIngestionService;
+import id.laris.assistant.service.CountStrategy;
+import id.laris.assistant.service.LookupCoalescer;
 import id.laris.assistant.service.TagService;
+import id.laris.assistant.service.TotalCount;
+import id.laris.assistant.service.TotalCountService;
+import id.laris.assistant.service.dto.BulkChunkResultDTO;
 import id.laris.assistant.service.dto.TagDTO;
+import id.laris.assistant.service.dto.TagExportDTO;
 import id.laris.assistant.service.mapper.TagMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -26,59 +40,164 @@ public class TagServiceImpl implements TagService {
 
     private final TagMapper tagMapper;
 
-    public TagServiceImpl(TagRepository tagRepository, TagMapper tagMapper) {
+    private final TotalCountService totalCountService;
+
+    private final BulkIngestionService bulkIngestionService;
+
+    private final ApplicationProperties.Export exportProperties;
+
+    private final LookupCoalescer.Lookup<Tags> lookup;
+
+    public TagServiceImpl(
+        TagRepository tagRepository,
+        TagMapper tagMapper,
+        TotalCountService totalCountService,
+        BulkIngestionService bulkIngestionService,
+        LookupCoalescer lookupCoalescer,
+        ApplicationProperties applicationProperties
+    ) {
         this.tagRepository = tagRepository;
         this.tagMapper = tagMapper;
+        this.totalCountService = totalCountService;
+        this.bulkIngestionService = bulkIngestionService;
+        this.exportProperties = applicationProperties.getExport();
+        this.lookup = lookupCoalescer.create(Tags.class, tagRepository::findById, tagRepository::findAllByIds, Tags::getId);
     }
 
     @Override
     public Mono<TagDTO> save(TagDTO tagDTO) {
         LOG.debug("Request to save Tags : {}", tagDTO);
-        return tagRepository.save(tagMapper.toEntity(tagDTO)).map(tagMapper::toDto);
+        return tagRepository
+            .save(tagMapper.toEntity(tagDTO))
+            .flatMap(saved -> AfterCommit.run(() -> totalCountService.increment(Tags.class)).thenReturn(saved))
+            .map(tagMapper::toDto);
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Flux<BulkChunkResultDTO> saveAll(Flux<TagDTO> tagDTOs) {
+        LOG.debug("Request to save Tags in bulk");
+        // each chunk runs in its own transaction, so a refused chunk does not roll back the previous ones
+        return bulkIngestionService
+            .ingest(tagDTOs, TagDTO::getId, tagMapper::toEntity, tagRepository::insertAll)
+            .doOnNext(result -> totalCountService.increment(Tags.class, result.getInserted()));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Mono<TagDTO> update(TagDTO tagDTO) {
         LOG.debug("Request to update Tags : {}", tagDTO);
-        return tagRepository.save(tagMapper.toEntity(tagDTO)).map(tagMapper::toDto);
+        // a single UPDATE ... RETURNING statement, atomic without a transaction of its own
+        return tagRepository.update(tagMapper.toEntity(tagDTO)).map(tagMapper::toDto);
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Mono<TagDTO> partialUpdate(TagDTO tagDTO) {
         LOG.debug("Request to partially update Tags : {}", tagDTO);
-
-        return tagRepository
-            .findById(tagDTO.getId())
-            .map(existingTags -> {
-                tagMapper.partialUpdate(existingTags, tagDTO);
-
-                return existingTags;
-            })
-            .flatMap(tagRepository::save)
-            .map(tagMapper::toDto);
+        // the null fields keep their column value, as with the partialUpdate of the mapper
+        return tagRepository.partialUpdate(tagMapper.toEntity(tagDTO)).map(tagMapper::toDto);
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @AutocommitRead
     public Flux<TagDTO> findAll(Pageable pageable) {
         LOG.debug("Request to get all Tags");
         return tagRepository.findAllBy(pageable).map(tagMapper::toDto);
     }
 
-    public Mono<Long> countAll() {
-        return tagRepository.count();
+    @Override
+    @AutocommitRead
+    public Flux<TagDTO> findAllWithEagerRelationships(EntityFilter filter, Pageable pageable) {
+        LOG.debug("Request to get all Tags with eager relationships");
+        return tagRepository.findAllWithEagerRelationships(pageable, filter).map(tagMapper::toDtoWithEagerRelationships);
+    }
+
+    @Override
+    @AutocommitRead
+    public Flux<TagDTO> findAllAfter(EntityFilter filter, KeysetCursor after, Pageable pageable) {
+        LOG.debug("Request to get Tags after : {}", after);
+        return tagRepository.findAllAfter(after, pageable, filter).map(tagMapper::toDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Flux<TagDTO> findAllByUser(Long userId, HistoryFilter filter, Pageable pageable) {
+        LOG.debug("Request to get the Tags of Users : {}, {}", userId, filter);
+        return tagRepository.findAllByUser(userId, filter, pageable).map(tagMapper::toDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Mono<Long> countByUser(Long userId, HistoryFilter filter) {
+        return tagRepository.countByUser(userId, filter);
+    }
+
+    @Override
+    @AutocommitRead
+    public Flux<TagDTO> findAllByMovie(Long movieId, HistoryFilter filter, Pageable pageable) {
+        LOG.debug("Request to get the Tags of Movies : {}, {}", movieId, filter);
+        return tagRepository.findAllByMovie(movieId, filter, pageable).map(tagMapper::toDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Mono<Long> countByMovie(Long movieId, HistoryFilter filter) {
+        return tagRepository.countByMovie(movieId, filter);
     }
 
     @Override
+    // the cursor of the export only lives within a transaction
     @Transactional(readOnly = true)
+    public Flux<TagExportDTO> exportAll() {
+        LOG.debug("Request to export all Tags");
+        return tagRepository.streamAll(exportProperties.getFetchSize()).map(tagMapper::toExportDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Mono<TotalCount> countAll(CountStrategy strategy) {
+        return totalCountService.count(Tags.class, strategy, tagRepository::count);
+    }
+
+    @Override
+    @AutocommitRead
+    public Flux<TagDTO> findAll(EntityFilter filter, Pageable pageable) {
+        LOG.debug("Request to get all Tags by filter : {}", filter);
+        return tagRepository.findAllBy(pageable, filter).map(tagMapper::toDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Mono<TotalCount> countAll(EntityFilter filter, CountStrategy strategy) {
+        if (filter.isEmpty()) {
+            return countAll(strategy);
+        }
+        // the cached and estimated counts are per table, a filtered count is always exact
+        return tagRepository.countBy(filter).map(TotalCount::exact);
+    }
+
+    @Override
+    @AutocommitRead
     public Mono<TagDTO> findOne(Long id) {
         LOG.debug("Request to get Tags : {}", id);
-        return tagRepository.findById(id).map(tagMapper::toDto);
+        return lookup.find(id).map(tagMapper::toDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Mono<TagDTO> findOneWithEagerRelationships(Long id) {
+        LOG.debug("Request to get Tags with eager relationships : {}", id);
+        return tagRepository.findOneWithEagerRelationships(id).map(tagMapper::toDtoWithEagerRelationships);
     }
 
     @Override
     public Mono<Void> delete(Long id) {
         LOG.debug("Request to delete Tags : {}", id);
-        return tagRepository.deleteById(id);
+        // only a deleted row is uncounted, once its deletion is committed
+        return tagRepository
+            .removeById(id)
+            .filter(deleted -> deleted > 0)
+            .flatMap(deleted -> AfterCommit.run(() -> totalCountService.decrement(Tags.class)));
     }
 }
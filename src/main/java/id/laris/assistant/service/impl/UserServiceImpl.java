@@ -1,7 +1,15 @@
 package id.laris.assistant.service.impl;
 
 import id.laris.assistant.domain.Users;
+import id.laris.assistant.repository.EntityFilter;
+import id.laris.assistant.repository.KeysetCursor;
 import id.laris.assistant.repository.UserRepository;
+import id.laris.assistant.service.AfterCommit;
+import id.laris.assistant.service.AutocommitRead;
+import id.laris.assistant.service.CountStrategy;
+import id.laris.assistant.service.LookupCoalescer;
+import id.laris.assistant.service.TotalCount;
+import id.laris.assistant.service.TotalCountService;
 import id.laris.assistant.service.UserService;
 import id.laris.assistant.service.dto.UserDTO;
 import id.laris.assistant.service.mapper.UserMapper;
@@ -9,6 +17,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -26,59 +35,98 @@ public class UserServiceImpl implements UserService {
 
     private final UserMapper userMapper;
 
-    public UserServiceImpl(UserRepository userRepository, UserMapper userMapper) {
+    private final TotalCountService totalCountService;
+
+    private final LookupCoalescer.Lookup<Users> lookup;
+
+    public UserServiceImpl(
+        UserRepository userRepository,
+        UserMapper userMapper,
+        TotalCountService totalCountService,
+        LookupCoalescer lookupCoalescer
+    ) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
+        this.totalCountService = totalCountService;
+        this.lookup = lookupCoalescer.create(Users.class, userRepository::findById, userRepository::findAllByIds, Users::getId);
     }
 
     @Override
     public Mono<UserDTO> save(UserDTO userDTO) {
         LOG.debug("Request to save Users : {}", userDTO);
-        return userRepository.save(userMapper.toEntity(userDTO)).map(userMapper::toDto);
+        return userRepository
+            .save(userMapper.toEntity(userDTO))
+            .flatMap(saved -> AfterCommit.run(() -> totalCountService.increment(Users.class)).thenReturn(saved))
+            .map(userMapper::toDto);
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Mono<UserDTO> update(UserDTO userDTO) {
         LOG.debug("Request to update Users : {}", userDTO);
-        return userRepository.save(userMapper.toEntity(userDTO)).map(userMapper::toDto);
+        // a single UPDATE ... RETURNING statement, atomic without a transaction of its own
+        return userRepository.update(userMapper.toEntity(userDTO)).map(userMapper::toDto);
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Mono<UserDTO> partialUpdate(UserDTO userDTO) {
         LOG.debug("Request to partially update Users : {}", userDTO);
-
-        return userRepository
-            .findById(userDTO.getId())
-            .map(existingUsers -> {
-                userMapper.partialUpdate(existingUsers, userDTO);
-
-                return existingUsers;
-            })
-            .flatMap(userRepository::save)
-            .map(userMapper::toDto);
+        // the null fields keep their column value, as with the partialUpdate of the mapper
+        return userRepository.partialUpdate(userMapper.toEntity(userDTO)).map(userMapper::toDto);
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @AutocommitRead
     public Flux<UserDTO> findAll(Pageable pageable) {
         LOG.debug("Request to get all Users");
         return userRepository.findAllBy(pageable).map(userMapper::toDto);
     }
 
-    public Mono<Long> countAll() {
-        return userRepository.count();
+    @Override
+    @AutocommitRead
+    public Flux<UserDTO> findAllAfter(EntityFilter filter, KeysetCursor after, Pageable pageable) {
+        LOG.debug("Request to get Users after : {}", after);
+        return userRepository.findAllAfter(after, pageable, filter).map(userMapper::toDto);
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @AutocommitRead
+    public Mono<TotalCount> countAll(CountStrategy strategy) {
+        return totalCountService.count(Users.class, strategy, userRepository::count);
+    }
+
+    @Override
+    @AutocommitRead
+    public Flux<UserDTO> findAll(EntityFilter filter, Pageable pageable) {
+        LOG.debug("Request to get all Users by filter : {}", filter);
+        return userRepository.findAllBy(pageable, filter).map(userMapper::toDto);
+    }
+
+    @Override
+    @AutocommitRead
+    public Mono<TotalCount> countAll(EntityFilter filter, CountStrategy strategy) {
+        if (filter.isEmpty()) {
+            return countAll(strategy);
+        }
+        // the cached and estimated counts are per table, a filtered count is always exact
+        return userRepository.countBy(filter).map(TotalCount::exact);
+    }
+
+    @Override
+    @AutocommitRead
     public Mono<UserDTO> findOne(Long id) {
         LOG.debug("Request to get Users : {}", id);
-        return userRepository.findById(id).map(userMapper::toDto);
+        return lookup.find(id).map(userMapper::toDto);
     }
 
     @Override
     public Mono<Void> delete(Long id) {
         LOG.debug("Request to delete Users : {}", id);
-        return userRepository.deleteById(id);
+        // only a deleted row is uncounted, once its deletion is committed
+        return userRepository
+            .removeById(id)
+            .filter(deleted -> deleted > 0)
+            .flatMap(deleted -> AfterCommit.run(() -> totalCountService.decrement(Users.class)));
     }
 }
@@ -1,11 +1,32 @@
 package id.laris.assistant.service.mapper;
 
+import id.laris.assistant.domain.Genre;
 import id.laris.assistant.domain.Movies;
 import id.laris.assistant.service.dto.MovieDTO;
+import java.util.List;
 import org.mapstruct.*;
 
 /**
  * Mapper for the entity {@link Movies} and its DTO {@link MovieDTO}.
  */
 @Mapper(componentModel = "spring")
-public interface MovieMapper extends EntityMapper<MovieDTO, Movies> {}
+public interface MovieMapper extends EntityMapper<MovieDTO, Movies> {
+    /**
+     * Maps the DTO into the entity, whose genre mask is computed by the service from its genres.
+     */
+    @Mapping(target = "genreMask", ignore = true)
+    Movies toEntity(MovieDTO dto);
+
+    @Named("partialUpdate")
+    @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "genreMask", ignore = true)
+    void partialUpdate(@MappingTarget Movies entity, MovieDTO dto);
+
+    default List<String> toGenreList(String genres) {
+        return genres == null ? null : Genre.parse(genres);
+    }
+
+    default String toGenres(List<String> genres) {
+        return genres == null ? null : Genre.format(genres);
+    }
+}
@@ -0,0 +1,22 @@
+package id.laris.assistant.service.mapper;
+
+import id.laris.assistant.domain.MovieRatingStats;
+import id.laris.assistant.service.dto.MovieRatingStatsDTO;
+import java.util.Arrays;
+import java.util.List;
+import org.mapstruct.*;
+
+/**
+ * Mapper for the entity {@link MovieRatingStats} and its read-only DTO {@link MovieRatingStatsDTO}.
+ */
+@Mapper(componentModel = "spring")
+public interface MovieRatingStatsMapper {
+    @Mapping(target = "count", source = "ratingCount")
+    @Mapping(target = "sum", source = "ratingSum")
+    @Mapping(target = "sumOfSquares", source = "ratingSumSquares")
+    MovieRatingStatsDTO toDto(MovieRatingStats s);
+
+    default List<Long> toList(Long[] histogram) {
+        return histogram == null ? null : Arrays.asList(histogram);
+    }
+}
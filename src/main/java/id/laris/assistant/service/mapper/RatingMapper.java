@@ -1,29 +1,49 @@
 package id.laris.assistant.service.mapper;
 
-import id.laris.assistant.domain.Movies;
 import id.laris.assistant.domain.Ratings;
-import id.laris.assistant.domain.Users;
 import id.laris.assistant.service.dto.MovieDTO;
 import id.laris.assistant.service.dto.RatingDTO;
+import id.laris.assistant.service.dto.RatingExportDTO;
 import id.laris.assistant.service.dto.UserDTO;
 import org.mapstruct.*;
 
 /**
  * Mapper for the entity {@link Ratings} and its DTO {@link RatingDTO}.
  */
-@Mapper(componentModel = "spring")
+@Mapper(componentModel = "spring", uses = MovieMapper.class)
 public interface RatingMapper extends EntityMapper<RatingDTO, Ratings> {
-    @Mapping(target = "users", source = "users", qualifiedByName = "usersId")
-    @Mapping(target = "movies", source = "movies", qualifiedByName = "moviesId")
+    @Mapping(target = "users", source = "userId", qualifiedByName = "usersId")
+    @Mapping(target = "movies", source = "movieId", qualifiedByName = "moviesId")
     RatingDTO toDto(Ratings s);
 
+    /**
+     * Maps the entity with the users and movies loaded by a join into the nested DTOs.
+     */
+    @Named("withEagerRelationships")
+    RatingDTO toDtoWithEagerRelationships(Ratings s);
+
+    /**
+     * Maps the entity into the flat export row, which keeps the foreign keys as they are.
+     */
+    RatingExportDTO toExportDto(Ratings s);
+
     @Named("usersId")
-    @BeanMapping(ignoreByDefault = true)
-    @Mapping(target = "id", source = "id")
-    UserDTO toDtoUsersId(Users users);
+    default UserDTO toDtoUsersId(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        UserDTO userDTO = new UserDTO();
+        userDTO.setId(userId);
+        return userDTO;
+    }
 
     @Named("moviesId")
-    @BeanMapping(ignoreByDefault = true)
-    @Mapping(target = "id", source = "id")
-    MovieDTO toDtoMoviesId(Movies movies);
+    default MovieDTO toDtoMoviesId(Long movieId) {
+        if (movieId == null) {
+            return null;
+        }
+        MovieDTO movieDTO = new MovieDTO();
+        movieDTO.setId(movieId);
+        return movieDTO;
+    }
 }
@@ -0,0 +1,53 @@
+package id.laris.assistant.web.rest;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.service.DatasetImportService;
+import id.laris.assistant.service.dto.DatasetImportResultDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+/**
+ * REST controller for importing the MovieLens datasets.
+ */
+@RestController
+@RequestMapping("/api/admin/dataset-imports")
+public class DatasetImportResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DatasetImportResource.class);
+
+    private final DatasetImportService datasetImportService;
+
+    private final ApplicationProperties.DatasetImport properties;
+
+    public DatasetImportResource(DatasetImportService datasetImportService, ApplicationProperties applicationProperties) {
+        this.datasetImportService = datasetImportService;
+        this.properties = applicationProperties.getDatasetImport();
+    }
+
+    /**
+     * {@code POST  /dataset-imports} : Import the dataset files of {@code application.dataset-import.location}.
+     *
+     * @param truncate whether to empty the tables first, defaults to {@code application.dataset-import.truncate}.
+     * @param rebuildIndexes whether to drop and rebuild the secondary indexes, defaults to {@code application.dataset-import.rebuild-indexes}.
+     * @return the {@link Flux} of the results of the imported files, streamed as a JSON array or NDJSON,
+     * or with status {@code 409 (Conflict)} if an import is already running.
+     */
+    @PostMapping(value = "", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public Flux<DatasetImportResultDTO> importDatasets(
+        @RequestParam(name = "truncate", required = false) Boolean truncate,
+        @RequestParam(name = "rebuildIndexes", required = false) Boolean rebuildIndexes
+    ) {
+        LOG.debug("REST request to import the datasets");
+        return datasetImportService
+            .importAll(
+                truncate != null ? truncate : properties.isTruncate(),
+                rebuildIndexes != null ? rebuildIndexes : properties.isRebuildIndexes()
+            )
+            .onErrorMap(IllegalStateException.class, e -> new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage()));
+    }
+}
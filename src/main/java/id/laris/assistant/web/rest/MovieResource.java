@@ -1,10 +1,24 @@
 package id.laris.assistant.web.rest;
 
+import id.laris.assistant.config.ApplicationProperties;
 import id.laris.assistant.domain.Movies;
-import id.laris.assistant.repository.MovieRepository;
+import id.laris.assistant.repository.EntityFilter;
+import id.laris.assistant.repository.HistoryFilter;
+import id.laris.assistant.repository.KeysetCursor;
+import id.laris.assistant.repository.MovieSqlHelper;
+import id.laris.assistant.service.CountStrategy;
 import id.laris.assistant.service.MovieService;
+import id.laris.assistant.service.RatingService;
+import id.laris.assistant.service.TagService;
 import id.laris.assistant.service.dto.MovieDTO;
+import id.laris.assistant.service.dto.MovieRatingStatsDTO;
+import id.laris.assistant.service.dto.RatingDTO;
+import id.laris.assistant.service.dto.TagDTO;
 import id.laris.assistant.web.rest.errors.BadRequestAlertException;
+import id.laris.assistant.web.rest.util.EntityFilterUtil;
+import id.laris.assistant.web.rest.util.HistoryFilterUtil;
+import id.laris.assistant.web.rest.util.KeysetPaginationUtil;
+import id.laris.assistant.web.rest.util.TotalCountHeaderUtil;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import java.net.URI;
@@ -16,6 +30,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -44,11 +60,22 @@ public class MovieResource {
 
     private final MovieService movieService;
 
-    private final MovieRepository movieRepository;
+    private final RatingService ratingService;
 
-    public MovieResource(MovieService movieService, MovieRepository movieRepository) {
+    private final TagService tagService;
+
+    private final int maxIdsPerRequest;
+
+    public MovieResource(
+        MovieService movieService,
+        RatingService ratingService,
+        TagService tagService,
+        ApplicationProperties applicationProperties
+    ) {
         this.movieService = movieService;
-        this.movieRepository = movieRepository;
+        this.ratingService = ratingService;
+        this.tagService = tagService;
+        this.maxIdsPerRequest = applicationProperties.getPagination().getMaxIdsPerRequest();
     }
 
     /**
@@ -84,6 +111,7 @@ public class MovieResource {
      * @param movieDTO the moviesDTO to update.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated moviesDTO,
      * or with status {@code 400 (Bad Request)} if the moviesDTO is not valid,
+     * or with status {@code 404 (Not Found)} if the moviesDTO is not found,
      * or with status {@code 500 (Internal Server Error)} if the moviesDTO couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
@@ -100,22 +128,14 @@ public class MovieResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        return movieRepository
-            .existsById(id)
-            .flatMap(exists -> {
-                if (!exists) {
-                    return Mono.error(new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound"));
-                }
-
-                return movieService
-                    .update(movieDTO)
-                    .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
-                    .map(result ->
-                        ResponseEntity.ok()
-                            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
-                            .body(result)
-                    );
-            });
+        return movieService
+            .update(movieDTO)
+            .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
+            .map(result ->
+                ResponseEntity.ok()
+                    .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
+                    .body(result)
+            );
     }
 
     /**
@@ -142,41 +162,198 @@ public class MovieResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        return movieRepository
-            .existsById(id)
-            .flatMap(exists -> {
-                if (!exists) {
-                    return Mono.error(new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound"));
-                }
-
-                Mono<MovieDTO> result = movieService.partialUpdate(movieDTO);
-
-                return result
-                    .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
-                    .map(res ->
-                        ResponseEntity.ok()
-                            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, res.getId().toString()))
-                            .body(res)
-                    );
-            });
+        return movieService
+            .partialUpdate(movieDTO)
+            .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
+            .map(res ->
+                ResponseEntity.ok()
+                    .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, res.getId().toString()))
+                    .body(res)
+            );
     }
 
     /**
      * {@code GET  /movies} : get all the movies.
+     * <p>
+     * The movies can be filtered with {@code property.operator=value} parameters on the indexed columns listed in
+     * {@link MovieSqlHelper#FILTERABLE_COLUMNS}, for example {@code title.startsWith=Toy&genres.contains=Comedy}.
      *
      * @param pageable the pagination information.
      * @param request a {@link ServerHttpRequest} request.
+     * @param count the count strategy of the {@code X-Total-Count} header: exact, cached or estimated.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of movies in body.
      */
     @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<List<MovieDTO>>> getAllMovies(
         @org.springdoc.core.annotations.ParameterObject Pageable pageable,
-        ServerHttpRequest request
+        ServerHttpRequest request,
+        @RequestParam(name = TotalCountHeaderUtil.COUNT_PARAMETER, required = false) String count
     ) {
         LOG.debug("REST request to get a page of Movies");
+        CountStrategy countStrategy = TotalCountHeaderUtil.parseCountStrategy(count, ENTITY_NAME);
+        EntityFilter filter = EntityFilterUtil.parseFilter(request, MovieSqlHelper.FILTERABLE_COLUMNS, ENTITY_NAME);
+        return movieService
+            .countAll(filter, countStrategy)
+            .zipWith(movieService.findAll(filter, pageable).collectList())
+            .map(countWithEntities ->
+                ResponseEntity.ok()
+                    .headers(
+                        PaginationUtil.generatePaginationHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            new PageImpl<>(countWithEntities.getT2(), pageable, countWithEntities.getT1().getCount())
+                        )
+                    )
+                    .headers(TotalCountHeaderUtil.generateTotalCountHttpHeaders(countWithEntities.getT1()))
+                    .body(countWithEntities.getT2())
+            );
+    }
+
+    /**
+     * {@code GET  /movies?after=:cursor} : get a page of the movies in keyset (seek) pagination order.
+     * <p>
+     * Unlike {@link #getAllMovies}, the cost of a page does not grow with its depth, and no total count is computed. The
+     * same filters apply, and are carried over by the link to the next page.
+     *
+     * @param after the opaque cursor of the last seen movies, empty for the first page.
+     * @param pageable the pagination information, the page number is ignored.
+     * @param request a {@link ServerHttpRequest} request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)}, the list of movies in body and the link to the next page in header.
+     */
+    @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE, params = KeysetPaginationUtil.AFTER_PARAMETER)
+    public Mono<ResponseEntity<List<MovieDTO>>> getAllMoviesAfter(
+        @RequestParam(value = KeysetPaginationUtil.AFTER_PARAMETER, required = false) String after,
+        @org.springdoc.core.annotations.ParameterObject Pageable pageable,
+        ServerHttpRequest request
+    ) {
+        LOG.debug("REST request to get a keyset page of Movies : {}", after);
+        EntityFilter filter = EntityFilterUtil.parseFilter(request, MovieSqlHelper.FILTERABLE_COLUMNS, ENTITY_NAME);
+        KeysetCursor cursor;
+        Pageable keysetPageable;
+        try {
+            cursor = KeysetCursor.decode(after);
+            keysetPageable = KeysetCursor.keysetPageable(pageable, cursor, MovieSqlHelper.KEYSET_SORT_PROPERTIES);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "cursorinvalid");
+        }
         return movieService
-            .countAll()
-            .zipWith(movieService.findAll(pageable).collectList())
+            .findAllAfter(filter, cursor, keysetPageable)
+            .collectList()
+            .map(entities ->
+                ResponseEntity.ok()
+                    .headers(
+                        KeysetPaginationUtil.generateKeysetHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            keysetPageable,
+                            entities
+                        )
+                    )
+                    .body(entities)
+            );
+    }
+
+    /**
+     * {@code GET  /movies?ids=:ids} : get the movies of the given ids, with one query at most.
+     *
+     * @param ids the comma separated ids of the movies, at most {@code application.pagination.max-ids-per-request}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of movies in body, in the order of
+     * their first id, the missing ids being skipped, or with status {@code 400 (Bad Request)} if there are too many ids.
+     */
+    @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE, params = "ids")
+    public Mono<ResponseEntity<List<MovieDTO>>> getMoviesByIds(@RequestParam("ids") List<Long> ids) {
+        LOG.debug("REST request to get Movies : {}", ids);
+        return findAllByIds(ids);
+    }
+
+    /**
+     * {@code POST  /movies/_mget} : get the movies of the given ids, with one query at most.
+     * <p>
+     * The same as {@link #getMoviesByIds}, for the lists of ids too long for a URL.
+     *
+     * @param ids the ids of the movies, at most {@code application.pagination.max-ids-per-request}.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of movies in body, in the order of
+     * their first id, the missing ids being skipped, or with status {@code 400 (Bad Request)} if there are too many ids.
+     */
+    @PostMapping(value = "/_mget", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<MovieDTO>>> multiGetMovies(@RequestBody List<Long> ids) {
+        LOG.debug("REST request to get Movies : {}", ids);
+        return findAllByIds(ids);
+    }
+
+    private Mono<ResponseEntity<List<MovieDTO>>> findAllByIds(List<Long> ids) {
+        if (ids.contains(null)) {
+            throw new BadRequestAlertException("A null id was requested", ENTITY_NAME, "idnull");
+        }
+        if (ids.size() > maxIdsPerRequest) {
+            throw new BadRequestAlertException("At most " + maxIdsPerRequest + " ids can be requested at once", ENTITY_NAME, "toomanyids");
+        }
+        if (ids.isEmpty()) {
+            return Mono.just(ResponseEntity.ok(List.of()));
+        }
+        return movieService.findAllByIds(ids).collectList().map(ResponseEntity::ok);
+    }
+
+    /**
+     * {@code GET  /movies/:id/ratings} : get the ratings of the "id" movies, best rated first unless sorted otherwise.
+     *
+     * @param id the id of the movies.
+     * @param from the inclusive lower bound of the timestamp.
+     * @param to the exclusive upper bound of the timestamp.
+     * @param minRating the inclusive lower bound of the rating.
+     * @param pageable the pagination information.
+     * @param request a {@link ServerHttpRequest} request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of ratings in body,
+     * or with status {@code 400 (Bad Request)} if the time range is empty.
+     */
+    @GetMapping(value = "/{id}/ratings", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<RatingDTO>>> getMoviesRatings(
+        @PathVariable("id") Long id,
+        @RequestParam(name = "from", required = false) Long from,
+        @RequestParam(name = "to", required = false) Long to,
+        @RequestParam(name = "minRating", required = false) Double minRating,
+        @org.springdoc.core.annotations.ParameterObject @PageableDefault(sort = "rating", direction = Sort.Direction.DESC) Pageable pageable,
+        ServerHttpRequest request
+    ) {
+        LOG.debug("REST request to get the Ratings of Movies : {}", id);
+        HistoryFilter filter = HistoryFilterUtil.historyFilter(from, to, minRating, ENTITY_NAME);
+        return ratingService
+            .countByMovie(id, filter)
+            .zipWith(ratingService.findAllByMovie(id, filter, pageable).collectList())
+            .map(countWithEntities ->
+                ResponseEntity.ok()
+                    .headers(
+                        PaginationUtil.generatePaginationHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            new PageImpl<>(countWithEntities.getT2(), pageable, countWithEntities.getT1())
+                        )
+                    )
+                    .body(countWithEntities.getT2())
+            );
+    }
+
+    /**
+     * {@code GET  /movies/:id/tags} : get the tags of the "id" movies, most recent first unless sorted otherwise.
+     *
+     * @param id the id of the movies.
+     * @param from the inclusive lower bound of the timestamp.
+     * @param to the exclusive upper bound of the timestamp.
+     * @param pageable the pagination information.
+     * @param request a {@link ServerHttpRequest} request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of tags in body,
+     * or with status {@code 400 (Bad Request)} if the time range is empty.
+     */
+    @GetMapping(value = "/{id}/tags", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<TagDTO>>> getMoviesTags(
+        @PathVariable("id") Long id,
+        @RequestParam(name = "from", required = false) Long from,
+        @RequestParam(name = "to", required = false) Long to,
+        @org.springdoc.core.annotations.ParameterObject @PageableDefault(sort = "timestamp", direction = Sort.Direction.DESC) Pageable pageable,
+        ServerHttpRequest request
+    ) {
+        LOG.debug("REST request to get the Tags of Movies : {}", id);
+        HistoryFilter filter = HistoryFilterUtil.historyFilter(from, to, null, ENTITY_NAME);
+        return tagService
+            .countByMovie(id, filter)
+            .zipWith(tagService.findAllByMovie(id, filter, pageable).collectList())
             .map(countWithEntities ->
                 ResponseEntity.ok()
                     .headers(
@@ -202,6 +379,19 @@ public class MovieResource {
         return ResponseUtil.wrapOrNotFound(moviesDTO);
     }
 
+    /**
+     * {@code GET  /movies/:id/stats} : get the rating aggregates of the "id" movies.
+     *
+     * @param id the id of the movie.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the count, sum, sum of squares,
+     * average, standard deviation and histogram of the ratings, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/{id}/stats")
+    public Mono<ResponseEntity<MovieRatingStatsDTO>> getMovieRatingStats(@PathVariable("id") Long id) {
+        LOG.debug("REST request to get the rating stats of Movies : {}", id);
+        return ResponseUtil.wrapOrNotFound(movieService.findRatingStats(id));
+    }
+
     /**
      * {@code DELETE  /movies/:id} : delete the "id" movies.
      *
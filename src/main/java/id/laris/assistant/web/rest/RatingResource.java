@@ -1,10 +1,19 @@
 package id.laris.assistant.web.rest;
 
+import id.laris.assistant.domain.HalfStarRating;
 import id.laris.assistant.domain.Ratings;
-import id.laris.assistant.repository.RatingRepository;
+import id.laris.assistant.repository.EntityFilter;
+import id.laris.assistant.repository.KeysetCursor;
+import id.laris.assistant.repository.RatingSqlHelper;
+import id.laris.assistant.service.CountStrategy;
 import id.laris.assistant.service.RatingService;
+import id.laris.assistant.service.dto.BulkChunkResultDTO;
 import id.laris.assistant.service.dto.RatingDTO;
+import id.laris.assistant.service.dto.RatingExportDTO;
 import id.laris.assistant.web.rest.errors.BadRequestAlertException;
+import id.laris.assistant.web.rest.util.EntityFilterUtil;
+import id.laris.assistant.web.rest.util.KeysetPaginationUtil;
+import id.laris.assistant.web.rest.util.TotalCountHeaderUtil;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import java.net.URI;
@@ -23,6 +32,7 @@ import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.ForwardedHeaderUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -44,11 +54,8 @@ public class RatingResource {
 
     private final RatingService ratingService;
 
-    private final RatingRepository ratingRepository;
-
-    public RatingResource(RatingService ratingService, RatingRepository ratingRepository) {
+    public RatingResource(RatingService ratingService) {
         this.ratingService = ratingService;
-        this.ratingRepository = ratingRepository;
     }
 
     /**
@@ -77,6 +84,25 @@ public class RatingResource {
             });
     }
 
+    /**
+     * {@code POST  /ratings/_bulk} : Create new ratings in bulk.
+     * <p>
+     * The body is read as a stream, either a JSON array or NDJSON, and the ratings are inserted by chunks; an invalid ratings
+     * is reported in the result of its chunk instead of failing the request.
+     *
+     * @param ratingDTOs the ratingsDTOs to create, without ids.
+     * @return the {@link Flux} of the chunk results, streamed as a JSON array or NDJSON.
+     */
+    @PostMapping(
+        value = "/_bulk",
+        consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE },
+        produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE }
+    )
+    public Flux<BulkChunkResultDTO> createRatingsInBulk(@RequestBody Flux<RatingDTO> ratingDTOs) {
+        LOG.debug("REST request to save Ratings in bulk");
+        return ratingService.saveAll(ratingDTOs);
+    }
+
     /**
      * {@code PUT  /ratings/:id} : Updates an existing ratings.
      *
@@ -84,6 +110,7 @@ public class RatingResource {
      * @param ratingDTO the ratingsDTO to update.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated ratingsDTO,
      * or with status {@code 400 (Bad Request)} if the ratingsDTO is not valid,
+     * or with status {@code 404 (Not Found)} if the ratingsDTO is not found,
      * or with status {@code 500 (Internal Server Error)} if the ratingsDTO couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
@@ -100,22 +127,14 @@ public class RatingResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        return ratingRepository
-            .existsById(id)
-            .flatMap(exists -> {
-                if (!exists) {
-                    return Mono.error(new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound"));
-                }
-
-                return ratingService
-                    .update(ratingDTO)
-                    .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
-                    .map(result ->
-                        ResponseEntity.ok()
-                            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
-                            .body(result)
-                    );
-            });
+        return ratingService
+            .update(ratingDTO)
+            .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
+            .map(result ->
+                ResponseEntity.ok()
+                    .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
+                    .body(result)
+            );
     }
 
     /**
@@ -141,64 +160,133 @@ public class RatingResource {
         if (!Objects.equals(id, ratingDTO.getId())) {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
+        // the body is not validated as a whole, its null fields being the ones left unchanged
+        if (ratingDTO.getRating() != null && !HalfStarRating.isHalfStars(ratingDTO.getRating())) {
+            throw new BadRequestAlertException("A rating must be a multiple of 0.5", ENTITY_NAME, "ratinginvalid");
+        }
 
-        return ratingRepository
-            .existsById(id)
-            .flatMap(exists -> {
-                if (!exists) {
-                    return Mono.error(new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound"));
-                }
-
-                Mono<RatingDTO> result = ratingService.partialUpdate(ratingDTO);
-
-                return result
-                    .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
-                    .map(res ->
-                        ResponseEntity.ok()
-                            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, res.getId().toString()))
-                            .body(res)
-                    );
-            });
+        return ratingService
+            .partialUpdate(ratingDTO)
+            .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
+            .map(res ->
+                ResponseEntity.ok()
+                    .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, res.getId().toString()))
+                    .body(res)
+            );
     }
 
     /**
      * {@code GET  /ratings} : get all the ratings.
+     * <p>
+     * The ratings can be filtered with {@code property.operator=value} parameters on the indexed columns listed in
+     * {@link RatingSqlHelper#FILTERABLE_COLUMNS}, for example {@code movieId.equals=1&rating.greaterThan=3.5}.
      *
      * @param pageable the pagination information.
      * @param request a {@link ServerHttpRequest} request.
+     * @param eagerload flag to expand the users and movies, only their ids are returned otherwise.
+     * @param count the count strategy of the {@code X-Total-Count} header: exact, cached or estimated.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of ratings in body.
      */
     @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<List<RatingDTO>>> getAllRatings(
         @org.springdoc.core.annotations.ParameterObject Pageable pageable,
-        ServerHttpRequest request
+        ServerHttpRequest request,
+        @RequestParam(name = "eagerload", required = false, defaultValue = "false") boolean eagerload,
+        @RequestParam(name = TotalCountHeaderUtil.COUNT_PARAMETER, required = false) String count
     ) {
         LOG.debug("REST request to get a page of Ratings");
+        EntityFilter filter = EntityFilterUtil.parseFilter(request, RatingSqlHelper.FILTERABLE_COLUMNS, ENTITY_NAME);
+        Flux<RatingDTO> ratings = eagerload
+            ? ratingService.findAllWithEagerRelationships(filter, pageable)
+            : ratingService.findAll(filter, pageable);
+        CountStrategy countStrategy = TotalCountHeaderUtil.parseCountStrategy(count, ENTITY_NAME);
         return ratingService
-            .countAll()
-            .zipWith(ratingService.findAll(pageable).collectList())
+            .countAll(filter, countStrategy)
+            .zipWith(ratings.collectList())
             .map(countWithEntities ->
                 ResponseEntity.ok()
                     .headers(
                         PaginationUtil.generatePaginationHttpHeaders(
                             ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
-                            new PageImpl<>(countWithEntities.getT2(), pageable, countWithEntities.getT1())
+                            new PageImpl<>(countWithEntities.getT2(), pageable, countWithEntities.getT1().getCount())
                         )
                     )
+                    .headers(TotalCountHeaderUtil.generateTotalCountHttpHeaders(countWithEntities.getT1()))
                     .body(countWithEntities.getT2())
             );
     }
 
+    /**
+     * {@code GET  /ratings?after=:cursor} : get a page of the ratings in keyset (seek) pagination order.
+     * <p>
+     * Unlike {@link #getAllRatings}, the cost of a page does not grow with its depth, and no total count is computed. The
+     * same filters apply, and are carried over by the link to the next page.
+     *
+     * @param after the opaque cursor of the last seen ratings, empty for the first page.
+     * @param pageable the pagination information, the page number is ignored.
+     * @param request a {@link ServerHttpRequest} request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)}, the list of ratings in body and the link to the next page in header.
+     */
+    @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE, params = KeysetPaginationUtil.AFTER_PARAMETER)
+    public Mono<ResponseEntity<List<RatingDTO>>> getAllRatingsAfter(
+        @RequestParam(value = KeysetPaginationUtil.AFTER_PARAMETER, required = false) String after,
+        @org.springdoc.core.annotations.ParameterObject Pageable pageable,
+        ServerHttpRequest request
+    ) {
+        LOG.debug("REST request to get a keyset page of Ratings : {}", after);
+        EntityFilter filter = EntityFilterUtil.parseFilter(request, RatingSqlHelper.FILTERABLE_COLUMNS, ENTITY_NAME);
+        KeysetCursor cursor;
+        Pageable keysetPageable;
+        try {
+            cursor = KeysetCursor.decode(after);
+            keysetPageable = KeysetCursor.keysetPageable(pageable, cursor, RatingSqlHelper.KEYSET_SORT_PROPERTIES);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "cursorinvalid");
+        }
+        return ratingService
+            .findAllAfter(filter, cursor, keysetPageable)
+            .collectList()
+            .map(entities ->
+                ResponseEntity.ok()
+                    .headers(
+                        KeysetPaginationUtil.generateKeysetHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            keysetPageable,
+                            entities
+                        )
+                    )
+                    .body(entities)
+            );
+    }
+
+    /**
+     * {@code GET  /ratings/_export} : Stream all the ratings, ordered by id.
+     * <p>
+     * The ratings are written as NDJSON or server-sent events as they are read from the database, and read only as fast as
+     * the client consumes them, so the whole table can be exported without paging through it.
+     *
+     * @return the {@link Flux} of the flat ratings rows.
+     */
+    @GetMapping(value = "/_export", produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+    public Flux<RatingExportDTO> exportRatings() {
+        LOG.debug("REST request to export all Ratings");
+        return ratingService.exportAll();
+    }
+
     /**
      * {@code GET  /ratings/:id} : get the "id" ratings.
      *
      * @param id the id of the ratingsDTO to retrieve.
+     * @param eagerload flag to expand the users and movies, only their ids are returned otherwise; ignored when filtering.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the ratingsDTO, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/{id}")
-    public Mono<ResponseEntity<RatingDTO>> getRatings(@PathVariable("id") Long id) {
+    public Mono<ResponseEntity<RatingDTO>> getRatings(
+        @PathVariable("id") Long id,
+        @RequestParam(name = "eagerload", required = false, defaultValue = "false") boolean eagerload
+    ) {
         LOG.debug("REST request to get Ratings : {}", id);
-        Mono<RatingDTO> ratingsDTO = ratingService.findOne(id);
+        Mono<RatingDTO> ratingsDTO = eagerload ? ratingService.findOneWithEagerRelationships(id) : ratingService.findOne(id);
         return ResponseUtil.wrapOrNotFound(ratingsDTO);
     }
 
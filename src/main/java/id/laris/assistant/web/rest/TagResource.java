@@ -1,10 +1,18 @@
 package id.laris.assistant.web.rest;
 
 import id.laris.assistant.domain.Tags;
-import id.laris.assistant.repository.TagRepository;
+import id.laris.assistant.repository.EntityFilter;
+import id.laris.assistant.repository.KeysetCursor;
+import id.laris.assistant.repository.TagSqlHelper;
+import id.laris.assistant.service.CountStrategy;
 import id.laris.assistant.service.TagService;
+import id.laris.assistant.service.dto.BulkChunkResultDTO;
 import id.laris.assistant.service.dto.TagDTO;
+import id.laris.assistant.service.dto.TagExportDTO;
 import id.laris.assistant.web.rest.errors.BadRequestAlertException;
+import id.laris.assistant.web.rest.util.EntityFilterUtil;
+import id.laris.assistant.web.rest.util.KeysetPaginationUtil;
+import id.laris.assistant.web.rest.util.TotalCountHeaderUtil;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import java.net.URI;
@@ -23,6 +31,7 @@ import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.ForwardedHeaderUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import tech.jhipster.web.util.HeaderUtil;
 import tech.jhipster.web.util.PaginationUtil;
@@ -44,11 +53,8 @@ public class TagResource {
 
     private final TagService tagService;
 
-    private final TagRepository tagRepository;
-
-    public TagResource(TagService tagService, TagRepository tagRepository) {
+    public TagResource(TagService tagService) {
         this.tagService = tagService;
-        this.tagRepository = tagRepository;
     }
 
     /**
@@ -77,6 +83,25 @@ public class TagResource {
             });
     }
 
+    /**
+     * {@code POST  /tags/_bulk} : Create new tags in bulk.
+     * <p>
+     * The body is read as a stream, either a JSON array or NDJSON, and the tags are inserted by chunks; an invalid tags
+     * is reported in the result of its chunk instead of failing the request.
+     *
+     * @param tagDTOs the tagsDTOs to create, without ids.
+     * @return the {@link Flux} of the chunk results, streamed as a JSON array or NDJSON.
+     */
+    @PostMapping(
+        value = "/_bulk",
+        consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE },
+        produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE }
+    )
+    public Flux<BulkChunkResultDTO> createTagsInBulk(@RequestBody Flux<TagDTO> tagDTOs) {
+        LOG.debug("REST request to save Tags in bulk");
+        return tagService.saveAll(tagDTOs);
+    }
+
     /**
      * {@code PUT  /tags/:id} : Updates an existing tags.
      *
@@ -84,6 +109,7 @@ public class TagResource {
      * @param tagDTO the tagsDTO to update.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated tagsDTO,
      * or with status {@code 400 (Bad Request)} if the tagsDTO is not valid,
+     * or with status {@code 404 (Not Found)} if the tagsDTO is not found,
      * or with status {@code 500 (Internal Server Error)} if the tagsDTO couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
@@ -100,22 +126,14 @@ public class TagResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        return tagRepository
-            .existsById(id)
-            .flatMap(exists -> {
-                if (!exists) {
-                    return Mono.error(new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound"));
-                }
-
-                return tagService
-                    .update(tagDTO)
-                    .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
-                    .map(result ->
-                        ResponseEntity.ok()
-                            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
-                            .body(result)
-                    );
-            });
+        return tagService
+            .update(tagDTO)
+            .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
+            .map(result ->
+                ResponseEntity.ok()
+                    .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
+                    .body(result)
+            );
     }
 
     /**
@@ -142,63 +160,128 @@ public class TagResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        return tagRepository
-            .existsById(id)
-            .flatMap(exists -> {
-                if (!exists) {
-                    return Mono.error(new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound"));
-                }
-
-                Mono<TagDTO> result = tagService.partialUpdate(tagDTO);
-
-                return result
-                    .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
-                    .map(res ->
-                        ResponseEntity.ok()
-                            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, res.getId().toString()))
-                            .body(res)
-                    );
-            });
+        return tagService
+            .partialUpdate(tagDTO)
+            .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
+            .map(res ->
+                ResponseEntity.ok()
+                    .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, res.getId().toString()))
+                    .body(res)
+            );
     }
 
     /**
      * {@code GET  /tags} : get all the tags.
+     * <p>
+     * The tags can be filtered with {@code property.operator=value} parameters on the indexed columns listed in
+     * {@link TagSqlHelper#FILTERABLE_COLUMNS}, for example {@code userId.equals=2&timestamp.between=1445714994,1445715000}.
      *
      * @param pageable the pagination information.
      * @param request a {@link ServerHttpRequest} request.
+     * @param eagerload flag to expand the users and movies, only their ids are returned otherwise.
+     * @param count the count strategy of the {@code X-Total-Count} header: exact, cached or estimated.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of tags in body.
      */
     @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<List<TagDTO>>> getAllTags(
         @org.springdoc.core.annotations.ParameterObject Pageable pageable,
-        ServerHttpRequest request
+        ServerHttpRequest request,
+        @RequestParam(name = "eagerload", required = false, defaultValue = "false") boolean eagerload,
+        @RequestParam(name = TotalCountHeaderUtil.COUNT_PARAMETER, required = false) String count
     ) {
         LOG.debug("REST request to get a page of Tags");
+        EntityFilter filter = EntityFilterUtil.parseFilter(request, TagSqlHelper.FILTERABLE_COLUMNS, ENTITY_NAME);
+        Flux<TagDTO> tags = eagerload
+            ? tagService.findAllWithEagerRelationships(filter, pageable)
+            : tagService.findAll(filter, pageable);
+        CountStrategy countStrategy = TotalCountHeaderUtil.parseCountStrategy(count, ENTITY_NAME);
         return tagService
-            .countAll()
-            .zipWith(tagService.findAll(pageable).collectList())
+            .countAll(filter, countStrategy)
+            .zipWith(tags.collectList())
             .map(countWithEntities ->
                 ResponseEntity.ok()
                     .headers(
                         PaginationUtil.generatePaginationHttpHeaders(
                             ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
-                            new PageImpl<>(countWithEntities.getT2(), pageable, countWithEntities.getT1())
+                            new PageImpl<>(countWithEntities.getT2(), pageable, countWithEntities.getT1().getCount())
                         )
                     )
+                    .headers(TotalCountHeaderUtil.generateTotalCountHttpHeaders(countWithEntities.getT1()))
                     .body(countWithEntities.getT2())
             );
     }
 
+    /**
+     * {@code GET  /tags?after=:cursor} : get a page of the tags in keyset (seek) pagination order.
+     * <p>
+     * Unlike {@link #getAllTags}, the cost of a page does not grow with its depth, and no total count is computed. The
+     * same filters apply, and are carried over by the link to the next page.
+     *
+     * @param after the opaque cursor of the last seen tags, empty for the first page.
+     * @param pageable the pagination information, the page number is ignored.
+     * @param request a {@link ServerHttpRequest} request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)}, the list of tags in body and the link to the next page in header.
+     */
+    @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE, params = KeysetPaginationUtil.AFTER_PARAMETER)
+    public Mono<ResponseEntity<List<TagDTO>>> getAllTagsAfter(
+        @RequestParam(value = KeysetPaginationUtil.AFTER_PARAMETER, required = false) String after,
+        @org.springdoc.core.annotations.ParameterObject Pageable pageable,
+        ServerHttpRequest request
+    ) {
+        LOG.debug("REST request to get a keyset page of Tags : {}", after);
+        EntityFilter filter = EntityFilterUtil.parseFilter(request, TagSqlHelper.FILTERABLE_COLUMNS, ENTITY_NAME);
+        KeysetCursor cursor;
+        Pageable keysetPageable;
+        try {
+            cursor = KeysetCursor.decode(after);
+            keysetPageable = KeysetCursor.keysetPageable(pageable, cursor, TagSqlHelper.KEYSET_SORT_PROPERTIES);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "cursorinvalid");
+        }
+        return tagService
+            .findAllAfter(filter, cursor, keysetPageable)
+            .collectList()
+            .map(entities ->
+                ResponseEntity.ok()
+                    .headers(
+                        KeysetPaginationUtil.generateKeysetHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            keysetPageable,
+                            entities
+                        )
+                    )
+                    .body(entities)
+            );
+    }
+
+    /**
+     * {@code GET  /tags/_export} : Stream all the tags, ordered by id.
+     * <p>
+     * The tags are written as NDJSON or server-sent events as they are read from the database, and read only as fast as
+     * the client consumes them, so the whole table can be exported without paging through it.
+     *
+     * @return the {@link Flux} of the flat tags rows.
+     */
+    @GetMapping(value = "/_export", produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+    public Flux<TagExportDTO> exportTags() {
+        LOG.debug("REST request to export all Tags");
+        return tagService.exportAll();
+    }
+
     /**
      * {@code GET  /tags/:id} : get the "id" tags.
      *
      * @param id the id of the tagsDTO to retrieve.
+     * @param eagerload flag to expand the users and movies, only their ids are returned otherwise; ignored when filtering.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the tagsDTO, or with status {@code 404 (Not Found)}.
      */
     @GetMapping("/{id}")
-    public Mono<ResponseEntity<TagDTO>> getTags(@PathVariable("id") Long id) {
+    public Mono<ResponseEntity<TagDTO>> getTags(
+        @PathVariable("id") Long id,
+        @RequestParam(name = "eagerload", required = false, defaultValue = "false") boolean eagerload
+    ) {
         LOG.debug("REST request to get Tags : {}", id);
-        Mono<TagDTO> tagsDTO = tagService.findOne(id);
+        Mono<TagDTO> tagsDTO = eagerload ? tagService.findOneWithEagerRelationships(id) : tagService.findOne(id);
         return ResponseUtil.wrapOrNotFound(tagsDTO);
     }
 
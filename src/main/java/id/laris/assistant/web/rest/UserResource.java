@@ -1,10 +1,24 @@
 package id.laris.assistant.web.rest;
 
 import id.laris.assistant.domain.Users;
-import id.laris.assistant.repository.UserRepository;
+import id.laris.assistant.repository.EntityFilter;
+import id.laris.assistant.repository.HistoryFilter;
+import id.laris.assistant.repository.KeysetCursor;
+import id.laris.assistant.repository.UserSqlHelper;
+import id.laris.assistant.service.CountStrategy;
+import id.laris.assistant.service.RatingService;
+import id.laris.assistant.service.TagService;
 import id.laris.assistant.service.UserService;
+import id.laris.assistant.service.dto.RatingDTO;
+import id.laris.assistant.service.dto.RatingValueDTO;
+import id.laris.assistant.service.dto.TagDTO;
 import id.laris.assistant.service.dto.UserDTO;
 import id.laris.assistant.web.rest.errors.BadRequestAlertException;
+import id.laris.assistant.web.rest.util.EntityFilterUtil;
+import id.laris.assistant.web.rest.util.HistoryFilterUtil;
+import id.laris.assistant.web.rest.util.KeysetPaginationUtil;
+import id.laris.assistant.web.rest.util.TotalCountHeaderUtil;
+import io.r2dbc.postgresql.api.PostgresqlException;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import java.net.URI;
@@ -14,8 +28,12 @@ import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -39,16 +57,25 @@ public class UserResource {
 
     private static final String ENTITY_NAME = "larisChatbotAssistantUsers";
 
+    private static final String RATING_ENTITY_NAME = "larisChatbotAssistantRatings";
+
+    private static final String RATINGS_USER_FOREIGN_KEY = "fk_ratings__user_id";
+
+    private static final String RATINGS_MOVIE_FOREIGN_KEY = "fk_ratings__movie_id";
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
     private final UserService userService;
 
-    private final UserRepository userRepository;
+    private final RatingService ratingService;
 
-    public UserResource(UserService userService, UserRepository userRepository) {
+    private final TagService tagService;
+
+    public UserResource(UserService userService, RatingService ratingService, TagService tagService) {
         this.userService = userService;
-        this.userRepository = userRepository;
+        this.ratingService = ratingService;
+        this.tagService = tagService;
     }
 
     /**
@@ -84,6 +111,7 @@ public class UserResource {
      * @param userDTO the usersDTO to update.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the updated usersDTO,
      * or with status {@code 400 (Bad Request)} if the usersDTO is not valid,
+     * or with status {@code 404 (Not Found)} if the usersDTO is not found,
      * or with status {@code 500 (Internal Server Error)} if the usersDTO couldn't be updated.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
@@ -100,22 +128,14 @@ public class UserResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        return userRepository
-            .existsById(id)
-            .flatMap(exists -> {
-                if (!exists) {
-                    return Mono.error(new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound"));
-                }
-
-                return userService
-                    .update(userDTO)
-                    .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
-                    .map(result ->
-                        ResponseEntity.ok()
-                            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
-                            .body(result)
-                    );
-            });
+        return userService
+            .update(userDTO)
+            .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
+            .map(result ->
+                ResponseEntity.ok()
+                    .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, result.getId().toString()))
+                    .body(result)
+            );
     }
 
     /**
@@ -142,41 +162,206 @@ public class UserResource {
             throw new BadRequestAlertException("Invalid ID", ENTITY_NAME, "idinvalid");
         }
 
-        return userRepository
-            .existsById(id)
-            .flatMap(exists -> {
-                if (!exists) {
-                    return Mono.error(new BadRequestAlertException("Entity not found", ENTITY_NAME, "idnotfound"));
-                }
-
-                Mono<UserDTO> result = userService.partialUpdate(userDTO);
-
-                return result
-                    .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
-                    .map(res ->
-                        ResponseEntity.ok()
-                            .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, res.getId().toString()))
-                            .body(res)
-                    );
-            });
+        return userService
+            .partialUpdate(userDTO)
+            .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
+            .map(res ->
+                ResponseEntity.ok()
+                    .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, ENTITY_NAME, res.getId().toString()))
+                    .body(res)
+            );
     }
 
     /**
      * {@code GET  /users} : get all the users.
+     * <p>
+     * The users can be filtered with {@code property.operator=value} parameters on the indexed columns listed in
+     * {@link UserSqlHelper#FILTERABLE_COLUMNS}, for example {@code id.in=1,2,3}.
      *
      * @param pageable the pagination information.
      * @param request a {@link ServerHttpRequest} request.
+     * @param count the count strategy of the {@code X-Total-Count} header: exact, cached or estimated.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of users in body.
      */
     @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
     public Mono<ResponseEntity<List<UserDTO>>> getAllUsers(
         @org.springdoc.core.annotations.ParameterObject Pageable pageable,
-        ServerHttpRequest request
+        ServerHttpRequest request,
+        @RequestParam(name = TotalCountHeaderUtil.COUNT_PARAMETER, required = false) String count
     ) {
         LOG.debug("REST request to get a page of Users");
+        CountStrategy countStrategy = TotalCountHeaderUtil.parseCountStrategy(count, ENTITY_NAME);
+        EntityFilter filter = EntityFilterUtil.parseFilter(request, UserSqlHelper.FILTERABLE_COLUMNS, ENTITY_NAME);
+        return userService
+            .countAll(filter, countStrategy)
+            .zipWith(userService.findAll(filter, pageable).collectList())
+            .map(countWithEntities ->
+                ResponseEntity.ok()
+                    .headers(
+                        PaginationUtil.generatePaginationHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            new PageImpl<>(countWithEntities.getT2(), pageable, countWithEntities.getT1().getCount())
+                        )
+                    )
+                    .headers(TotalCountHeaderUtil.generateTotalCountHttpHeaders(countWithEntities.getT1()))
+                    .body(countWithEntities.getT2())
+            );
+    }
+
+    /**
+     * {@code GET  /users?after=:cursor} : get a page of the users in keyset (seek) pagination order.
+     * <p>
+     * Unlike {@link #getAllUsers}, the cost of a page does not grow with its depth, and no total count is computed. The
+     * same filters apply, and are carried over by the link to the next page.
+     *
+     * @param after the opaque cursor of the last seen users, empty for the first page.
+     * @param pageable the pagination information, the page number is ignored.
+     * @param request a {@link ServerHttpRequest} request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)}, the list of users in body and the link to the next page in header.
+     */
+    @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE, params = KeysetPaginationUtil.AFTER_PARAMETER)
+    public Mono<ResponseEntity<List<UserDTO>>> getAllUsersAfter(
+        @RequestParam(value = KeysetPaginationUtil.AFTER_PARAMETER, required = false) String after,
+        @org.springdoc.core.annotations.ParameterObject Pageable pageable,
+        ServerHttpRequest request
+    ) {
+        LOG.debug("REST request to get a keyset page of Users : {}", after);
+        EntityFilter filter = EntityFilterUtil.parseFilter(request, UserSqlHelper.FILTERABLE_COLUMNS, ENTITY_NAME);
+        KeysetCursor cursor;
+        Pageable keysetPageable;
+        try {
+            cursor = KeysetCursor.decode(after);
+            keysetPageable = KeysetCursor.keysetPageable(pageable, cursor, UserSqlHelper.KEYSET_SORT_PROPERTIES);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), ENTITY_NAME, "cursorinvalid");
+        }
         return userService
-            .countAll()
-            .zipWith(userService.findAll(pageable).collectList())
+            .findAllAfter(filter, cursor, keysetPageable)
+            .collectList()
+            .map(entities ->
+                ResponseEntity.ok()
+                    .headers(
+                        KeysetPaginationUtil.generateKeysetHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            keysetPageable,
+                            entities
+                        )
+                    )
+                    .body(entities)
+            );
+    }
+
+    /**
+     * {@code GET  /users/:id/ratings} : get the ratings of the "id" users, most recent first unless sorted otherwise.
+     *
+     * @param id the id of the users.
+     * @param from the inclusive lower bound of the timestamp.
+     * @param to the exclusive upper bound of the timestamp.
+     * @param minRating the inclusive lower bound of the rating.
+     * @param pageable the pagination information.
+     * @param request a {@link ServerHttpRequest} request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of ratings in body,
+     * or with status {@code 400 (Bad Request)} if the time range is empty.
+     */
+    @GetMapping(value = "/{id}/ratings", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<RatingDTO>>> getUsersRatings(
+        @PathVariable("id") Long id,
+        @RequestParam(name = "from", required = false) Long from,
+        @RequestParam(name = "to", required = false) Long to,
+        @RequestParam(name = "minRating", required = false) Double minRating,
+        @org.springdoc.core.annotations.ParameterObject @PageableDefault(sort = "timestamp", direction = Sort.Direction.DESC) Pageable pageable,
+        ServerHttpRequest request
+    ) {
+        LOG.debug("REST request to get the Ratings of Users : {}", id);
+        HistoryFilter filter = HistoryFilterUtil.historyFilter(from, to, minRating, ENTITY_NAME);
+        return ratingService
+            .countByUser(id, filter)
+            .zipWith(ratingService.findAllByUser(id, filter, pageable).collectList())
+            .map(countWithEntities ->
+                ResponseEntity.ok()
+                    .headers(
+                        PaginationUtil.generatePaginationHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            new PageImpl<>(countWithEntities.getT2(), pageable, countWithEntities.getT1())
+                        )
+                    )
+                    .body(countWithEntities.getT2())
+            );
+    }
+
+    /**
+     * {@code PUT  /users/:id/movies/:movieId/rating} : Rates the "movieId" movies for the "id" users, replacing the rating
+     * they already gave it.
+     * <p>
+     * The status tells whether the rating was inserted or updated, for the callers which maintain aggregates incrementally.
+     * With {@code application.write-behind.enabled}, the rating is queued and written with the next batch instead, unless
+     * the client needs to read it back right away and asks for a synchronous write.
+     *
+     * @param id the id of the users.
+     * @param movieId the id of the movies.
+     * @param sync flag to write the rating before answering, even with the write-behind enabled.
+     * @param ratingValueDTO the rating, and its timestamp which defaults to now.
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)} if the rating was queued,
+     * or with status {@code 429 (Too Many Requests)} if the queue is full,
+     * or with status {@code 201 (Created)} and with body the new ratingsDTO if the movies was not rated yet,
+     * or with status {@code 200 (OK)} and with body the updated ratingsDTO if it was,
+     * or with status {@code 400 (Bad Request)} if the rating is not valid,
+     * or with status {@code 404 (Not Found)} if the users or the movies is not found.
+     */
+    @PutMapping("/{id}/movies/{movieId}/rating")
+    public Mono<ResponseEntity<RatingDTO>> rateMovie(
+        @PathVariable("id") Long id,
+        @PathVariable("movieId") Long movieId,
+        @RequestParam(name = "sync", required = false, defaultValue = "false") boolean sync,
+        @Valid @RequestBody RatingValueDTO ratingValueDTO
+    ) {
+        LOG.debug("REST request to rate Movies : {} by Users : {}, {}", movieId, id, ratingValueDTO);
+        if (!sync && ratingService.isWriteBehindEnabled()) {
+            if (!ratingService.rateLater(id, movieId, ratingValueDTO)) {
+                return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").build());
+            }
+            return Mono.just(ResponseEntity.accepted().build());
+        }
+        return ratingService
+            .rate(id, movieId, ratingValueDTO)
+            .onErrorMap(DataIntegrityViolationException.class, UserResource::toRatingError)
+            .map(upserted -> {
+                RatingDTO result = upserted.getEntity();
+                if (upserted.isInserted()) {
+                    return ResponseEntity.created(URI.create("/api/public/movie-ratings/" + result.getId()))
+                        .headers(HeaderUtil.createEntityCreationAlert(applicationName, true, RATING_ENTITY_NAME, result.getId().toString()))
+                        .body(result);
+                }
+                return ResponseEntity.ok()
+                    .headers(HeaderUtil.createEntityUpdateAlert(applicationName, true, RATING_ENTITY_NAME, result.getId().toString()))
+                    .body(result);
+            });
+    }
+
+    /**
+     * {@code GET  /users/:id/tags} : get the tags of the "id" users, most recent first unless sorted otherwise.
+     *
+     * @param id the id of the users.
+     * @param from the inclusive lower bound of the timestamp.
+     * @param to the exclusive upper bound of the timestamp.
+     * @param pageable the pagination information.
+     * @param request a {@link ServerHttpRequest} request.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of tags in body,
+     * or with status {@code 400 (Bad Request)} if the time range is empty.
+     */
+    @GetMapping(value = "/{id}/tags", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<TagDTO>>> getUsersTags(
+        @PathVariable("id") Long id,
+        @RequestParam(name = "from", required = false) Long from,
+        @RequestParam(name = "to", required = false) Long to,
+        @org.springdoc.core.annotations.ParameterObject @PageableDefault(sort = "timestamp", direction = Sort.Direction.DESC) Pageable pageable,
+        ServerHttpRequest request
+    ) {
+        LOG.debug("REST request to get the Tags of Users : {}", id);
+        HistoryFilter filter = HistoryFilterUtil.historyFilter(from, to, null, ENTITY_NAME);
+        return tagService
+            .countByUser(id, filter)
+            .zipWith(tagService.findAllByUser(id, filter, pageable).collectList())
             .map(countWithEntities ->
                 ResponseEntity.ok()
                     .headers(
@@ -189,6 +374,31 @@ public class UserResource {
             );
     }
 
+    /**
+     * Maps the constraint violated by a rating upsert to its status: a missing users or movies is not found, any other
+     * violation, such as the check of the rating range, is a bad request.
+     */
+    private static ResponseStatusException toRatingError(DataIntegrityViolationException e) {
+        String constraint = constraintName(e);
+        if (RATINGS_USER_FOREIGN_KEY.equals(constraint)) {
+            return new ResponseStatusException(HttpStatus.NOT_FOUND, "The users is not found");
+        }
+        if (RATINGS_MOVIE_FOREIGN_KEY.equals(constraint)) {
+            return new ResponseStatusException(HttpStatus.NOT_FOUND, "The movies is not found");
+        }
+        LOG.debug("Rating refused by the constraint {}", constraint, e);
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "The rating is not valid");
+    }
+
+    private static String constraintName(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PostgresqlException postgresqlException) {
+                return postgresqlException.getErrorDetails().getConstraintName().orElse(null);
+            }
+        }
+        return null;
+    }
+
     /**
      * {@code GET  /users/:id} : get the "id" users.
      *
@@ -0,0 +1,32 @@
+package id.laris.assistant.web.rest.util;
+
+import id.laris.assistant.repository.EntityFilter;
+import id.laris.assistant.repository.FilterableColumn;
+import id.laris.assistant.web.rest.errors.BadRequestAlertException;
+import java.util.List;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+/**
+ * Utility class for the {@code property.operator=value} filter parameters of the list endpoints.
+ */
+public final class EntityFilterUtil {
+
+    private EntityFilterUtil() {}
+
+    /**
+     * Parses the filter parameters of a request.
+     *
+     * @param request the request.
+     * @param allowList the filterable columns of the listed entity.
+     * @param entityName the name of the listed entity, for the error message.
+     * @return the filter, {@link EntityFilter#NONE} if the request has no filter parameter.
+     * @throws BadRequestAlertException if a filter parameter is not supported or invalid.
+     */
+    public static EntityFilter parseFilter(ServerHttpRequest request, List<FilterableColumn> allowList, String entityName) {
+        try {
+            return EntityFilter.parse(request.getQueryParams(), allowList);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), entityName, "filterinvalid");
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package id.laris.assistant.web.rest.util;
+
+import id.laris.assistant.repository.HistoryFilter;
+import id.laris.assistant.web.rest.errors.BadRequestAlertException;
+
+/**
+ * Utility class for the {@code from}, {@code to} and {@code minRating} parameters of the history endpoints.
+ */
+public final class HistoryFilterUtil {
+
+    private HistoryFilterUtil() {}
+
+    /**
+     * Creates the filter of a history request.
+     *
+     * @param from the inclusive lower bound of the timestamp, or {@code null}.
+     * @param to the exclusive upper bound of the timestamp, or {@code null}.
+     * @param minRating the inclusive lower bound of the rating, or {@code null}.
+     * @param entityName the name of the entity owning the history, for the error message.
+     * @return the filter.
+     * @throws BadRequestAlertException if the time range is empty, or the minimum rating is not finite.
+     */
+    public static HistoryFilter historyFilter(Long from, Long to, Double minRating, String entityName) {
+        try {
+            return HistoryFilter.of(from, to, minRating);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException(e.getMessage(), entityName, "rangeinvalid");
+        }
+    }
+}
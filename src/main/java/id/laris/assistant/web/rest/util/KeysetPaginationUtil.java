@@ -0,0 +1,58 @@
+package id.laris.assistant.web.rest.util;
+
+import id.laris.assistant.repository.KeysetCursor;
+import java.util.List;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for handling keyset (seek) pagination.
+ *
+ * <p>
+ * The next page is advertised the same way as with {@link tech.jhipster.web.util.PaginationUtil}, through a
+ * {@code Link} header with the {@code next} relation, but it points to the opaque cursor of the last returned row
+ * instead of a page number.
+ */
+public final class KeysetPaginationUtil {
+
+    public static final String AFTER_PARAMETER = "after";
+
+    private static final String HEADER_LINK_FORMAT = "<%s>; rel=\"%s\"";
+
+    private KeysetPaginationUtil() {}
+
+    /**
+     * Generate keyset pagination headers for a slice of DTOs.
+     *
+     * @param uriBuilder a {@link UriComponentsBuilder} of the current request.
+     * @param keysetPageable the page request, as returned by {@link KeysetCursor#keysetPageable(Pageable, KeysetCursor)}.
+     * @param content the returned slice, in keyset order.
+     * @param <T> the type of the DTOs, which must expose the id and the sort property.
+     * @return http header.
+     */
+    public static <T> HttpHeaders generateKeysetHttpHeaders(UriComponentsBuilder uriBuilder, Pageable keysetPageable, List<T> content) {
+        HttpHeaders headers = new HttpHeaders();
+        if (content.isEmpty() || content.size() < keysetPageable.getPageSize()) {
+            return headers;
+        }
+        KeysetCursor next = cursorOf(content.get(content.size() - 1), keysetPageable.getSort());
+        String link = uriBuilder
+            .replaceQueryParam("page")
+            .replaceQueryParam(AFTER_PARAMETER, next.encode())
+            .replaceQueryParam("size", keysetPageable.getPageSize())
+            .toUriString();
+        headers.add(HttpHeaders.LINK, String.format(HEADER_LINK_FORMAT, link, "next"));
+        return headers;
+    }
+
+    private static KeysetCursor cursorOf(Object dto, Sort sort) {
+        BeanWrapper wrapper = PropertyAccessorFactory.forBeanPropertyAccess(dto);
+        String property = sort.iterator().next().getProperty();
+        Long id = (Long) wrapper.getPropertyValue(KeysetCursor.ID_PROPERTY);
+        return KeysetCursor.of(property, wrapper.getPropertyValue(property), id);
+    }
+}
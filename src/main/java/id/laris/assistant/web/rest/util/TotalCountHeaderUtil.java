@@ -0,0 +1,56 @@
+package id.laris.assistant.web.rest.util;
+
+import id.laris.assistant.service.CountStrategy;
+import id.laris.assistant.service.TotalCount;
+import id.laris.assistant.web.rest.errors.BadRequestAlertException;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Utility class for the total count headers of the paginated list endpoints.
+ *
+ * <p>
+ * Next to the {@code X-Total-Count} header of {@link tech.jhipster.web.util.PaginationUtil}, the strategy the count
+ * was computed with is sent in {@code X-Total-Count-Strategy}, and when known, the number of seconds since it was last
+ * computed exactly is sent in {@code X-Total-Count-Age}.
+ */
+public final class TotalCountHeaderUtil {
+
+    public static final String COUNT_PARAMETER = "count";
+
+    public static final String HEADER_X_TOTAL_COUNT_STRATEGY = "X-Total-Count-Strategy";
+
+    public static final String HEADER_X_TOTAL_COUNT_AGE = "X-Total-Count-Age";
+
+    private TotalCountHeaderUtil() {}
+
+    /**
+     * Parses the count strategy requested by the client.
+     *
+     * @param value the value of the {@code count} request parameter, or {@code null}.
+     * @param entityName the name of the listed entity, for the error message.
+     * @return the strategy, or {@code null} for the configured default.
+     * @throws BadRequestAlertException if the value is not a known strategy.
+     */
+    public static CountStrategy parseCountStrategy(String value, String entityName) {
+        try {
+            return CountStrategy.fromValue(value);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("Invalid count strategy", entityName, "countstrategyinvalid");
+        }
+    }
+
+    /**
+     * Generate the staleness headers of a total count.
+     *
+     * @param totalCount the total count.
+     * @return http header.
+     */
+    public static HttpHeaders generateTotalCountHttpHeaders(TotalCount totalCount) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HEADER_X_TOTAL_COUNT_STRATEGY, totalCount.getStrategy().name().toLowerCase());
+        if (totalCount.getAge() != null) {
+            headers.add(HEADER_X_TOTAL_COUNT_AGE, Long.toString(totalCount.getAge().toSeconds()));
+        }
+        return headers;
+    }
+}
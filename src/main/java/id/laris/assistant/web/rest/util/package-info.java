@@ -0,0 +1,4 @@
+/**
+ * Rest layer utilities.
+ */
+package id.laris.assistant.web.rest.util;
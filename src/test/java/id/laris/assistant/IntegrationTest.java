@@ -3,6 +3,7 @@ package id.laris.assistant;
 import id.laris.assistant.config.AsyncSyncConfiguration;
 import id.laris.assistant.config.EmbeddedSQL;
 import id.laris.assistant.config.JacksonConfiguration;
+import id.laris.assistant.config.StatementCountingConfiguration;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -14,7 +15,11 @@ import org.springframework.boot.test.context.SpringBootTest;
  */
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
-@SpringBootTest(classes = { LarisChatbotAssistantApp.class, JacksonConfiguration.class, AsyncSyncConfiguration.class })
+@SpringBootTest(
+    classes = {
+        LarisChatbotAssistantApp.class, JacksonConfiguration.class, AsyncSyncConfiguration.class, StatementCountingConfiguration.class,
+    }
+)
 @EmbeddedSQL
 public @interface IntegrationTest {
     // 5s is Spring's default https://github.com/spring-projects/spring-framework/blob/main/spring-test/src/main/java/org/springframework/test/web/reactive/server/DefaultWebTestClient.java#L106
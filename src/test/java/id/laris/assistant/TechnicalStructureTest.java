@@ -33,6 +33,7 @@ class TechnicalStructureTest {
         .ignoreDependency(belongToAnyOf(LarisChatbotAssistantApp.class), alwaysTrue())
         .ignoreDependency(alwaysTrue(), belongToAnyOf(
             id.laris.assistant.config.Constants.class,
-            id.laris.assistant.config.ApplicationProperties.class
+            id.laris.assistant.config.ApplicationProperties.class,
+            id.laris.assistant.config.RequestDatabaseMetrics.class
         ));
 }
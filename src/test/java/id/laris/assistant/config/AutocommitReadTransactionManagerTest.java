@@ -0,0 +1,71 @@
+package id.laris.assistant.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import id.laris.assistant.service.AutocommitRead;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.interceptor.DefaultTransactionAttribute;
+import reactor.core.publisher.Mono;
+
+/**
+ * Test class for the {@link AutocommitReadTransactionManager}.
+ */
+class AutocommitReadTransactionManagerTest {
+
+    private ReactiveTransactionManager delegate;
+
+    private AutocommitReadTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ReactiveTransactionManager.class);
+        when(delegate.getReactiveTransaction(any())).thenReturn(Mono.empty());
+        transactionManager = new AutocommitReadTransactionManager(delegate);
+    }
+
+    private TransactionDefinition begun(TransactionDefinition definition) {
+        transactionManager.getReactiveTransaction(definition).block();
+        ArgumentCaptor<TransactionDefinition> captor = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(delegate).getReactiveTransaction(captor.capture());
+        return captor.getValue();
+    }
+
+    private static DefaultTransactionAttribute readOnly(String... labels) {
+        DefaultTransactionAttribute attribute = new DefaultTransactionAttribute();
+        attribute.setReadOnly(true);
+        attribute.setLabels(List.of(labels));
+        return attribute;
+    }
+
+    @Test
+    void runsTheAutocommitReadsWithoutATransactionOfTheirOwn() {
+        TransactionDefinition definition = begun(readOnly(AutocommitRead.LABEL));
+
+        assertThat(definition.getPropagationBehavior()).isEqualTo(TransactionDefinition.PROPAGATION_SUPPORTS);
+        assertThat(definition.isReadOnly()).isTrue();
+    }
+
+    @Test
+    void keepsTheTransactionOfTheOtherReads() {
+        DefaultTransactionAttribute attribute = readOnly();
+
+        assertThat(begun(attribute)).isSameAs(attribute);
+    }
+
+    @Test
+    void keepsAnExplicitPropagation() {
+        DefaultTransactionAttribute attribute = readOnly(AutocommitRead.LABEL);
+        attribute.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        assertThat(begun(attribute)).isSameAs(attribute);
+    }
+}
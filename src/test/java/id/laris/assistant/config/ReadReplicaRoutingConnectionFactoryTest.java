@@ -0,0 +1,93 @@
+package id.laris.assistant.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Test class for the {@link ReadReplicaRoutingConnectionFactory}.
+ */
+class ReadReplicaRoutingConnectionFactoryTest {
+
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection firstReplicaConnection = mock(Connection.class);
+    private final Connection secondReplicaConnection = mock(Connection.class);
+
+    private ConnectionFactory secondReplica;
+
+    private ReadReplicaRoutingConnectionFactory connectionFactory;
+
+    @BeforeEach
+    void setUp() {
+        ConnectionFactory primary = connectionFactory(primaryConnection);
+        ConnectionFactory firstReplica = connectionFactory(firstReplicaConnection);
+        secondReplica = connectionFactory(secondReplicaConnection);
+        connectionFactory = new ReadReplicaRoutingConnectionFactory(
+            primary,
+            List.of(firstReplica, secondReplica),
+            Duration.ofSeconds(10),
+            Duration.ofSeconds(5),
+            Duration.ofSeconds(2)
+        );
+    }
+
+    private static ConnectionFactory connectionFactory(Connection connection) {
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        when(connectionFactory.create()).thenAnswer(invocation -> Mono.just(connection));
+        return connectionFactory;
+    }
+
+    private Connection create(boolean readOnly) {
+        return connectionFactory
+            .create()
+            .contextWrite(Context.of(ReadReplicaRoutingConnectionFactory.READ_ONLY_CONTEXT_KEY, readOnly))
+            .block();
+    }
+
+    @Test
+    void shouldUseThePrimaryOutsideOfReadOnlyTransactions() {
+        assertThat(connectionFactory.create().block()).isSameAs(primaryConnection);
+        assertThat(create(false)).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void shouldUseTheReplicasRoundRobinForReadOnlyTransactions() {
+        assertThat(List.of(create(true), create(true), create(true))).containsExactly(
+            firstReplicaConnection,
+            secondReplicaConnection,
+            firstReplicaConnection
+        );
+    }
+
+    @Test
+    void shouldSkipLaggingAndUnreachableReplicas() {
+        connectionFactory.updateHealth(0, true, Duration.ofSeconds(30));
+        assertThat(List.of(create(true), create(true))).containsOnly(secondReplicaConnection);
+
+        connectionFactory.updateHealth(1, false, null);
+        assertThat(create(true)).isSameAs(primaryConnection);
+
+        connectionFactory.updateHealth(0, true, Duration.ofSeconds(1));
+        assertThat(create(true)).isSameAs(firstReplicaConnection);
+    }
+
+    @Test
+    void shouldFallBackToThePrimaryWhenAReplicaRefusesConnections() {
+        when(secondReplica.create()).thenAnswer(invocation -> Mono.error(new IllegalStateException("connection refused")));
+
+        assertThat(List.of(create(true), create(true), create(true))).containsExactly(
+            firstReplicaConnection,
+            primaryConnection,
+            firstReplicaConnection
+        );
+    }
+}
@@ -0,0 +1,66 @@
+package id.laris.assistant.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+/**
+ * Test class for the {@link RequestDatabaseMetricsFilter}.
+ */
+class RequestDatabaseMetricsFilterTest {
+
+    private MeterRegistry meterRegistry;
+
+    private MockServerWebExchange exchange;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/public/ratings/42"));
+    }
+
+    /**
+     * Runs two statements of the request, as the listener of the proxied connections would, and answers.
+     */
+    private WebFilterChain handler() {
+        return exchange ->
+            Mono.deferContextual(context -> {
+                RequestDatabaseMetrics metrics = context.get(RequestDatabaseMetrics.CONTEXT_KEY);
+                metrics.recordStatement(Duration.ofMillis(2), 0);
+                metrics.recordStatement(Duration.ofMillis(3), 20);
+                exchange.getAttributes().put(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, PathPatternParser.defaultInstance.parse("/api/public/ratings/{id}"));
+                return exchange.getResponse().setComplete();
+            });
+    }
+
+    @Test
+    void recordsTheStatementsOfTheRequestByRoute() {
+        new RequestDatabaseMetricsFilter(meterRegistry, false).filter(exchange, handler()).block();
+
+        assertThat(
+            meterRegistry.get(RequestDatabaseMetricsFilter.STATEMENTS_METER_NAME).tag("uri", "/api/public/ratings/{id}").summary().totalAmount()
+        ).isEqualTo(2);
+        assertThat(meterRegistry.get(RequestDatabaseMetricsFilter.ROWS_METER_NAME).tag("method", "GET").summary().totalAmount()).isEqualTo(20);
+        assertThat(meterRegistry.get(RequestDatabaseMetricsFilter.DATABASE_TIME_METER_NAME).timer().totalTime(TimeUnit.MILLISECONDS)).isEqualTo(5);
+        assertThat(exchange.getResponse().getHeaders().containsKey(RequestDatabaseMetricsFilter.SERVER_TIMING_HEADER)).isFalse();
+    }
+
+    @Test
+    void sendsTheServerTimingHeaderWhenEnabled() {
+        new RequestDatabaseMetricsFilter(meterRegistry, true).filter(exchange, handler()).block();
+
+        assertThat(exchange.getResponse().getHeaders().getFirst(RequestDatabaseMetricsFilter.SERVER_TIMING_HEADER))
+            .startsWith("db;dur=5.0;desc=\"2 statements, 20 rows\", app;dur=");
+    }
+}
@@ -0,0 +1,111 @@
+package id.laris.assistant.config;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Counts the SQL statements created on the connections of the application, for the tests asserting how many statements
+ * a request costs.
+ */
+@Configuration
+public class StatementCountingConfiguration {
+
+    @Bean
+    public StatementCounter statementCounter() {
+        return new StatementCounter();
+    }
+
+    @Bean
+    public static BeanPostProcessor statementCountingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("connectionFactory".equals(beanName) && bean instanceof ConnectionFactory connectionFactory) {
+                    return new CountingConnectionFactory(connectionFactory);
+                }
+                return bean;
+            }
+        };
+    }
+
+    public static class StatementCounter {
+
+        private static final AtomicLong STATEMENTS = new AtomicLong();
+
+        public void reset() {
+            STATEMENTS.set(0);
+        }
+
+        public long count() {
+            return STATEMENTS.get();
+        }
+    }
+
+    private static final class CountingConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory>, Disposable {
+
+        private final ConnectionFactory delegate;
+
+        private CountingConnectionFactory(ConnectionFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Publisher<? extends Connection> create() {
+            return Mono.from(delegate.create()).map(CountingConnectionFactory::counting);
+        }
+
+        private static Connection counting(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(
+                CountingConnectionFactory.class.getClassLoader(),
+                new Class<?>[] { Connection.class, Wrapped.class },
+                (proxy, method, arguments) -> {
+                    if ("unwrap".equals(method.getName()) && method.getParameterCount() == 0) {
+                        return connection;
+                    }
+                    if ("equals".equals(method.getName()) && method.getParameterCount() == 1) {
+                        return proxy == arguments[0];
+                    }
+                    if ("hashCode".equals(method.getName()) && method.getParameterCount() == 0) {
+                        return System.identityHashCode(proxy);
+                    }
+                    if ("createStatement".equals(method.getName())) {
+                        StatementCounter.STATEMENTS.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(connection, arguments);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            );
+        }
+
+        @Override
+        public ConnectionFactoryMetadata getMetadata() {
+            return delegate.getMetadata();
+        }
+
+        @Override
+        public ConnectionFactory unwrap() {
+            return delegate;
+        }
+
+        @Override
+        public void dispose() {
+            if (delegate instanceof Disposable disposable) {
+                disposable.dispose();
+            }
+        }
+    }
+}
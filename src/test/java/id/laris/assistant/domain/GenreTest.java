@@ -0,0 +1,31 @@
+package id.laris.assistant.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link Genre}.
+ */
+class GenreTest {
+
+    @Test
+    void masksTheGenresOfTheDictionary() {
+        assertThat(Genre.maskOf("Action|Sci-Fi|Unknown")).isEqualTo(Genre.ACTION.getBit() | Genre.SCI_FI.getBit());
+        assertThat(Genre.maskOf(Genre.NONE_LISTED)).isZero();
+        assertThat(Genre.maskOf(null)).isNull();
+        assertThat(Genre.fromName("film-noir")).contains(Genre.FILM_NOIR);
+        assertThat(Genre.maskOf(" comedy | DRAMA ")).isEqualTo(Genre.COMEDY.getBit() | Genre.DRAMA.getBit());
+    }
+
+    @Test
+    void parsesAndFormatsTheGenreLists() {
+        assertThat(Genre.parse("Comedy|Drama")).containsExactly("Comedy", "Drama");
+        assertThat(Genre.parse(Genre.NONE_LISTED)).isEmpty();
+        assertThat(Genre.parse("Comedy|| |Drama|")).containsExactly("Comedy", "Drama");
+        assertThat(Genre.parse("")).isEmpty();
+        assertThat(Genre.format(List.of("Comedy", "Drama"))).isEqualTo("Comedy|Drama");
+        assertThat(Genre.format(List.of())).isEqualTo(Genre.NONE_LISTED);
+    }
+}
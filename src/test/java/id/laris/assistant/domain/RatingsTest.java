@@ -4,6 +4,7 @@ import static id.laris.assistant.domain.MoviesTestSamples.*;
 import static id.laris.assistant.domain.RatingsTestSamples.*;
 import static id.laris.assistant.domain.UsersTestSamples.*;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import id.laris.assistant.web.rest.TestUtil;
 import org.junit.jupiter.api.Test;
@@ -47,4 +48,18 @@ class RatingsTest {
         ratings.movies(null);
         assertThat(ratings.getMovies()).isNull();
     }
+
+    @Test
+    void ratingTest() {
+        Ratings ratings = getRatingsRandomSampleGenerator().rating(3.5);
+        Ratings same = getRatingsRandomSampleGenerator().rating(3.5);
+
+        assertThat(ratings.getRating()).isEqualTo(3.5).isSameAs(same.getRating());
+        assertThat(HalfStarRating.of(3.5).getHalfStars()).isEqualTo((short) 7);
+        assertThat(HalfStarRating.toStars((short) 7)).isEqualTo(3.5);
+
+        ratings.setRating(null);
+        assertThat(ratings.getRating()).isNull();
+        assertThatThrownBy(() -> ratings.setRating(3.7)).isInstanceOf(IllegalArgumentException.class);
+    }
 }
@@ -0,0 +1,125 @@
+package id.laris.assistant.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import id.laris.assistant.domain.Genre;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.relational.core.sql.Table;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+/**
+ * Test class for the {@link EntityFilter}.
+ */
+class EntityFilterTest {
+
+    private static final Table ratings = Table.aliased("ratings", EntityManager.ENTITY_ALIAS);
+
+    private static final Table movies = Table.aliased("movies", EntityManager.ENTITY_ALIAS);
+
+    private static MultiValueMap<String, String> parameters(String... keysAndValues) {
+        MultiValueMap<String, String> parameters = new LinkedMultiValueMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            parameters.add(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return parameters;
+    }
+
+    @Test
+    void ignoresTheParametersWhichAreNotFilters() {
+        EntityFilter filter = EntityFilter.parse(parameters("page", "1", "sort", "id,desc"), RatingSqlHelper.FILTERABLE_COLUMNS);
+
+        assertThat(filter.isEmpty()).isTrue();
+    }
+
+    @Test
+    void compilesTheFilterWithBindParameters() {
+        Map<String, Object> values = new HashMap<>();
+
+        EntityFilter filter = EntityFilter.parse(
+            parameters("rating.greaterThan", "3.5", "movieId.in", "1,2"),
+            RatingSqlHelper.FILTERABLE_COLUMNS
+        );
+        String condition = filter.toCondition(ratings, values).toString();
+
+        assertThat(filter.shape()).isEqualTo("movieId.in,rating.greaterThan");
+        assertThat(condition).contains("movie_id IN (:filter0)").contains("rating > :filter1");
+        assertThat(values).containsEntry("filter0", List.of(1L, 2L)).containsEntry("filter1", (short) 7);
+    }
+
+    @Test
+    void compilesTheRangeAndTextOperators() {
+        Map<String, Object> values = new HashMap<>();
+
+        EntityFilter.parse(parameters("timestamp.between", "10,20"), RatingSqlHelper.FILTERABLE_COLUMNS).toCondition(ratings, values);
+        EntityFilter.parse(parameters("title.startsWith", "50%_off", "genres.contains", "Comedy,Drama"), MovieSqlHelper.FILTERABLE_COLUMNS)
+            .toCondition(movies, values);
+
+        assertThat(values).containsEntry("filter0From", 10L).containsEntry("filter0To", 20L);
+        assertThat(values).containsEntry("filter0", Genre.COMEDY.getBit() | Genre.DRAMA.getBit()).containsEntry("filter1", "50\\%\\_off%");
+    }
+
+    @Test
+    void compilesTheGenreFiltersToBitwiseMatches() {
+        Map<String, Object> values = new HashMap<>();
+
+        String allOf = EntityFilter.parse(parameters("genres.contains", "comedy,Drama"), MovieSqlHelper.FILTERABLE_COLUMNS)
+            .toCondition(movies, values)
+            .toString();
+        String anyOf = EntityFilter.parse(parameters("genres.in", "Horror"), MovieSqlHelper.FILTERABLE_COLUMNS)
+            .toCondition(movies, new HashMap<>())
+            .toString();
+
+        assertThat(allOf).contains("(e.genre_mask & :filter0) = :filter0");
+        assertThat(anyOf).contains("(e.genre_mask & :filter0) <> 0");
+        assertThat(values).containsEntry("filter0", Genre.COMEDY.getBit() | Genre.DRAMA.getBit());
+        assertThatThrownBy(() -> EntityFilter.parse(parameters("genres.in", "Polka"), MovieSqlHelper.FILTERABLE_COLUMNS))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("Polka");
+    }
+
+    @Test
+    void roundsTheRatingBoundsToHalfStars() {
+        Map<String, Object> values = new HashMap<>();
+
+        EntityFilter.parse(parameters("movieId.equals", "1", "rating.between", "3.7,4.2"), RatingSqlHelper.FILTERABLE_COLUMNS).toCondition(
+            ratings,
+            values
+        );
+
+        assertThat(values).containsEntry("filter1From", (short) 8).containsEntry("filter1To", (short) 8);
+        assertThatThrownBy(() -> EntityFilter.parse(parameters("movieId.equals", "1", "rating.equals", "3.7"), RatingSqlHelper.FILTERABLE_COLUMNS))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("0.5");
+    }
+
+    @Test
+    void rejectsTheColumnsOutOfTheAllowList() {
+        assertThatThrownBy(() -> EntityFilter.parse(parameters("firstName.equals", "Jinny"), UserSqlHelper.FILTERABLE_COLUMNS))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("firstName");
+        assertThatThrownBy(() -> EntityFilter.parse(parameters("title.contains", "Toy"), MovieSqlHelper.FILTERABLE_COLUMNS))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsTheFiltersNoIndexCanServe() {
+        assertThatThrownBy(() -> EntityFilter.parse(parameters("rating.greaterThan", "4"), RatingSqlHelper.FILTERABLE_COLUMNS))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("movieId");
+    }
+
+    @Test
+    void rejectsInvalidValues() {
+        assertThatThrownBy(() -> EntityFilter.parse(parameters("timestamp.between", "10"), RatingSqlHelper.FILTERABLE_COLUMNS))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> EntityFilter.parse(parameters("id.equals", "abc"), RatingSqlHelper.FILTERABLE_COLUMNS))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> EntityFilter.parse(parameters("id.like", "1"), RatingSqlHelper.FILTERABLE_COLUMNS))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
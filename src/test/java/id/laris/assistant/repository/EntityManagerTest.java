@@ -0,0 +1,132 @@
+package id.laris.assistant.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.domain.Movies;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ConnectionFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.dialect.PostgresDialect;
+import org.springframework.data.r2dbc.query.UpdateMapper;
+import org.springframework.data.relational.core.sql.Conditions;
+import org.springframework.data.relational.core.sql.Expressions;
+import org.springframework.data.relational.core.sql.Select;
+import org.springframework.data.relational.core.sql.SelectBuilder.SelectWhere;
+import org.springframework.data.relational.core.sql.Table;
+import org.springframework.data.relational.core.sql.render.RenderContextFactory;
+import org.springframework.data.relational.core.sql.render.SqlRenderer;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Test class for the select template cache of the {@link EntityManager}.
+ */
+class EntityManagerTest {
+
+    private static final Table table = Table.aliased("movies", EntityManager.ENTITY_ALIAS);
+
+    private static final Sort BY_TITLE = Sort.by("title");
+
+    private final AtomicInteger renders = new AtomicInteger();
+
+    private final Supplier<SelectWhere> selectFrom = () -> {
+        renders.incrementAndGet();
+        return Select.builder().select(Expressions.asterisk(table)).from(table);
+    };
+
+    private SimpleMeterRegistry registry;
+
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        DatabaseClient databaseClient = DatabaseClient.create(mock(ConnectionFactory.class));
+        R2dbcEntityTemplate template = new R2dbcEntityTemplate(databaseClient, PostgresDialect.INSTANCE);
+        registry = new SimpleMeterRegistry();
+        entityManager = new EntityManager(
+            SqlRenderer.create(new RenderContextFactory(PostgresDialect.INSTANCE).createRenderContext()),
+            new UpdateMapper(PostgresDialect.INSTANCE, template.getConverter()),
+            template,
+            new ApplicationProperties(),
+            registry
+        );
+    }
+
+    private String createSelect(String shape, Pageable pageable) {
+        return entityManager.createSelect(Movies.class, shape, selectFrom, pageable, null);
+    }
+
+    private double lookups(String result) {
+        return registry
+            .get(EntityManager.SELECT_CACHE_METER_NAME)
+            .tag(EntityManager.SELECT_CACHE_METER_RESULT_DIMENSION, result)
+            .counter()
+            .count();
+    }
+
+    @Test
+    void sharesTheSelectOfAShapeBetweenItsPages() {
+        String first = createSelect("all", PageRequest.of(0, 20, BY_TITLE));
+        String third = createSelect("all", PageRequest.of(2, 20, BY_TITLE));
+
+        assertThat(third).isSameAs(first).endsWith("LIMIT :limit OFFSET :offset");
+        assertThat(renders).hasValue(1);
+        assertThat(lookups("miss")).isEqualTo(1);
+        assertThat(lookups("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void separatesTheShapes() {
+        String all = createSelect("all", PageRequest.of(0, 20, BY_TITLE));
+        String filtered = entityManager.createSelect(
+            Movies.class,
+            "filter:title",
+            selectFrom,
+            PageRequest.of(0, 20, BY_TITLE),
+            Conditions.isEqual(table.column("title"), Conditions.just(":title"))
+        );
+
+        assertThat(filtered).isNotEqualTo(all).contains(":title");
+        assertThat(renders).hasValue(2);
+    }
+
+    @Test
+    void separatesTheSorts() {
+        String ascending = createSelect("all", PageRequest.of(0, 20, BY_TITLE));
+        String descending = createSelect("all", PageRequest.of(0, 20, BY_TITLE.descending()));
+
+        assertThat(ascending).contains("ORDER BY").contains("title ASC");
+        assertThat(descending).contains("ORDER BY").contains("title DESC");
+        assertThat(renders).hasValue(2);
+    }
+
+    @Test
+    void separatesThePagedAndUnpagedSelects() {
+        String paged = createSelect("all", PageRequest.of(0, 20));
+        String unpaged = createSelect("all", Pageable.unpaged());
+        String all = createSelect("all", null);
+
+        assertThat(paged).endsWith("LIMIT :limit OFFSET :offset");
+        assertThat(unpaged).doesNotContain("LIMIT");
+        assertThat(all).isSameAs(unpaged);
+        assertThat(renders).hasValue(2);
+    }
+
+    @Test
+    void rendersTheSelectsWithoutAShapeEveryTime() {
+        createSelect(null, PageRequest.of(0, 20));
+        createSelect(null, PageRequest.of(0, 20));
+
+        assertThat(renders).hasValue(2);
+        assertThat(lookups("miss")).isZero();
+        assertThat(lookups("hit")).isZero();
+    }
+}
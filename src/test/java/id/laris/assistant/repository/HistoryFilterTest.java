@@ -0,0 +1,49 @@
+package id.laris.assistant.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.relational.core.sql.Table;
+
+/**
+ * Test class for the {@link HistoryFilter}.
+ */
+class HistoryFilterTest {
+
+    private static final Table table = Table.aliased("ratings", EntityManager.ENTITY_ALIAS);
+
+    @Test
+    void bindsOnlyTheGivenBounds() {
+        Map<String, Object> parameters = new HashMap<>();
+
+        String condition = HistoryFilter.of(100L, null, 3.5).toCondition(table, "user_id", 7L, parameters).toString();
+
+        assertThat(condition).contains("user_id = :owner").contains("timestamp >= :from").contains("rating >= :minRating");
+        assertThat(condition).doesNotContain(":to");
+        // the ratings are stored in half stars
+        assertThat(parameters).containsExactlyInAnyOrderEntriesOf(Map.of("owner", 7L, "from", 100L, "minRating", (short) 7));
+    }
+
+    @Test
+    void roundsTheMinimumRatingUpToTheNextHalfStar() {
+        Map<String, Object> parameters = new HashMap<>();
+
+        HistoryFilter.of(null, null, 3.7).toCondition(table, "movie_id", 7L, parameters);
+
+        assertThat(parameters).containsEntry("minRating", (short) 8);
+    }
+
+    @Test
+    void shapeDependsOnTheBoundsNotOnTheirValues() {
+        assertThat(HistoryFilter.of(1L, 2L, null).shape("movie_id")).isEqualTo(HistoryFilter.of(3L, 4L, null).shape("movie_id"));
+        assertThat(HistoryFilter.NONE.shape("movie_id")).isNotEqualTo(HistoryFilter.of(1L, null, null).shape("movie_id"));
+    }
+
+    @Test
+    void rejectsAnEmptyTimeRange() {
+        assertThatThrownBy(() -> HistoryFilter.of(10L, 10L, null)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,75 @@
+package id.laris.assistant.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Test class for the {@link KeysetCursor} utility class.
+ */
+class KeysetCursorTest {
+
+    @Test
+    void encodedCursorIsDecodedBack() {
+        KeysetCursor cursor = KeysetCursor.of("title", "Heat | Extended (1995)", 42L);
+
+        KeysetCursor decoded = KeysetCursor.decode(cursor.encode());
+
+        assertThat(decoded).isEqualTo(cursor);
+        assertThat(decoded.getValue()).isEqualTo("Heat | Extended (1995)");
+    }
+
+    @Test
+    void emptyTokenDesignatesTheFirstPage() {
+        assertThat(KeysetCursor.decode("")).isNull();
+        assertThat(KeysetCursor.decode(null)).isNull();
+    }
+
+    @Test
+    void malformedTokenIsRejected() {
+        assertThatThrownBy(() -> KeysetCursor.decode("not a cursor")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void keysetPageableAppendsTheIdTieBreaker() {
+        Pageable pageable = KeysetCursor.keysetPageable(PageRequest.of(7, 20, Sort.by(Sort.Direction.DESC, "timestamp")), null);
+
+        assertThat(pageable.getOffset()).isZero();
+        assertThat(pageable.getPageSize()).isEqualTo(20);
+        assertThat(pageable.getSort()).isEqualTo(Sort.by(Sort.Direction.DESC, "timestamp", "id"));
+    }
+
+    @Test
+    void keysetPageableDefaultsToTheIdOrder() {
+        Pageable pageable = KeysetCursor.keysetPageable(PageRequest.of(0, 20), null);
+
+        assertThat(pageable.getSort()).isEqualTo(Sort.by(Sort.Direction.ASC, "id"));
+    }
+
+    @Test
+    void keysetPageableRejectsTheSortsOutsideTheGivenProperties() {
+        Set<String> sortProperties = Set.of("id", "timestamp");
+
+        assertThat(KeysetCursor.keysetPageable(PageRequest.of(0, 20, Sort.by("timestamp")), null, sortProperties).getSort()).isEqualTo(
+            Sort.by("timestamp", "id")
+        );
+        assertThatThrownBy(() -> KeysetCursor.keysetPageable(PageRequest.of(0, 20, Sort.by("userId")), null, sortProperties))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("userId");
+    }
+
+    @Test
+    void keysetPageableRejectsUnsupportedSorts() {
+        assertThatThrownBy(() -> KeysetCursor.keysetPageable(PageRequest.of(0, 20, Sort.by("rating", "timestamp")), null)).isInstanceOf(
+            IllegalArgumentException.class
+        );
+        assertThatThrownBy(() ->
+            KeysetCursor.keysetPageable(PageRequest.of(0, 20, Sort.by("timestamp")), KeysetCursor.of("rating", 4.0, 1L))
+        ).isInstanceOf(IllegalArgumentException.class);
+    }
+}
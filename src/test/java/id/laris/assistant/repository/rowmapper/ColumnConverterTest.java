@@ -0,0 +1,111 @@
+package id.laris.assistant.repository.rowmapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.R2dbcType;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.r2dbc.convert.MappingR2dbcConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.PostgresDialect;
+import org.springframework.data.r2dbc.mapping.R2dbcMappingContext;
+
+/**
+ * Test class for the {@link ColumnConverter}.
+ */
+class ColumnConverterTest {
+
+    private MeterRegistry meterRegistry;
+
+    private ColumnConverter columnConverter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        columnConverter = new ColumnConverter(
+            R2dbcCustomConversions.of(PostgresDialect.INSTANCE, List.of()),
+            new MappingR2dbcConverter(new R2dbcMappingContext()),
+            meterRegistry
+        );
+    }
+
+    private static Row row(String columnName, R2dbcType type) {
+        ColumnMetadata column = mock(ColumnMetadata.class);
+        when(column.getName()).thenReturn(columnName);
+        when(column.getType()).thenReturn(type);
+        RowMetadata metadata = mock(RowMetadata.class);
+        when(metadata.getColumnMetadata(0)).thenReturn(column);
+        when(metadata.getColumnMetadata(columnName)).thenReturn(column);
+        Row row = mock(Row.class);
+        when(row.getMetadata()).thenReturn(metadata);
+        return row;
+    }
+
+    private double fallbacks() {
+        var counter = meterRegistry.find(ColumnConverter.FALLBACK_METER_NAME).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    @Test
+    void shouldRememberThatTheDriverDecodesTheColumn() {
+        Row row = row("e_id", R2dbcType.BIGINT);
+        when(row.get(0, Long.class)).thenReturn(7L);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(columnConverter.fromRow(row, 0, Long.class)).isEqualTo(7L);
+        }
+
+        verify(row, never()).get(0);
+        assertThat(fallbacks()).isZero();
+    }
+
+    @Test
+    void shouldAskTheDriverOnlyOnceForAColumnItCannotDecode() {
+        Row row = row("e_rating", R2dbcType.NUMERIC);
+        when(row.get(0, Double.class)).thenThrow(new IllegalArgumentException("Cannot decode value of type java.lang.Double"));
+        when(row.get(0)).thenReturn(new BigDecimal("4.5"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(columnConverter.fromRow(row, 0, Double.class)).isEqualTo(4.5);
+        }
+
+        verify(row, times(1)).get(0, Double.class);
+        assertThat(fallbacks()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldShareTheConversionBetweenNameAndIndexLookups() {
+        Row row = row("e_rating", R2dbcType.NUMERIC);
+        when(row.get(0, Double.class)).thenThrow(new IllegalArgumentException("Cannot decode value of type java.lang.Double"));
+        when(row.get(0)).thenReturn(new BigDecimal("4.5"));
+        when(row.get("e_rating")).thenReturn(new BigDecimal("3.5"));
+
+        assertThat(columnConverter.fromRow(row, 0, Double.class)).isEqualTo(4.5);
+        assertThat(columnConverter.fromRow(row, "e_rating", Double.class)).isEqualTo(3.5);
+
+        verify(row, never()).get("e_rating", Double.class);
+    }
+
+    @Test
+    void shouldNotLearnFromANullValue() {
+        Row row = row("e_rating", R2dbcType.NUMERIC);
+        when(row.get(0, Double.class)).thenReturn(null).thenThrow(new IllegalArgumentException("Cannot decode value"));
+        when(row.get(0)).thenReturn(new BigDecimal("4.5"));
+
+        assertThat(columnConverter.fromRow(row, 0, Double.class)).isNull();
+        assertThat(columnConverter.fromRow(row, 0, Double.class)).isEqualTo(4.5);
+        assertThat(fallbacks()).isEqualTo(1);
+    }
+}
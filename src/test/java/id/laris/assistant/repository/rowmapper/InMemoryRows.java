@@ -0,0 +1,99 @@
+package id.laris.assistant.repository.rowmapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.R2dbcType;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.springframework.data.r2dbc.convert.MappingR2dbcConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.PostgresDialect;
+import org.springframework.data.r2dbc.mapping.R2dbcMappingContext;
+
+/**
+ * Rows held in memory, which look their columns up by name like the Postgres driver.
+ */
+final class InMemoryRows {
+
+    private InMemoryRows() {}
+
+    static ColumnConverter columnConverter() {
+        return new ColumnConverter(
+            R2dbcCustomConversions.of(PostgresDialect.INSTANCE, List.of()),
+            new MappingR2dbcConverter(new R2dbcMappingContext()),
+            new SimpleMeterRegistry()
+        );
+    }
+
+    static Metadata metadata(String... names) {
+        return new Metadata(Arrays.stream(names).map(Column::new).toList());
+    }
+
+    record Metadata(List<Column> columns) implements RowMetadata {
+        @Override
+        public ColumnMetadata getColumnMetadata(int index) {
+            return columns.get(index);
+        }
+
+        @Override
+        public ColumnMetadata getColumnMetadata(String name) {
+            return columns.get(indexOf(name));
+        }
+
+        @Override
+        public List<? extends ColumnMetadata> getColumnMetadatas() {
+            return columns;
+        }
+
+        @Override
+        public boolean contains(String name) {
+            return columns.stream().anyMatch(column -> column.name().equalsIgnoreCase(name));
+        }
+
+        private int indexOf(String name) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).name().equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+            throw new NoSuchElementException("Column name '" + name + "' does not exist");
+        }
+
+        InMemoryRow row(Object... values) {
+            return new InMemoryRow(this, values);
+        }
+    }
+
+    record Column(String name) implements ColumnMetadata {
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Type getType() {
+            return R2dbcType.VARCHAR;
+        }
+    }
+
+    record InMemoryRow(Metadata metadata, Object[] values) implements Row {
+        @Override
+        public RowMetadata getMetadata() {
+            return metadata;
+        }
+
+        @Override
+        public <T> T get(int index, Class<T> type) {
+            return type.cast(values[index]);
+        }
+
+        @Override
+        public <T> T get(String name, Class<T> type) {
+            return get(metadata.indexOf(name), type);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package id.laris.assistant.repository.rowmapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import id.laris.assistant.domain.Ratings;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import java.util.function.BiFunction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link IndexedRowMapper}.
+ */
+class IndexedRowMapperTest {
+
+    private RatingRowMapper ratingRowMapper;
+
+    @BeforeEach
+    void setUp() {
+        ratingRowMapper = new RatingRowMapper(InMemoryRows.columnConverter());
+    }
+
+    @Test
+    void shouldReadTheSameEntityByIndexAsByName() {
+        InMemoryRows.Metadata metadata = InMemoryRows.metadata("e_id", "e_rating", "e_timestamp", "e_user_id", "e_movie_id", "users_id");
+        Row row = metadata.row(1L, (short) 9, 964982703L, 2L, 3L, 2L);
+
+        Ratings byIndex = ratingRowMapper.reader("e").apply(row, metadata);
+
+        assertThat(byIndex).usingRecursiveComparison().isEqualTo(ratingRowMapper.apply(row, "e"));
+        assertThat(byIndex.getRating()).isEqualTo(4.5);
+        assertThat(byIndex.getMovieId()).isEqualTo(3L);
+    }
+
+    @Test
+    void shouldResolveTheColumnsOfEachResultShape() {
+        BiFunction<Row, RowMetadata, Ratings> reader = ratingRowMapper.reader("e");
+        InMemoryRows.Metadata first = InMemoryRows.metadata("e_id", "e_rating", "e_timestamp", "e_user_id", "e_movie_id");
+        InMemoryRows.Metadata reordered = InMemoryRows.metadata("E_MOVIE_ID", "e_user_id", "e_timestamp", "e_rating", "e_id");
+
+        assertThat(reader.apply(first.row(1L, (short) 9, 10L, 2L, 3L), first).getMovieId()).isEqualTo(3L);
+        assertThat(reader.apply(reordered.row(3L, 2L, 10L, (short) 9, 1L), reordered).getMovieId()).isEqualTo(3L);
+        assertThat(reader.apply(reordered.row(6L, 5L, 11L, (short) 2, 4L), reordered).getId()).isEqualTo(4L);
+    }
+
+    @Test
+    void shouldRejectAResultWithoutTheColumns() {
+        InMemoryRows.Metadata metadata = InMemoryRows.metadata("e_id", "e_rating");
+
+        assertThatThrownBy(() -> ratingRowMapper.reader("e").apply(metadata.row(1L, (short) 9), metadata)).isInstanceOf(
+            IllegalArgumentException.class
+        );
+    }
+}
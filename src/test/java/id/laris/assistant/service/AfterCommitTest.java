@@ -0,0 +1,78 @@
+package id.laris.assistant.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.AbstractReactiveTransactionManager;
+import org.springframework.transaction.reactive.GenericReactiveTransaction;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+/**
+ * Test class for the {@link AfterCommit}.
+ */
+class AfterCommitTest {
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    private final TransactionalOperator transactionalOperator = TransactionalOperator.create(new NoOpTransactionManager());
+
+    @Test
+    void runsTheActionOnceTheTransactionCommitted() {
+        Integer runsBeforeCommit = AfterCommit.run(runs::incrementAndGet)
+            .then(Mono.fromSupplier(runs::get))
+            .as(transactionalOperator::transactional)
+            .block();
+
+        assertThat(runsBeforeCommit).isZero();
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    @Test
+    void skipsTheActionWhenTheTransactionRolledBack() {
+        Mono<Void> write = AfterCommit.run(runs::incrementAndGet)
+            .then(Mono.<Void>error(new IllegalStateException("rolled back")))
+            .as(transactionalOperator::transactional);
+
+        assertThatThrownBy(write::block).hasMessageContaining("rolled back");
+        assertThat(runs.get()).isZero();
+    }
+
+    @Test
+    void runsTheActionRightAwayWithoutTransaction() {
+        AfterCommit.run(runs::incrementAndGet).block();
+
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    private static final class NoOpTransactionManager extends AbstractReactiveTransactionManager {
+
+        @Override
+        protected Object doGetTransaction(TransactionSynchronizationManager synchronizationManager) {
+            return new Object();
+        }
+
+        @Override
+        protected Mono<Void> doBegin(
+            TransactionSynchronizationManager synchronizationManager,
+            Object transaction,
+            TransactionDefinition definition
+        ) {
+            return Mono.empty();
+        }
+
+        @Override
+        protected Mono<Void> doCommit(TransactionSynchronizationManager synchronizationManager, GenericReactiveTransaction status) {
+            return Mono.empty();
+        }
+
+        @Override
+        protected Mono<Void> doRollback(TransactionSynchronizationManager synchronizationManager, GenericReactiveTransaction status) {
+            return Mono.empty();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package id.laris.assistant.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.service.dto.BulkChunkResultDTO;
+import id.laris.assistant.service.dto.BulkItemErrorDTO;
+import id.laris.assistant.service.dto.RatingDTO;
+import jakarta.validation.Validation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+
+/**
+ * Test class for the {@link BulkIngestionService}.
+ */
+class BulkIngestionServiceTest {
+
+    private BulkIngestionService bulkIngestionService;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final List<Integer> statementSizes = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        TransactionalOperator transactionalOperator = mock(TransactionalOperator.class);
+        when(transactionalOperator.transactional(any(Flux.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getBulk().setChunkSize(2);
+        bulkIngestionService = new BulkIngestionService(
+            Validation.buildDefaultValidatorFactory().getValidator(),
+            transactionalOperator,
+            applicationProperties
+        );
+    }
+
+    private static RatingDTO rating(Double value) {
+        RatingDTO ratingDTO = new RatingDTO();
+        ratingDTO.setRating(value);
+        ratingDTO.setTimestamp(964982703L);
+        return ratingDTO;
+    }
+
+    /**
+     * Inserts the ratings in one statement, refused as a whole when one of them is negative.
+     */
+    private Flux<Long> insertAll(List<RatingDTO> ratings) {
+        return Flux.defer(() -> {
+            statementSizes.add(ratings.size());
+            if (ratings.stream().anyMatch(rating -> rating.getRating() < 0)) {
+                return Flux.error(new IllegalStateException("check constraint violated"));
+            }
+            return Flux.fromIterable(ratings).map(rating -> sequence.incrementAndGet());
+        });
+    }
+
+    @Test
+    void insertsTheValidItemsByChunks() {
+        List<BulkChunkResultDTO> results = bulkIngestionService
+            .ingest(Flux.just(rating(4.0), rating(3.5), rating(5.0)), RatingDTO::getId, rating -> rating, this::insertAll)
+            .collectList()
+            .block();
+
+        assertThat(results).extracting(BulkChunkResultDTO::getChunk).containsExactly(0L, 1L);
+        assertThat(results).flatExtracting(BulkChunkResultDTO::getIds).containsExactly(1L, 2L, 3L);
+        assertThat(statementSizes).containsExactly(2, 1);
+    }
+
+    @Test
+    void reportsTheInvalidItemsWithoutInsertingThem() {
+        RatingDTO withId = rating(4.0);
+        withId.setId(1L);
+
+        List<BulkChunkResultDTO> results = bulkIngestionService
+            .ingest(Flux.just(rating(null), withId, rating(3.0)), RatingDTO::getId, rating -> rating, this::insertAll)
+            .collectList()
+            .block();
+
+        assertThat(results.get(0).getInserted()).isZero();
+        assertThat(results.get(0).getErrors()).extracting(BulkItemErrorDTO::getIndex).containsExactly(0L, 1L);
+        assertThat(results.get(0).getErrors().get(0).getMessage()).startsWith("rating ");
+        assertThat(results.get(1).getInserted()).isEqualTo(1);
+        assertThat(statementSizes).containsExactly(1);
+    }
+
+    @Test
+    void retriesARefusedChunkItemByItem() {
+        List<BulkChunkResultDTO> results = bulkIngestionService
+            .ingest(Flux.just(rating(4.0), rating(-1.0)), RatingDTO::getId, rating -> rating, this::insertAll)
+            .collectList()
+            .block();
+
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0).getIds()).containsExactly(1L);
+        assertThat(results.get(0).getErrors()).extracting(BulkItemErrorDTO::getIndex).containsExactly(1L);
+        // the database error is not returned to the caller
+        assertThat(results.get(0).getErrors().get(0).getMessage()).isEqualTo("The entity is not valid");
+        assertThat(statementSizes).containsExactly(2, 1, 1);
+    }
+}
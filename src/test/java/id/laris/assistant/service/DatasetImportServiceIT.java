@@ -0,0 +1,98 @@
+package id.laris.assistant.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import id.laris.assistant.IntegrationTest;
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.repository.CopyLoader;
+import id.laris.assistant.repository.MovieRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Integration tests for the {@link DatasetImportService}.
+ */
+@IntegrationTest
+class DatasetImportServiceIT {
+
+    @TempDir
+    private Path location;
+
+    @Autowired
+    private DatabaseClient db;
+
+    @Autowired
+    private CopyLoader copyLoader;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Autowired
+    private TotalCountService totalCountService;
+
+    @Autowired
+    private MovieCatalogCache movieCatalogCache;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    private DatasetImportService datasetImportService;
+
+    @BeforeEach
+    void setUp() {
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getDatasetImport().setLocation(location.toUri().toString());
+        datasetImportService = new DatasetImportService(
+            copyLoader,
+            resourceLoader,
+            totalCountService,
+            movieCatalogCache,
+            movieRepository,
+            new SimpleMeterRegistry(),
+            applicationProperties
+        );
+    }
+
+    private List<String> indexesOfRatings() {
+        return db
+            .sql("SELECT indexname FROM pg_indexes WHERE schemaname = current_schema() AND tablename = 'ratings' ORDER BY indexname")
+            .map(row -> row.get("indexname", String.class))
+            .all()
+            .collectList()
+            .block();
+    }
+
+    @Test
+    void recreatesTheDroppedIndexesWhenTheCopyFails() throws IOException {
+        List<String> indexes = indexesOfRatings();
+        // the user and the movie of the rating do not exist
+        Files.writeString(location.resolve("ratings.csv"), "id,user_id,movie_id,rating,timestamp\n900000001,900000001,900000001,4.0,1\n");
+
+        assertThatThrownBy(() -> datasetImportService.importAll(false, true).collectList().block()).hasMessageContaining(
+            "fk_ratings__"
+        );
+
+        assertThat(indexesOfRatings()).isEqualTo(indexes).contains("ux_ratings__user_id_movie_id");
+        assertThat(db.sql("SELECT count(*) FROM ratings WHERE id = 900000001").map(row -> row.get(0, Long.class)).one().block()).isZero();
+    }
+
+    @Test
+    void keepsTheUniqueIndexesDuringTheImport() {
+        List<String> dropped = copyLoader.dropIndexes("ratings").block();
+        try {
+            assertThat(indexesOfRatings()).contains("ux_ratings__user_id_movie_id");
+        } finally {
+            copyLoader.createIndexes(dropped).block();
+        }
+    }
+}
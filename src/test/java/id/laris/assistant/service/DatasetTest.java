@@ -0,0 +1,34 @@
+package id.laris.assistant.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link Dataset}.
+ */
+class DatasetTest {
+
+    @Test
+    void mapsTheTableColumnNames() {
+        assertThat(Dataset.RATINGS.toColumns(List.of("id", "user_id", "movie_id", "rating", "timestamp"))).containsExactly(
+            "id",
+            "user_id",
+            "movie_id",
+            "rating",
+            "timestamp"
+        );
+    }
+
+    @Test
+    void mapsTheMovieLensColumnNames() {
+        assertThat(Dataset.RATINGS.toColumns(List.of("userId", "movieId", "rating", "timestamp"))).containsExactly(
+            "user_id",
+            "movie_id",
+            "rating",
+            "timestamp"
+        );
+        assertThat(Dataset.MOVIES.toColumns(List.of("movieId", "title", "genres"))).containsExactly("id", "title", "genres");
+    }
+}
@@ -0,0 +1,61 @@
+package id.laris.assistant.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import id.laris.assistant.service.EntityChange.Operation;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the {@link EntityChange}.
+ */
+class EntityChangeTest {
+
+    @Test
+    void parsesTheNotificationsOfTheTriggers() {
+        assertThat(EntityChange.parse("movies:U:1,2")).containsExactly(
+            new EntityChange("movies", Operation.UPDATE, 1L),
+            new EntityChange("movies", Operation.UPDATE, 2L)
+        );
+        assertThat(EntityChange.parse("users:T:*")).containsExactly(new EntityChange("users", Operation.TRUNCATE, null));
+        assertThatIllegalArgumentException().isThrownBy(() -> EntityChange.parse("movies:X:1"));
+        assertThatIllegalArgumentException().isThrownBy(() -> EntityChange.parse("movies:U:one"));
+        assertThatIllegalArgumentException().isThrownBy(() -> EntityChange.parse("movies"));
+    }
+
+    @Test
+    void coalescesTheChangesOfARow() {
+        List<EntityChange> coalesced = EntityChange.coalesce(
+            List.of(
+                new EntityChange("movies", Operation.INSERT, 1L),
+                new EntityChange("users", Operation.UPDATE, 1L),
+                new EntityChange("movies", Operation.UPDATE, 2L),
+                new EntityChange("movies", Operation.DELETE, 1L)
+            )
+        );
+
+        assertThat(coalesced).containsExactly(
+            new EntityChange("users", Operation.UPDATE, 1L),
+            new EntityChange("movies", Operation.UPDATE, 2L),
+            new EntityChange("movies", Operation.DELETE, 1L)
+        );
+    }
+
+    @Test
+    void coalescesTheChangesOfATableChangedAll() {
+        List<EntityChange> coalesced = EntityChange.coalesce(
+            List.of(
+                new EntityChange("movies", Operation.INSERT, 1L),
+                new EntityChange("users", Operation.UPDATE, 1L),
+                new EntityChange("movies", Operation.TRUNCATE, null),
+                new EntityChange("movies", Operation.INSERT, 2L)
+            )
+        );
+
+        assertThat(coalesced).containsExactly(
+            new EntityChange("users", Operation.UPDATE, 1L),
+            new EntityChange("movies", Operation.TRUNCATE, null)
+        );
+    }
+}
@@ -0,0 +1,126 @@
+package id.laris.assistant.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import id.laris.assistant.IntegrationTest;
+import id.laris.assistant.LarisChatbotAssistantApp;
+import id.laris.assistant.config.AsyncSyncConfiguration;
+import id.laris.assistant.config.JacksonConfiguration;
+import id.laris.assistant.domain.Movies;
+import id.laris.assistant.repository.MovieRepository;
+import id.laris.assistant.service.dto.MovieDTO;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Integration tests for the {@link InvalidationBus}, between the test context and a second context started on the same
+ * database, as two nodes of the application would run.
+ */
+@IntegrationTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = { "application.movie-catalog.enabled=true", "application.invalidation.enabled=true" })
+class InvalidationBusIT {
+
+    private static final Duration AWAIT_TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieCatalogCache movieCatalogCache;
+
+    @Autowired
+    private TotalCountService totalCountService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    private ConfigurableApplicationContext otherNode;
+
+    private final List<Long> createdIds = new ArrayList<>();
+
+    @BeforeAll
+    void startOtherNode() {
+        otherNode = new SpringApplicationBuilder(LarisChatbotAssistantApp.class, JacksonConfiguration.class, AsyncSyncConfiguration.class)
+            .profiles(environment.getActiveProfiles())
+            .properties(
+                "server.port=0",
+                "spring.r2dbc.url=" + environment.getProperty("spring.r2dbc.url"),
+                "spring.r2dbc.username=" + environment.getProperty("spring.r2dbc.username"),
+                "spring.r2dbc.password=" + environment.getProperty("spring.r2dbc.password"),
+                "spring.liquibase.enabled=false",
+                "application.movie-catalog.enabled=true",
+                "application.invalidation.enabled=true"
+            )
+            .run();
+    }
+
+    @AfterAll
+    void stopOtherNode() {
+        if (otherNode != null) {
+            otherNode.close();
+        }
+    }
+
+    @AfterEach
+    void cleanup() {
+        createdIds.forEach(id -> movieRepository.deleteById(id).block());
+        createdIds.clear();
+    }
+
+    private static MovieDTO movie(String title) {
+        MovieDTO movie = new MovieDTO();
+        movie.setTitle(title);
+        movie.setGenres(List.of("Comedy"));
+        return movie;
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + AWAIT_TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("the change reached the node in time").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    void refreshesTheCatalogWithTheUpdatesOfTheOtherNode() throws InterruptedException {
+        MovieDTO saved = movieService.save(movie("Before the update")).block();
+        createdIds.add(saved.getId());
+        MovieDTO updated = movie("Updated by the other node");
+        updated.setId(saved.getId());
+
+        otherNode.getBean(MovieService.class).update(updated).block();
+
+        awaitUntil(() -> "Updated by the other node".equals(movieCatalogCache.get(saved.getId()).getTitle()));
+    }
+
+    @Test
+    void dropsTheCachedCountOnTheInsertsOfTheOtherNode() throws InterruptedException {
+        long before = cachedCountOfMovies();
+
+        MovieDTO saved = otherNode.getBean(MovieService.class).save(movie("Inserted by the other node")).block();
+        createdIds.add(saved.getId());
+
+        awaitUntil(() -> cachedCountOfMovies() == before + 1);
+    }
+
+    private long cachedCountOfMovies() {
+        return totalCountService.count(Movies.class, CountStrategy.CACHED, () -> movieRepository.count()).block().getCount();
+    }
+}
@@ -0,0 +1,94 @@
+package id.laris.assistant.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.repository.ChangeNotifications;
+import id.laris.assistant.service.EntityChange.Operation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Test class for the {@link InvalidationBus}.
+ */
+class InvalidationBusTest {
+
+    private static final EntityChange MOVIE = new EntityChange("movies", Operation.UPDATE, 1L);
+
+    private static final EntityChange USER = new EntityChange("users", Operation.INSERT, 7L);
+
+    private ChangeNotifications changeNotifications;
+
+    private ApplicationProperties applicationProperties;
+
+    private InvalidationBus invalidationBus;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        changeNotifications = mock(ChangeNotifications.class);
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getInvalidation().setReconnectBackoff(Duration.ofMillis(10));
+        applicationProperties.getInvalidation().setMaxReconnectBackoff(Duration.ofMillis(10));
+        invalidationBus = new InvalidationBus(
+            changeNotifications,
+            mock(ObjectProvider.class),
+            new SimpleMeterRegistry(),
+            applicationProperties
+        );
+    }
+
+    @Test
+    void appliesTheChangesOnceNoneArrivedForTheDebounce() throws Exception {
+        applicationProperties.getInvalidation().setMaxDelay(Duration.ofHours(1));
+        Sinks.Many<EntityChange> changes = Sinks.many().unicast().onBackpressureBuffer();
+        CompletableFuture<List<EntityChange>> batch = invalidationBus.debounce(changes.asFlux()).next().toFuture();
+
+        changes.tryEmitNext(MOVIE);
+        changes.tryEmitNext(USER);
+
+        assertThat(batch.get(5, TimeUnit.SECONDS)).containsExactly(MOVIE, USER);
+    }
+
+    @Test
+    void appliesAContinuousFlowOfChangesAfterTheMaxDelay() throws Exception {
+        applicationProperties.getInvalidation().setDebounce(Duration.ofHours(1));
+        applicationProperties.getInvalidation().setMaxDelay(Duration.ofMillis(100));
+        Sinks.Many<EntityChange> changes = Sinks.many().unicast().onBackpressureBuffer();
+        CompletableFuture<List<EntityChange>> batch = invalidationBus.debounce(changes.asFlux()).next().toFuture();
+
+        changes.tryEmitNext(MOVIE);
+
+        assertThat(batch.get(5, TimeUnit.SECONDS)).containsExactly(MOVIE);
+    }
+
+    @Test
+    void resyncsTheTablesAfterAReconnection() {
+        AtomicInteger connections = new AtomicInteger();
+        when(changeNotifications.listen(eq(InvalidationBus.CHANNEL), any())).thenAnswer(invocation -> {
+            Runnable onListening = invocation.getArgument(1);
+            return Flux.defer(() -> {
+                onListening.run();
+                // the first connection is lost after one notification
+                return connections.getAndIncrement() == 0 ? Flux.just("movies:U:1") : Flux.just("users:I:7").concatWith(Flux.never());
+            });
+        });
+
+        List<EntityChange> changes = invalidationBus.changes().take(4).collectList().block(Duration.ofSeconds(5));
+
+        assertThat(changes).containsExactly(MOVIE, EntityChange.all("movies"), EntityChange.all("users"), USER);
+    }
+}
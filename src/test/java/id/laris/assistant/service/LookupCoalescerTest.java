@@ -0,0 +1,163 @@
+package id.laris.assistant.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.config.RequestDatabaseMetrics;
+import id.laris.assistant.domain.Movies;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.ReactiveTransactionManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Test class for the {@link LookupCoalescer}.
+ */
+class LookupCoalescerTest {
+
+    private ApplicationProperties applicationProperties;
+
+    private MeterRegistry meterRegistry;
+
+    private LookupCoalescer lookupCoalescer;
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    private final List<Collection<Long>> batches = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReactiveTransactionManager transactionManager = mock(ReactiveTransactionManager.class);
+        when(transactionManager.getReactiveTransaction(any())).thenReturn(Mono.just(mock(ReactiveTransaction.class)));
+        when(transactionManager.commit(any())).thenReturn(Mono.empty());
+        when(transactionManager.rollback(any())).thenReturn(Mono.empty());
+        applicationProperties = new ApplicationProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        lookupCoalescer = new LookupCoalescer(transactionManager, meterRegistry, applicationProperties);
+    }
+
+    private static Movies movie(Long id) {
+        return new Movies().id(id).title("Movie " + id);
+    }
+
+    private LookupCoalescer.Lookup<Movies> lookup(Mono<Movies> result) {
+        return lookupCoalescer.create(
+            Movies.class,
+            id -> {
+                queries.incrementAndGet();
+                return result;
+            },
+            ids -> {
+                batches.add(List.copyOf(ids));
+                return Flux.fromIterable(ids).filter(id -> id < 3).map(LookupCoalescerTest::movie);
+            },
+            Movies::getId
+        );
+    }
+
+    private double meter(String name) {
+        return meterRegistry.get(name).tag(LookupCoalescer.ENTITY_DIMENSION, "Movies").meter().measure().iterator().next().getValue();
+    }
+
+    @Test
+    void concurrentLookupsOfAnIdShareOneQuery() throws Exception {
+        Sinks.One<Movies> result = Sinks.one();
+        LookupCoalescer.Lookup<Movies> lookup = lookup(result.asMono());
+
+        CompletableFuture<Movies> first = lookup.find(1L).toFuture();
+        CompletableFuture<Movies> second = lookup.find(1L).toFuture();
+        CompletableFuture<Movies> third = lookup.find(1L).toFuture();
+        result.tryEmitValue(movie(1L));
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getTitle()).isEqualTo("Movie 1");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(first.get());
+        assertThat(third.get(5, TimeUnit.SECONDS)).isSameAs(first.get());
+        assertThat(queries.get()).isEqualTo(1);
+        assertThat(meter(LookupCoalescer.REQUESTS_METER_NAME)).isEqualTo(3);
+        assertThat(meter(LookupCoalescer.QUERIES_METER_NAME)).isEqualTo(1);
+        assertThat(meter(LookupCoalescer.RATIO_METER_NAME)).isEqualTo(3);
+    }
+
+    @Test
+    void lookupsAfterTheQueryCompletedRunTheirOwn() {
+        LookupCoalescer.Lookup<Movies> lookup = lookup(Mono.fromSupplier(() -> movie(1L)));
+
+        lookup.find(1L).block();
+        lookup.find(1L).block();
+
+        assertThat(queries.get()).isEqualTo(2);
+    }
+
+    @Test
+    void theSharedQueryOnlyCarriesTheRequestMetricsOfItsCaller() {
+        List<ContextView> contexts = new CopyOnWriteArrayList<>();
+        LookupCoalescer.Lookup<Movies> lookup = lookupCoalescer.create(
+            Movies.class,
+            id ->
+                Mono.deferContextual(context -> {
+                    contexts.add(context);
+                    return Mono.just(movie(id));
+                }),
+            ids -> Flux.empty(),
+            Movies::getId
+        );
+        Object metrics = new Object();
+
+        lookup.find(1L).contextWrite(Context.of(RequestDatabaseMetrics.CONTEXT_KEY, metrics, "caller", "value")).block();
+
+        assertThat(contexts).hasSize(1);
+        assertThat(contexts.get(0).getOrEmpty(RequestDatabaseMetrics.CONTEXT_KEY)).containsSame(metrics);
+        assertThat(contexts.get(0).hasKey("caller")).isFalse();
+    }
+
+    @Test
+    void lookupsAreNotCoalescedWhenDisabled() throws Exception {
+        applicationProperties.getLookupCoalescing().setEnabled(false);
+        Sinks.One<Movies> result = Sinks.one();
+        LookupCoalescer.Lookup<Movies> lookup = lookup(result.asMono());
+
+        CompletableFuture<Movies> first = lookup.find(1L).toFuture();
+        CompletableFuture<Movies> second = lookup.find(1L).toFuture();
+        result.tryEmitValue(movie(1L));
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(second.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(queries.get()).isEqualTo(2);
+    }
+
+    @Test
+    void distinctIdsOfABatchWindowShareOneQuery() throws Exception {
+        applicationProperties.getLookupCoalescing().setBatchWindow(Duration.ofMillis(50));
+        LookupCoalescer.Lookup<Movies> lookup = lookup(Mono.empty());
+
+        CompletableFuture<Movies> first = lookup.find(1L).toFuture();
+        CompletableFuture<Movies> second = lookup.find(2L).toFuture();
+        CompletableFuture<Movies> missing = lookup.find(3L).toFuture();
+        CompletableFuture<Movies> again = lookup.find(1L).toFuture();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getId()).isEqualTo(1L);
+        assertThat(second.get(5, TimeUnit.SECONDS).getId()).isEqualTo(2L);
+        assertThat(missing.get(5, TimeUnit.SECONDS)).isNull();
+        assertThat(again.get(5, TimeUnit.SECONDS)).isSameAs(first.get());
+        assertThat(batches).containsExactly(List.of(1L, 2L, 3L));
+        assertThat(queries.get()).isZero();
+        assertThat(meter(LookupCoalescer.QUERIES_METER_NAME)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,169 @@
+package id.laris.assistant.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.is;
+
+import id.laris.assistant.IntegrationTest;
+import id.laris.assistant.domain.Genre;
+import id.laris.assistant.repository.MovieRepository;
+import id.laris.assistant.service.dto.MovieDTO;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+/**
+ * Integration tests for the {@link MovieCatalogCache}, enabled here unlike in the other tests. The invalidations are
+ * disabled, so that a movie changed behind the back of the catalog shows whether it is served from the catalog.
+ */
+@IntegrationTest
+@AutoConfigureWebTestClient(timeout = IntegrationTest.DEFAULT_ENTITY_TIMEOUT)
+@WithMockUser
+@TestPropertySource(properties = { "application.movie-catalog.enabled=true", "application.invalidation.enabled=false" })
+class MovieCatalogCacheIT {
+
+    private static final String ENTITY_API_URL = "/api/public/movies";
+    private static final String ENTITY_API_URL_ID = ENTITY_API_URL + "/{id}";
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieCatalogCache movieCatalogCache;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private DatabaseClient db;
+
+    @Autowired
+    private ReactiveTransactionManager transactionManager;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    private final List<Long> createdIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        movieCatalogCache.reload().block();
+    }
+
+    @AfterEach
+    void cleanup() {
+        createdIds.forEach(id -> movieRepository.deleteById(id).block());
+    }
+
+    private static MovieDTO movie(String title) {
+        MovieDTO movie = new MovieDTO();
+        movie.setTitle(title);
+        movie.setGenres(List.of("Comedy", "Drama"));
+        return movie;
+    }
+
+    private Long save(MovieDTO movie) {
+        Long id = movieService.save(movie).block().getId();
+        createdIds.add(id);
+        return id;
+    }
+
+    /**
+     * Changes the title of a movie without the catalog seeing it.
+     */
+    private void changeTitleInDatabase(Long id) {
+        db.sql("UPDATE movies SET title = 'Changed in the database' WHERE id = :id").bind("id", id).then().block();
+    }
+
+    @Test
+    void servesTheSavedMoviesFromTheCatalog() {
+        Long id = save(movie("Served from the catalog"));
+        changeTitleInDatabase(id);
+
+        assertThat(movieCatalogCache.get(id).getGenreMask()).isEqualTo(Genre.COMEDY.getBit() | Genre.DRAMA.getBit());
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID, id)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.title")
+            .value(is("Served from the catalog"));
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?sort=id,desc&size=1")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.[0].id")
+            .value(is(id.intValue()))
+            .jsonPath("$.[0].title")
+            .value(is("Served from the catalog"));
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?after=&sort=id,desc&size=1")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.[0].id")
+            .value(is(id.intValue()))
+            .jsonPath("$.[0].title")
+            .value(is("Served from the catalog"));
+    }
+
+    @Test
+    void writesTheUpdatesThroughTheCatalog() {
+        Long id = save(movie("Before the update"));
+        MovieDTO updated = movie("After the update");
+        updated.setId(id);
+
+        movieService.update(updated).block();
+        changeTitleInDatabase(id);
+
+        assertThat(movieCatalogCache.get(id).getTitle()).isEqualTo("After the update");
+    }
+
+    @Test
+    void leavesTheRolledBackWritesOutOfTheCatalog() {
+        AtomicReference<Long> id = new AtomicReference<>();
+        Mono<MovieDTO> rolledBack = movieService
+            .save(movie("Rolled back"))
+            .doOnNext(saved -> id.set(saved.getId()))
+            .then(Mono.<MovieDTO>error(new IllegalStateException("rolled back")))
+            .as(TransactionalOperator.create(transactionManager)::transactional);
+
+        assertThatThrownBy(rolledBack::block).hasMessageContaining("rolled back");
+
+        assertThat(id.get()).isNotNull();
+        assertThat(movieCatalogCache.get(id.get())).isNull();
+        webTestClient.get().uri(ENTITY_API_URL_ID, id.get()).exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void removesTheDeletedMoviesFromTheCatalog() {
+        Long id = save(movie("Deleted"));
+
+        movieService.delete(id).block();
+
+        assertThat(movieCatalogCache.get(id)).isNull();
+        webTestClient.get().uri(ENTITY_API_URL_ID, id).exchange().expectStatus().isNotFound();
+    }
+}
@@ -0,0 +1,151 @@
+package id.laris.assistant.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.domain.Genre;
+import id.laris.assistant.domain.Movies;
+import id.laris.assistant.repository.KeysetCursor;
+import id.laris.assistant.repository.MovieRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Test class for the {@link MovieCatalogCache}.
+ */
+class MovieCatalogCacheTest {
+
+    private MovieRepository movieRepository;
+
+    private ApplicationProperties applicationProperties;
+
+    private MeterRegistry meterRegistry;
+
+    private MovieCatalogCache movieCatalogCache;
+
+    @BeforeEach
+    void setUp() {
+        movieRepository = mock(MovieRepository.class);
+        when(movieRepository.findAll()).thenReturn(Flux.just(movie(3L, "Heat"), movie(1L, "Toy Story"), movie(2L, "Jumanji")));
+        applicationProperties = new ApplicationProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        movieCatalogCache = new MovieCatalogCache(movieRepository, meterRegistry, applicationProperties);
+    }
+
+    private static Movies movie(Long id, String title) {
+        return new Movies().id(id).title(title).genres("Comedy").genreMask(Genre.COMEDY.getBit());
+    }
+
+    private static List<Long> ids(List<Movies> movies) {
+        return movies.stream().map(Movies::getId).toList();
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get(MovieCatalogCache.REQUESTS_METER_NAME).tag("result", result).counter().count();
+    }
+
+    @Test
+    void servesTheLoadedMoviesById() {
+        assertThat(movieCatalogCache.get(1L)).isNull();
+
+        movieCatalogCache.reload().block();
+
+        Movies jumanji = movieCatalogCache.get(2L);
+        assertThat(jumanji.getTitle()).isEqualTo("Jumanji");
+        assertThat(jumanji.getGenreMask()).isEqualTo(Genre.COMEDY.getBit());
+        assertThat(movieCatalogCache.get(4L)).isNull();
+        assertThat(requests("hit")).isEqualTo(1);
+        assertThat(requests("miss")).isEqualTo(2);
+        assertThat(meterRegistry.get(MovieCatalogCache.SIZE_METER_NAME).gauge().value()).isEqualTo(3);
+    }
+
+    @Test
+    void servesThePagesSortedById() {
+        movieCatalogCache.reload().block();
+
+        assertThat(ids(movieCatalogCache.findPage(PageRequest.of(0, 2)))).containsExactly(1L, 2L);
+        assertThat(ids(movieCatalogCache.findPage(PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "id"))))).containsExactly(1L);
+        assertThat(movieCatalogCache.findPage(PageRequest.of(2, 2))).isEmpty();
+        assertThat(movieCatalogCache.findPage(PageRequest.of(0, 2, Sort.by("title")))).isNull();
+    }
+
+    @Test
+    void servesTheKeysetPagesSortedById() {
+        movieCatalogCache.reload().block();
+
+        assertThat(ids(movieCatalogCache.findPageAfter(null, PageRequest.of(0, 2, Sort.by("id"))))).containsExactly(1L, 2L);
+        assertThat(ids(movieCatalogCache.findPageAfter(KeysetCursor.of("id", 1L, 1L), PageRequest.of(0, 2, Sort.by("id"))))).containsExactly(
+            2L,
+            3L
+        );
+        assertThat(
+            ids(movieCatalogCache.findPageAfter(KeysetCursor.of("id", 3L, 3L), PageRequest.of(0, 5, Sort.by(Sort.Direction.DESC, "id"))))
+        ).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void appliesTheWritesThroughTheCatalog() {
+        movieCatalogCache.reload().block();
+
+        movieCatalogCache.put(movie(2L, "Jumanji (1995)"));
+        movieCatalogCache.put(movie(5L, "Father of the Bride Part II"));
+        movieCatalogCache.remove(1L);
+
+        assertThat(movieCatalogCache.get(2L).getTitle()).isEqualTo("Jumanji (1995)");
+        assertThat(ids(movieCatalogCache.findPage(PageRequest.of(0, 10)))).containsExactly(2L, 3L, 5L);
+    }
+
+    @Test
+    void keepsTheWritesMadeDuringAReload() {
+        Sinks.Many<Movies> loaded = Sinks.many().unicast().onBackpressureBuffer();
+        when(movieRepository.findAll()).thenReturn(loaded.asFlux());
+        movieCatalogCache.reload().subscribe();
+
+        loaded.tryEmitNext(movie(1L, "Toy Story"));
+        movieCatalogCache.put(movie(2L, "Jumanji"));
+        loaded.tryEmitNext(movie(3L, "Heat"));
+        movieCatalogCache.remove(3L);
+        loaded.tryEmitComplete();
+
+        assertThat(ids(movieCatalogCache.findPage(PageRequest.of(0, 10)))).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void refetchesTheMoviesChangedByOtherNodes() {
+        movieCatalogCache.reload().block();
+        when(movieRepository.findAllByIds(anyCollection())).thenReturn(Flux.just(movie(2L, "Jumanji (1995)")));
+
+        movieCatalogCache
+            .onEntityChanges(
+                List.of(
+                    new EntityChange("movies", EntityChange.Operation.UPDATE, 2L),
+                    new EntityChange("movies", EntityChange.Operation.DELETE, 3L),
+                    new EntityChange("users", EntityChange.Operation.DELETE, 1L)
+                )
+            )
+            .block();
+
+        assertThat(movieCatalogCache.get(2L).getTitle()).isEqualTo("Jumanji (1995)");
+        assertThat(ids(movieCatalogCache.findPage(PageRequest.of(0, 10)))).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void isNotHeldAboveItsMaxSize() {
+        applicationProperties.getMovieCatalog().setMaxSize(2);
+
+        movieCatalogCache.reload().block();
+
+        assertThat(movieCatalogCache.size()).isZero();
+        assertThat(movieCatalogCache.findPage(PageRequest.of(0, 2))).isNull();
+    }
+}
@@ -0,0 +1,92 @@
+package id.laris.assistant.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import id.laris.assistant.IntegrationTest;
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.repository.PartitionManager;
+import id.laris.assistant.repository.PartitionManager.TimePartition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+/**
+ * Integration tests for the {@link PartitionMaintenanceService}, on a table partitioned like {@code tags} so that the
+ * partitions of the tags are left untouched.
+ */
+@IntegrationTest
+class PartitionMaintenanceServiceIT {
+
+    private static final String TABLE = "partition_maintenance_test";
+
+    @Autowired
+    private DatabaseClient db;
+
+    @Autowired
+    private PartitionManager partitionManager;
+
+    private ApplicationProperties applicationProperties;
+
+    private PartitionMaintenanceService partitionMaintenanceService;
+
+    @BeforeEach
+    void setUp() {
+        db.sql("CREATE TABLE " + TABLE + " (id bigint NOT NULL, timestamp bigint NOT NULL) PARTITION BY RANGE (timestamp)").then().block();
+        db.sql("CREATE TABLE " + TABLE + "_default PARTITION OF " + TABLE + " DEFAULT").then().block();
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getPartitions().setPremadeMonths(1);
+        partitionMaintenanceService = new PartitionMaintenanceService(partitionManager, new SimpleMeterRegistry(), applicationProperties);
+    }
+
+    @AfterEach
+    void cleanup() {
+        db.sql("DROP TABLE IF EXISTS " + TABLE + ", " + TABLE + "_p202501").then().block();
+    }
+
+    private static long epochSecond(YearMonth month) {
+        return month.atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private void insertRowOf(YearMonth month) {
+        db.sql("INSERT INTO " + TABLE + " (id, timestamp) VALUES (1, :timestamp)").bind("timestamp", epochSecond(month)).then().block();
+    }
+
+    private Long count(String table) {
+        return db.sql("SELECT count(*) FROM " + table).map(row -> row.get(0, Long.class)).one().block();
+    }
+
+    private List<String> partitionNames() {
+        return partitionManager.findPartitions(TABLE).map(TimePartition::name).collectList().block();
+    }
+
+    @Test
+    void movesTheRowsOfTheDefaultPartitionToTheCreatedPartition() {
+        insertRowOf(YearMonth.of(2025, 1));
+
+        partitionMaintenanceService.maintain(List.of(TABLE), YearMonth.of(2025, 1)).block();
+
+        assertThat(partitionNames()).containsExactly(TABLE + "_p202501", TABLE + "_p202502", TABLE + "_default");
+        assertThat(count(TABLE + "_p202501")).isEqualTo(1L);
+        assertThat(count(TABLE + "_default")).isZero();
+    }
+
+    @Test
+    void detachesTheExpiredPartitionsOfATableWithADefaultPartition() {
+        insertRowOf(YearMonth.of(2025, 1));
+        partitionMaintenanceService.maintain(List.of(TABLE), YearMonth.of(2025, 1)).block();
+        applicationProperties.getPartitions().setRetentionMonths(1);
+
+        partitionMaintenanceService.maintain(List.of(TABLE), YearMonth.of(2025, 3)).block();
+
+        assertThat(partitionNames()).doesNotContain(TABLE + "_p202501").contains(TABLE + "_p202502", TABLE + "_default");
+        // the detached partition keeps its rows as a standalone table
+        assertThat(count(TABLE + "_p202501")).isEqualTo(1L);
+        assertThat(count(TABLE)).isZero();
+    }
+}
@@ -0,0 +1,105 @@
+package id.laris.assistant.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.repository.PartitionManager;
+import id.laris.assistant.repository.PartitionManager.TimePartition;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Test class for the {@link PartitionMaintenanceService}.
+ */
+class PartitionMaintenanceServiceTest {
+
+    private static final YearMonth CURRENT = YearMonth.of(2025, 3);
+
+    private final List<LocalDate> existing = new ArrayList<>(List.of(LocalDate.of(2025, 3, 1)));
+
+    private PartitionManager partitionManager;
+
+    private ApplicationProperties applicationProperties;
+
+    private MeterRegistry meterRegistry;
+
+    private PartitionMaintenanceService partitionMaintenanceService;
+
+    @BeforeEach
+    void setUp() {
+        partitionManager = mock(PartitionManager.class);
+        when(partitionManager.createMonthlyPartition(eq("tags"), any())).thenAnswer(invocation ->
+            Mono.fromSupplier(() -> !existing.contains(invocation.<LocalDate>getArgument(1)) && existing.add(invocation.getArgument(1)))
+        );
+        when(partitionManager.detachPartition(eq("tags"), any())).thenReturn(Mono.empty());
+        when(partitionManager.dropDetachedPartition(any())).thenReturn(Mono.empty());
+        applicationProperties = new ApplicationProperties();
+        applicationProperties.getPartitions().setPremadeMonths(2);
+        meterRegistry = new SimpleMeterRegistry();
+        partitionMaintenanceService = new PartitionMaintenanceService(partitionManager, meterRegistry, applicationProperties);
+    }
+
+    private static long epochSecond(YearMonth month) {
+        return month.atDay(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private double counted(String meterName) {
+        return meterRegistry.get(meterName).counter().count();
+    }
+
+    @Test
+    void createsThePartitionsOfTheComingMonths() {
+        partitionMaintenanceService.maintain(CURRENT).block();
+
+        assertThat(existing).containsExactly(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 4, 1), LocalDate.of(2025, 5, 1));
+        assertThat(counted(PartitionMaintenanceService.CREATED_METER_NAME)).isEqualTo(2);
+        verify(partitionManager, never()).findPartitions(any());
+    }
+
+    @Test
+    void detachesThePartitionsOlderThanTheRetention() {
+        applicationProperties.getPartitions().setRetentionMonths(2);
+        TimePartition archive = new TimePartition("tags_archive", epochSecond(YearMonth.of(2024, 12)), false);
+        TimePartition december = new TimePartition("tags_p202412", epochSecond(YearMonth.of(2025, 1)), false);
+        TimePartition january = new TimePartition("tags_p202501", epochSecond(YearMonth.of(2025, 2)), false);
+        TimePartition defaultPartition = new TimePartition("tags_default", null, false);
+        when(partitionManager.findPartitions("tags")).thenReturn(Flux.just(archive, december, january, defaultPartition));
+
+        partitionMaintenanceService.maintain(CURRENT).block();
+
+        verify(partitionManager).detachPartition("tags", archive);
+        verify(partitionManager).detachPartition("tags", december);
+        verify(partitionManager, never()).detachPartition("tags", january);
+        verify(partitionManager, never()).detachPartition("tags", defaultPartition);
+        verify(partitionManager, never()).dropDetachedPartition(any());
+        assertThat(counted(PartitionMaintenanceService.DETACHED_METER_NAME)).isEqualTo(2);
+    }
+
+    @Test
+    void dropsTheDetachedPartitionsWhenConfigured() {
+        applicationProperties.getPartitions().setRetentionMonths(1);
+        applicationProperties.getPartitions().setDropDetached(true);
+        TimePartition january = new TimePartition("tags_p202501", epochSecond(YearMonth.of(2025, 2)), false);
+        when(partitionManager.findPartitions("tags")).thenReturn(Flux.just(january));
+
+        partitionMaintenanceService.maintain(CURRENT).block();
+
+        verify(partitionManager).detachPartition("tags", january);
+        verify(partitionManager).dropDetachedPartition(january);
+    }
+}
@@ -0,0 +1,141 @@
+package id.laris.assistant.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.domain.Ratings;
+import id.laris.assistant.repository.RatingRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import reactor.core.publisher.Flux;
+
+/**
+ * Test class for the {@link RatingWriteBehindService}.
+ */
+class RatingWriteBehindServiceTest {
+
+    private static final long UNKNOWN_MOVIE_ID = -1L;
+
+    private final List<List<Ratings>> statements = new ArrayList<>();
+
+    private MeterRegistry meterRegistry;
+
+    private RatingWriteBehindService ratingWriteBehindService;
+
+    @BeforeEach
+    void setUp() {
+        RatingRepository ratingRepository = mock(RatingRepository.class);
+        when(ratingRepository.upsertAllByUserAndMovie(anyList())).thenAnswer(invocation -> upsertAll(invocation.getArgument(0)));
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getWriteBehind().setEnabled(true);
+        applicationProperties.getWriteBehind().setCapacity(3);
+        // large enough and long enough for the tests to flush explicitly
+        applicationProperties.getWriteBehind().setBatchSize(10);
+        applicationProperties.getWriteBehind().setFlushInterval(Duration.ofHours(1));
+        meterRegistry = new SimpleMeterRegistry();
+        ratingWriteBehindService = new RatingWriteBehindService(
+            ratingRepository,
+            mock(TotalCountService.class),
+            meterRegistry,
+            applicationProperties
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        ratingWriteBehindService.stop();
+    }
+
+    /**
+     * Upserts the ratings in one statement, refused as a whole when one of them is of an unknown movie.
+     */
+    private Flux<Boolean> upsertAll(List<Ratings> ratings) {
+        return Flux.defer(() -> {
+            statements.add(List.copyOf(ratings));
+            if (ratings.stream().anyMatch(rating -> rating.getMovieId() == UNKNOWN_MOVIE_ID)) {
+                return Flux.error(new DataIntegrityViolationException("foreign key violated"));
+            }
+            return Flux.fromIterable(ratings).map(rating -> true);
+        });
+    }
+
+    private static Ratings rating(long userId, long movieId, double value, long timestamp) {
+        Ratings ratings = new Ratings().rating(value).timestamp(timestamp);
+        ratings.setUserId(userId);
+        ratings.setMovieId(movieId);
+        return ratings;
+    }
+
+    private double counted(String meterName) {
+        return meterRegistry.get(meterName).counter().count();
+    }
+
+    @Test
+    void rejectsTheRatingsBeyondTheCapacity() {
+        ratingWriteBehindService.start();
+
+        for (long movieId = 1; movieId <= 3; movieId++) {
+            assertThat(ratingWriteBehindService.offer(rating(1, movieId, 4.0, 1))).isTrue();
+        }
+        assertThat(ratingWriteBehindService.offer(rating(1, 4, 4.0, 1))).isFalse();
+
+        assertThat(counted(RatingWriteBehindService.REJECTED_METER_NAME)).isEqualTo(1);
+        assertThat(meterRegistry.get(RatingWriteBehindService.QUEUE_METER_NAME).gauge().value()).isEqualTo(3);
+    }
+
+    @Test
+    void refusesTheRatingsWhenStopped() {
+        assertThat(ratingWriteBehindService.offer(rating(1, 1, 4.0, 1))).isFalse();
+        assertThat(counted(RatingWriteBehindService.REJECTED_METER_NAME)).isEqualTo(1);
+    }
+
+    @Test
+    void coalescesTheRatingsOfABatchByUserAndMovie() {
+        ratingWriteBehindService.start();
+        ratingWriteBehindService.offer(rating(1, 1, 4.0, 2));
+        ratingWriteBehindService.offer(rating(1, 1, 3.0, 1));
+        ratingWriteBehindService.offer(rating(1, 2, 5.0, 1));
+
+        ratingWriteBehindService.flush().block();
+
+        assertThat(statements).hasSize(1);
+        assertThat(statements.get(0)).extracting(Ratings::getMovieId, Ratings::getRating).containsExactly(
+            tuple(1L, 4.0),
+            tuple(2L, 5.0)
+        );
+    }
+
+    @Test
+    void retriesARefusedBatchOneByOne() {
+        ratingWriteBehindService.start();
+        ratingWriteBehindService.offer(rating(1, 1, 4.0, 1));
+        ratingWriteBehindService.offer(rating(1, UNKNOWN_MOVIE_ID, 3.0, 1));
+
+        ratingWriteBehindService.flush().block();
+
+        assertThat(statements).extracting(List::size).containsExactly(2, 1, 1);
+        assertThat(counted(RatingWriteBehindService.FAILED_METER_NAME)).isEqualTo(1);
+    }
+
+    @Test
+    void writesTheQueuedRatingsWhenStopping() {
+        ratingWriteBehindService.start();
+        ratingWriteBehindService.offer(rating(1, 1, 4.0, 1));
+
+        ratingWriteBehindService.stop();
+
+        assertThat(statements).hasSize(1);
+        assertThat(meterRegistry.get(RatingWriteBehindService.QUEUE_METER_NAME).gauge().value()).isZero();
+    }
+}
@@ -0,0 +1,82 @@
+package id.laris.assistant.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.domain.Ratings;
+import id.laris.assistant.repository.EntityManager;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+/**
+ * Test class for the {@link TotalCountService}.
+ */
+class TotalCountServiceTest {
+
+    private EntityManager entityManager;
+
+    private TotalCountService totalCountService;
+
+    private final AtomicInteger exactCounts = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        entityManager = mock(EntityManager.class);
+        totalCountService = new TotalCountService(entityManager, new ApplicationProperties());
+    }
+
+    private Mono<Long> exactCount() {
+        exactCounts.incrementAndGet();
+        return Mono.just(10L);
+    }
+
+    @Test
+    void cachedCountIsMaintainedByTheWritePaths() {
+        TotalCount first = totalCountService.count(Ratings.class, CountStrategy.CACHED, this::exactCount).block();
+        totalCountService.increment(Ratings.class);
+        totalCountService.increment(Ratings.class);
+        totalCountService.decrement(Ratings.class);
+        TotalCount second = totalCountService.count(Ratings.class, CountStrategy.CACHED, this::exactCount).block();
+
+        assertThat(first.getCount()).isEqualTo(10L);
+        assertThat(second.getCount()).isEqualTo(11L);
+        assertThat(second.getStrategy()).isEqualTo(CountStrategy.CACHED);
+        assertThat(exactCounts.get()).isEqualTo(1);
+    }
+
+    @Test
+    void estimatedCountFallsBackToExactWithoutStatistics() {
+        when(entityManager.estimateCount(Ratings.class)).thenReturn(Mono.empty());
+
+        TotalCount count = totalCountService.count(Ratings.class, CountStrategy.ESTIMATED, this::exactCount).block();
+
+        assertThat(count.getCount()).isEqualTo(10L);
+        assertThat(count.getStrategy()).isEqualTo(CountStrategy.EXACT);
+    }
+
+    @Test
+    void defaultStrategyIsExact() {
+        TotalCount count = totalCountService.count(Ratings.class, null, this::exactCount).block();
+
+        assertThat(count.getStrategy()).isEqualTo(CountStrategy.EXACT);
+    }
+
+    @Test
+    void cachedCountIsRefreshedAfterTheRowsOfItsTableChanged() {
+        totalCountService.count(Ratings.class, CountStrategy.CACHED, this::exactCount).block();
+        totalCountService.onEntityChanges(List.of(new EntityChange("ratings", EntityChange.Operation.UPDATE, 1L))).block();
+        totalCountService.count(Ratings.class, CountStrategy.CACHED, this::exactCount).block();
+
+        assertThat(exactCounts.get()).isEqualTo(1);
+
+        totalCountService.onEntityChanges(List.of(new EntityChange("ratings", EntityChange.Operation.INSERT, 2L))).block();
+        totalCountService.count(Ratings.class, CountStrategy.CACHED, this::exactCount).block();
+
+        assertThat(exactCounts.get()).isEqualTo(2);
+    }
+}
@@ -2,6 +2,7 @@ package id.laris.assistant.service.mapper;
 
 import static id.laris.assistant.domain.RatingsAsserts.*;
 import static id.laris.assistant.domain.RatingsTestSamples.*;
+import static org.assertj.core.api.Assertions.assertThat;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,4 +22,29 @@ class RatingsMapperTest {
         var actual = ratingMapper.toEntity(ratingMapper.toDto(expected));
         assertRatingsAllPropertiesEquals(expected, actual);
     }
+
+    @Test
+    void shouldMapRelationshipIdsWithoutLoadedRelationships() {
+        var ratings = getRatingsSample1();
+        ratings.setUserId(2L);
+        ratings.setMovieId(3L);
+
+        var dto = ratingMapper.toDto(ratings);
+
+        assertThat(dto.getUsers().getId()).isEqualTo(2L);
+        assertThat(dto.getMovies().getId()).isEqualTo(3L);
+    }
+
+    @Test
+    void shouldMapToFlatExportRow() {
+        var ratings = getRatingsSample1();
+        ratings.setUserId(2L);
+        ratings.setMovieId(3L);
+
+        var row = ratingMapper.toExportDto(ratings);
+
+        assertThat(row.getId()).isEqualTo(ratings.getId());
+        assertThat(row.getUserId()).isEqualTo(2L);
+        assertThat(row.getMovieId()).isEqualTo(3L);
+    }
 }
@@ -2,6 +2,7 @@ package id.laris.assistant.service.mapper;
 
 import static id.laris.assistant.domain.TagsAsserts.*;
 import static id.laris.assistant.domain.TagsTestSamples.*;
+import static org.assertj.core.api.Assertions.assertThat;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -21,4 +22,29 @@ class TagsMapperTest {
         var actual = tagMapper.toEntity(tagMapper.toDto(expected));
         assertTagsAllPropertiesEquals(expected, actual);
     }
+
+    @Test
+    void shouldMapRelationshipIdsWithoutLoadedRelationships() {
+        var tags = getTagsSample1();
+        tags.setUserId(2L);
+        tags.setMovieId(3L);
+
+        var dto = tagMapper.toDto(tags);
+
+        assertThat(dto.getUsers().getId()).isEqualTo(2L);
+        assertThat(dto.getMovies().getId()).isEqualTo(3L);
+    }
+
+    @Test
+    void shouldMapToFlatExportRow() {
+        var tags = getTagsSample1();
+        tags.setUserId(2L);
+        tags.setMovieId(3L);
+
+        var row = tagMapper.toExportDto(tags);
+
+        assertThat(row.getId()).isEqualTo(tags.getId());
+        assertThat(row.getUserId()).isEqualTo(2L);
+        assertThat(row.getMovieId()).isEqualTo(3L);
+    }
 }
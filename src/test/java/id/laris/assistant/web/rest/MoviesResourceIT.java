@@ -3,24 +3,42 @@ package id.laris.assistant.web.rest;
 import static id.laris.assistant.domain.MoviesAsserts.*;
 import static id.laris.assistant.web.rest.TestUtil.createUpdateProxyForBean;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import id.laris.assistant.IntegrationTest;
+import id.laris.assistant.config.StatementCountingConfiguration.StatementCounter;
+import id.laris.assistant.domain.Genre;
 import id.laris.assistant.domain.Movies;
+import id.laris.assistant.domain.Ratings;
+import id.laris.assistant.domain.Tags;
+import id.laris.assistant.domain.Users;
 import id.laris.assistant.repository.EntityManager;
+import id.laris.assistant.repository.MovieRatingStatsRepository;
 import id.laris.assistant.repository.MovieRepository;
+import id.laris.assistant.repository.RatingRepository;
+import id.laris.assistant.repository.TagRepository;
+import id.laris.assistant.repository.UserRepository;
+import id.laris.assistant.service.MovieRatingStatsReconciler;
 import id.laris.assistant.service.dto.MovieDTO;
 import id.laris.assistant.service.mapper.MovieMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
@@ -40,6 +58,12 @@ class MoviesResourceIT {
 
     private static final String ENTITY_API_URL = "/api/movies";
     private static final String ENTITY_API_URL_ID = ENTITY_API_URL + "/{id}";
+    private static final String STATS_API_URL = "/api/public/movies/{id}/stats";
+    private static final String IDS_API_URL = "/api/public/movies?ids={ids}";
+    private static final String MGET_API_URL = "/api/public/movies/_mget";
+    private static final String PUBLIC_API_URL = "/api/public/movies";
+    private static final String RATINGS_API_URL = "/api/public/movies/{id}/ratings";
+    private static final String TAGS_API_URL = "/api/public/movies/{id}/tags";
 
     private static Random random = new Random();
     private static AtomicLong longCount = new AtomicLong(random.nextInt() + (2 * Integer.MAX_VALUE));
@@ -59,10 +83,36 @@ class MoviesResourceIT {
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RatingRepository ratingRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private MovieRatingStatsRepository movieRatingStatsRepository;
+
+    @Autowired
+    private MovieRatingStatsReconciler movieRatingStatsReconciler;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private Movies movies;
 
     private Movies insertedMovies;
 
+    private final List<Users> insertedUsers = new ArrayList<>();
+
     /**
      * Create an entity for this test.
      *
@@ -98,13 +148,63 @@ class MoviesResourceIT {
 
     @AfterEach
     public void cleanup() {
+        RatingsResourceIT.deleteEntities(em);
+        TagsResourceIT.deleteEntities(em);
         if (insertedMovies != null) {
             movieRepository.delete(insertedMovies).block();
             insertedMovies = null;
         }
+        insertedUsers.forEach(users -> userRepository.delete(users).block());
+        insertedUsers.clear();
         deleteEntities(em);
     }
 
+    /**
+     * Rates the inserted movies once per rating, each time by a new user since a user rates a movie at most once.
+     */
+    private void rate(double... ratings) {
+        long timestamp = 964982703L;
+        for (double rating : ratings) {
+            Users users = userRepository.save(UsersResourceIT.createEntity()).block();
+            insertedUsers.add(users);
+            ratingRepository.save(new Ratings().rating(rating).timestamp(timestamp++).users(users).movies(insertedMovies)).block();
+        }
+    }
+
+    private void rateAt(double rating, long timestamp) {
+        Users users = userRepository.save(UsersResourceIT.createEntity()).block();
+        insertedUsers.add(users);
+        ratingRepository.save(new Ratings().rating(rating).timestamp(timestamp).users(users).movies(insertedMovies)).block();
+    }
+
+    private void tagAt(String tag, long timestamp) {
+        Users users = userRepository.save(UsersResourceIT.createEntity()).block();
+        insertedUsers.add(users);
+        tagRepository.save(new Tags().tag(tag).timestamp(timestamp).users(users).movies(insertedMovies)).block();
+    }
+
+    private Long idOfPageOfPagedselectMovies(int page) {
+        return webTestClient
+            .get()
+            .uri(PUBLIC_API_URL + "?title.equals=Pagedselect&sort=id,asc&size=1&page=" + page)
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .returnResult(MovieDTO.class)
+            .getResponseBody()
+            .blockFirst()
+            .getId();
+    }
+
+    private double selectTemplateLookups(String result) {
+        return meterRegistry
+            .get(EntityManager.SELECT_CACHE_METER_NAME)
+            .tag(EntityManager.SELECT_CACHE_METER_RESULT_DIMENSION, result)
+            .counter()
+            .count();
+    }
+
     @Test
     void createMovies() throws Exception {
         long databaseSizeBeforeCreate = getRepositoryCount();
@@ -214,7 +314,7 @@ class MoviesResourceIT {
             .value(hasItem(movies.getId().intValue()))
             .jsonPath("$.[*].title")
             .value(hasItem(DEFAULT_TITLE))
-            .jsonPath("$.[*].genres")
+            .jsonPath("$.[*].genres[*]")
             .value(hasItem(DEFAULT_GENRES));
     }
 
@@ -239,7 +339,224 @@ class MoviesResourceIT {
             .jsonPath("$.title")
             .value(is(DEFAULT_TITLE))
             .jsonPath("$.genres")
-            .value(is(DEFAULT_GENRES));
+            .value(contains(DEFAULT_GENRES));
+    }
+
+    private Long createWithGenres(String title, String genres) throws Exception {
+        MovieDTO movieDTO = movieMapper.toDto(new Movies().title(title).genres(genres));
+        return webTestClient
+            .post()
+            .uri(ENTITY_API_URL)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(om.writeValueAsBytes(movieDTO))
+            .exchange()
+            .expectStatus()
+            .isCreated()
+            .expectBody(MovieDTO.class)
+            .returnResult()
+            .getResponseBody()
+            .getId();
+    }
+
+    @Test
+    void getAllMoviesFilteredByGenres() throws Exception {
+        // Initialize the database, the service computing the genre masks
+        Long romance = createWithGenres("Genrefilter1", "Comedy|Romance");
+        Long action = createWithGenres("Genrefilter2", "Action|Comedy");
+        createWithGenres("Genrefilter3", "Drama");
+        createWithGenres("Genrefilter4", Genre.NONE_LISTED);
+
+        assertThat(movieRepository.findById(romance).block().getGenreMask()).isEqualTo(Genre.COMEDY.getBit() | Genre.ROMANCE.getBit());
+
+        // Any of the genres
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?title.startsWith=Genrefilter&genres.in=Drama,romance&sort=id,asc")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.length()")
+            .value(is(2))
+            .jsonPath("$[0].genres")
+            .value(contains("Comedy", "Romance"));
+
+        // All of the genres
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?title.startsWith=Genrefilter&genres.contains=Comedy,Action")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.length()")
+            .value(is(1))
+            .jsonPath("$[0].id")
+            .value(is(action.intValue()));
+
+        // The movies without genre
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?title.startsWith=Genrefilter4")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$[0].genres.length()")
+            .value(is(0));
+
+        // A genre outside the dictionary
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?genres.in=Polka")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+    }
+
+    @Test
+    void getMovieRatingStats() {
+        // Initialize the database
+        insertedMovies = movieRepository.save(movies).block();
+        rate(3.0, 4.0, 4.0);
+
+        // Get the aggregates, maintained by the triggers of the ratings table
+        webTestClient
+            .get()
+            .uri(STATS_API_URL, insertedMovies.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.movieId")
+            .value(is(insertedMovies.getId().intValue()))
+            .jsonPath("$.count")
+            .value(is(3))
+            .jsonPath("$.sum")
+            .value(is(11.0))
+            .jsonPath("$.lastRatedAt")
+            .value(is(964982705))
+            .jsonPath("$.histogram[5]")
+            .value(is(1))
+            .jsonPath("$.histogram[7]")
+            .value(is(2));
+    }
+
+    @Test
+    void getMovieRatingStatsOfAMovieNeverRated() {
+        // Initialize the database
+        insertedMovies = movieRepository.save(movies).block();
+
+        webTestClient
+            .get()
+            .uri(STATS_API_URL, insertedMovies.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.count")
+            .value(is(0))
+            .jsonPath("$.average")
+            .doesNotExist();
+    }
+
+    @Test
+    void getMovieRatingStatsOfANonExistingMovie() {
+        webTestClient
+            .get()
+            .uri(STATS_API_URL, Long.MAX_VALUE)
+            .accept(MediaType.APPLICATION_PROBLEM_JSON)
+            .exchange()
+            .expectStatus()
+            .isNotFound();
+    }
+
+    @Test
+    void reconcileCorrectsTheDriftedRatingStats() {
+        // Initialize the database
+        insertedMovies = movieRepository.save(movies).block();
+        rate(3.0, 4.0);
+        databaseClient
+            .sql("UPDATE movie_rating_stats SET rating_count = 5, rating_sum = 0 WHERE movie_id = :id")
+            .bind("id", insertedMovies.getId())
+            .then()
+            .block();
+
+        assertThat(movieRatingStatsReconciler.reconcile().block()).isGreaterThanOrEqualTo(1L);
+
+        var stats = movieRatingStatsRepository.findById(insertedMovies.getId()).block();
+        assertThat(stats.getRatingCount()).isEqualTo(2L);
+        assertThat(stats.getRatingSum()).isEqualTo(7.0);
+        assertThat(stats.getRatingSumSquares()).isEqualTo(25.0);
+    }
+
+    @Test
+    void getMoviesByIdsInTheOrderOfTheIds() {
+        // Initialize the database
+        insertedMovies = movieRepository.save(movies).block();
+        Movies other = movieRepository.save(createUpdatedEntity()).block();
+
+        // Get the movies, a missing id being skipped
+        webTestClient
+            .get()
+            .uri(IDS_API_URL, other.getId() + "," + Long.MAX_VALUE + "," + movies.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.length()")
+            .value(is(2))
+            .jsonPath("$[0].title")
+            .value(is(UPDATED_TITLE))
+            .jsonPath("$[1].title")
+            .value(is(DEFAULT_TITLE));
+    }
+
+    @Test
+    void multiGetMoviesWithOneStatement() throws Exception {
+        // Initialize the database
+        insertedMovies = movieRepository.save(movies).block();
+        Movies other = movieRepository.save(createUpdatedEntity()).block();
+
+        statementCounter.reset();
+        webTestClient
+            .post()
+            .uri(MGET_API_URL)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(om.writeValueAsBytes(List.of(movies.getId(), other.getId(), movies.getId())))
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.length()")
+            .value(is(2))
+            .jsonPath("$[0].id")
+            .value(is(movies.getId().intValue()))
+            .jsonPath("$[1].id")
+            .value(is(other.getId().intValue()));
+
+        assertThat(statementCounter.count()).isEqualTo(1);
+    }
+
+    @Test
+    void multiGetMoviesAboveTheMaxIds() throws Exception {
+        List<Long> ids = LongStream.rangeClosed(1, 101).boxed().toList();
+
+        webTestClient
+            .post()
+            .uri(MGET_API_URL)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(om.writeValueAsBytes(ids))
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
     }
 
     @Test
@@ -288,7 +605,7 @@ class MoviesResourceIT {
         // Create the Movies
         MovieDTO movieDTO = movieMapper.toDto(movies);
 
-        // If the entity doesn't have an ID, it will throw BadRequestAlertException
+        // The update finds no row to update
         webTestClient
             .put()
             .uri(ENTITY_API_URL_ID, movieDTO.getId())
@@ -296,7 +613,7 @@ class MoviesResourceIT {
             .bodyValue(om.writeValueAsBytes(movieDTO))
             .exchange()
             .expectStatus()
-            .isBadRequest();
+            .isNotFound();
 
         // Validate the Movies in the database
         assertSameRepositoryCount(databaseSizeBeforeUpdate);
@@ -402,6 +719,53 @@ class MoviesResourceIT {
         assertMoviesUpdatableFieldsEquals(partialUpdatedMovies, getPersistedMovies(partialUpdatedMovies));
     }
 
+    @Test
+    void putExistingMoviesWithOneStatement() throws Exception {
+        // Initialize the database
+        insertedMovies = movieRepository.save(movies).block();
+
+        Movies updatedMovies = movieRepository.findById(movies.getId()).block();
+        updatedMovies.title(UPDATED_TITLE).genres(UPDATED_GENRES);
+        MovieDTO movieDTO = movieMapper.toDto(updatedMovies);
+
+        statementCounter.reset();
+        webTestClient
+            .put()
+            .uri(ENTITY_API_URL_ID, movieDTO.getId())
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(om.writeValueAsBytes(movieDTO))
+            .exchange()
+            .expectStatus()
+            .isOk();
+
+        // A single UPDATE ... RETURNING, without existence check nor reload
+        assertThat(statementCounter.count()).isEqualTo(1);
+    }
+
+    @Test
+    void patchExistingMoviesWithOneStatement() throws Exception {
+        // Initialize the database
+        insertedMovies = movieRepository.save(movies).block();
+
+        Movies partialUpdatedMovies = new Movies();
+        partialUpdatedMovies.setId(movies.getId());
+
+        partialUpdatedMovies.title(UPDATED_TITLE);
+
+        statementCounter.reset();
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL_ID, partialUpdatedMovies.getId())
+            .contentType(MediaType.valueOf("application/merge-patch+json"))
+            .bodyValue(om.writeValueAsBytes(partialUpdatedMovies))
+            .exchange()
+            .expectStatus()
+            .isOk();
+
+        // A single UPDATE ... SET column = COALESCE(:value, column) RETURNING
+        assertThat(statementCounter.count()).isEqualTo(1);
+    }
+
     @Test
     void patchNonExistingMovies() throws Exception {
         long databaseSizeBeforeUpdate = getRepositoryCount();
@@ -410,7 +774,7 @@ class MoviesResourceIT {
         // Create the Movies
         MovieDTO movieDTO = movieMapper.toDto(movies);
 
-        // If the entity doesn't have an ID, it will throw BadRequestAlertException
+        // The update finds no row to update
         webTestClient
             .patch()
             .uri(ENTITY_API_URL_ID, movieDTO.getId())
@@ -418,7 +782,7 @@ class MoviesResourceIT {
             .bodyValue(om.writeValueAsBytes(movieDTO))
             .exchange()
             .expectStatus()
-            .isBadRequest();
+            .isNotFound();
 
         // Validate the Movies in the database
         assertSameRepositoryCount(databaseSizeBeforeUpdate);
@@ -468,6 +832,110 @@ class MoviesResourceIT {
         assertSameRepositoryCount(databaseSizeBeforeUpdate);
     }
 
+    @Test
+    void getTwoPagesOfMoviesWithOneRenderedSelect() {
+        // Initialize the database
+        insertedMovies = movieRepository.save(movies.title("Pagedselect")).block();
+        Movies secondMovies = movieRepository.save(createEntity().title("Pagedselect")).block();
+
+        Long firstPage = idOfPageOfPagedselectMovies(0);
+        double misses = selectTemplateLookups("miss");
+        double hits = selectTemplateLookups("hit");
+        Long secondPage = idOfPageOfPagedselectMovies(1);
+
+        // the second page is served by the statement rendered for the first one, bound to another offset
+        assertThat(List.of(firstPage, secondPage)).containsExactly(insertedMovies.getId(), secondMovies.getId());
+        assertThat(selectTemplateLookups("miss")).isEqualTo(misses);
+        assertThat(selectTemplateLookups("hit")).isGreaterThan(hits);
+    }
+
+    @Test
+    void getMoviesRatingsBestRatedFirst() {
+        // Initialize the database
+        insertedMovies = movieRepository.save(movies).block();
+        rateAt(4.0, 100L);
+        rateAt(3.5, 200L);
+        rateAt(5.0, 250L);
+        rateAt(4.5, 300L);
+
+        webTestClient
+            .get()
+            .uri(RATINGS_API_URL + "?size=3", insertedMovies.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "4")
+            .expectHeader()
+            .value(HttpHeaders.LINK, containsString("rel=\"next\""))
+            .expectBody()
+            .jsonPath("$.[*].rating")
+            .value(contains(5.0, 4.5, 4.0));
+    }
+
+    @Test
+    void getMoviesRatingsWithinTheBounds() {
+        // Initialize the database
+        insertedMovies = movieRepository.save(movies).block();
+        rateAt(4.0, 100L);
+        rateAt(3.5, 200L);
+        rateAt(4.0, 250L);
+        rateAt(4.5, 300L);
+
+        // the upper bound is exclusive, and a minimum of 3.7 stars selects the ratings of 4 stars and more
+        webTestClient
+            .get()
+            .uri(RATINGS_API_URL + "?from=200&to=300&minRating=3.7", insertedMovies.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "1")
+            .expectBody()
+            .jsonPath("$.[*].timestamp")
+            .value(contains(250))
+            .jsonPath("$.[0].rating")
+            .value(is(4.0));
+    }
+
+    @Test
+    void getMoviesTagsMostRecentFirstWithinTheBounds() {
+        // Initialize the database
+        insertedMovies = movieRepository.save(movies).block();
+        tagAt("first", 100L);
+        tagAt("second", 200L);
+        tagAt("third", 300L);
+
+        webTestClient
+            .get()
+            .uri(TAGS_API_URL + "?to=300", insertedMovies.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "2")
+            .expectBody()
+            .jsonPath("$.[*].tag")
+            .value(contains("second", "first"));
+    }
+
+    @Test
+    void getMoviesTagsWithAnEmptyTimeRange() {
+        // Initialize the database
+        insertedMovies = movieRepository.save(movies).block();
+
+        webTestClient
+            .get()
+            .uri(TAGS_API_URL + "?from=200&to=200", insertedMovies.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+    }
+
     @Test
     void deleteMovies() {
         // Initialize the database
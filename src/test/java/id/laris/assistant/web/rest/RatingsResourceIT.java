@@ -6,13 +6,21 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import id.laris.assistant.IntegrationTest;
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.config.StatementCountingConfiguration.StatementCounter;
 import id.laris.assistant.domain.Ratings;
 import id.laris.assistant.repository.EntityManager;
 import id.laris.assistant.repository.RatingRepository;
 import id.laris.assistant.service.dto.RatingDTO;
+import id.laris.assistant.service.dto.RatingExportDTO;
+import id.laris.assistant.service.dto.UserDTO;
 import id.laris.assistant.service.mapper.RatingMapper;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.AfterEach;
@@ -23,6 +31,7 @@ import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWeb
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 
 /**
  * Integration tests for the {@link RatingResource} REST controller.
@@ -40,6 +49,8 @@ class RatingsResourceIT {
 
     private static final String ENTITY_API_URL = "/api/ratings";
     private static final String ENTITY_API_URL_ID = ENTITY_API_URL + "/{id}";
+    private static final String ENTITY_API_URL_BULK = "/api/public/movie-ratings/_bulk";
+    private static final String ENTITY_API_URL_EXPORT = "/api/public/movie-ratings/_export";
 
     private static Random random = new Random();
     private static AtomicLong longCount = new AtomicLong(random.nextInt() + (2 * Integer.MAX_VALUE));
@@ -59,6 +70,12 @@ class RatingsResourceIT {
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
     private Ratings ratings;
 
     private Ratings insertedRatings;
@@ -218,6 +235,59 @@ class RatingsResourceIT {
             .value(hasItem(DEFAULT_TIMESTAMP.intValue()));
     }
 
+    @Test
+    void getAllRatingsAfterAppliesTheFilter() {
+        // Initialize the database
+        insertedRatings = ratingRepository.save(ratings).block();
+
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?after=&id.equals=" + ratings.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.length()")
+            .value(is(1))
+            .jsonPath("$[0].id")
+            .value(is(ratings.getId().intValue()));
+
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?after=&id.equals=" + (ratings.getId() + 1))
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.length()")
+            .value(is(0));
+
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?eagerload=true&id.equals=" + (ratings.getId() + 1))
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.length()")
+            .value(is(0));
+    }
+
+    @Test
+    void getAllRatingsAfterSortedOnAPropertyTheDtoDoesNotExpose() {
+        // The next cursor could not be read from the returned ratings
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?after=&sort=userId,asc")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+    }
+
     @Test
     void getRatings() {
         // Initialize the database
@@ -288,7 +358,7 @@ class RatingsResourceIT {
         // Create the Ratings
         RatingDTO ratingDTO = ratingMapper.toDto(ratings);
 
-        // If the entity doesn't have an ID, it will throw BadRequestAlertException
+        // The update finds no row to update
         webTestClient
             .put()
             .uri(ENTITY_API_URL_ID, ratingDTO.getId())
@@ -296,7 +366,7 @@ class RatingsResourceIT {
             .bodyValue(om.writeValueAsBytes(ratingDTO))
             .exchange()
             .expectStatus()
-            .isBadRequest();
+            .isNotFound();
 
         // Validate the Ratings in the database
         assertSameRepositoryCount(databaseSizeBeforeUpdate);
@@ -402,6 +472,53 @@ class RatingsResourceIT {
         assertRatingsUpdatableFieldsEquals(partialUpdatedRatings, getPersistedRatings(partialUpdatedRatings));
     }
 
+    @Test
+    void putExistingRatingsWithOneStatement() throws Exception {
+        // Initialize the database
+        insertedRatings = ratingRepository.save(ratings).block();
+
+        Ratings updatedRatings = ratingRepository.findById(ratings.getId()).block();
+        updatedRatings.rating(UPDATED_RATING).timestamp(UPDATED_TIMESTAMP);
+        RatingDTO ratingDTO = ratingMapper.toDto(updatedRatings);
+
+        statementCounter.reset();
+        webTestClient
+            .put()
+            .uri(ENTITY_API_URL_ID, ratingDTO.getId())
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(om.writeValueAsBytes(ratingDTO))
+            .exchange()
+            .expectStatus()
+            .isOk();
+
+        // A single UPDATE ... RETURNING, without existence check nor reload
+        assertThat(statementCounter.count()).isEqualTo(1);
+    }
+
+    @Test
+    void patchExistingRatingsWithOneStatement() throws Exception {
+        // Initialize the database
+        insertedRatings = ratingRepository.save(ratings).block();
+
+        Ratings partialUpdatedRatings = new Ratings();
+        partialUpdatedRatings.setId(ratings.getId());
+
+        partialUpdatedRatings.rating(UPDATED_RATING);
+
+        statementCounter.reset();
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL_ID, partialUpdatedRatings.getId())
+            .contentType(MediaType.valueOf("application/merge-patch+json"))
+            .bodyValue(om.writeValueAsBytes(partialUpdatedRatings))
+            .exchange()
+            .expectStatus()
+            .isOk();
+
+        // A single UPDATE ... SET column = COALESCE(:value, column) RETURNING
+        assertThat(statementCounter.count()).isEqualTo(1);
+    }
+
     @Test
     void patchNonExistingRatings() throws Exception {
         long databaseSizeBeforeUpdate = getRepositoryCount();
@@ -410,7 +527,7 @@ class RatingsResourceIT {
         // Create the Ratings
         RatingDTO ratingDTO = ratingMapper.toDto(ratings);
 
-        // If the entity doesn't have an ID, it will throw BadRequestAlertException
+        // The update finds no row to update
         webTestClient
             .patch()
             .uri(ENTITY_API_URL_ID, ratingDTO.getId())
@@ -418,7 +535,7 @@ class RatingsResourceIT {
             .bodyValue(om.writeValueAsBytes(ratingDTO))
             .exchange()
             .expectStatus()
-            .isBadRequest();
+            .isNotFound();
 
         // Validate the Ratings in the database
         assertSameRepositoryCount(databaseSizeBeforeUpdate);
@@ -488,6 +605,191 @@ class RatingsResourceIT {
         assertDecrementedRepositoryCount(databaseSizeBeforeDelete);
     }
 
+    @Test
+    void createRatingsInBulkFromAJsonArray() {
+        long databaseSizeBeforeCreate = getRepositoryCount();
+        RatingDTO invalid = newRatingsDTO();
+        invalid.setRating(null);
+        List<RatingDTO> ratingDTOs = List.of(newRatingsDTO(), invalid, newRatingsDTOOfAMissingUsers());
+
+        withBulkChunkSize(2, () ->
+            webTestClient
+                .post()
+                .uri(ENTITY_API_URL_BULK)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(ratingDTOs)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.length()")
+                .value(is(2))
+                .jsonPath("$.[0].chunk")
+                .value(is(0))
+                .jsonPath("$.[0].ids.length()")
+                .value(is(1))
+                .jsonPath("$.[0].errors[0].index")
+                .value(is(1))
+                .jsonPath("$.[0].errors[0].message")
+                .value(is("rating must not be null"))
+                .jsonPath("$.[1].chunk")
+                .value(is(1))
+                .jsonPath("$.[1].ids.length()")
+                .value(is(0))
+                .jsonPath("$.[1].errors[0].index")
+                .value(is(2))
+                .jsonPath("$.[1].errors[0].message")
+                .value(is("The users is not found"))
+        );
+
+        assertThat(getRepositoryCount()).isEqualTo(databaseSizeBeforeCreate + 1);
+    }
+
+    @Test
+    void createRatingsInBulkFromNdjson() throws Exception {
+        long databaseSizeBeforeCreate = getRepositoryCount();
+        // the refused chunk is retried item by item, which keeps the valid item next to the refused one
+        String body = String.join(
+            "\n",
+            om.writeValueAsString(newRatingsDTO()),
+            om.writeValueAsString(newRatingsDTOOfAMissingUsers()),
+            om.writeValueAsString(newRatingsDTO())
+        );
+
+        List<JsonNode> results = new ArrayList<>();
+        withBulkChunkSize(2, () ->
+            results.addAll(
+                webTestClient
+                    .post()
+                    .uri(ENTITY_API_URL_BULK)
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .bodyValue(body)
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectHeader()
+                    .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                    .returnResult(JsonNode.class)
+                    .getResponseBody()
+                    .collectList()
+                    .block()
+            )
+        );
+
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0).get("ids")).hasSize(1);
+        assertThat(results.get(0).get("errors")).hasSize(1);
+        assertThat(results.get(0).get("errors").get(0).get("index").asLong()).isEqualTo(1L);
+        assertThat(results.get(0).get("errors").get(0).get("message").asText()).isEqualTo("The users is not found");
+        assertThat(results.get(1).get("ids")).hasSize(1);
+        assertThat(results.get(1).get("errors")).isEmpty();
+        assertThat(getRepositoryCount()).isEqualTo(databaseSizeBeforeCreate + 2);
+    }
+
+    @Test
+    void exportRatingsAsNdjsonInIdOrder() {
+        List<Long> ids = insertRatingsForExport();
+
+        List<RatingExportDTO> exported = webTestClient
+            .get()
+            .uri(ENTITY_API_URL_EXPORT)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .returnResult(RatingExportDTO.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+
+        assertExportedInIdOrder(exported, ids);
+    }
+
+    @Test
+    void exportRatingsAsServerSentEventsInIdOrder() {
+        List<Long> ids = insertRatingsForExport();
+
+        List<RatingExportDTO> exported = webTestClient
+            .get()
+            .uri(ENTITY_API_URL_EXPORT)
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+            .returnResult(RatingExportDTO.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+
+        assertExportedInIdOrder(exported, ids);
+    }
+
+    @Test
+    void exportRatingsThroughSeveralFetchesOfTheCursor() {
+        List<Long> ids = insertRatingsForExport();
+        int fetchSize = applicationProperties.getExport().getFetchSize();
+        // the rows are read by 2 from the cursor, which only lives in the read-only transaction of the export
+        applicationProperties.getExport().setFetchSize(2);
+        try {
+            List<RatingExportDTO> exported = webTestClient
+                .get()
+                .uri(ENTITY_API_URL_EXPORT)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(RatingExportDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+            assertExportedInIdOrder(exported, ids);
+        } finally {
+            applicationProperties.getExport().setFetchSize(fetchSize);
+        }
+    }
+
+    private RatingDTO newRatingsDTO() {
+        return ratingMapper.toDto(createEntity());
+    }
+
+    private RatingDTO newRatingsDTOOfAMissingUsers() {
+        UserDTO users = new UserDTO();
+        users.setId(Long.MAX_VALUE);
+        RatingDTO ratingDTO = newRatingsDTO();
+        ratingDTO.setUsers(users);
+        return ratingDTO;
+    }
+
+    private void withBulkChunkSize(int chunkSize, Runnable test) {
+        int defaultChunkSize = applicationProperties.getBulk().getChunkSize();
+        applicationProperties.getBulk().setChunkSize(chunkSize);
+        try {
+            test.run();
+        } finally {
+            applicationProperties.getBulk().setChunkSize(defaultChunkSize);
+        }
+    }
+
+    private List<Long> insertRatingsForExport() {
+        return Flux.range(0, 5)
+            .concatMap(i -> ratingRepository.save(createEntity().rating(DEFAULT_RATING + i)))
+            .map(Ratings::getId)
+            .collectList()
+            .block();
+    }
+
+    private static void assertExportedInIdOrder(List<RatingExportDTO> exported, List<Long> ids) {
+        List<Long> exportedIds = exported.stream().map(RatingExportDTO::getId).toList();
+        assertThat(exportedIds).isSortedAccordingTo(Comparator.naturalOrder()).containsSubsequence(ids);
+    }
+
     protected long getRepositoryCount() {
         return ratingRepository.count().block();
     }
@@ -6,13 +6,21 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import id.laris.assistant.IntegrationTest;
+import id.laris.assistant.config.ApplicationProperties;
+import id.laris.assistant.config.StatementCountingConfiguration.StatementCounter;
 import id.laris.assistant.domain.Tags;
 import id.laris.assistant.repository.EntityManager;
 import id.laris.assistant.repository.TagRepository;
+import id.laris.assistant.service.dto.MovieDTO;
 import id.laris.assistant.service.dto.TagDTO;
+import id.laris.assistant.service.dto.TagExportDTO;
 import id.laris.assistant.service.mapper.TagMapper;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.AfterEach;
@@ -21,8 +29,10 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
 
 /**
  * Integration tests for the {@link TagResource} REST controller.
@@ -40,6 +50,8 @@ class TagsResourceIT {
 
     private static final String ENTITY_API_URL = "/api/tags";
     private static final String ENTITY_API_URL_ID = ENTITY_API_URL + "/{id}";
+    private static final String ENTITY_API_URL_BULK = "/api/public/movie-tags/_bulk";
+    private static final String ENTITY_API_URL_EXPORT = "/api/public/movie-tags/_export";
 
     private static Random random = new Random();
     private static AtomicLong longCount = new AtomicLong(random.nextInt() + (2 * Integer.MAX_VALUE));
@@ -59,6 +71,15 @@ class TagsResourceIT {
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Autowired
+    private DatabaseClient db;
+
     private Tags tags;
 
     private Tags insertedTags;
@@ -288,7 +309,7 @@ class TagsResourceIT {
         // Create the Tags
         TagDTO tagDTO = tagMapper.toDto(tags);
 
-        // If the entity doesn't have an ID, it will throw BadRequestAlertException
+        // The update finds no row to update
         webTestClient
             .put()
             .uri(ENTITY_API_URL_ID, tagDTO.getId())
@@ -296,7 +317,7 @@ class TagsResourceIT {
             .bodyValue(om.writeValueAsBytes(tagDTO))
             .exchange()
             .expectStatus()
-            .isBadRequest();
+            .isNotFound();
 
         // Validate the Tags in the database
         assertSameRepositoryCount(databaseSizeBeforeUpdate);
@@ -402,6 +423,53 @@ class TagsResourceIT {
         assertTagsUpdatableFieldsEquals(partialUpdatedTags, getPersistedTags(partialUpdatedTags));
     }
 
+    @Test
+    void putExistingTagsWithOneStatement() throws Exception {
+        // Initialize the database
+        insertedTags = tagRepository.save(tags).block();
+
+        Tags updatedTags = tagRepository.findById(tags.getId()).block();
+        updatedTags.tag(UPDATED_TAG).timestamp(UPDATED_TIMESTAMP);
+        TagDTO tagDTO = tagMapper.toDto(updatedTags);
+
+        statementCounter.reset();
+        webTestClient
+            .put()
+            .uri(ENTITY_API_URL_ID, tagDTO.getId())
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(om.writeValueAsBytes(tagDTO))
+            .exchange()
+            .expectStatus()
+            .isOk();
+
+        // A single UPDATE ... RETURNING, without existence check nor reload
+        assertThat(statementCounter.count()).isEqualTo(1);
+    }
+
+    @Test
+    void patchExistingTagsWithOneStatement() throws Exception {
+        // Initialize the database
+        insertedTags = tagRepository.save(tags).block();
+
+        Tags partialUpdatedTags = new Tags();
+        partialUpdatedTags.setId(tags.getId());
+
+        partialUpdatedTags.tag(UPDATED_TAG).timestamp(UPDATED_TIMESTAMP);
+
+        statementCounter.reset();
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL_ID, partialUpdatedTags.getId())
+            .contentType(MediaType.valueOf("application/merge-patch+json"))
+            .bodyValue(om.writeValueAsBytes(partialUpdatedTags))
+            .exchange()
+            .expectStatus()
+            .isOk();
+
+        // A single UPDATE ... SET column = COALESCE(:value, column) RETURNING
+        assertThat(statementCounter.count()).isEqualTo(1);
+    }
+
     @Test
     void patchNonExistingTags() throws Exception {
         long databaseSizeBeforeUpdate = getRepositoryCount();
@@ -410,7 +478,7 @@ class TagsResourceIT {
         // Create the Tags
         TagDTO tagDTO = tagMapper.toDto(tags);
 
-        // If the entity doesn't have an ID, it will throw BadRequestAlertException
+        // The update finds no row to update
         webTestClient
             .patch()
             .uri(ENTITY_API_URL_ID, tagDTO.getId())
@@ -418,7 +486,7 @@ class TagsResourceIT {
             .bodyValue(om.writeValueAsBytes(tagDTO))
             .exchange()
             .expectStatus()
-            .isBadRequest();
+            .isNotFound();
 
         // Validate the Tags in the database
         assertSameRepositoryCount(databaseSizeBeforeUpdate);
@@ -488,6 +556,191 @@ class TagsResourceIT {
         assertDecrementedRepositoryCount(databaseSizeBeforeDelete);
     }
 
+    @Test
+    void createTagsInBulkFromAJsonArray() {
+        long databaseSizeBeforeCreate = getRepositoryCount();
+        TagDTO invalid = newTagsDTO();
+        invalid.setTag(null);
+        List<TagDTO> tagDTOs = List.of(newTagsDTO(), invalid, newTagsDTOOfAMissingMovies());
+
+        withBulkChunkSize(2, () ->
+            webTestClient
+                .post()
+                .uri(ENTITY_API_URL_BULK)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(tagDTOs)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.length()")
+                .value(is(2))
+                .jsonPath("$.[0].chunk")
+                .value(is(0))
+                .jsonPath("$.[0].ids.length()")
+                .value(is(1))
+                .jsonPath("$.[0].errors[0].index")
+                .value(is(1))
+                .jsonPath("$.[0].errors[0].message")
+                .value(is("tag must not be null"))
+                .jsonPath("$.[1].chunk")
+                .value(is(1))
+                .jsonPath("$.[1].ids.length()")
+                .value(is(0))
+                .jsonPath("$.[1].errors[0].index")
+                .value(is(2))
+                .jsonPath("$.[1].errors[0].message")
+                .value(is("The movies is not found"))
+        );
+
+        assertThat(getRepositoryCount()).isEqualTo(databaseSizeBeforeCreate + 1);
+    }
+
+    @Test
+    void createTagsInBulkFromNdjson() throws Exception {
+        long databaseSizeBeforeCreate = getRepositoryCount();
+        // the refused chunk is retried item by item, which keeps the valid item next to the refused one
+        String body = String.join(
+            "\n",
+            om.writeValueAsString(newTagsDTO()),
+            om.writeValueAsString(newTagsDTOOfAMissingMovies()),
+            om.writeValueAsString(newTagsDTO())
+        );
+
+        List<JsonNode> results = new ArrayList<>();
+        withBulkChunkSize(2, () ->
+            results.addAll(
+                webTestClient
+                    .post()
+                    .uri(ENTITY_API_URL_BULK)
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .bodyValue(body)
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectHeader()
+                    .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                    .returnResult(JsonNode.class)
+                    .getResponseBody()
+                    .collectList()
+                    .block()
+            )
+        );
+
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0).get("ids")).hasSize(1);
+        assertThat(results.get(0).get("errors")).hasSize(1);
+        assertThat(results.get(0).get("errors").get(0).get("index").asLong()).isEqualTo(1L);
+        assertThat(results.get(0).get("errors").get(0).get("message").asText()).isEqualTo("The movies is not found");
+        assertThat(results.get(1).get("ids")).hasSize(1);
+        assertThat(results.get(1).get("errors")).isEmpty();
+        assertThat(getRepositoryCount()).isEqualTo(databaseSizeBeforeCreate + 2);
+    }
+
+    @Test
+    void exportTagsAsNdjsonInIdOrder() {
+        List<Long> ids = insertTagsForExport();
+
+        List<TagExportDTO> exported = webTestClient
+            .get()
+            .uri(ENTITY_API_URL_EXPORT)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .returnResult(TagExportDTO.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+
+        assertExportedInIdOrder(exported, ids);
+    }
+
+    @Test
+    void exportTagsAsServerSentEventsInIdOrder() {
+        List<Long> ids = insertTagsForExport();
+
+        List<TagExportDTO> exported = webTestClient
+            .get()
+            .uri(ENTITY_API_URL_EXPORT)
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+            .returnResult(TagExportDTO.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+
+        assertExportedInIdOrder(exported, ids);
+    }
+
+    @Test
+    void exportTagsThroughSeveralFetchesOfTheCursor() {
+        List<Long> ids = insertTagsForExport();
+        int fetchSize = applicationProperties.getExport().getFetchSize();
+        // the rows are read by 2 from the cursor, which only lives in the read-only transaction of the export
+        applicationProperties.getExport().setFetchSize(2);
+        try {
+            List<TagExportDTO> exported = webTestClient
+                .get()
+                .uri(ENTITY_API_URL_EXPORT)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(TagExportDTO.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+            assertExportedInIdOrder(exported, ids);
+        } finally {
+            applicationProperties.getExport().setFetchSize(fetchSize);
+        }
+    }
+
+    private TagDTO newTagsDTO() {
+        return tagMapper.toDto(createEntity());
+    }
+
+    private TagDTO newTagsDTOOfAMissingMovies() {
+        MovieDTO movies = new MovieDTO();
+        movies.setId(Long.MAX_VALUE);
+        TagDTO tagDTO = newTagsDTO();
+        tagDTO.setMovies(movies);
+        return tagDTO;
+    }
+
+    private void withBulkChunkSize(int chunkSize, Runnable test) {
+        int defaultChunkSize = applicationProperties.getBulk().getChunkSize();
+        applicationProperties.getBulk().setChunkSize(chunkSize);
+        try {
+            test.run();
+        } finally {
+            applicationProperties.getBulk().setChunkSize(defaultChunkSize);
+        }
+    }
+
+    private List<Long> insertTagsForExport() {
+        return Flux.range(0, 5)
+            .concatMap(i -> tagRepository.save(createEntity().tag(DEFAULT_TAG + i)))
+            .map(Tags::getId)
+            .collectList()
+            .block();
+    }
+
+    private static void assertExportedInIdOrder(List<TagExportDTO> exported, List<Long> ids) {
+        List<Long> exportedIds = exported.stream().map(TagExportDTO::getId).toList();
+        assertThat(exportedIds).isSortedAccordingTo(Comparator.naturalOrder()).containsSubsequence(ids);
+    }
+
     protected long getRepositoryCount() {
         return tagRepository.count().block();
     }
@@ -519,4 +772,14 @@ class TagsResourceIT {
         // assertTagsAllUpdatablePropertiesEquals(expectedTags, getPersistedTags(expectedTags));
         assertTagsUpdatableFieldsEquals(expectedTags, getPersistedTags(expectedTags));
     }
+
+    @Test
+    void estimateTheCountOfTagsFromTheStatisticsOfItsPartitions() {
+        // Initialize the database
+        insertedTags = tagRepository.save(tags).block();
+        // only the partitions are analyzed, as autovacuum does
+        db.sql("ANALYZE tags_archive").then().block();
+
+        assertThat(em.estimateCount(Tags.class).blockOptional()).hasValueSatisfying(estimate -> assertThat(estimate).isPositive());
+    }
 }
@@ -3,16 +3,28 @@ package id.laris.assistant.web.rest;
 import static id.laris.assistant.domain.UsersAsserts.*;
 import static id.laris.assistant.web.rest.TestUtil.createUpdateProxyForBean;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import id.laris.assistant.IntegrationTest;
+import id.laris.assistant.config.StatementCountingConfiguration.StatementCounter;
+import id.laris.assistant.domain.Movies;
+import id.laris.assistant.domain.Ratings;
+import id.laris.assistant.domain.Tags;
 import id.laris.assistant.domain.Users;
 import id.laris.assistant.repository.EntityManager;
+import id.laris.assistant.repository.MovieRepository;
+import id.laris.assistant.repository.RatingRepository;
+import id.laris.assistant.repository.TagRepository;
 import id.laris.assistant.repository.UserRepository;
+import id.laris.assistant.service.dto.RatingValueDTO;
 import id.laris.assistant.service.dto.UserDTO;
 import id.laris.assistant.service.mapper.UserMapper;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.AfterEach;
@@ -20,6 +32,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -40,6 +53,9 @@ class UsersResourceIT {
 
     private static final String ENTITY_API_URL = "/api/users";
     private static final String ENTITY_API_URL_ID = ENTITY_API_URL + "/{id}";
+    private static final String RATING_API_URL = "/api/public/movie-users/{id}/movies/{movieId}/rating";
+    private static final String RATINGS_API_URL = "/api/public/movie-users/{id}/ratings";
+    private static final String TAGS_API_URL = "/api/public/movie-users/{id}/tags";
 
     private static Random random = new Random();
     private static AtomicLong longCount = new AtomicLong(random.nextInt() + (2 * Integer.MAX_VALUE));
@@ -53,16 +69,32 @@ class UsersResourceIT {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private RatingRepository ratingRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
     @Autowired
     private EntityManager em;
 
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private StatementCounter statementCounter;
+
     private Users users;
 
     private Users insertedUsers;
 
+    private final List<Movies> historyMovies = new ArrayList<>();
+
+    private Movies insertedMovies;
+
     /**
      * Create an entity for this test.
      *
@@ -98,6 +130,14 @@ class UsersResourceIT {
 
     @AfterEach
     public void cleanup() {
+        RatingsResourceIT.deleteEntities(em);
+        TagsResourceIT.deleteEntities(em);
+        historyMovies.forEach(movies -> movieRepository.delete(movies).block());
+        historyMovies.clear();
+        if (insertedMovies != null) {
+            movieRepository.delete(insertedMovies).block();
+            insertedMovies = null;
+        }
         if (insertedUsers != null) {
             userRepository.delete(insertedUsers).block();
             insertedUsers = null;
@@ -105,6 +145,21 @@ class UsersResourceIT {
         deleteEntities(em);
     }
 
+    /**
+     * Rates a new movie by the inserted users, a user rates a movie at most once.
+     */
+    private void rateMovie(double rating, long timestamp) {
+        Movies movies = movieRepository.save(MoviesResourceIT.createEntity()).block();
+        historyMovies.add(movies);
+        ratingRepository.save(new Ratings().rating(rating).timestamp(timestamp).users(insertedUsers).movies(movies)).block();
+    }
+
+    private void tagMovie(String tag, long timestamp) {
+        Movies movies = movieRepository.save(MoviesResourceIT.createEntity()).block();
+        historyMovies.add(movies);
+        tagRepository.save(new Tags().tag(tag).timestamp(timestamp).users(insertedUsers).movies(movies)).block();
+    }
+
     @Test
     void createUsers() throws Exception {
         long databaseSizeBeforeCreate = getRepositoryCount();
@@ -288,7 +343,7 @@ class UsersResourceIT {
         // Create the Users
         UserDTO userDTO = userMapper.toDto(users);
 
-        // If the entity doesn't have an ID, it will throw BadRequestAlertException
+        // The update finds no row to update
         webTestClient
             .put()
             .uri(ENTITY_API_URL_ID, userDTO.getId())
@@ -296,7 +351,7 @@ class UsersResourceIT {
             .bodyValue(om.writeValueAsBytes(userDTO))
             .exchange()
             .expectStatus()
-            .isBadRequest();
+            .isNotFound();
 
         // Validate the Users in the database
         assertSameRepositoryCount(databaseSizeBeforeUpdate);
@@ -400,6 +455,53 @@ class UsersResourceIT {
         assertUsersUpdatableFieldsEquals(partialUpdatedUsers, getPersistedUsers(partialUpdatedUsers));
     }
 
+    @Test
+    void putExistingUsersWithOneStatement() throws Exception {
+        // Initialize the database
+        insertedUsers = userRepository.save(users).block();
+
+        Users updatedUsers = userRepository.findById(users.getId()).block();
+        updatedUsers.firstName(UPDATED_FIRST_NAME).lastName(UPDATED_LAST_NAME);
+        UserDTO userDTO = userMapper.toDto(updatedUsers);
+
+        statementCounter.reset();
+        webTestClient
+            .put()
+            .uri(ENTITY_API_URL_ID, userDTO.getId())
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(om.writeValueAsBytes(userDTO))
+            .exchange()
+            .expectStatus()
+            .isOk();
+
+        // A single UPDATE ... RETURNING, without existence check nor reload
+        assertThat(statementCounter.count()).isEqualTo(1);
+    }
+
+    @Test
+    void patchExistingUsersWithOneStatement() throws Exception {
+        // Initialize the database
+        insertedUsers = userRepository.save(users).block();
+
+        Users partialUpdatedUsers = new Users();
+        partialUpdatedUsers.setId(users.getId());
+
+        partialUpdatedUsers.firstName(UPDATED_FIRST_NAME).lastName(UPDATED_LAST_NAME);
+
+        statementCounter.reset();
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL_ID, partialUpdatedUsers.getId())
+            .contentType(MediaType.valueOf("application/merge-patch+json"))
+            .bodyValue(om.writeValueAsBytes(partialUpdatedUsers))
+            .exchange()
+            .expectStatus()
+            .isOk();
+
+        // A single UPDATE ... SET column = COALESCE(:value, column) RETURNING
+        assertThat(statementCounter.count()).isEqualTo(1);
+    }
+
     @Test
     void patchNonExistingUsers() throws Exception {
         long databaseSizeBeforeUpdate = getRepositoryCount();
@@ -408,7 +510,7 @@ class UsersResourceIT {
         // Create the Users
         UserDTO userDTO = userMapper.toDto(users);
 
-        // If the entity doesn't have an ID, it will throw BadRequestAlertException
+        // The update finds no row to update
         webTestClient
             .patch()
             .uri(ENTITY_API_URL_ID, userDTO.getId())
@@ -416,7 +518,7 @@ class UsersResourceIT {
             .bodyValue(om.writeValueAsBytes(userDTO))
             .exchange()
             .expectStatus()
-            .isBadRequest();
+            .isNotFound();
 
         // Validate the Users in the database
         assertSameRepositoryCount(databaseSizeBeforeUpdate);
@@ -466,6 +568,158 @@ class UsersResourceIT {
         assertSameRepositoryCount(databaseSizeBeforeUpdate);
     }
 
+    @Test
+    void rateMovieInsertsThenUpdatesTheRating() throws Exception {
+        // Initialize the database
+        insertedUsers = userRepository.save(users).block();
+        insertedMovies = movieRepository.save(MoviesResourceIT.createEntity()).block();
+
+        RatingValueDTO ratingValueDTO = new RatingValueDTO();
+        ratingValueDTO.setRating(3.5);
+        ratingValueDTO.setTimestamp(964982703L);
+
+        webTestClient
+            .put()
+            .uri(RATING_API_URL, insertedUsers.getId(), insertedMovies.getId())
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(om.writeValueAsBytes(ratingValueDTO))
+            .exchange()
+            .expectStatus()
+            .isCreated()
+            .expectBody()
+            .jsonPath("$.rating")
+            .isEqualTo(3.5);
+
+        // Rate the movie again
+        ratingValueDTO.setRating(4.5);
+        ratingValueDTO.setTimestamp(964982704L);
+        statementCounter.reset();
+
+        webTestClient
+            .put()
+            .uri(RATING_API_URL, insertedUsers.getId(), insertedMovies.getId())
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(om.writeValueAsBytes(ratingValueDTO))
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.rating")
+            .isEqualTo(4.5);
+
+        // A single INSERT ... ON CONFLICT DO UPDATE, which replaced the first rating
+        assertThat(statementCounter.count()).isEqualTo(1);
+        Ratings ratings = ratingRepository.findAll().filter(rating -> insertedMovies.getId().equals(rating.getMovieId())).single().block();
+        assertThat(ratings.getUserId()).isEqualTo(insertedUsers.getId());
+        assertThat(ratings.getRating()).isEqualTo(4.5);
+        assertThat(ratings.getTimestamp()).isEqualTo(964982704L);
+    }
+
+    @Test
+    void rateNonExistingMovie() throws Exception {
+        // Initialize the database
+        insertedUsers = userRepository.save(users).block();
+
+        RatingValueDTO ratingValueDTO = new RatingValueDTO();
+        ratingValueDTO.setRating(3.5);
+
+        webTestClient
+            .put()
+            .uri(RATING_API_URL, insertedUsers.getId(), Long.MAX_VALUE)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(om.writeValueAsBytes(ratingValueDTO))
+            .exchange()
+            .expectStatus()
+            .isNotFound();
+    }
+
+    @Test
+    void getUsersRatingsMostRecentFirst() {
+        // Initialize the database
+        insertedUsers = userRepository.save(users).block();
+        rateMovie(4.5, 100L);
+        rateMovie(4.0, 200L);
+        rateMovie(3.5, 250L);
+        rateMovie(5.0, 300L);
+
+        webTestClient
+            .get()
+            .uri(RATINGS_API_URL + "?size=2", insertedUsers.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "4")
+            .expectHeader()
+            .value(HttpHeaders.LINK, containsString("rel=\"next\""))
+            .expectBody()
+            .jsonPath("$.[*].timestamp")
+            .value(contains(300, 250));
+    }
+
+    @Test
+    void getUsersRatingsWithinTheBounds() {
+        // Initialize the database
+        insertedUsers = userRepository.save(users).block();
+        rateMovie(4.5, 100L);
+        rateMovie(4.0, 200L);
+        rateMovie(3.5, 250L);
+        rateMovie(5.0, 300L);
+
+        // the upper bound is exclusive, and a minimum of 3.7 stars selects the ratings of 4 stars and more
+        webTestClient
+            .get()
+            .uri(RATINGS_API_URL + "?from=200&to=300&minRating=3.7", insertedUsers.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "1")
+            .expectBody()
+            .jsonPath("$.[*].timestamp")
+            .value(contains(200))
+            .jsonPath("$.[0].rating")
+            .value(is(4.0));
+    }
+
+    @Test
+    void getUsersRatingsWithAnEmptyTimeRange() {
+        // Initialize the database
+        insertedUsers = userRepository.save(users).block();
+
+        webTestClient
+            .get()
+            .uri(RATINGS_API_URL + "?from=300&to=200", insertedUsers.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+    }
+
+    @Test
+    void getUsersTagsMostRecentFirstWithinTheBounds() {
+        // Initialize the database
+        insertedUsers = userRepository.save(users).block();
+        tagMovie("first", 100L);
+        tagMovie("second", 200L);
+        tagMovie("third", 300L);
+
+        webTestClient
+            .get()
+            .uri(TAGS_API_URL + "?from=200", insertedUsers.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .valueEquals("X-Total-Count", "2")
+            .expectBody()
+            .jsonPath("$.[*].tag")
+            .value(contains("third", "second"));
+    }
+
     @Test
     void deleteUsers() {
         // Initialize the database
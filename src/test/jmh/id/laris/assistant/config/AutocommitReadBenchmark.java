@@ -0,0 +1,113 @@
+package id.laris.assistant.config;
+
+import id.laris.assistant.service.AutocommitRead;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionConfiguration;
+import io.r2dbc.postgresql.PostgresqlConnectionFactory;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.interceptor.DefaultTransactionAttribute;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+/**
+ * Compares the latency of the primary key lookup of {@code GET /api/public/movies/{id}} run through the transaction
+ * managers of the application, as {@code MovieServiceImpl.findOne} runs it: in a read-only transaction, which costs a
+ * {@code BEGIN READ ONLY} and a {@code COMMIT} round trip around the {@code SELECT}, and as an {@link AutocommitRead}.
+ * <p>
+ * The sample time mode reports the p50 and p99 of each. The database is a local container, so the difference is the
+ * cost of the two round trips on the loopback; it grows with the network latency to a remote database.
+ * <pre>
+ * ./mvnw -Pbenchmark test-compile exec:java -Dexec.args="AutocommitReadBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AutocommitReadBenchmark {
+
+    private static final int MOVIES = 10_000;
+
+    private static final String FIND_ONE = "SELECT e.id AS e_id, e.title AS e_title, e.genres AS e_genres FROM movies e WHERE e.id = $1";
+
+    @Param({ "transaction", "autocommit" })
+    private String mode;
+
+    private PostgreSqlTestContainer container;
+
+    private ConnectionPool pool;
+
+    private DatabaseClient db;
+
+    private TransactionalOperator readOperator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        container = new PostgreSqlTestContainer();
+        container.afterPropertiesSet();
+        var database = container.getTestContainer();
+        pool = new ConnectionPool(
+            ConnectionPoolConfiguration.builder(
+                new PostgresqlConnectionFactory(
+                    PostgresqlConnectionConfiguration.builder()
+                        .host(database.getHost())
+                        .port(database.getFirstMappedPort())
+                        .database(database.getDatabaseName())
+                        .username(database.getUsername())
+                        .password(database.getPassword())
+                        .build()
+                )
+            )
+                .initialSize(4)
+                .maxSize(4)
+                .build()
+        );
+        db = DatabaseClient.create(pool);
+        db.sql("DROP TABLE IF EXISTS movies").then().block();
+        db.sql("CREATE TABLE movies (id bigint PRIMARY KEY, title varchar(255) NOT NULL, genres varchar(255) NOT NULL)").then().block();
+        db.sql("INSERT INTO movies SELECT i, 'Movie ' || i, 'Comedy|Drama' FROM generate_series(1, " + MOVIES + ") i").then().block();
+        db.sql("VACUUM ANALYZE movies").then().block();
+
+        boolean autocommit = "autocommit".equals(mode);
+        ReactiveTransactionManager transactionManager = new ReadOnlyRoutingTransactionManager(pool);
+        DefaultTransactionAttribute definition = new DefaultTransactionAttribute();
+        definition.setReadOnly(true);
+        if (autocommit) {
+            transactionManager = new AutocommitReadTransactionManager(transactionManager);
+            definition.setLabels(List.of(AutocommitRead.LABEL));
+        }
+        readOperator = TransactionalOperator.create(transactionManager, definition);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        db.sql("DROP TABLE movies").then().block();
+        pool.dispose();
+        container.destroy();
+    }
+
+    @Benchmark
+    public String findOne() {
+        long id = ThreadLocalRandom.current().nextLong(1, MOVIES + 1);
+        return readOperator.transactional(db.sql(FIND_ONE).bind(0, id).map(row -> row.get("e_title", String.class)).one()).block();
+    }
+}
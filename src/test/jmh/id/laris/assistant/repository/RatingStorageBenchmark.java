@@ -0,0 +1,132 @@
+package id.laris.assistant.repository;
+
+import id.laris.assistant.config.PostgreSqlTestContainer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a copy of the ratings table storing the ratings as a {@code double precision} in stars with one storing them
+ * as a {@code smallint} in half stars: a sequential aggregate of all the ratings, and a count over the
+ * {@code (movie_id, rating)} index of one movie.
+ * <p>
+ * The sizes of the table and of the index are printed at setup. The {@code smallint} is padded to the alignment of the
+ * {@code bigint} columns which follow it, so the heap tuples and the index entries keep their size in this row layout.
+ * <pre>
+ * ./mvnw -Pbenchmark test-compile exec:java -Dexec.args="RatingStorageBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RatingStorageBenchmark {
+
+    private static final int ROWS = 1_000_000;
+
+    private static final int MOVIES = 10_000;
+
+    @Param({ "double", "half_stars" })
+    private String storage;
+
+    private PostgreSqlTestContainer container;
+
+    private Connection connection;
+
+    private PreparedStatement aggregate;
+
+    private PreparedStatement movieCount;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        container = new PostgreSqlTestContainer();
+        container.afterPropertiesSet();
+        var database = container.getTestContainer();
+        connection = DriverManager.getConnection(database.getJdbcUrl(), database.getUsername(), database.getPassword());
+        boolean halfStars = "half_stars".equals(storage);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS rating_storage");
+            statement.execute(
+                "CREATE TABLE rating_storage (id bigint PRIMARY KEY, rating " +
+                (halfStars ? "smallint" : "double precision") +
+                " NOT NULL, timestamp bigint NOT NULL, user_id bigint, movie_id bigint)"
+            );
+            statement.execute(
+                "INSERT INTO rating_storage SELECT i, " +
+                (halfStars ? "(i % 10 + 1)::smallint" : "(i % 10 + 1) / 2.0") +
+                ", 964982703 + i, i % 1000, i % " +
+                MOVIES +
+                " FROM generate_series(1, " +
+                ROWS +
+                ") i"
+            );
+            statement.execute("CREATE INDEX idx_rating_storage__movie_id_rating ON rating_storage (movie_id, rating)");
+            statement.execute("VACUUM ANALYZE rating_storage");
+            try (
+                ResultSet sizes = statement.executeQuery(
+                    "SELECT pg_relation_size('rating_storage'), pg_relation_size('idx_rating_storage__movie_id_rating')"
+                )
+            ) {
+                sizes.next();
+                System.out.printf("%n%s: table %,d bytes, (movie_id, rating) index %,d bytes%n", storage, sizes.getLong(1), sizes.getLong(2));
+            }
+        }
+        aggregate = connection.prepareStatement(
+            halfStars
+                ? "SELECT count(*), sum(rating) / 2.0, avg(rating) / 2.0 FROM rating_storage"
+                : "SELECT count(*), sum(rating), avg(rating) FROM rating_storage"
+        );
+        movieCount = connection.prepareStatement("SELECT count(*) FROM rating_storage WHERE movie_id = ? AND rating >= ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE rating_storage");
+        }
+        connection.close();
+        container.destroy();
+    }
+
+    @Benchmark
+    public double aggregateAll() throws SQLException {
+        try (ResultSet result = aggregate.executeQuery()) {
+            result.next();
+            return result.getDouble(2);
+        }
+    }
+
+    @Benchmark
+    public long countAMovieAboveARating() throws SQLException {
+        movieCount.setLong(1, ThreadLocalRandom.current().nextLong(MOVIES));
+        if ("half_stars".equals(storage)) {
+            movieCount.setShort(2, (short) 7);
+        } else {
+            movieCount.setDouble(2, 3.5);
+        }
+        try (ResultSet result = movieCount.executeQuery()) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+}
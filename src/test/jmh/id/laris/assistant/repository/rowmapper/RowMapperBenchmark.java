@@ -0,0 +1,101 @@
+package id.laris.assistant.repository.rowmapper;
+
+import id.laris.assistant.domain.Movies;
+import id.laris.assistant.domain.Ratings;
+import id.laris.assistant.domain.Users;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Maps 100k joined ratings rows, with their users and movies, by column name and by column index.
+ * <p>
+ * Add {@code -prof gc} to the arguments to compare the allocations per row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    private RatingRowMapper ratingRowMapper;
+
+    private UserRowMapper userRowMapper;
+
+    private MovieRowMapper movieRowMapper;
+
+    private RowMetadata metadata;
+
+    private List<Row> rows;
+
+    @Setup
+    public void setUp() {
+        ColumnConverter converter = InMemoryRows.columnConverter();
+        ratingRowMapper = new RatingRowMapper(converter);
+        userRowMapper = new UserRowMapper(converter);
+        movieRowMapper = new MovieRowMapper(converter);
+        InMemoryRows.Metadata joined = InMemoryRows.metadata(
+            "e_id",
+            "e_rating",
+            "e_timestamp",
+            "e_user_id",
+            "e_movie_id",
+            "users_id",
+            "users_first_name",
+            "users_last_name",
+            "movies_id",
+            "movies_title",
+            "movies_genres"
+        );
+        metadata = joined;
+        rows = new ArrayList<>(ROWS);
+        for (long i = 0; i < ROWS; i++) {
+            long userId = i % 610;
+            long movieId = i % 9742;
+            rows.add(
+                joined.row(i, (short) (i % 10 + 1), 964982703L + i, userId, movieId, userId, "First", "Last", movieId, "Toy Story (1995)", "Comedy")
+            );
+        }
+    }
+
+    @Benchmark
+    public void byName(Blackhole blackhole) {
+        for (Row row : rows) {
+            Ratings entity = ratingRowMapper.apply(row, "e");
+            entity.setUsers(userRowMapper.apply(row, "users"));
+            entity.setMovies(movieRowMapper.apply(row, "movies"));
+            blackhole.consume(entity);
+        }
+    }
+
+    @Benchmark
+    public void byIndex(Blackhole blackhole) {
+        BiFunction<Row, RowMetadata, Ratings> ratings = ratingRowMapper.reader("e");
+        BiFunction<Row, RowMetadata, Users> users = userRowMapper.reader("users");
+        BiFunction<Row, RowMetadata, Movies> movies = movieRowMapper.reader("movies");
+        for (Row row : rows) {
+            Ratings entity = ratings.apply(row, metadata);
+            entity.setUsers(users.apply(row, metadata));
+            entity.setMovies(movies.apply(row, metadata));
+            blackhole.consume(entity);
+        }
+    }
+}